@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+/**
+ * A growable list of {@code boolean} values that stores each value as a
+ * single bit. The bits are kept in the same order that
+ * {@link PrimitiveUtil#toBytes(boolean[])} uses, so {@link #toBytes()} only
+ * has to write the two byte length header and copy the bit field:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * BooleanList list = new BooleanList();
+ * list.add(true);
+ * byte[] bytes = list.toBytes();
+ * boolean[] values = (boolean[]) new MemoryMappedPrimitive(bytes).asType(boolean[].class);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * Because the byte format stores the number of values as a {@code short}, a
+ * list with more than {@link Short#MAX_VALUE} values can be built but cannot
+ * be encoded.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class BooleanList {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The bit field. Bits past {@code mSize} are always 0.
+     */
+    private byte[] mBits;
+
+    private int mSize;
+
+    /**
+     * Create an empty list with the default capacity.
+     * 
+     * @since 1.1
+     */
+    public BooleanList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty list.
+     * 
+     * @param capacity the number of values the list can hold before it has to
+     *            grow.
+     * @throws IllegalArgumentException if {@code capacity < 0}.
+     * @since 1.1
+     */
+    public BooleanList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        mBits = new byte[bytesFor(capacity)];
+    }
+
+    /**
+     * Create a list that contains {@code values}.
+     * 
+     * @param values the initial values of the list.
+     * @throws IllegalArgumentException if {@code values} is null.
+     * @since 1.1
+     */
+    public BooleanList(boolean[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+        mBits = new byte[bytesFor(values.length)];
+        for (int i = 0; i < values.length; i++) {
+            add(values[i]);
+        }
+    }
+
+    private static int bytesFor(int bits) {
+        return (bits >>> 3) + ((bits & 7) != 0 ? 1 : 0);
+    }
+
+    private static int mask(int index) {
+        return (1 << (7 - (index & 7))) & 0xff;
+    }
+
+    /**
+     * Decodes a list from bytes created by {@link #toBytes()} or by
+     * {@code new MemoryMappedPrimitive(boolean[])}.
+     * 
+     * @param bytes the encoded list.
+     * @return a new list.
+     * @throws IllegalArgumentException if {@code bytes} is null or too short
+     *             for the length in its header.
+     * @since 1.1
+     */
+    public static BooleanList fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes cannot be null");
+        }
+
+        int size = PrimitiveUtil.toShort(bytes, 0);
+        int byteCount = bytesFor(size);
+        if (size < 0 || bytes.length - 2 < byteCount) {
+            throw new IllegalArgumentException(byteCount + " bytes needed for " + size
+                    + " values. found " + (bytes.length - 2));
+        }
+
+        BooleanList result = new BooleanList(size);
+        System.arraycopy(bytes, 2, result.mBits, 0, byteCount);
+        result.mSize = size;
+
+        // clear any stray bits past the end of the list
+        if ((size & 7) != 0) {
+            result.mBits[byteCount - 1] &= (byte) (0xff << (8 - (size & 7)));
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the values in this list. The result has the same format as
+     * {@link PrimitiveUtil#toBytes(boolean[])}.
+     * 
+     * @return a new byte array.
+     * @throws IllegalArgumentException if this list holds more than
+     *             {@link Short#MAX_VALUE} values.
+     * @since 1.1
+     */
+    public byte[] toBytes() {
+        if (mSize > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("boolean lists must have a size of "
+                    + Short.MAX_VALUE + " or less to be encoded");
+        }
+
+        int byteCount = bytesFor(mSize);
+        byte[] result = new byte[2 + byteCount];
+        PrimitiveUtil.toBytes((short) mSize, result, 0);
+        System.arraycopy(mBits, 0, result, 2, byteCount);
+        return result;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    private void throwIfBadIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+    }
+
+    /**
+     * Makes sure that the list can hold at least {@code capacity} values
+     * without growing again.
+     * 
+     * @param capacity the required capacity.
+     * @since 1.1
+     */
+    public void ensureCapacity(int capacity) {
+        int byteCount = bytesFor(capacity);
+        if (byteCount > mBits.length) {
+            int newLength = mBits.length + (mBits.length >> 1) + 1;
+            if (newLength < byteCount) {
+                newLength = byteCount;
+            }
+            byte[] newBits = new byte[newLength];
+            System.arraycopy(mBits, 0, newBits, 0, bytesFor(mSize));
+            mBits = newBits;
+        }
+    }
+
+    public boolean get(int index) {
+        throwIfBadIndex(index);
+        return (mBits[index >>> 3] & mask(index)) != 0;
+    }
+
+    /**
+     * Replaces the value at {@code index}.
+     * 
+     * @return the previous value.
+     * @since 1.1
+     */
+    public boolean set(int index, boolean value) {
+        boolean previous = get(index);
+        write(index, value);
+        return previous;
+    }
+
+    private void write(int index, boolean value) {
+        int bytePos = index >>> 3;
+        if (value) {
+            mBits[bytePos] = (byte) (mBits[bytePos] | mask(index));
+        } else {
+            mBits[bytePos] = (byte) (mBits[bytePos] & ~mask(index));
+        }
+    }
+
+    public void add(boolean value) {
+        ensureCapacity(mSize + 1);
+        write(mSize++, value);
+    }
+
+    /**
+     * Removes the last value in the list.
+     * 
+     * @return the removed value.
+     * @throws IndexOutOfBoundsException if the list is empty.
+     * @since 1.1
+     */
+    public boolean removeLast() {
+        boolean previous = get(mSize - 1);
+        write(--mSize, false);
+        return previous;
+    }
+
+    public void clear() {
+        for (int i = bytesFor(mSize) - 1; i >= 0; i--) {
+            mBits[i] = 0;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Returns the number of values in this list that are {@code true}.
+     * 
+     * @since 1.1
+     */
+    public int cardinality() {
+        int result = 0;
+        for (int i = bytesFor(mSize) - 1; i >= 0; i--) {
+            result += Integer.bitCount(mBits[i] & 0xff);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the values in this list.
+     * 
+     * @since 1.1
+     */
+    public boolean[] toArray() {
+        boolean[] result = new boolean[mSize];
+        for (int i = 0; i < mSize; i++) {
+            result[i] = (mBits[i >>> 3] & mask(i)) != 0;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof BooleanList)) {
+            return false;
+        }
+
+        BooleanList other = (BooleanList) o;
+        if (other.mSize != mSize) {
+            return false;
+        }
+        for (int i = bytesFor(mSize) - 1; i >= 0; i--) {
+            if (mBits[i] != other.mBits[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mSize;
+        for (int i = bytesFor(mSize) - 1; i >= 0; i--) {
+            result = 31 * result + mBits[i];
+        }
+        return result;
+    }
+
+}
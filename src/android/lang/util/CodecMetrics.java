@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.lang.reflect.Array;
+
+/**
+ * Counts the arrays that {@link MemoryMappedPrimitive} encodes and decodes:
+ * the number of calls, elements and bytes for each primitive type, and a
+ * latency histogram of the conversions of at least
+ * {@link #LATENCY_THRESHOLD} elements. The counts are kept in
+ * {@link StripedCounter}s and {@link StripedHistogram}s, so recording from
+ * many threads at once does not make them contend.
+ * <p>
+ * Recording is off until {@link #setEnabled(boolean)} turns it on, and can be
+ * turned off again at any time. While it is off, each conversion costs one
+ * extra read of a {@code volatile} field. Setting the system property
+ * {@code android.lang.util.CodecMetrics.disabled} to {@code true} before this
+ * class is loaded sets {@link #AVAILABLE} to false, which removes even that
+ * read, since the checks are on a {@code static final} field.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * CodecMetrics.setEnabled(true);
+ * ...
+ * CodecMetrics.Snapshot snapshot = CodecMetrics.snapshot();
+ * long bytes = snapshot.bytes(long.class, Operation.ENCODE);
+ * long[] latencies = snapshot.latencies(long.class, Operation.ENCODE);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class CodecMetrics {
+
+    /**
+     * The direction of a conversion.
+     * 
+     * @since 1.1
+     */
+    public enum Operation {
+        /**
+         * An array converted to bytes.
+         */
+        ENCODE,
+
+        /**
+         * Bytes converted to an array.
+         */
+        DECODE
+    }
+
+    /**
+     * False if metrics were disabled with a system property when this class
+     * was loaded, in which case nothing is ever recorded.
+     * 
+     * @since 1.1
+     */
+    public static final boolean AVAILABLE = !Boolean
+            .getBoolean("android.lang.util.CodecMetrics.disabled");
+
+    /**
+     * Conversions of at least this many elements are recorded in the latency
+     * histograms.
+     * 
+     * @since 1.1
+     */
+    public static final int LATENCY_THRESHOLD = PrimitiveUtil.BULK_THRESHOLD;
+
+    /**
+     * The upper bounds of the latency buckets, in nanoseconds: powers of two
+     * from about one microsecond to about one second, so that each bucket is
+     * twice as wide as the one before it.
+     */
+    private static final long[] LATENCY_BOUNDS = new long[21];
+
+    private static final Class<?>[] TYPES = {
+            byte.class, short.class, char.class, int.class, long.class, float.class,
+            double.class, boolean.class
+    };
+
+    private static final Class<?>[] BOX_TYPES = {
+            Byte.class, Short.class, Character.class, Integer.class, Long.class, Float.class,
+            Double.class, Boolean.class
+    };
+
+    private static final int[] SIZES = {
+            1, 2, 2, 4, 8, 4, 8, 0
+    };
+
+    /*
+     * One entry per operation and type, indexed by slot().
+     */
+    private static final StripedCounter[] CALLS;
+
+    private static final StripedCounter[] ELEMENTS;
+
+    private static final StripedCounter[] BYTES;
+
+    private static final StripedHistogram[] LATENCIES;
+
+    private static volatile boolean sEnabled;
+
+    static {
+        for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+            LATENCY_BOUNDS[i] = 1L << (10 + i);
+        }
+
+        int slots = AVAILABLE ? Operation.values().length * TYPES.length : 0;
+        CALLS = new StripedCounter[slots];
+        ELEMENTS = new StripedCounter[slots];
+        BYTES = new StripedCounter[slots];
+        LATENCIES = new StripedHistogram[slots];
+        for (int i = 0; i < slots; i++) {
+            CALLS[i] = new StripedCounter();
+            ELEMENTS[i] = new StripedCounter();
+            BYTES[i] = new StripedCounter();
+            LATENCIES[i] = new StripedHistogram(LATENCY_BOUNDS);
+        }
+    }
+
+    private CodecMetrics() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    /**
+     * Returns true if conversions are being recorded.
+     * 
+     * @since 1.1
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Turns recording on or off. The counts recorded so far are kept.
+     * 
+     * @param enabled true to record conversions.
+     * @throws IllegalStateException if {@code enabled} is true and
+     *             {@link #AVAILABLE} is false.
+     * @since 1.1
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && !AVAILABLE) {
+            throw new IllegalStateException("metrics were disabled when CodecMetrics was loaded");
+        }
+        sEnabled = enabled;
+    }
+
+    /**
+     * Sets every count back to zero.
+     * 
+     * @since 1.1
+     */
+    public static void reset() {
+        for (int i = 0; i < CALLS.length; i++) {
+            CALLS[i].reset();
+            ELEMENTS[i].reset();
+            BYTES[i].reset();
+            LATENCIES[i].reset();
+        }
+    }
+
+    /**
+     * Returns the upper bounds of the latency buckets, in nanoseconds.
+     * 
+     * @see StripedHistogram
+     * @since 1.1
+     */
+    public static long[] getLatencyBounds() {
+        return LATENCY_BOUNDS.clone();
+    }
+
+    /**
+     * Returns the time to pass to {@link #record(Operation, Object, long)},
+     * or 0 if recording is off.
+     */
+    /* default */static long start() {
+        return sEnabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the conversion of {@code array}, which started at
+     * {@code start}. Callers check {@link #AVAILABLE} first.
+     * 
+     * @param operation the direction of the conversion.
+     * @param array the array that was encoded or decoded.
+     * @param start the value returned by {@link #start()}.
+     */
+    /* default */static void record(Operation operation, Object array, long start) {
+        if (!sEnabled || start == 0L || array == null) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Class<?> component = array.getClass().getComponentType();
+        int type = indexOf(component, TYPES);
+        if (type < 0) {
+            type = indexOf(component, BOX_TYPES);
+        }
+        if (type < 0) {
+            return;
+        }
+
+        int elements = Array.getLength(array);
+        long bytes = TYPES[type] == boolean.class ? 2 + (elements + 7) / 8
+                : (long) elements * SIZES[type];
+
+        int slot = slot(operation, type);
+        CALLS[slot].increment();
+        ELEMENTS[slot].add(elements);
+        BYTES[slot].add(bytes);
+        if (elements >= LATENCY_THRESHOLD) {
+            LATENCIES[slot].record(elapsed);
+        }
+    }
+
+    private static int indexOf(Class<?> type, Class<?>[] types) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int slot(Operation operation, int type) {
+        return operation.ordinal() * TYPES.length + type;
+    }
+
+    /**
+     * Returns a copy of the counts recorded so far.
+     * 
+     * @since 1.1
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    /**
+     * The counts recorded up to the time {@link CodecMetrics#snapshot()} was
+     * called. Conversions recorded while the snapshot is being taken may or
+     * may not be included.
+     * 
+     * @since 1.1
+     */
+    public static final class Snapshot {
+
+        private final long[] mCalls;
+
+        private final long[] mElements;
+
+        private final long[] mBytes;
+
+        private final long[][] mLatencies;
+
+        private Snapshot() {
+            int slots = Operation.values().length * TYPES.length;
+            mCalls = new long[slots];
+            mElements = new long[slots];
+            mBytes = new long[slots];
+            mLatencies = new long[slots][];
+            for (int i = 0; i < slots; i++) {
+                if (AVAILABLE) {
+                    mCalls[i] = CALLS[i].sum();
+                    mElements[i] = ELEMENTS[i].sum();
+                    mBytes[i] = BYTES[i].sum();
+                    mLatencies[i] = LATENCIES[i].counts();
+                } else {
+                    mLatencies[i] = new long[LATENCY_BOUNDS.length + 1];
+                }
+            }
+        }
+
+        private static int slot(Class<?> type, Operation operation) {
+            if (operation == null) {
+                throw new IllegalArgumentException("operation cannot be null");
+            }
+
+            int index = indexOf(type, TYPES);
+            if (index < 0) {
+                throw new IllegalArgumentException((type == null ? null : type.getName())
+                        + " is not a primitive type");
+            }
+            return CodecMetrics.slot(operation, index);
+        }
+
+        /**
+         * Returns the number of arrays of {@code type} converted.
+         * 
+         * @param type a primitive type, e.g. {@code long.class}. Boxed arrays
+         *            are counted under their primitive type.
+         * @param operation the direction of the conversions.
+         * @since 1.1
+         */
+        public long calls(Class<?> type, Operation operation) {
+            return mCalls[slot(type, operation)];
+        }
+
+        /**
+         * Returns the number of values of {@code type} converted.
+         * 
+         * @see #calls(Class, Operation)
+         * @since 1.1
+         */
+        public long elements(Class<?> type, Operation operation) {
+            return mElements[slot(type, operation)];
+        }
+
+        /**
+         * Returns the number of encoded bytes of {@code type} produced or
+         * read.
+         * 
+         * @see #calls(Class, Operation)
+         * @since 1.1
+         */
+        public long bytes(Class<?> type, Operation operation) {
+            return mBytes[slot(type, operation)];
+        }
+
+        /**
+         * Returns the number of large conversions of {@code type} in each
+         * latency bucket. Bucket {@code i} counts the conversions that took
+         * at most {@code getLatencyBounds()[i]} nanoseconds; the last bucket
+         * counts the ones that took longer.
+         * 
+         * @see #calls(Class, Operation)
+         * @since 1.1
+         */
+        public long[] latencies(Class<?> type, Operation operation) {
+            return mLatencies[slot(type, operation)].clone();
+        }
+    }
+
+}
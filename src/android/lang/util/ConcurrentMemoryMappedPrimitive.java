@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe counterpart to {@link MemoryMappedPrimitive} that can be
+ * shared between threads without locking. The data is laid out exactly as
+ * {@link MemoryMappedPrimitive} lays it out, but it is stored in an
+ * {@link AtomicLongArray} so that the {@code long} and {@code int} values in it
+ * can be read and updated atomically:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * // a shared array of 16 long counters
+ * ConcurrentMemoryMappedPrimitive counters = new ConcurrentMemoryMappedPrimitive(new long[16]);
+ * 
+ * // on any thread
+ * counters.getAndAddLong(3, 1);
+ * 
+ * // on any other thread
+ * long[] totals = (long[]) counters.asType(long[].class);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * {@code long} values are addressed by slot: slot {@code n} holds bytes
+ * {@code 8 * n} through {@code 8 * n + 7}. {@code int} slots work the same way
+ * with four bytes each, so {@code int} slots {@code 2 * n} and
+ * {@code 2 * n + 1} overlap {@code long} slot {@code n}.
+ * <p>
+ * Calling a {@code set} method replaces the entire backing array. The
+ * replacement is safely published: any thread that reads a value after the
+ * {@code set} call returns sees the new array and everything written to it
+ * before it was set. An update that runs at the same time as a {@code set}
+ * call may be applied to the array that is being replaced, and so be lost.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ConcurrentMemoryMappedPrimitive {
+
+    /**
+     * A backing array and its length in bytes. Never modified after it is
+     * published through {@link ConcurrentMemoryMappedPrimitive#mStorage}
+     * apart from the elements of {@code mWords}.
+     */
+    private static final class Storage {
+
+        private final AtomicLongArray mWords;
+
+        private final int mLength;
+
+        private Storage(AtomicLongArray words, int length) {
+            mWords = words;
+            mLength = length;
+        }
+    }
+
+    /**
+     * The current backing array. Volatile so that replacing it publishes the
+     * new array safely.
+     * 
+     * @since 1.1
+     */
+    private volatile Storage mStorage;
+
+    /**
+     * Creates a new object with {@code length} zero bytes.
+     * 
+     * @param length the length of the data, in bytes.
+     * @throws IllegalArgumentException if {@code length} is negative.
+     * @since 1.1
+     */
+    public ConcurrentMemoryMappedPrimitive(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length cannot be negative");
+        }
+        mStorage = new Storage(new AtomicLongArray(wordCount(length)), length);
+    }
+
+    /**
+     * Create a new object with the initial value.
+     * 
+     * @param value the object's initial value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public ConcurrentMemoryMappedPrimitive(byte[] value) {
+        set(value);
+    }
+
+    /**
+     * Create a new object with the initial value.
+     * 
+     * @param value the object's initial value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public ConcurrentMemoryMappedPrimitive(int[] value) {
+        set(value);
+    }
+
+    /**
+     * Create a new object with the initial value.
+     * 
+     * @param value the object's initial value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public ConcurrentMemoryMappedPrimitive(long[] value) {
+        set(value);
+    }
+
+    private static int wordCount(int length) {
+        return (length + 7) >>> 3;
+    }
+
+    /**
+     * Replaces the data with a copy of {@code value}.
+     * 
+     * @param value the new value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public void set(byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+
+        long[] words = new long[wordCount(value.length)];
+        for (int i = 0; i < value.length; i++) {
+            words[i >>> 3] |= (value[i] & 0xFFL) << ((7 - (i & 7)) << 3);
+        }
+        mStorage = new Storage(new AtomicLongArray(words), value.length);
+    }
+
+    /**
+     * Replaces the data with a copy of {@code value}.
+     * 
+     * @param value the new value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public void set(int[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+
+        long[] words = new long[(value.length + 1) >>> 1];
+        for (int i = 0; i < value.length; i++) {
+            words[i >>> 1] |= (i & 1) == 0 ? (long) value[i] << 32 : value[i] & 0xFFFFFFFFL;
+        }
+        mStorage = new Storage(new AtomicLongArray(words), value.length * 4);
+    }
+
+    /**
+     * Replaces the data with a copy of {@code value}.
+     * 
+     * @param value the new value.
+     * @throws IllegalArgumentException if {@code value} is null.
+     * @since 1.1
+     */
+    public void set(long[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        mStorage = new Storage(new AtomicLongArray(value), value.length * 8);
+    }
+
+    /**
+     * Returns the length of the data in bytes.
+     * 
+     * @return the length of the data in bytes.
+     * @since 1.1
+     */
+    public int length() {
+        return mStorage.mLength;
+    }
+
+    private static void throwIfBadSlot(Storage storage, int index, int width) {
+        if (index < 0 || index >= storage.mLength / width) {
+            throw new IllegalArgumentException("slot " + index + " is out of range for "
+                    + storage.mLength + " bytes");
+        }
+    }
+
+    /**
+     * Returns the {@code long} value in slot {@code index}, with volatile
+     * semantics.
+     * 
+     * @param index the slot to read.
+     * @return the value in the slot.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public long getLongVolatile(int index) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 8);
+        return storage.mWords.get(index);
+    }
+
+    /**
+     * Sets the {@code long} value in slot {@code index} with release
+     * semantics: writes made before this call are visible to any thread that
+     * reads the new value, but the write may become visible to other threads
+     * later than a volatile write would.
+     * 
+     * @param index the slot to write.
+     * @param value the new value.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public void setLongRelease(int index, long value) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 8);
+        storage.mWords.lazySet(index, value);
+    }
+
+    /**
+     * Atomically sets the {@code long} value in slot {@code index} to
+     * {@code update} if it currently equals {@code expect}.
+     * 
+     * @param index the slot to update.
+     * @param expect the expected value.
+     * @param update the new value.
+     * @return true if the value was updated.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public boolean compareAndSetLong(int index, long expect, long update) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 8);
+        return storage.mWords.compareAndSet(index, expect, update);
+    }
+
+    /**
+     * Atomically adds {@code delta} to the {@code long} value in slot
+     * {@code index}.
+     * 
+     * @param index the slot to update.
+     * @param delta the value to add.
+     * @return the value before {@code delta} was added.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public long getAndAddLong(int index, long delta) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 8);
+        return storage.mWords.getAndAdd(index, delta);
+    }
+
+    /*
+     * int slots share a word with their neighbor: even slots are the high
+     * half, odd slots the low half.
+     */
+    private static int shift(int index) {
+        return (index & 1) == 0 ? 32 : 0;
+    }
+
+    /**
+     * Returns the {@code int} value in slot {@code index}, with volatile
+     * semantics.
+     * 
+     * @param index the slot to read.
+     * @return the value in the slot.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public int getIntVolatile(int index) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 4);
+        return (int) (storage.mWords.get(index >>> 1) >>> shift(index));
+    }
+
+    /**
+     * Sets the {@code int} value in slot {@code index}. The neighboring
+     * {@code int} slot shares a word with this one, so the value is set with a
+     * compare and set loop, which is at least as strong as a release write.
+     * 
+     * @param index the slot to write.
+     * @param value the new value.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public void setIntRelease(int index, int value) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 4);
+
+        int word = index >>> 1;
+        int shift = shift(index);
+        long mask = 0xFFFFFFFFL << shift;
+        long bits = (value & 0xFFFFFFFFL) << shift;
+        long current;
+        do {
+            current = storage.mWords.get(word);
+        } while (!storage.mWords.compareAndSet(word, current, (current & ~mask) | bits));
+    }
+
+    /**
+     * Atomically sets the {@code int} value in slot {@code index} to
+     * {@code update} if it currently equals {@code expect}. Changes to the
+     * neighboring {@code int} slot do not cause this method to fail.
+     * 
+     * @param index the slot to update.
+     * @param expect the expected value.
+     * @param update the new value.
+     * @return true if the value was updated.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public boolean compareAndSetInt(int index, int expect, int update) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 4);
+
+        int word = index >>> 1;
+        int shift = shift(index);
+        long mask = 0xFFFFFFFFL << shift;
+        long bits = (update & 0xFFFFFFFFL) << shift;
+        while (true) {
+            long current = storage.mWords.get(word);
+            if ((int) (current >>> shift) != expect) {
+                return false;
+            }
+            if (storage.mWords.compareAndSet(word, current, (current & ~mask) | bits)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically adds {@code delta} to the {@code int} value in slot
+     * {@code index}. Like {@code int} arithmetic, the addition wraps on
+     * overflow and never carries into the neighboring slot.
+     * 
+     * @param index the slot to update.
+     * @param delta the value to add.
+     * @return the value before {@code delta} was added.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public int getAndAddInt(int index, int delta) {
+        Storage storage = mStorage;
+        throwIfBadSlot(storage, index, 4);
+
+        int word = index >>> 1;
+        int shift = shift(index);
+        long mask = 0xFFFFFFFFL << shift;
+        while (true) {
+            long current = storage.mWords.get(word);
+            int value = (int) (current >>> shift);
+            long bits = ((value + delta) & 0xFFFFFFFFL) << shift;
+            if (storage.mWords.compareAndSet(word, current, (current & ~mask) | bits)) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the data as a byte array, in the same format that
+     * {@code MemoryMappedPrimitive.asType(byte[].class)} returns. Each
+     * {@code long} slot is read atomically, but the copy as a whole is not an
+     * atomic snapshot of all of the slots.
+     * 
+     * @return a copy of the data.
+     * @since 1.1
+     */
+    public byte[] toBytes() {
+        Storage storage = mStorage;
+        byte[] result = new byte[storage.mLength];
+        for (int i = 0; i < result.length; i += 8) {
+            long word = storage.mWords.get(i >>> 3);
+            int end = Math.min(i + 8, result.length);
+            for (int j = i; j < end; j++) {
+                result[j] = (byte) (word >>> ((7 - (j & 7)) << 3));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a copy of the data into a specified type, exactly as
+     * {@link MemoryMappedPrimitive#asType(Class)} does.
+     * 
+     * @param type type of value to return
+     * @return the converted value. Changing it does not change this object.
+     * @throws RuntimeException if the data cannot be converted to the specified
+     *             {@code type}.
+     * @see #toBytes()
+     * @since 1.1
+     */
+    public Object asType(Class<?> type) {
+        return new MemoryMappedPrimitive(toBytes()).asType(type);
+    }
+
+}
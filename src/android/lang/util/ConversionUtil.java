@@ -0,0 +1,560 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.lang.reflect.Array;
+
+/**
+ * Converts arrays of one numeric primitive type into another by <b>value</b>,
+ * the way a cast does, as opposed to {@link ReinterpretUtil} and
+ * {@link MemoryMappedPrimitive}, which reinterpret the bytes of the array. For
+ * example, converting the {@code int} value 3 to a {@code double} results in
+ * {@code 3.0}.
+ * <p>
+ * Conversions that cannot lose range (e.g. {@code int} to {@code long} or
+ * {@code float} to {@code double}) simply copy each value. Conversions that
+ * can (e.g. {@code long} to {@code int} or {@code double} to {@code float})
+ * handle out of range values according to a {@link Mode}:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * long[] longValues = ...;
+ * int[] intValues = (int[]) ConversionUtil.convert(longValues, int[].class, Mode.SATURATE);
+ * 
+ * // convert 10 values into the middle of an existing array
+ * double[] doubleValues = ...;
+ * float[] floatValues = new float[100];
+ * ConversionUtil.convert(doubleValues, 0, floatValues, 45, 10, Mode.CHECKED);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * Floating point values converted to an integral type are rounded toward zero,
+ * and values converted to {@code float} or {@code double} are rounded to the
+ * nearest representable value, exactly as a cast does. Integral values are
+ * never out of range for {@code float} or {@code double}, and {@code NaN} and
+ * infinite values are passed through unchanged, in every mode, when the
+ * destination type is {@code float} or {@code double}.
+ * <p>
+ * {@code char} values are treated as unsigned 16 bit integers. {@code boolean}
+ * arrays cannot be converted.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ConversionUtil {
+
+    /**
+     * Determines how a value that is out of range for the destination type is
+     * converted.
+     * 
+     * @since 1.1
+     */
+    public enum Mode {
+        /**
+         * Out of range values are converted the way a cast converts them:
+         * integral values keep their low order bits, floating point values
+         * that are too large for {@code int} or {@code long} become the
+         * largest (or smallest) value of that type and {@code double} values
+         * that are too large for {@code float} become infinite.
+         */
+        TRUNCATE,
+
+        /**
+         * Out of range values are converted to the largest (or smallest) value
+         * of the destination type. {@code NaN} is converted to 0 for integral
+         * destination types and passed through for {@code float} and
+         * {@code double}.
+         */
+        SATURATE,
+
+        /**
+         * Out of range values cause an {@link IllegalArgumentException}, and
+         * so does {@code NaN} for integral destination types. {@code NaN} is
+         * passed through for {@code float} and {@code double}. Values
+         * converted before the bad value remain in the destination array.
+         */
+        CHECKED
+    }
+
+    private ConversionUtil() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    private static void throwIfBadArray(Object array, String name) {
+        if (array == null) {
+            throw new IllegalArgumentException(name + " cannot be null");
+        }
+
+        if (!array.getClass().isArray() || array instanceof boolean[]
+                || !array.getClass().getComponentType().isPrimitive()) {
+            throw new IllegalArgumentException(name
+                    + " must be an array of a numeric primitive type");
+        }
+    }
+
+    private static void throwIfBadSlice(Object array, int pos, int length, String name) {
+        if (pos < 0 || length < 0 || pos > Array.getLength(array) - length) {
+            throw new IllegalArgumentException(name + " range [" + pos + ", " + pos + " + "
+                    + length + ") is out of bounds for length " + Array.getLength(array));
+        }
+    }
+
+    /**
+     * Converts every value in {@code src} into a new array of type
+     * {@code type}.
+     * 
+     * @param src the array to convert.
+     * @param type the type of array to return, e.g. {@code double[].class}.
+     * @param mode how to convert values that are out of range for
+     *            {@code type}.
+     * @return a new array of type {@code type} with the same length as
+     *         {@code src}.
+     * @throws IllegalArgumentException if the arguments are null or not
+     *             numeric primitive arrays, or if {@code mode} is
+     *             {@link Mode#CHECKED} and a value is out of range.
+     * @since 1.1
+     */
+    public static Object convert(Object src, Class<?> type, Mode mode) {
+        throwIfBadArray(src, "src");
+
+        if (type == null || !type.isArray()) {
+            throw new IllegalArgumentException("type must be an array type");
+        }
+
+        int length = Array.getLength(src);
+        Object result = Array.newInstance(type.getComponentType(), length);
+        convert(src, 0, result, 0, length, mode);
+        return result;
+    }
+
+    /**
+     * Converts {@code length} values of {@code src}, starting at
+     * {@code srcPos}, and stores them in {@code dest} starting at
+     * {@code destPos}. The arguments are the same as those of
+     * {@link System#arraycopy(Object, int, Object, int, int)}; if {@code src}
+     * and {@code dest} are the same type then this method simply calls it.
+     * 
+     * @param src the array to convert.
+     * @param srcPos the first value of {@code src} to convert.
+     * @param dest the array to store the converted values in.
+     * @param destPos the position in {@code dest} of the first converted value.
+     * @param length the number of values to convert.
+     * @param mode how to convert values that are out of range for the type of
+     *            {@code dest}.
+     * @throws IllegalArgumentException if the arrays are null or not numeric
+     *             primitive arrays, if either range is out of bounds, or if
+     *             {@code mode} is {@link Mode#CHECKED} and a value is out of
+     *             range.
+     * @since 1.1
+     */
+    public static void convert(Object src, int srcPos, Object dest, int destPos, int length,
+            Mode mode) {
+        throwIfBadArray(src, "src");
+        throwIfBadArray(dest, "dest");
+        throwIfBadSlice(src, srcPos, length, "src");
+        throwIfBadSlice(dest, destPos, length, "dest");
+
+        if (mode == null) {
+            throw new IllegalArgumentException("mode cannot be null");
+        }
+
+        if (src.getClass() == dest.getClass()) {
+            System.arraycopy(src, srcPos, dest, destPos, length);
+            return;
+        }
+
+        if (dest instanceof byte[]) {
+            convertToByte(src, srcPos, (byte[]) dest, destPos, length, mode);
+        } else if (dest instanceof short[]) {
+            convertToShort(src, srcPos, (short[]) dest, destPos, length, mode);
+        } else if (dest instanceof char[]) {
+            convertToChar(src, srcPos, (char[]) dest, destPos, length, mode);
+        } else if (dest instanceof int[]) {
+            convertToInt(src, srcPos, (int[]) dest, destPos, length, mode);
+        } else if (dest instanceof long[]) {
+            convertToLong(src, srcPos, (long[]) dest, destPos, length, mode);
+        } else if (dest instanceof float[]) {
+            convertToFloat(src, srcPos, (float[]) dest, destPos, length, mode);
+        } else if (dest instanceof double[]) {
+            convertToDouble(src, srcPos, (double[]) dest, destPos, length, mode);
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static IllegalArgumentException outOfRange(Object value, long min, long max,
+            int index) {
+        return new IllegalArgumentException("value " + value + " at index " + index
+                + " is out of range [" + min + ", " + max + "]");
+    }
+
+    /*
+     * Returns value if it is between min and max. Otherwise the result
+     * depends on the mode; for TRUNCATE the caller's cast discards the high
+     * order bits.
+     */
+    private static long checkRange(long value, long min, long max, Mode mode, int index) {
+        if (value >= min && value <= max) {
+            return value;
+        }
+
+        switch (mode) {
+            case SATURATE:
+                return value < min ? min : max;
+            case CHECKED:
+                throw outOfRange(Long.valueOf(value), min, max, index);
+            default:
+                return value;
+        }
+    }
+
+    /*
+     * Returns value rounded toward zero if the result is between min and max.
+     * (double) min - 1 rounds to min when min is Long.MIN_VALUE, and
+     * (double) max + 1 is exact for every other type, so the bounds below are
+     * exact for all of the integral types.
+     */
+    private static long checkRange(double value, long min, long max, Mode mode, int index) {
+        if ((value > (double) min - 1d || value == (double) min) && value < (double) max + 1d) {
+            return (long) value;
+        }
+
+        switch (mode) {
+            case SATURATE:
+                if (Double.isNaN(value)) {
+                    return 0;
+                }
+                return value < 0 ? min : max;
+            case CHECKED:
+                throw outOfRange(Double.valueOf(value), min, max, index);
+            default:
+                // the same result a cast produces: narrower types go through int
+                return max > Integer.MAX_VALUE ? (long) value : (long) (int) value;
+        }
+    }
+
+    private static float toFloat(double value, Mode mode, int index) {
+        float result = (float) value;
+        if (!Float.isInfinite(result) || Double.isInfinite(value)) {
+            return result;
+        }
+
+        switch (mode) {
+            case SATURATE:
+                return value < 0 ? -Float.MAX_VALUE : Float.MAX_VALUE;
+            case CHECKED:
+                throw new IllegalArgumentException("value " + value + " at index " + index
+                        + " is out of range for float");
+            default:
+                return result;
+        }
+    }
+
+    private static void convertToByte(Object src, int srcPos, byte[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (byte) checkRange(source[srcPos + i],
+                        Byte.MIN_VALUE, Byte.MAX_VALUE, mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToShort(Object src, int srcPos, short[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (short) checkRange(source[srcPos + i],
+                        Short.MIN_VALUE, Short.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (short) checkRange(source[srcPos + i],
+                        Short.MIN_VALUE, Short.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (short) checkRange(source[srcPos + i],
+                        Short.MIN_VALUE, Short.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (short) checkRange(source[srcPos + i],
+                        Short.MIN_VALUE, Short.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (short) checkRange(source[srcPos + i],
+                        Short.MIN_VALUE, Short.MAX_VALUE, mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToChar(Object src, int srcPos, char[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (char) checkRange(source[srcPos + i],
+                        Character.MIN_VALUE, Character.MAX_VALUE, mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToInt(Object src, int srcPos, int[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (int) checkRange(source[srcPos + i],
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (int) checkRange(source[srcPos + i],
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = (int) checkRange(source[srcPos + i],
+                        Integer.MIN_VALUE, Integer.MAX_VALUE, mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToLong(Object src, int srcPos, long[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = checkRange(source[srcPos + i],
+                        Long.MIN_VALUE, Long.MAX_VALUE, mode, srcPos + i);
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = checkRange(source[srcPos + i],
+                        Long.MIN_VALUE, Long.MAX_VALUE, mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToFloat(Object src, int srcPos, float[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof double[]) {
+            double[] source = (double[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = toFloat(source[srcPos + i], mode, srcPos + i);
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+
+    private static void convertToDouble(Object src, int srcPos, double[] dest, int destPos,
+            int length, Mode mode) {
+        if (src instanceof byte[]) {
+            byte[] source = (byte[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof short[]) {
+            short[] source = (short[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof char[]) {
+            char[] source = (char[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof int[]) {
+            int[] source = (int[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof long[]) {
+            long[] source = (long[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else if (src instanceof float[]) {
+            float[] source = (float[]) src;
+            for (int i = 0; i < length; i++) {
+                dest[destPos + i] = source[srcPos + i];
+            }
+        } else {
+            throw new IllegalArgumentException("unable to convert "
+                    + src.getClass().getName() + " to " + dest.getClass().getName());
+        }
+    }
+}
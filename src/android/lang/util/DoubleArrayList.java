@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+/**
+ * A growable list of {@code double} values. Values are stored in a
+ * {@code double[]}, so there is no {@code Double} object per element, and the
+ * list is serialized with one bulk call to {@link PrimitiveUtil}:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * DoubleArrayList list = new DoubleArrayList();
+ * list.add(...);
+ * byte[] bytes = list.toBytes();
+ * DoubleArrayList copy = DoubleArrayList.fromBytes(bytes);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * The byte format is the same one produced by
+ * {@code new MemoryMappedPrimitive(double[])}, so the bytes can also be decoded
+ * with {@code asType(double[].class)}.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class DoubleArrayList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private double[] mArray;
+
+    private int mSize;
+
+    /**
+     * Create an empty list with the default capacity.
+     * 
+     * @since 1.1
+     */
+    public DoubleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty list.
+     * 
+     * @param capacity the number of values the list can hold before it has to
+     *            grow.
+     * @throws IllegalArgumentException if {@code capacity < 0}.
+     * @since 1.1
+     */
+    public DoubleArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        mArray = new double[capacity];
+    }
+
+    /**
+     * Create a list that contains a copy of {@code values}.
+     * 
+     * @param values the initial values of the list.
+     * @throws IllegalArgumentException if {@code values} is null.
+     * @since 1.1
+     */
+    public DoubleArrayList(double[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+        mArray = values.clone();
+        mSize = values.length;
+    }
+
+    /**
+     * Decodes a list from bytes created by {@link #toBytes()}. The decoded
+     * array becomes the backing array of the new list without being copied.
+     * 
+     * @param bytes the encoded list.
+     * @return a new list.
+     * @throws IllegalArgumentException if {@code bytes} is null or its length
+     *             is not a multiple of 8.
+     * @since 1.1
+     */
+    public static DoubleArrayList fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes cannot be null");
+        }
+
+        DoubleArrayList result = new DoubleArrayList(0);
+        if (bytes.length > 0) {
+            result.mArray = PrimitiveUtil.toDoubleArray(bytes);
+            result.mSize = result.mArray.length;
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the values in this list in a single pass over the backing array.
+     * 
+     * @return a new byte array holding {@code size() * 8} bytes.
+     * @since 1.1
+     */
+    public byte[] toBytes() {
+        return PrimitiveUtil.toBytes(mArray, 0, mSize);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    private void throwIfBadIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+    }
+
+    /**
+     * Makes sure that the list can hold at least {@code capacity} values
+     * without growing again. The backing array grows by half of its size at a
+     * time, so a series of {@link #add(double)} calls takes amortized constant
+     * time.
+     * 
+     * @param capacity the required capacity.
+     * @since 1.1
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > mArray.length) {
+            int newCapacity = mArray.length + (mArray.length >> 1) + 1;
+            if (newCapacity < capacity || newCapacity < 0) {
+                newCapacity = capacity;
+            }
+            double[] newArray = new double[newCapacity];
+            System.arraycopy(mArray, 0, newArray, 0, mSize);
+            mArray = newArray;
+        }
+    }
+
+    /**
+     * Shrinks the backing array to the size of the list.
+     * 
+     * @since 1.1
+     */
+    public void trimToSize() {
+        if (mArray.length != mSize) {
+            double[] newArray = new double[mSize];
+            System.arraycopy(mArray, 0, newArray, 0, mSize);
+            mArray = newArray;
+        }
+    }
+
+    public double get(int index) {
+        throwIfBadIndex(index);
+        return mArray[index];
+    }
+
+    /**
+     * Replaces the value at {@code index}.
+     * 
+     * @return the previous value.
+     * @since 1.1
+     */
+    public double set(int index, double value) {
+        throwIfBadIndex(index);
+        double previous = mArray[index];
+        mArray[index] = value;
+        return previous;
+    }
+
+    /**
+     * Appends {@code value} to the end of the list, growing the backing array
+     * if it is full.
+     * 
+     * @param value the value to append.
+     * @since 1.1
+     */
+    public void add(double value) {
+        ensureCapacity(mSize + 1);
+        mArray[mSize++] = value;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The range is checked before the list grows, so a bad
+     * range leaves the list unchanged.
+     * 
+     * @param values the values to append.
+     * @param start the index of the first value to append.
+     * @param length the number of values to append.
+     * @throws IllegalArgumentException if {@code values} is null or the range
+     *             is outside of {@code values}.
+     * @since 1.1
+     */
+    public void add(double[] values, int start, int length) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+        if (start < 0 || length < 0 || start > values.length - length) {
+            throw new IllegalArgumentException("range [" + start + ", " + (start + length)
+                    + ") is outside of an array of length " + values.length);
+        }
+        ensureCapacity(mSize + length);
+        System.arraycopy(values, start, mArray, mSize, length);
+        mSize += length;
+    }
+
+    /**
+     * Removes the value at {@code index} and shifts the values after it
+     * down by one.
+     * 
+     * @return the removed value.
+     * @since 1.1
+     */
+    public double remove(int index) {
+        throwIfBadIndex(index);
+        double previous = mArray[index];
+        System.arraycopy(mArray, index + 1, mArray, index, mSize - index - 1);
+        mSize--;
+        return previous;
+    }
+
+    /**
+     * Removes every value. The backing array keeps its capacity.
+     * 
+     * @since 1.1
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Returns a copy of the values in this list.
+     * 
+     * @since 1.1
+     */
+    public double[] toArray() {
+        double[] result = new double[mSize];
+        System.arraycopy(mArray, 0, result, 0, mSize);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof DoubleArrayList)) {
+            return false;
+        }
+
+        DoubleArrayList other = (DoubleArrayList) o;
+        if (other.mSize != mSize) {
+            return false;
+        }
+        for (int i = 0; i < mSize; i++) {
+            if (Double.doubleToLongBits(mArray[i]) != Double.doubleToLongBits(other.mArray[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < mSize; i++) {
+            double value = mArray[i];
+            long bits = Double.doubleToLongBits(value);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+}
@@ -19,6 +19,13 @@
 
 package android.lang.util;
 
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import android.lang.util.CodecMetrics.Operation;
+
 /**
  * {@code ArrayBackedPrimitive} allows primitive and arrays of primitives to be
  * converted easily to other primitive types. This class can be used for
@@ -92,6 +99,30 @@ package android.lang.util;
  * </pre>
  * 
  * </blockquote>
+ * <p>
+ * <h3>Cached Arrays</h3>
+ * <p>
+ * The most recently decoded array is cached until this object's value
+ * changes, so asking for the same array type repeatedly only decodes the bytes
+ * once. {@link #asType(Class)} returns a copy of the cached array, which the
+ * caller may modify. {@link #asSharedType(Class)} returns the cached array
+ * itself without copying it; that array is shared by every caller and must not
+ * be modified. If the byte array returned by {@code asType(byte[].class)} or
+ * passed to {@link #MemoryMappedPrimitive(byte[])} is modified directly, call
+ * {@link #invalidate()} afterwards.
+ * <p>
+ * {@link #wrap(Object)} goes a step further and does not encode an array at
+ * all until its bytes are needed.
+ * <p>
+ * <h3>Threads</h3>
+ * <p>
+ * Any number of threads may call {@code asType}, {@code asSharedType} and read
+ * from {@link #asList(Class)} at the same time, including the first call that
+ * encodes a wrapped array, as long as no thread changes the value. The
+ * {@code setXXX} methods, {@link #invalidate()} and writes through
+ * {@code asList} must not run at the same time as any other call; use
+ * {@link ConcurrentMemoryMappedPrimitive} when the value changes while other
+ * threads read it.
  * 
  * @author Richard Schilling
  * @since 1.0
@@ -99,12 +130,59 @@ package android.lang.util;
  */
 public final class MemoryMappedPrimitive {
 
+    /**
+     * The bits of NaN after {@link Float#floatToIntBits(float)}.
+     */
+    private static final int CANONICAL_FLOAT_NAN = 0x7fc00000;
+
+    /**
+     * The bits of NaN after {@link Double#doubleToLongBits(double)}.
+     */
+    private static final long CANONICAL_DOUBLE_NAN = 0x7ff8000000000000L;
+
     /**
      * The array that contains this primitive's data.
      * 
      * @since 1.0
      */
-    private byte[] mArray;
+    private volatile byte[] mArray;
+
+    /**
+     * An array passed to {@link #wrap(Object)} that has not been encoded into
+     * {@link #mArray} yet, or null. {@link #mArray} is always assigned before
+     * this is cleared, so a thread that sees null here sees the encoded bytes.
+     * 
+     * @since 1.1
+     */
+    private volatile Object mSource;
+
+    /**
+     * The most recently decoded array, or null. Cleared whenever the value
+     * changes.
+     * 
+     * @since 1.1
+     */
+    private volatile Decoded mDecoded;
+
+    /**
+     * An array type and the array decoded for it, published together so that
+     * a reader never sees the array of one type paired with another type.
+     */
+    private static final class Decoded {
+
+        final Class<?> mType;
+
+        final Object mArray;
+
+        Decoded(Class<?> type, Object array) {
+            mType = type;
+            mArray = array;
+        }
+
+    }
+
+    private MemoryMappedPrimitive() {
+    }
 
     /**
      * Create a new object with the initial value. The value will be overwritten
@@ -297,7 +375,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(byte value) {
-        mArray[0] = value;
+        bytes()[0] = value;
+        invalidate();
     }
 
     /**
@@ -307,7 +386,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(short value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -317,7 +397,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(int value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -327,7 +408,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(long value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -337,7 +419,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(float value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -347,7 +430,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(double value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -357,7 +441,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(boolean value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -367,7 +452,8 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(char value) {
-        PrimitiveUtil.toBytes(value, mArray, 0);
+        PrimitiveUtil.toBytes(value, bytes(), 0);
+        invalidate();
     }
 
     /**
@@ -377,7 +463,7 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(byte[] value) {
-        mArray = value;
+        replace(value);
     }
 
     /**
@@ -387,7 +473,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(short[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -397,7 +487,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(int[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -407,7 +501,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(long[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -417,7 +515,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(float[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -427,7 +529,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(double[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -437,7 +543,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(boolean[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -447,7 +557,11 @@ public final class MemoryMappedPrimitive {
      * @since 1.0
      */
     public void set(char[] value) {
-        mArray = PrimitiveUtil.toBytes(value);
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        replace(PrimitiveUtil.toBytes(value));
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, value, start);
+        }
     }
 
     /**
@@ -466,6 +580,12 @@ public final class MemoryMappedPrimitive {
      * <p>
      * Calling {@code asType(byte[].class)} will return the underlying byte
      * array that stores the data.
+     * <p>
+     * Every other array type returns a new array that the caller may modify.
+     * The most recently decoded array is cached until the value of this object
+     * changes, so repeated calls with the same array type copy the cached
+     * array instead of decoding the bytes again. Use
+     * {@link #asSharedType(Class)} to avoid the copy as well.
      * 
      * @param value type of value to return
      * @since 1.0
@@ -473,7 +593,331 @@ public final class MemoryMappedPrimitive {
      *             to the specified {@code type}.
      */
     public Object asType(Class<?> type) {
-        return type.isPrimitive() ? asPrimitiveType(type) : asPrimitiveArray(type);
+        if (type.isPrimitive()) {
+            return asPrimitiveType(type);
+        }
+
+        if (type == byte[].class) {
+            return bytes();
+        }
+
+        return copy(decode(type));
+    }
+
+    /**
+     * Works like {@link #asType(Class)}, except that an array type returns the
+     * cached array itself instead of a copy, so repeated calls with the same
+     * type do not allocate. The array is shared by every caller of this method
+     * and must not be modified.
+     * 
+     * @param type type of value to return
+     * @since 1.1
+     * @throws RuntimeException if the underlying byte array cannot be converted
+     *             to the specified {@code type}.
+     */
+    public Object asSharedType(Class<?> type) {
+        if (type.isPrimitive()) {
+            return asPrimitiveType(type);
+        }
+
+        if (type == byte[].class) {
+            return bytes();
+        }
+
+        return decode(type);
+    }
+
+    private Object decode(Class<?> type) {
+        Decoded decoded = mDecoded;
+        if (decoded != null && decoded.mType == type) {
+            return decoded.mArray;
+        }
+
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        Object result = asPrimitiveArray(type);
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.DECODE, result, start);
+        }
+        mDecoded = new Decoded(type, result);
+        return result;
+    }
+
+    private static Object copy(Object array) {
+        int length = Array.getLength(array);
+        Object result = Array.newInstance(array.getClass().getComponentType(), length);
+        System.arraycopy(array, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Creates an object that holds {@code array} without encoding it. The
+     * bytes are encoded the first time they are needed, and until then
+     * {@code asType} converts {@code array} directly: asking for its own type
+     * copies {@code array} ({@link #asSharedType(Class)} returns
+     * {@code array} itself), and asking for another primitive array
+     * type uses {@link ReinterpretUtil}, which does not create a byte array.
+     * <p>
+     * <blockquote>
+     * 
+     * <pre>
+     * MemoryMappedPrimitive mmp = MemoryMappedPrimitive.wrap(doubleArray);
+     * 
+     * // no bytes are encoded
+     * short[] shortValues = (short[]) mmp.asType(short[].class);
+     * </pre>
+     * 
+     * </blockquote>
+     * <p>
+     * {@code array} is not copied, so it must not be modified after it is
+     * passed to this method. A {@code float[]} or {@code double[]} holding a
+     * NaN that is not the canonical NaN is decoded like the constructors
+     * decode it, so its own type returns the canonical NaN rather than
+     * {@code array}'s bits.
+     * 
+     * @param array a primitive array.
+     * @return a new object holding {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null, empty or not
+     *             a primitive array.
+     * @since 1.1
+     */
+    public static MemoryMappedPrimitive wrap(Object array) {
+        if (array == null || !array.getClass().isArray()
+                || !array.getClass().getComponentType().isPrimitive()) {
+            throw new IllegalArgumentException("array must be a primitive array");
+        }
+        if (Array.getLength(array) == 0) {
+            throw new IllegalArgumentException("array length must be > 0");
+        }
+
+        MemoryMappedPrimitive result = new MemoryMappedPrimitive();
+        if (array instanceof byte[]) {
+            result.mArray = (byte[]) array;
+        } else {
+            result.mSource = array;
+            if (hasCanonicalBits(array)) {
+                result.mDecoded = new Decoded(array.getClass(), array);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * False if array holds a NaN whose bits would change when it is encoded,
+     * in which case it cannot be returned as its own decoded value.
+     */
+    private static boolean hasCanonicalBits(Object array) {
+        if (array instanceof float[]) {
+            for (float value : (float[]) array) {
+                if (value != value && Float.floatToRawIntBits(value) != CANONICAL_FLOAT_NAN) {
+                    return false;
+                }
+            }
+        } else if (array instanceof double[]) {
+            for (double value : (double[]) array) {
+                if (value != value
+                        && Double.doubleToRawLongBits(value) != CANONICAL_DOUBLE_NAN) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Discards the array cached by {@link #asType(Class)}. This only needs to
+     * be called after the byte array that holds this object's data has been
+     * modified directly; the {@code setXXX} methods call it automatically.
+     * 
+     * @since 1.1
+     */
+    public void invalidate() {
+        bytes();
+        mDecoded = null;
+    }
+
+    /**
+     * Returns the bytes holding this object's data, encoding the array passed
+     * to {@link #wrap(Object)} first if necessary.
+     */
+    private byte[] bytes() {
+        if (mSource != null) {
+            encodeSource();
+        }
+        return mArray;
+    }
+
+    /*
+     * Only one thread encodes; the others wait for it and then see mArray.
+     */
+    private synchronized void encodeSource() {
+        Object source = mSource;
+        if (source == null) {
+            return;
+        }
+
+        long start = CodecMetrics.AVAILABLE ? CodecMetrics.start() : 0L;
+        byte[] array;
+        if (source instanceof short[]) {
+            array = PrimitiveUtil.toBytes((short[]) source);
+        } else if (source instanceof char[]) {
+            array = PrimitiveUtil.toBytes((char[]) source);
+        } else if (source instanceof int[]) {
+            array = PrimitiveUtil.toBytes((int[]) source);
+        } else if (source instanceof long[]) {
+            array = PrimitiveUtil.toBytes((long[]) source);
+        } else if (source instanceof float[]) {
+            array = PrimitiveUtil.toBytes((float[]) source);
+        } else if (source instanceof double[]) {
+            array = PrimitiveUtil.toBytes((double[]) source);
+        } else {
+            array = PrimitiveUtil.toBytes((boolean[]) source);
+        }
+
+        if (CodecMetrics.AVAILABLE) {
+            CodecMetrics.record(Operation.ENCODE, source, start);
+        }
+
+        mArray = array;
+        mSource = null;
+    }
+
+    private void replace(byte[] array) {
+        mArray = array;
+        mSource = null;
+        mDecoded = null;
+    }
+
+    /**
+     * Returns a fixed size list view of the underlying byte array. Unlike
+     * {@code asType(Long[].class)}, nothing is decoded or boxed up front: each
+     * element is decoded from the byte array when it is read with
+     * {@code get}, and {@code set} encodes the element back into the byte
+     * array. The view always reflects the current value of this object, even
+     * after a later call to a {@code setXXX} method.
+     * <p>
+     * <blockquote>
+     * 
+     * <pre>
+     * List&lt;Long&gt; longs = new MemoryMappedPrimitive(byteArray).asList(Long.class);
+     * </pre>
+     * 
+     * </blockquote>
+     * 
+     * @param type the box type of the list elements, e.g. {@code Long.class}.
+     * @return a list view of the underlying byte array.
+     * @throws IllegalArgumentException if {@code type} is not a primitive box
+     *             type.
+     * @since 1.1
+     */
+    public <T> List<T> asList(Class<T> type) {
+        return new EncodedListView<T>(type);
+    }
+
+    /**
+     * A list view that decodes elements out of {@link #bytes()} on demand.
+     */
+    private final class EncodedListView<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Class<T> mType;
+
+        private final int mWidth;
+
+        private EncodedListView(Class<T> type) {
+            if (type == Byte.class || type == Boolean.class) {
+                mWidth = 1;
+            } else if (type == Short.class || type == Character.class) {
+                mWidth = 2;
+            } else if (type == Integer.class || type == Float.class) {
+                mWidth = 4;
+            } else if (type == Long.class || type == Double.class) {
+                mWidth = 8;
+            } else {
+                throw new IllegalArgumentException(type == null ? "type cannot be null"
+                        : type.getName() + " is not a primitive box type");
+            }
+            mType = type;
+        }
+
+        @Override
+        public int size() {
+            byte[] array = bytes();
+            if (mType == Boolean.class) {
+                return array.length < 2 ? 0 : PrimitiveUtil.toShort(array, 0);
+            }
+            return array.length / mWidth;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+            }
+
+            byte[] array = bytes();
+            int start = index * mWidth;
+            Object result;
+            if (mType == Byte.class) {
+                result = Byte.valueOf(array[start]);
+            } else if (mType == Short.class) {
+                result = Short.valueOf(PrimitiveUtil.toShort(array, start));
+            } else if (mType == Character.class) {
+                result = Character.valueOf(PrimitiveUtil.toChar(array, start));
+            } else if (mType == Integer.class) {
+                result = Integer.valueOf(PrimitiveUtil.toInt(array, start));
+            } else if (mType == Float.class) {
+                result = Float.valueOf(PrimitiveUtil.toFloat(array, start));
+            } else if (mType == Long.class) {
+                result = Long.valueOf(PrimitiveUtil.toLong(array, start));
+            } else if (mType == Double.class) {
+                result = Double.valueOf(PrimitiveUtil.toDouble(array, start));
+            } else {
+                int mask = (1 << (7 - (index % 8))) & 0xff;
+                result = Boolean.valueOf((array[2 + index / 8] & mask) != 0);
+            }
+
+            return mType.cast(result);
+        }
+
+        @Override
+        public T set(int index, T element) {
+            T previous = get(index);
+
+            byte[] array = bytes();
+            int start = index * mWidth;
+            if (mType == Byte.class) {
+                array[start] = element == null ? 0 : ((Byte) element).byteValue();
+            } else if (mType == Short.class) {
+                PrimitiveUtil.toBytes(element == null ? 0 : ((Short) element).shortValue(),
+                        array, start);
+            } else if (mType == Character.class) {
+                PrimitiveUtil.toBytes(element == null ? '\u0000'
+                        : ((Character) element).charValue(), array, start);
+            } else if (mType == Integer.class) {
+                PrimitiveUtil.toBytes(element == null ? 0 : ((Integer) element).intValue(),
+                        array, start);
+            } else if (mType == Float.class) {
+                PrimitiveUtil.toBytes(element == null ? 0.0f : ((Float) element).floatValue(),
+                        array, start);
+            } else if (mType == Long.class) {
+                PrimitiveUtil.toBytes(element == null ? 0L : ((Long) element).longValue(),
+                        array, start);
+            } else if (mType == Double.class) {
+                PrimitiveUtil.toBytes(element == null ? 0.0d : ((Double) element).doubleValue(),
+                        array, start);
+            } else {
+                int bytePos = 2 + index / 8;
+                int mask = (1 << (7 - (index % 8))) & 0xff;
+                if (element != null && ((Boolean) element).booleanValue()) {
+                    array[bytePos] = (byte) (array[bytePos] | mask);
+                } else {
+                    array[bytePos] = (byte) (array[bytePos] & ~mask);
+                }
+            }
+
+            invalidate();
+            return previous;
+        }
+
     }
 
     private Object asPrimitiveType(Class<?> type) {
@@ -554,69 +998,77 @@ public final class MemoryMappedPrimitive {
             throw new IllegalArgumentException(type.getName()
                     + " is not a primitive array ");
         }
+
+        Object source = mSource;
+        if (source != null && !(source instanceof boolean[]) && type.isArray()
+                && type.getComponentType().isPrimitive() && type != boolean[].class) {
+            return ReinterpretUtil.reinterpret(source, type);
+        }
+
+        byte[] array = bytes();
         if (type == byte[].class) {
-            return mArray;
+            return array;
         }
 
         if (type == Byte[].class) {
-            return PrimitiveUtil.box(mArray);
+            return PrimitiveUtil.box(array);
         }
 
         if (type == short[].class) {
-            return PrimitiveUtil.toShortArray(mArray);
+            return PrimitiveUtil.toShortArray(array);
         }
 
         if (type == Short[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toShortArray(mArray));
+            return PrimitiveUtil.toBoxedShortArray(array);
         }
 
         if (type == int[].class) {
-            return PrimitiveUtil.toIntArray(mArray);
+            return PrimitiveUtil.toIntArray(array);
         }
 
         if (type == Integer[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toIntArray(mArray));
+            return PrimitiveUtil.toBoxedIntegerArray(array);
         }
 
         if (type == long[].class) {
-            return PrimitiveUtil.toLongArray(mArray);
+            return PrimitiveUtil.toLongArray(array);
 
         }
 
         if (type == Long[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toLongArray(mArray));
+            return PrimitiveUtil.toBoxedLongArray(array);
         }
 
         if (type == float[].class) {
-            return PrimitiveUtil.toFloatArray(mArray);
+            return PrimitiveUtil.toFloatArray(array);
         }
 
         if (type == Float[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toFloatArray(mArray));
+            return PrimitiveUtil.toBoxedFloatArray(array);
         }
 
         if (type == double[].class) {
-            return PrimitiveUtil.toDoubleArray(mArray);
+            return PrimitiveUtil.toDoubleArray(array);
         }
 
         if (type == Double[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toDoubleArray(mArray));
+            return PrimitiveUtil.toBoxedDoubleArray(array);
         }
 
         if (type == boolean[].class) {
-            return PrimitiveUtil.toBooleanArray(mArray);
+            return PrimitiveUtil.toBooleanArray(array);
         }
 
         if (type == Boolean[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toBooleanArray(mArray));
+            return PrimitiveUtil.box(PrimitiveUtil.toBooleanArray(array));
         }
 
         if (type == char[].class) {
-            return PrimitiveUtil.toCharArray(mArray);
+            return PrimitiveUtil.toCharArray(array);
         }
 
         if (type == Character[].class) {
-            return PrimitiveUtil.box(PrimitiveUtil.toCharArray(mArray));
+            return PrimitiveUtil.toBoxedCharacterArray(array);
         }
 
         throw new UnsupportedOperationException("Unable to convert this.array to primitive array "
@@ -624,42 +1076,42 @@ public final class MemoryMappedPrimitive {
     }
 
     private byte asByte() {
-        return mArray[0];
+        return bytes()[0];
     }
 
     private short asShort() {
-        if (mArray.length < 2) {
+        if (bytes().length < 2) {
             throw new UnsupportedOperationException("not enough bytes to read a short.");
         }
-        return PrimitiveUtil.toShort(mArray, 0);
+        return PrimitiveUtil.toShort(bytes(), 0);
     }
 
     private int asInt() {
-        return PrimitiveUtil.toInt(mArray, 0);
+        return PrimitiveUtil.toInt(bytes(), 0);
     }
 
     private long asLong() {
-        return PrimitiveUtil.toLong(mArray, 0);
+        return PrimitiveUtil.toLong(bytes(), 0);
     }
 
     private float asFloat() {
-        return PrimitiveUtil.toFloat(mArray, 0);
+        return PrimitiveUtil.toFloat(bytes(), 0);
     }
 
     private double asDouble() {
-        return PrimitiveUtil.toDouble(mArray, 0);
+        return PrimitiveUtil.toDouble(bytes(), 0);
     }
 
     private boolean asBoolean() {
         boolean result = true;
-        if (mArray[0] == 0) {
+        if (bytes()[0] == 0) {
             result = false;
         }
         return result;
     }
 
     private char asChar() {
-        return PrimitiveUtil.toChar(mArray, 0);
+        return PrimitiveUtil.toChar(bytes(), 0);
     }
 
 }
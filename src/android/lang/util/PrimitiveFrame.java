@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.lang.reflect.Array;
+import java.util.zip.CRC32;
+
+/**
+ * {@code PrimitiveFrame} wraps an encoded primitive array in a small header
+ * that describes the payload and carries a checksum, so that data written to
+ * disk or sent to another process can be checked for corruption.
+ * <p>
+ * <h3>Frame Format</h3>
+ * <p>
+ * All values are stored big-endian:
+ * <ol>
+ * <li>bytes 0 - 1: the magic number {@code 0x504F}</li>
+ * <li>byte 2: the format version</li>
+ * <li>byte 3: the type of the encoded array</li>
+ * <li>byte 4: the payload encoding. Only {@link #ENCODING_RAW} is
+ * defined.</li>
+ * <li>bytes 5 - 7: reserved, always 0</li>
+ * <li>bytes 8 - 11: the number of values in the payload</li>
+ * <li>bytes 12 - 15: the number of bytes in the payload</li>
+ * <li>bytes 16 - 19: a CRC-32 of bytes 0 - 15 followed by the payload</li>
+ * <li>the payload, in the same format {@link MemoryMappedPrimitive} uses</li>
+ * </ol>
+ * <p>
+ * The checksum is calculated while the payload is encoded: each block of
+ * values is added to the checksum right after it is written, while it is
+ * still in the cache, so there is no second pass over the frame.
+ * <p>
+ * Frames are verified lazily. {@link #wrap(byte[])} only checks the header;
+ * the checksum is checked the first time the payload is read (or when
+ * {@link #verify()} is called).
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * byte[] frame = PrimitiveFrame.encode(longArray);
+ * ...
+ * long[] values = (long[]) PrimitiveFrame.wrap(frame).asType(long[].class);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class PrimitiveFrame {
+
+    /**
+     * The payload is stored exactly as {@link PrimitiveUtil} encodes it.
+     * 
+     * @since 1.1
+     */
+    public static final int ENCODING_RAW = 0;
+
+    /**
+     * The number of bytes in a frame header.
+     * 
+     * @since 1.1
+     */
+    public static final int HEADER_SIZE = 20;
+
+    private static final short MAGIC = 0x504F;
+
+    private static final byte VERSION = 1;
+
+    private static final int TYPE_OFFSET = 3;
+
+    private static final int ENCODING_OFFSET = 4;
+
+    private static final int COUNT_OFFSET = 8;
+
+    private static final int LENGTH_OFFSET = 12;
+
+    private static final int CHECKSUM_OFFSET = 16;
+
+    /**
+     * The number of values encoded between checksum updates.
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final int TYPE_BYTE = 1;
+
+    private static final int TYPE_SHORT = 2;
+
+    private static final int TYPE_INT = 3;
+
+    private static final int TYPE_LONG = 4;
+
+    private static final int TYPE_FLOAT = 5;
+
+    private static final int TYPE_DOUBLE = 6;
+
+    private static final int TYPE_BOOLEAN = 7;
+
+    private static final int TYPE_CHAR = 8;
+
+    private static final Class<?>[] TYPES = {
+            null,
+            byte[].class,
+            short[].class,
+            int[].class,
+            long[].class,
+            float[].class,
+            double[].class,
+            boolean[].class,
+            char[].class
+    };
+
+    private final byte[] mFrame;
+
+    private final int mType;
+
+    private final int mCount;
+
+    private final int mLength;
+
+    /**
+     * 0 if the checksum has not been checked yet, 1 if it matched and -1 if
+     * it did not.
+     */
+    private int mVerified;
+
+    private PrimitiveFrame(byte[] frame, int type, int count, int length) {
+        mFrame = frame;
+        mType = type;
+        mCount = count;
+        mLength = length;
+    }
+
+    /**
+     * Parses the header of a frame. The checksum is not checked until the
+     * payload is read.
+     * 
+     * @param frame a frame created by one of the {@code encode} functions.
+     * @return the parsed frame.
+     * @throws IllegalArgumentException if {@code frame} is null, is not a
+     *             frame, is shorter than its header says it is, or its header
+     *             has a payload length that does not match the number of
+     *             values.
+     * @since 1.1
+     */
+    public static PrimitiveFrame wrap(byte[] frame) {
+        if (frame == null) {
+            throw new IllegalArgumentException("frame cannot be null");
+        }
+
+        if (frame.length < HEADER_SIZE || PrimitiveUtil.toShort(frame, 0) != MAGIC) {
+            throw new IllegalArgumentException("not a primitive frame");
+        }
+
+        if (frame[2] != VERSION) {
+            throw new IllegalArgumentException("unsupported frame version " + frame[2]);
+        }
+
+        int type = frame[TYPE_OFFSET];
+        if (type < TYPE_BYTE || type > TYPE_CHAR) {
+            throw new IllegalArgumentException("unknown frame type " + type);
+        }
+
+        if (frame[ENCODING_OFFSET] != ENCODING_RAW) {
+            throw new IllegalArgumentException("unknown frame encoding "
+                    + frame[ENCODING_OFFSET]);
+        }
+
+        int count = PrimitiveUtil.toInt(frame, COUNT_OFFSET);
+        int length = PrimitiveUtil.toInt(frame, LENGTH_OFFSET);
+        if (count < 0 || length < 0 || frame.length - HEADER_SIZE < length) {
+            throw new IllegalArgumentException("frame is truncated. " + length
+                    + " payload bytes expected, found " + (frame.length - HEADER_SIZE));
+        }
+
+        if (length != payloadLength(type, count)) {
+            throw new IllegalArgumentException("frame header is inconsistent. " + count
+                    + " values cannot be stored in " + length + " bytes");
+        }
+
+        return new PrimitiveFrame(frame, type, count, length);
+    }
+
+    /*
+     * The number of payload bytes that count values of type are encoded in.
+     */
+    private static long payloadLength(int type, int count) {
+        switch (type) {
+            case TYPE_BYTE:
+                return count;
+            case TYPE_SHORT:
+            case TYPE_CHAR:
+                return count * 2L;
+            case TYPE_INT:
+            case TYPE_FLOAT:
+                return count * 4L;
+            case TYPE_LONG:
+            case TYPE_DOUBLE:
+                return count * 8L;
+            default:
+                // a two byte length followed by one bit per value
+                return 2L + (count + 7L) / 8;
+        }
+    }
+
+    /*
+     * The payload length is passed as a long so that a large count cannot wrap
+     * around to a small frame.
+     */
+    private static byte[] newFrame(int type, int count, long length) {
+        if (length > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException(count + " values do not fit in one frame");
+        }
+
+        byte[] result = new byte[HEADER_SIZE + (int) length];
+        PrimitiveUtil.toBytes(MAGIC, result, 0);
+        result[2] = VERSION;
+        result[TYPE_OFFSET] = (byte) type;
+        result[ENCODING_OFFSET] = ENCODING_RAW;
+        PrimitiveUtil.toBytes(count, result, COUNT_OFFSET);
+        PrimitiveUtil.toBytes((int) length, result, LENGTH_OFFSET);
+        return result;
+    }
+
+    /**
+     * Encodes an array into a new frame. The other {@code encode} functions
+     * work the same way for the other primitive array types.
+     * 
+     * @param values the values to encode.
+     * @return the frame.
+     * @throws IllegalArgumentException if {@code values} is null or its
+     *             encoded length does not fit in a {@code byte[]}.
+     * @since 1.1
+     */
+    public static byte[] encode(byte[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_BYTE, values.length, values.length);
+        System.arraycopy(values, 0, result, HEADER_SIZE, values.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+        crc.update(result, HEADER_SIZE, values.length);
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(short[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_SHORT, values.length, values.length * 2L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 2;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 2);
+            }
+            crc.update(result, pos, (end - block) * 2);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(int[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_INT, values.length, values.length * 4L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 4;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 4);
+            }
+            crc.update(result, pos, (end - block) * 4);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(long[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_LONG, values.length, values.length * 8L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 8;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 8);
+            }
+            crc.update(result, pos, (end - block) * 8);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(float[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_FLOAT, values.length, values.length * 4L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 4;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 4);
+            }
+            crc.update(result, pos, (end - block) * 4);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(double[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_DOUBLE, values.length, values.length * 8L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 8;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 8);
+            }
+            crc.update(result, pos, (end - block) * 8);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    public static byte[] encode(char[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] result = newFrame(TYPE_CHAR, values.length, values.length * 2L);
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+
+        for (int block = 0; block < values.length; block += BLOCK_SIZE) {
+            int end = Math.min(values.length, block + BLOCK_SIZE);
+            int pos = HEADER_SIZE + block * 2;
+            for (int i = block; i < end; i++) {
+                PrimitiveUtil.toBytes(values[i], result, HEADER_SIZE + i * 2);
+            }
+            crc.update(result, pos, (end - block) * 2);
+        }
+
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    /**
+     * Encodes a boolean array. The payload has the packed bit field format
+     * described in {@link MemoryMappedPrimitive}, so it is subject to the same
+     * limit of {@link Short#MAX_VALUE} values.
+     * 
+     * @since 1.1
+     */
+    public static byte[] encode(boolean[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        byte[] bits = PrimitiveUtil.toBytes(values);
+        byte[] result = newFrame(TYPE_BOOLEAN, values.length, bits.length);
+        System.arraycopy(bits, 0, result, HEADER_SIZE, bits.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(result, 0, CHECKSUM_OFFSET);
+        crc.update(result, HEADER_SIZE, bits.length);
+        PrimitiveUtil.toBytes((int) crc.getValue(), result, CHECKSUM_OFFSET);
+        return result;
+    }
+
+    /**
+     * Returns the array type that was encoded, e.g. {@code long[].class}.
+     * 
+     * @since 1.1
+     */
+    public Class<?> getType() {
+        return TYPES[mType];
+    }
+
+    /**
+     * Returns the number of values in the payload.
+     * 
+     * @since 1.1
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the number of bytes in the payload.
+     * 
+     * @since 1.1
+     */
+    public int getPayloadLength() {
+        return mLength;
+    }
+
+    /**
+     * Checks the checksum of this frame. The result is remembered, so the
+     * frame is only scanned once.
+     * 
+     * @return true if the checksum matches the header and payload.
+     * @since 1.1
+     */
+    public boolean verify() {
+        if (mVerified == 0) {
+            CRC32 crc = new CRC32();
+            crc.update(mFrame, 0, CHECKSUM_OFFSET);
+            crc.update(mFrame, HEADER_SIZE, mLength);
+            mVerified = (int) crc.getValue() == PrimitiveUtil.toInt(mFrame, CHECKSUM_OFFSET) ? 1
+                    : -1;
+        }
+        return mVerified > 0;
+    }
+
+    private void throwIfCorrupt() {
+        if (!verify()) {
+            throw new IllegalStateException("frame checksum does not match");
+        }
+    }
+
+    /**
+     * Returns a copy of the payload after checking the checksum.
+     * 
+     * @throws IllegalStateException if the checksum does not match.
+     * @since 1.1
+     */
+    public byte[] getPayload() {
+        throwIfCorrupt();
+        byte[] result = new byte[mLength];
+        System.arraycopy(mFrame, HEADER_SIZE, result, 0, mLength);
+        return result;
+    }
+
+    /**
+     * Checks the checksum and decodes the payload. See
+     * {@link MemoryMappedPrimitive#asType(Class)} for the types that are
+     * supported.
+     * 
+     * A frame that holds no values decodes to an empty array of any array
+     * type.
+     * 
+     * @param type the type to decode the payload into.
+     * @return the decoded payload.
+     * @throws IllegalStateException if the checksum does not match.
+     * @since 1.1
+     */
+    public Object asType(Class<?> type) {
+        byte[] payload = getPayload();
+        if (mCount == 0 && type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        return new MemoryMappedPrimitive(payload).asSharedType(type);
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Fixed size {@link List} views over primitive arrays. Values are boxed only
+ * when they are read with {@code get}, and {@code set} writes through to the
+ * array. Boxing uses the {@code valueOf} methods of the box types, so small
+ * values come from the platform's box caches and do not allocate.
+ * <p>
+ * Instances are created with {@code PrimitiveUtil.asList(...)}.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+/* default */final class PrimitiveListViews {
+
+    private PrimitiveListViews() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code byte[]}.
+     */
+    /* default */static final class ByteArrayView extends AbstractList<Byte>
+            implements RandomAccess {
+
+        private final byte[] mArray;
+
+        /* default */ByteArrayView(byte[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Byte get(int index) {
+            return Byte.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Byte set(int index, Byte element) {
+            byte previous = mArray[index];
+            mArray[index] = element == null ? (byte) 0 : element.byteValue();
+            return Byte.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */byte[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code short[]}.
+     */
+    /* default */static final class ShortArrayView extends AbstractList<Short>
+            implements RandomAccess {
+
+        private final short[] mArray;
+
+        /* default */ShortArrayView(short[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Short get(int index) {
+            return Short.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Short set(int index, Short element) {
+            short previous = mArray[index];
+            mArray[index] = element == null ? (short) 0 : element.shortValue();
+            return Short.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */short[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code int[]}.
+     */
+    /* default */static final class IntArrayView extends AbstractList<Integer>
+            implements RandomAccess {
+
+        private final int[] mArray;
+
+        /* default */IntArrayView(int[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return Integer.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Integer set(int index, Integer element) {
+            int previous = mArray[index];
+            mArray[index] = element == null ? 0 : element.intValue();
+            return Integer.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */int[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code long[]}.
+     */
+    /* default */static final class LongArrayView extends AbstractList<Long>
+            implements RandomAccess {
+
+        private final long[] mArray;
+
+        /* default */LongArrayView(long[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Long get(int index) {
+            return Long.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Long set(int index, Long element) {
+            long previous = mArray[index];
+            mArray[index] = element == null ? 0L : element.longValue();
+            return Long.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */long[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code float[]}.
+     */
+    /* default */static final class FloatArrayView extends AbstractList<Float>
+            implements RandomAccess {
+
+        private final float[] mArray;
+
+        /* default */FloatArrayView(float[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Float get(int index) {
+            return Float.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Float set(int index, Float element) {
+            float previous = mArray[index];
+            mArray[index] = element == null ? 0f : element.floatValue();
+            return Float.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */float[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code double[]}.
+     */
+    /* default */static final class DoubleArrayView extends AbstractList<Double>
+            implements RandomAccess {
+
+        private final double[] mArray;
+
+        /* default */DoubleArrayView(double[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Double get(int index) {
+            return Double.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Double set(int index, Double element) {
+            double previous = mArray[index];
+            mArray[index] = element == null ? 0d : element.doubleValue();
+            return Double.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */double[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code boolean[]}.
+     */
+    /* default */static final class BooleanArrayView extends AbstractList<Boolean>
+            implements RandomAccess {
+
+        private final boolean[] mArray;
+
+        /* default */BooleanArrayView(boolean[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Boolean get(int index) {
+            return Boolean.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Boolean set(int index, Boolean element) {
+            boolean previous = mArray[index];
+            mArray[index] = element == null ? false : element.booleanValue();
+            return Boolean.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */boolean[] array() {
+            return mArray;
+        }
+
+    }
+
+    /**
+     * A fixed size {@link List} view of a {@code char[]}.
+     */
+    /* default */static final class CharArrayView extends AbstractList<Character>
+            implements RandomAccess {
+
+        private final char[] mArray;
+
+        /* default */CharArrayView(char[] array) {
+            mArray = array;
+        }
+
+        @Override
+        public Character get(int index) {
+            return Character.valueOf(mArray[index]);
+        }
+
+        @Override
+        public Character set(int index, Character element) {
+            char previous = mArray[index];
+            mArray[index] = element == null ? '\u0000' : element.charValue();
+            return Character.valueOf(previous);
+        }
+
+        @Override
+        public int size() {
+            return mArray.length;
+        }
+
+        /* default */char[] array() {
+            return mArray;
+        }
+
+    }
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@code PrimitiveReader} reads values, one at a time or one slice of an array
+ * at a time, from a byte array written by {@link PrimitiveWriter}. Each read
+ * decodes the next value with {@link PrimitiveUtil} and moves past it:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * PrimitiveReader reader = new PrimitiveReader(writer.toByteArray());
+ * int count = reader.readInt();
+ * long[] values = new long[count];
+ * reader.read(values, 0, count);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class PrimitiveReader {
+
+    private final byte[] mBuffer;
+
+    private final int mLimit;
+
+    private int mPosition;
+
+    /**
+     * Create a new reader for all of {@code buffer}. The buffer is not
+     * copied.
+     * 
+     * @param buffer the bytes to read.
+     * @throws IllegalArgumentException if {@code buffer} is null.
+     * @since 1.1
+     */
+    public PrimitiveReader(byte[] buffer) {
+        this(buffer, 0, buffer == null ? 0 : buffer.length);
+    }
+
+    /**
+     * Create a new reader for {@code length} bytes of {@code buffer} starting
+     * at {@code start}. The buffer is not copied.
+     * 
+     * @param buffer the bytes to read.
+     * @param start the position of the first byte to read.
+     * @param length the number of bytes that can be read.
+     * @throws IllegalArgumentException if {@code buffer} is null or the range
+     *             is outside of it.
+     * @since 1.1
+     */
+    public PrimitiveReader(byte[] buffer, int start, int length) {
+        throwIfBadRange(buffer == null ? -1 : buffer.length, start, length);
+        mBuffer = buffer;
+        mPosition = start;
+        mLimit = start + length;
+    }
+
+    private static void throwIfBadRange(int arrayLength, int start, int length) {
+        if (arrayLength < 0) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        if (start < 0 || length < 0 || start > arrayLength - length) {
+            throw new IllegalArgumentException("range [" + start + ", " + (start + length)
+                    + ") is outside of an array of length " + arrayLength);
+        }
+    }
+
+    /*
+     * Returns the current position and moves past count bytes.
+     */
+    private int advance(int count) {
+        if (count < 0 || count > mLimit - mPosition) {
+            throw new IllegalStateException("not enough bytes: " + count + " needed, "
+                    + (mLimit - mPosition) + " remaining");
+        }
+        int result = mPosition;
+        mPosition += count;
+        return result;
+    }
+
+    /*
+     * Returns the current position and moves past count values of width bytes
+     * each. The byte count is computed as a long so that a large count cannot
+     * wrap around and pass the check.
+     */
+    private int advance(int count, int width) {
+        long bytes = (long) count * width;
+        if (count < 0 || bytes > mLimit - mPosition) {
+            throw new IllegalStateException("not enough bytes: " + bytes + " needed, "
+                    + (mLimit - mPosition) + " remaining");
+        }
+        return advance((int) bytes);
+    }
+
+    /**
+     * Returns the position of the next byte to read in the underlying buffer.
+     * 
+     * @since 1.1
+     */
+    public int position() {
+        return mPosition;
+    }
+
+    /**
+     * Returns the number of bytes that have not been read yet.
+     * 
+     * @since 1.1
+     */
+    public int remaining() {
+        return mLimit - mPosition;
+    }
+
+    /**
+     * Skips {@code count} bytes.
+     * 
+     * @param count the number of bytes to skip.
+     * @throws IllegalStateException if fewer than {@code count} bytes remain.
+     * @since 1.1
+     */
+    public void skip(int count) {
+        advance(count);
+    }
+
+    public byte readByte() {
+        return mBuffer[advance(1)];
+    }
+
+    /**
+     * Reads a boolean stored as a single byte, the way
+     * {@link PrimitiveWriter#append(boolean)} writes it.
+     * 
+     * @since 1.1
+     */
+    public boolean readBoolean() {
+        return mBuffer[advance(1)] != 0;
+    }
+
+    public short readShort() {
+        int position = advance(2);
+        return PrimitiveUtil.toShort(mBuffer, position);
+    }
+
+    public char readChar() {
+        int position = advance(2);
+        return PrimitiveUtil.toChar(mBuffer, position);
+    }
+
+    public int readInt() {
+        int position = advance(4);
+        return PrimitiveUtil.toInt(mBuffer, position);
+    }
+
+    public long readLong() {
+        int position = advance(8);
+        return PrimitiveUtil.toLong(mBuffer, position);
+    }
+
+    public float readFloat() {
+        int position = advance(4);
+        return PrimitiveUtil.toFloat(mBuffer, position);
+    }
+
+    public double readDouble() {
+        int position = advance(8);
+        return PrimitiveUtil.toDouble(mBuffer, position);
+    }
+
+    /**
+     * Reads {@code length} bytes into {@code dest}, starting at {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(byte[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        System.arraycopy(mBuffer, advance(length), dest, start, length);
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code short} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(short[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 2);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 2).asShortBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 2) {
+            dest[start + i] = PrimitiveUtil.toShort(mBuffer, position);
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code char} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(char[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 2);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 2).asCharBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 2) {
+            dest[start + i] = PrimitiveUtil.toChar(mBuffer, position);
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code int} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(int[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 4);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 4).asIntBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 4) {
+            dest[start + i] = PrimitiveUtil.toInt(mBuffer, position);
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code long} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(long[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 8);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 8).asLongBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 8) {
+            dest[start + i] = PrimitiveUtil.toLong(mBuffer, position);
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code float} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(float[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 4);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 4).asFloatBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 4) {
+            dest[start + i] = PrimitiveUtil.toFloat(mBuffer, position);
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} {@code double} values into {@code dest}, starting at
+     * {@code start}.
+     * 
+     * @return this reader.
+     * @since 1.1
+     */
+    public PrimitiveReader read(double[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        int position = advance(length, 8);
+        if (length >= PrimitiveUtil.BULK_THRESHOLD) {
+            ByteBuffer.wrap(mBuffer, position, length * 8).asDoubleBuffer()
+                    .get(dest, start, length);
+            return this;
+        }
+        for (int i = 0; i < length; i++, position += 8) {
+            dest[start + i] = PrimitiveUtil.toDouble(mBuffer, position);
+        }
+        return this;
+    }
+
+}
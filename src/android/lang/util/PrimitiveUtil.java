@@ -19,6 +19,11 @@
 
 package android.lang.util;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
 /**
  * Contains functions required by {@link MemoryMappedPrimitive}.
  * 
@@ -27,6 +32,15 @@ package android.lang.util;
  */
 public final class PrimitiveUtil {
 
+    /**
+     * Arrays with at least this many values are converted with the bulk
+     * {@link java.nio} view buffers (e.g. {@link java.nio.LongBuffer#get(long[])}),
+     * which the platform implements as a single byte-swapping copy. Smaller
+     * arrays use a plain loop, which avoids the cost of creating the view
+     * buffer.
+     */
+    /* default */static final int BULK_THRESHOLD = 256;
+
     private PrimitiveUtil() {
         throw new UnsupportedOperationException("instantiating not allowed.");
 
@@ -56,7 +70,7 @@ public final class PrimitiveUtil {
             throw new IllegalArgumentException("div must be >= 0");
         }
 
-        if ((array.length % 2) != 0) {
+        if ((array.length % div) != 0) {
             throw new IllegalArgumentException("array length is not evenly divisible by " + div);
         }
 
@@ -74,8 +88,13 @@ public final class PrimitiveUtil {
         throwIfBadArray(array, 2);
 
         short[] result = new short[array.length / 2];
-        for (int i = 0; i < array.length; i += 2) {
-            result[i / 2] = toShort(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asShortBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 2) {
+            result[i] = (short) ((array[j] << 8) | (array[j + 1] & 0xff));
         }
 
         return result;
@@ -94,8 +113,13 @@ public final class PrimitiveUtil {
     /* default */static final int[] toIntArray(byte[] array) {
         throwIfBadArray(array, 4);
         int[] result = new int[array.length / 4];
-        for (int i = 0; i < array.length; i += 4) {
-            result[i / 4] = toInt(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asIntBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 4) {
+            result[i] = readInt(array, j);
         }
 
         return result;
@@ -113,8 +137,13 @@ public final class PrimitiveUtil {
     /* default */static final long[] toLongArray(byte[] array) {
         throwIfBadArray(array, 8);
         long[] result = new long[array.length / 8];
-        for (int i = 0; i < array.length; i += 8) {
-            result[i / 8] = toLong(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asLongBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 8) {
+            result[i] = readLong(array, j);
         }
 
         return result;
@@ -124,8 +153,13 @@ public final class PrimitiveUtil {
     /* default */static final float[] toFloatArray(byte[] array) {
         throwIfBadArray(array, 4);
         float[] result = new float[array.length / 4];
-        for (int i = 0; i < array.length; i += 4) {
-            result[i / 4] = toFloat(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asFloatBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 4) {
+            result[i] = Float.intBitsToFloat(readInt(array, j));
         }
 
         return result;
@@ -135,8 +169,13 @@ public final class PrimitiveUtil {
     /* default */static final double[] toDoubleArray(byte[] array) {
         throwIfBadArray(array, 8);
         double[] result = new double[array.length / 8];
-        for (int i = 0; i < array.length; i += 8) {
-            result[i / 8] = toDouble(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asDoubleBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 8) {
+            result[i] = Double.longBitsToDouble(readLong(array, j));
         }
 
         return result;
@@ -155,16 +194,25 @@ public final class PrimitiveUtil {
 
         short resultSz = toShort(array, 0);
         boolean[] result = new boolean[resultSz];
+        throwIfBadArraySize(array, 2, (resultSz + 7) / 8);
+
+        // unpack a whole byte at a time
+        int i = 0;
+        for (int bytePos = 2; i + 8 <= resultSz; bytePos++, i += 8) {
+            int bits = array[bytePos];
+            result[i] = (bits & 0x80) != 0;
+            result[i + 1] = (bits & 0x40) != 0;
+            result[i + 2] = (bits & 0x20) != 0;
+            result[i + 3] = (bits & 0x10) != 0;
+            result[i + 4] = (bits & 0x08) != 0;
+            result[i + 5] = (bits & 0x04) != 0;
+            result[i + 6] = (bits & 0x02) != 0;
+            result[i + 7] = (bits & 0x01) != 0;
+        }
 
-        for (int i = 0; i < resultSz; i++) {
-            int bytePos = 2 + (i / 8);
-            int bitPos = i % 8;
-
-            int mask = (1 << (7 - bitPos)) & 0xff;
-
-            byte bits = (byte) (mask & array[bytePos]);
-            result[i] = bits != 0 ? true : false;
-
+        for (; i < resultSz; i++) {
+            int mask = (1 << (7 - (i % 8))) & 0xff;
+            result[i] = (array[2 + (i / 8)] & mask) != 0;
         }
 
         return result;
@@ -176,8 +224,13 @@ public final class PrimitiveUtil {
         throwIfBadArray(array, 2);
 
         char[] result = new char[array.length / 2];
-        for (int i = 0; i < array.length; i += 2) {
-            result[i / 2] = toChar(array, i);
+        if (result.length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(array).asCharBuffer().get(result);
+            return result;
+        }
+
+        for (int i = 0, j = 0; i < result.length; i++, j += 2) {
+            result[i] = (char) (((array[j] & 0xff) << 8) | (array[j + 1] & 0xff));
         }
 
         return result;
@@ -202,17 +255,14 @@ public final class PrimitiveUtil {
 
         if (array.length - start < bytesRequried) {
             throw new IllegalArgumentException(bytesRequried + " bytes needed starting at " + start
-                    + ". found " + (array.length - bytesRequried));
+                    + ". found " + (array.length - start));
         }
     }
 
     /* default */static final short toShort(byte[] array, int start) {
 
         throwIfBadArraySize(array, start, 2);
-        short s1 = (short) (array[start] & 0xff);
-        short s2 = (short) (array[start + 1] & 0xff);
-
-        return (short) ((s1 << 8) | s2);
+        return (short) ((array[start] << 8) | (array[start + 1] & 0xff));
 
     }
 
@@ -226,33 +276,35 @@ public final class PrimitiveUtil {
      */
     /* default */static final int toInt(byte[] array, int start) {
         throwIfBadArraySize(array, start, 4);
-
-        int i1 = (int) (toShort(array, start) & 0xFFFF);
-        int i2 = (int) (toShort(array, start + 2) & 0xFFFF);
-
-        return (i1 << 16) | i2;
+        return readInt(array, start);
 
     }
 
     /* default */static final long toLong(byte[] array, int start) {
         throwIfBadArraySize(array, start, 8);
+        return readLong(array, start);
 
-        long i1 = (long) toInt(array, start);
-        long b1 = (long) (array[start + 4] & 0xFF);
-        long b2 = (long) (array[start + 5] & 0xFF);
-        long b3 = (long) (array[start + 6] & 0xFF);
-        long b4 = (long) (array[start + 7] & 0xFF);
-
-        /*
-         * long l1 = (long) (toInt(array, start) & 0xFFFFFFFF) << 32; long l2 =
-         * (long) (toInt(array, start + 4) & 0xFFFFFFFF); long result = ((long)
-         * l1) | l2;
-         */
-
-        long result = (i1 << 32) | (b1 << 24) | (b2 << 16) | (b3 << 8) | b4;
+    }
 
-        return result;
+    /**
+     * Reads four bytes without checking the bounds of the array first. The
+     * bulk decoders check the whole array once, so they use this instead of
+     * {@link #toInt(byte[], int)}.
+     */
+    private static int readInt(byte[] array, int start) {
+        return (array[start] << 24)
+                | ((array[start + 1] & 0xff) << 16)
+                | ((array[start + 2] & 0xff) << 8)
+                | (array[start + 3] & 0xff);
+    }
 
+    /**
+     * Reads eight bytes without checking the bounds of the array first.
+     * 
+     * @see #readInt(byte[], int)
+     */
+    private static long readLong(byte[] array, int start) {
+        return ((long) readInt(array, start) << 32) | (readInt(array, start + 4) & 0xFFFFFFFFL);
     }
 
     /* default */static final float toFloat(byte[] array, int start) {
@@ -367,55 +419,143 @@ public final class PrimitiveUtil {
     }
 
     /* default */static final byte[] toBytes(short[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 2];
-        for (int i = 0; i < array.length; i++) {
-            toBytes(array[i], result, i * 2);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 2} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(short[] array, int start, int length) {
+
+        byte[] result = new byte[length * 2];
+        if (length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(result).asShortBuffer().put(array, start, length);
+            return result;
+        }
+
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 2);
         }
 
         return result;
     }
 
     /* default */static final byte[] toBytes(int[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 4];
-        for (int i = 0; i < array.length; i++) {
-            toBytes(array[i], result, i * 4);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 4} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(int[] array, int start, int length) {
+
+        byte[] result = new byte[length * 4];
+        if (length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(result).asIntBuffer().put(array, start, length);
+            return result;
         }
 
-        return result;
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 4);
+        }
 
+        return result;
     }
 
     /* default */static final byte[] toBytes(long[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 8];
-        for (int i = 0; i < array.length; i++) {
-            toBytes(array[i], result, i * 8);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 8} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(long[] array, int start, int length) {
+
+        byte[] result = new byte[length * 8];
+        if (length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(result).asLongBuffer().put(array, start, length);
+            return result;
         }
 
-        return result;
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 8);
+        }
 
+        return result;
     }
 
     /* default */static final byte[] toBytes(float[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 4];
-        for (int i = 0; i < array.length; i++) {
-            toBytes(array[i], result, i * 4);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 4} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(float[] array, int start, int length) {
+
+        /*
+         * no bulk path: the view buffers store raw bits, but this class
+         * stores NaN values in their canonical form (floatToIntBits).
+         */
+        byte[] result = new byte[length * 4];
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 4);
         }
 
         return result;
-
     }
 
     /* default */static final byte[] toBytes(double[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 8];
-        for (int i = 0; i < array.length; i++) {
-
-            toBytes(array[i], result, i * 8);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 8} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(double[] array, int start, int length) {
 
+        /*
+         * no bulk path: the view buffers store raw bits, but this class
+         * stores NaN values in their canonical form (doubleToLongBits).
+         */
+        byte[] result = new byte[length * 8];
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 8);
         }
 
         return result;
@@ -457,30 +597,53 @@ public final class PrimitiveUtil {
         // write the length
         toBytes((short) array.length, result, 0);
 
-        for (int i = 0; i < array.length; i++) {
-
-            // calculate byte position
-            int bytePos = 2 + i / 8;
-            int bitPos = i % 8;
-            int mask = (1 << (7 - bitPos)) & 0xff;
+        // pack a whole byte at a time
+        int i = 0;
+        for (int bytePos = 2; i + 8 <= array.length; bytePos++, i += 8) {
+            result[bytePos] = (byte) ((array[i] ? 0x80 : 0)
+                    | (array[i + 1] ? 0x40 : 0)
+                    | (array[i + 2] ? 0x20 : 0)
+                    | (array[i + 3] ? 0x10 : 0)
+                    | (array[i + 4] ? 0x08 : 0)
+                    | (array[i + 5] ? 0x04 : 0)
+                    | (array[i + 6] ? 0x02 : 0)
+                    | (array[i + 7] ? 0x01 : 0));
+        }
 
+        for (; i < array.length; i++) {
             if (array[i]) {
-                result[bytePos] = (byte) (result[bytePos] | mask);
-            } else {
-                mask = ~mask;
-                result[bytePos] = (byte) (result[bytePos] & mask);
+                int bytePos = 2 + i / 8;
+                result[bytePos] = (byte) (result[bytePos] | (1 << (7 - (i % 8))));
             }
-
         }
 
         return result;
     }
 
     /* default */static final byte[] toBytes(char[] array) {
+        return toBytes(array, 0, array.length);
+    }
 
-        byte[] result = new byte[array.length * 2];
-        for (int i = 0; i < array.length; i++) {
-            toBytes(array[i], result, i * 2);
+    /**
+     * Encodes {@code length} values of {@code array} starting at
+     * {@code start}.
+     * 
+     * @param array the array to convert
+     * @param start the index of the first value to encode.
+     * @param length the number of values to encode.
+     * @return a byte array holding {@code length * 2} bytes.
+     * @since 1.1
+     */
+    /* default */static final byte[] toBytes(char[] array, int start, int length) {
+
+        byte[] result = new byte[length * 2];
+        if (length >= BULK_THRESHOLD) {
+            ByteBuffer.wrap(result).asCharBuffer().put(array, start, length);
+            return result;
+        }
+
+        for (int i = 0; i < length; i++) {
+            toBytes(array[start + i], result, i * 2);
         }
 
         return result;
@@ -495,20 +658,23 @@ public final class PrimitiveUtil {
 
     /* default */static final void toBytes(int value, byte[] dest, int start) {
 
-        short s1 = (short) (value >>> 16);
-        short s2 = (short) value;
-
-        toBytes(s1, dest, start);
-        toBytes(s2, dest, start + 2);
+        dest[start] = (byte) (value >>> 24);
+        dest[start + 1] = (byte) (value >>> 16);
+        dest[start + 2] = (byte) (value >>> 8);
+        dest[start + 3] = (byte) value;
 
     }
 
     /* default */static final void toBytes(long value, byte[] dest, int start) {
-        int i1 = (int) (value >>> 32);
-        int i2 = (int) value;
 
-        toBytes(i1, dest, start);
-        toBytes(i2, dest, start + 4);
+        dest[start] = (byte) (value >>> 56);
+        dest[start + 1] = (byte) (value >>> 48);
+        dest[start + 2] = (byte) (value >>> 40);
+        dest[start + 3] = (byte) (value >>> 32);
+        dest[start + 4] = (byte) (value >>> 24);
+        dest[start + 5] = (byte) (value >>> 16);
+        dest[start + 6] = (byte) (value >>> 8);
+        dest[start + 7] = (byte) value;
 
     }
 
@@ -535,6 +701,264 @@ public final class PrimitiveUtil {
 
     }
 
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code short[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Short[] toBoxedShortArray(byte[] array) {
+        throwIfBadArray(array, 2);
+        Short[] result = new Short[array.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Short.valueOf(toShort(array, i * 2));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code int[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Integer[] toBoxedIntegerArray(byte[] array) {
+        throwIfBadArray(array, 4);
+        Integer[] result = new Integer[array.length / 4];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.valueOf(toInt(array, i * 4));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code long[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Long[] toBoxedLongArray(byte[] array) {
+        throwIfBadArray(array, 8);
+        Long[] result = new Long[array.length / 8];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Long.valueOf(toLong(array, i * 8));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code float[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Float[] toBoxedFloatArray(byte[] array) {
+        throwIfBadArray(array, 4);
+        Float[] result = new Float[array.length / 4];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Float.valueOf(toFloat(array, i * 4));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code double[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Double[] toBoxedDoubleArray(byte[] array) {
+        throwIfBadArray(array, 8);
+        Double[] result = new Double[array.length / 8];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Double.valueOf(toDouble(array, i * 8));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Decodes and boxes in one pass, without creating an intermediate
+     * {@code char[]}.
+     * 
+     * @param array the array to convert.
+     * @return an array of boxed values.
+     * @since 1.1
+     */
+    /* default */static final Character[] toBoxedCharacterArray(byte[] array) {
+        throwIfBadArray(array, 2);
+        Character[] result = new Character[array.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Character.valueOf(toChar(array, i * 2));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Byte} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Byte> asList(byte[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.ByteArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Short} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Short> asList(short[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.ShortArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Integer} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Integer> asList(int[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.IntArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Long} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Long> asList(long[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.LongArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Float} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Float> asList(float[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.FloatArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Double} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Double> asList(double[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.DoubleArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Boolean} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Boolean> asList(boolean[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.BooleanArrayView(array);
+    }
+
+    /**
+     * Returns a fixed size list backed by {@code array}. Values are boxed
+     * when they are read, so no {@code Character} objects are created up front.
+     * Changes made with {@link List#set(int, Object)} are written to
+     * {@code array}.
+     * 
+     * @param array the array to view.
+     * @return a list view of {@code array}.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static final List<Character> asList(char[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        return new PrimitiveListViews.CharArrayView(array);
+    }
+
     public static Byte[] box(byte[] array) {
         Byte[] result = new Byte[array.length];
         for (int i = 0; i < array.length; i++) {
@@ -670,4 +1094,300 @@ public final class PrimitiveUtil {
         return result;
     }
 
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static byte[] unboxBytes(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.ByteArrayView) {
+            return ((PrimitiveListViews.ByteArrayView) collection).array().clone();
+        }
+
+        byte[] result = new byte[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0 : value.byteValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0 : value.byteValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static short[] unboxShorts(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.ShortArrayView) {
+            return ((PrimitiveListViews.ShortArrayView) collection).array().clone();
+        }
+
+        short[] result = new short[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0 : value.shortValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0 : value.shortValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static int[] unboxInts(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.IntArrayView) {
+            return ((PrimitiveListViews.IntArrayView) collection).array().clone();
+        }
+
+        int[] result = new int[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0 : value.intValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0 : value.intValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static long[] unboxLongs(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.LongArrayView) {
+            return ((PrimitiveListViews.LongArrayView) collection).array().clone();
+        }
+
+        long[] result = new long[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0 : value.longValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0 : value.longValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0.0f}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static float[] unboxFloats(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.FloatArrayView) {
+            return ((PrimitiveListViews.FloatArrayView) collection).array().clone();
+        }
+
+        float[] result = new float[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0.0f : value.floatValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0.0f : value.floatValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code 0.0d}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static double[] unboxDoubles(Collection<? extends Number> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.DoubleArrayView) {
+            return ((PrimitiveListViews.DoubleArrayView) collection).array().clone();
+        }
+
+        double[] result = new double[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Number> list = (List<? extends Number>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Number value = list.get(i);
+                result[i] = value == null ? 0.0d : value.doubleValue();
+            }
+        } else {
+            int i = 0;
+            for (Number value : collection) {
+                result[i++] = value == null ? 0.0d : value.doubleValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code false}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static boolean[] unboxBooleans(Collection<? extends Boolean> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.BooleanArrayView) {
+            return ((PrimitiveListViews.BooleanArrayView) collection).array().clone();
+        }
+
+        boolean[] result = new boolean[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Boolean> list = (List<? extends Boolean>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Boolean value = list.get(i);
+                result[i] = value == null ? false : value.booleanValue();
+            }
+        } else {
+            int i = 0;
+            for (Boolean value : collection) {
+                result[i++] = value == null ? false : value.booleanValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Unboxes a collection in one pass without copying it into an
+     * intermediate {@code Object[]}. {@code null} elements are converted to
+     * {@code '\u0000'}.
+     * 
+     * @param collection the values to unbox.
+     * @return a new array containing the values of {@code collection} in
+     *         iteration order.
+     * @throws IllegalArgumentException if {@code collection} is null.
+     * @since 1.1
+     */
+    public static char[] unboxChars(Collection<? extends Character> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("collection cannot be null");
+        }
+
+        if (collection instanceof PrimitiveListViews.CharArrayView) {
+            return ((PrimitiveListViews.CharArrayView) collection).array().clone();
+        }
+
+        char[] result = new char[collection.size()];
+        if (collection instanceof RandomAccess && collection instanceof List) {
+            List<? extends Character> list = (List<? extends Character>) collection;
+            for (int i = 0; i < result.length; i++) {
+                Character value = list.get(i);
+                result[i] = value == null ? '\u0000' : value.charValue();
+            }
+        } else {
+            int i = 0;
+            for (Character value : collection) {
+                result[i++] = value == null ? '\u0000' : value.charValue();
+            }
+        }
+
+        return result;
+    }
+
 }
@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@code PrimitiveWriter} builds an encoded byte array one value (or one
+ * slice of an array) at a time. Values are encoded with {@link PrimitiveUtil}
+ * directly into a growable buffer, so bytes that have already been written
+ * are never encoded again. The buffer doubles in size when it runs out of
+ * room, which makes building a payload of {@code n} values O(n) overall.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * PrimitiveWriter writer = new PrimitiveWriter();
+ * for (...) {
+ *     writer.append(nextLong);
+ * }
+ * MemoryMappedPrimitive mmp = writer.toMemoryMappedPrimitive();
+ * long[] values = (long[]) mmp.asType(long[].class);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class PrimitiveWriter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] mBuffer;
+
+    private int mSize;
+
+    /**
+     * Create a new writer with the default capacity.
+     * 
+     * @since 1.1
+     */
+    public PrimitiveWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new writer.
+     * 
+     * @param capacity the number of bytes that can be written before the
+     *            buffer has to grow.
+     * @throws IllegalArgumentException if {@code capacity < 0}.
+     * @since 1.1
+     */
+    public PrimitiveWriter(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        mBuffer = new byte[capacity];
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     * 
+     * @since 1.1
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Discards everything written so far. The buffer is kept so that it can
+     * be reused.
+     * 
+     * @since 1.1
+     */
+    public void reset() {
+        mSize = 0;
+    }
+
+    /**
+     * Makes sure that at least {@code capacity} bytes can be held without
+     * growing again.
+     * 
+     * @param capacity the total number of bytes required.
+     * @since 1.1
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException("buffer cannot hold more than "
+                    + Integer.MAX_VALUE + " bytes");
+        }
+        if (capacity > mBuffer.length) {
+            int newCapacity = mBuffer.length << 1;
+            if (newCapacity < capacity) {
+                newCapacity = capacity;
+            }
+            byte[] newBuffer = new byte[newCapacity];
+            System.arraycopy(mBuffer, 0, newBuffer, 0, mSize);
+            mBuffer = newBuffer;
+        }
+    }
+
+    /*
+     * Makes room for count values of width bytes each. The size is computed
+     * as a long so that a large count cannot wrap around and pass the check.
+     */
+    private void ensureCapacity(int count, int width) {
+        long capacity = mSize + (long) count * width;
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("buffer cannot hold more than "
+                    + Integer.MAX_VALUE + " bytes");
+        }
+        ensureCapacity((int) capacity);
+    }
+
+    private static void throwIfBadRange(int arrayLength, int start, int length) {
+        if (arrayLength < 0) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+        if (start < 0 || length < 0 || start > arrayLength - length) {
+            throw new IllegalArgumentException("range [" + start + ", " + (start + length)
+                    + ") is outside of an array of length " + arrayLength);
+        }
+    }
+
+    public PrimitiveWriter append(byte value) {
+        ensureCapacity(mSize + 1);
+        mBuffer[mSize++] = value;
+        return this;
+    }
+
+    /**
+     * Appends a boolean as a single byte, the same way
+     * {@link MemoryMappedPrimitive#set(boolean)} stores it.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(boolean value) {
+        return append(value ? (byte) 1 : (byte) 0);
+    }
+
+    public PrimitiveWriter append(short value) {
+        ensureCapacity(mSize + 2);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 2;
+        return this;
+    }
+
+    public PrimitiveWriter append(char value) {
+        ensureCapacity(mSize + 2);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 2;
+        return this;
+    }
+
+    public PrimitiveWriter append(int value) {
+        ensureCapacity(mSize + 4);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 4;
+        return this;
+    }
+
+    public PrimitiveWriter append(long value) {
+        ensureCapacity(mSize + 8);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 8;
+        return this;
+    }
+
+    public PrimitiveWriter append(float value) {
+        ensureCapacity(mSize + 4);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 4;
+        return this;
+    }
+
+    public PrimitiveWriter append(double value) {
+        ensureCapacity(mSize + 8);
+        PrimitiveUtil.toBytes(value, mBuffer, mSize);
+        mSize += 8;
+        return this;
+    }
+
+    /**
+     * Appends {@code length} bytes of {@code values} starting at
+     * {@code start}.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(byte[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 1);
+        System.arraycopy(values, start, mBuffer, mSize, length);
+        mSize += length;
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(short[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 2);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 2;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(char[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 2);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 2;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(int[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 4);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 4;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(long[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 8);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 8;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(float[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 4);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 4;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code length} values of {@code values} starting at
+     * {@code start}. The buffer grows at most once.
+     * 
+     * @return this writer.
+     * @since 1.1
+     */
+    public PrimitiveWriter append(double[] values, int start, int length) {
+        throwIfBadRange(values == null ? -1 : values.length, start, length);
+        ensureCapacity(length, 8);
+        for (int i = 0; i < length; i++) {
+            PrimitiveUtil.toBytes(values[start + i], mBuffer, mSize);
+            mSize += 8;
+        }
+        return this;
+    }
+
+    /**
+     * Overwrites four bytes that have already been written. This is useful to
+     * fill in a length or count once the values that follow it are known.
+     * 
+     * @param position the position of the first byte to overwrite.
+     * @param value the new value.
+     * @throws IllegalArgumentException if the four bytes have not been written
+     *             yet.
+     * @since 1.1
+     */
+    public void putInt(int position, int value) {
+        if (position < 0 || position > mSize - 4) {
+            throw new IllegalArgumentException("4 bytes needed starting at " + position
+                    + ". size is " + mSize);
+        }
+        PrimitiveUtil.toBytes(value, mBuffer, position);
+    }
+
+    /**
+     * Returns a copy of the bytes written so far.
+     * 
+     * @since 1.1
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[mSize];
+        System.arraycopy(mBuffer, 0, result, 0, mSize);
+        return result;
+    }
+
+    /**
+     * Returns a {@link MemoryMappedPrimitive} holding a copy of the bytes
+     * written so far. Only the used part of the buffer is copied; nothing is
+     * encoded again.
+     * 
+     * @since 1.1
+     */
+    public MemoryMappedPrimitive toMemoryMappedPrimitive() {
+        return new MemoryMappedPrimitive(toByteArray());
+    }
+
+    /**
+     * Writes the bytes written so far to {@code out} without copying them.
+     * 
+     * @param out the stream to write to.
+     * @throws IOException if {@code out} throws an exception.
+     * @since 1.1
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(mBuffer, 0, mSize);
+    }
+
+}
@@ -0,0 +1,935 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.lang.reflect.Array;
+
+/**
+ * Converts an array of one primitive type directly into an array of another
+ * primitive type by reinterpreting its bytes. The result is the same as
+ * encoding the array with {@link MemoryMappedPrimitive} and decoding it with
+ * {@link MemoryMappedPrimitive#asType(Class)}:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * // same values as new MemoryMappedPrimitive(doubleArray).asType(short[].class)
+ * short[] shortValues = ReinterpretUtil.toShortArray(doubleArray);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * but each value is moved straight from the source array to the result in a
+ * single pass: no intermediate byte array is created and no byte is touched
+ * twice. Like {@link PrimitiveUtil}, {@code float} and {@code double} values
+ * are reinterpreted through {@link Float#floatToIntBits(float)} and
+ * {@link Double#doubleToLongBits(double)}, so NaN values are canonical.
+ * <p>
+ * Unlike {@link MemoryMappedPrimitive#asType(Class)}, an empty array is
+ * converted to an empty array instead of causing an exception.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ReinterpretUtil {
+
+    private ReinterpretUtil() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    private static void throwIfNull(Object array) {
+        if (array == null) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+    }
+
+    private static void throwIfBadLength(int length, int div) {
+        if ((length % div) != 0) {
+            throw new IllegalArgumentException("array length is not evenly divisible by " + div);
+        }
+    }
+
+    /**
+     * Reinterprets {@code array} as an array of another type. {@code array}
+     * and {@code type} may be any of the primitive array types other than
+     * {@code boolean[]}; if they are the same type a copy of {@code array} is
+     * returned, with NaN values made canonical for {@code float[]} and
+     * {@code double[]}.
+     * 
+     * @param array the array to reinterpret.
+     * @param type the type of array to return, e.g. {@code short[].class}.
+     * @return a new array of type {@code type}.
+     * @throws IllegalArgumentException if {@code array} or {@code type} are
+     *             not supported, or the length of {@code array} does not fill
+     *             a whole number of values of {@code type}.
+     * @since 1.1
+     */
+    public static Object reinterpret(Object array, Class<?> type) {
+        throwIfNull(array);
+
+        if (type == null || !type.isArray() || type == boolean[].class
+                || !type.getComponentType().isPrimitive()) {
+            throw new IllegalArgumentException("unable to reinterpret an array as "
+                    + (type == null ? null : type.getName()));
+        }
+
+        if (array instanceof byte[]) {
+            byte[] bytes = (byte[]) array;
+            if (type == byte[].class) {
+                return bytes.clone();
+            }
+            return bytes.length == 0 ? Array.newInstance(type.getComponentType(), 0)
+                    : new MemoryMappedPrimitive(bytes).asSharedType(type);
+        }
+
+        if (type == byte[].class) {
+            return toByteArray(array);
+        }
+
+        if (array instanceof short[]) {
+            short[] a = (short[]) array;
+            if (type == short[].class) {
+                return a.clone();
+            }
+            if (type == char[].class) {
+                return toCharArray(a);
+            }
+            if (type == int[].class) {
+                return toIntArray(a);
+            }
+            if (type == long[].class) {
+                return toLongArray(a);
+            }
+            if (type == float[].class) {
+                return toFloatArray(a);
+            }
+            if (type == double[].class) {
+                return toDoubleArray(a);
+            }
+        }
+
+        if (array instanceof char[]) {
+            char[] a = (char[]) array;
+            if (type == short[].class) {
+                return toShortArray(a);
+            }
+            if (type == char[].class) {
+                return a.clone();
+            }
+            if (type == int[].class) {
+                return toIntArray(a);
+            }
+            if (type == long[].class) {
+                return toLongArray(a);
+            }
+            if (type == float[].class) {
+                return toFloatArray(a);
+            }
+            if (type == double[].class) {
+                return toDoubleArray(a);
+            }
+        }
+
+        if (array instanceof int[]) {
+            int[] a = (int[]) array;
+            if (type == short[].class) {
+                return toShortArray(a);
+            }
+            if (type == char[].class) {
+                return toCharArray(a);
+            }
+            if (type == int[].class) {
+                return a.clone();
+            }
+            if (type == long[].class) {
+                return toLongArray(a);
+            }
+            if (type == float[].class) {
+                return toFloatArray(a);
+            }
+            if (type == double[].class) {
+                return toDoubleArray(a);
+            }
+        }
+
+        if (array instanceof long[]) {
+            long[] a = (long[]) array;
+            if (type == short[].class) {
+                return toShortArray(a);
+            }
+            if (type == char[].class) {
+                return toCharArray(a);
+            }
+            if (type == int[].class) {
+                return toIntArray(a);
+            }
+            if (type == long[].class) {
+                return a.clone();
+            }
+            if (type == float[].class) {
+                return toFloatArray(a);
+            }
+            if (type == double[].class) {
+                return toDoubleArray(a);
+            }
+        }
+
+        if (array instanceof float[]) {
+            float[] a = (float[]) array;
+            if (type == short[].class) {
+                return toShortArray(a);
+            }
+            if (type == char[].class) {
+                return toCharArray(a);
+            }
+            if (type == int[].class) {
+                return toIntArray(a);
+            }
+            if (type == long[].class) {
+                return toLongArray(a);
+            }
+            if (type == float[].class) {
+                return canonicalCopy(a);
+            }
+            if (type == double[].class) {
+                return toDoubleArray(a);
+            }
+        }
+
+        if (array instanceof double[]) {
+            double[] a = (double[]) array;
+            if (type == short[].class) {
+                return toShortArray(a);
+            }
+            if (type == char[].class) {
+                return toCharArray(a);
+            }
+            if (type == int[].class) {
+                return toIntArray(a);
+            }
+            if (type == long[].class) {
+                return toLongArray(a);
+            }
+            if (type == float[].class) {
+                return toFloatArray(a);
+            }
+            if (type == double[].class) {
+                return canonicalCopy(a);
+            }
+        }
+
+        throw new IllegalArgumentException("unable to reinterpret "
+                + array.getClass().getName() + " as " + type.getName());
+    }
+
+    /*
+     * A copy of array with every NaN replaced by the canonical NaN, as
+     * encoding and decoding it would.
+     */
+    private static float[] canonicalCopy(float[] array) {
+        float[] result = array.clone();
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != result[i]) {
+                result[i] = Float.NaN;
+            }
+        }
+        return result;
+    }
+
+    private static double[] canonicalCopy(double[] array) {
+        double[] result = array.clone();
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != result[i]) {
+                result[i] = Double.NaN;
+            }
+        }
+        return result;
+    }
+
+    private static byte[] toByteArray(Object array) {
+        if (array instanceof short[]) {
+            return PrimitiveUtil.toBytes((short[]) array);
+        }
+        if (array instanceof char[]) {
+            return PrimitiveUtil.toBytes((char[]) array);
+        }
+        if (array instanceof int[]) {
+            return PrimitiveUtil.toBytes((int[]) array);
+        }
+        if (array instanceof long[]) {
+            return PrimitiveUtil.toBytes((long[]) array);
+        }
+        if (array instanceof float[]) {
+            return PrimitiveUtil.toBytes((float[]) array);
+        }
+        if (array instanceof double[]) {
+            return PrimitiveUtil.toBytes((double[]) array);
+        }
+        throw new IllegalArgumentException("unable to reinterpret "
+                + array.getClass().getName() + " as " + byte[].class.getName());
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code short} values.
+     * Equivalent to
+     * {@code (short[]) new MemoryMappedPrimitive(array).asType(short[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static short[] toShortArray(char[] array) {
+        throwIfNull(array);
+        short[] result = new short[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = (short) array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code short} values.
+     * Equivalent to
+     * {@code (short[]) new MemoryMappedPrimitive(array).asType(short[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static short[] toShortArray(int[] array) {
+        throwIfNull(array);
+        short[] result = new short[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            int bits = array[i];
+            result[j++] = (short) (bits >>> 16);
+            result[j++] = (short) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code short} values.
+     * Equivalent to
+     * {@code (short[]) new MemoryMappedPrimitive(array).asType(short[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static short[] toShortArray(long[] array) {
+        throwIfNull(array);
+        short[] result = new short[array.length * 4];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = array[i];
+            result[j++] = (short) (bits >>> 48);
+            result[j++] = (short) (bits >>> 32);
+            result[j++] = (short) (bits >>> 16);
+            result[j++] = (short) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code short} values.
+     * Equivalent to
+     * {@code (short[]) new MemoryMappedPrimitive(array).asType(short[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static short[] toShortArray(float[] array) {
+        throwIfNull(array);
+        short[] result = new short[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            int bits = Float.floatToIntBits(array[i]);
+            result[j++] = (short) (bits >>> 16);
+            result[j++] = (short) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code short} values.
+     * Equivalent to
+     * {@code (short[]) new MemoryMappedPrimitive(array).asType(short[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static short[] toShortArray(double[] array) {
+        throwIfNull(array);
+        short[] result = new short[array.length * 4];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = Double.doubleToLongBits(array[i]);
+            result[j++] = (short) (bits >>> 48);
+            result[j++] = (short) (bits >>> 32);
+            result[j++] = (short) (bits >>> 16);
+            result[j++] = (short) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code char} values.
+     * Equivalent to
+     * {@code (char[]) new MemoryMappedPrimitive(array).asType(char[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static char[] toCharArray(short[] array) {
+        throwIfNull(array);
+        char[] result = new char[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = (char) array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code char} values.
+     * Equivalent to
+     * {@code (char[]) new MemoryMappedPrimitive(array).asType(char[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static char[] toCharArray(int[] array) {
+        throwIfNull(array);
+        char[] result = new char[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            int bits = array[i];
+            result[j++] = (char) (bits >>> 16);
+            result[j++] = (char) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code char} values.
+     * Equivalent to
+     * {@code (char[]) new MemoryMappedPrimitive(array).asType(char[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static char[] toCharArray(long[] array) {
+        throwIfNull(array);
+        char[] result = new char[array.length * 4];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = array[i];
+            result[j++] = (char) (bits >>> 48);
+            result[j++] = (char) (bits >>> 32);
+            result[j++] = (char) (bits >>> 16);
+            result[j++] = (char) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code char} values.
+     * Equivalent to
+     * {@code (char[]) new MemoryMappedPrimitive(array).asType(char[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static char[] toCharArray(float[] array) {
+        throwIfNull(array);
+        char[] result = new char[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            int bits = Float.floatToIntBits(array[i]);
+            result[j++] = (char) (bits >>> 16);
+            result[j++] = (char) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code char} values.
+     * Equivalent to
+     * {@code (char[]) new MemoryMappedPrimitive(array).asType(char[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static char[] toCharArray(double[] array) {
+        throwIfNull(array);
+        char[] result = new char[array.length * 4];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = Double.doubleToLongBits(array[i]);
+            result[j++] = (char) (bits >>> 48);
+            result[j++] = (char) (bits >>> 32);
+            result[j++] = (char) (bits >>> 16);
+            result[j++] = (char) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code int} values.
+     * Equivalent to
+     * {@code (int[]) new MemoryMappedPrimitive(array).asType(int[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static int[] toIntArray(short[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        int[] result = new int[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = (array[i] << 16)
+                    | (array[i + 1] & 0xFFFF);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code int} values.
+     * Equivalent to
+     * {@code (int[]) new MemoryMappedPrimitive(array).asType(int[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static int[] toIntArray(char[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        int[] result = new int[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = (array[i] << 16)
+                    | (array[i + 1] & 0xFFFF);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code int} values.
+     * Equivalent to
+     * {@code (int[]) new MemoryMappedPrimitive(array).asType(int[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static int[] toIntArray(long[] array) {
+        throwIfNull(array);
+        int[] result = new int[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = array[i];
+            result[j++] = (int) (bits >>> 32);
+            result[j++] = (int) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code int} values.
+     * Equivalent to
+     * {@code (int[]) new MemoryMappedPrimitive(array).asType(int[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static int[] toIntArray(float[] array) {
+        throwIfNull(array);
+        int[] result = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = Float.floatToIntBits(array[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code int} values.
+     * Equivalent to
+     * {@code (int[]) new MemoryMappedPrimitive(array).asType(int[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static int[] toIntArray(double[] array) {
+        throwIfNull(array);
+        int[] result = new int[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = Double.doubleToLongBits(array[i]);
+            result[j++] = (int) (bits >>> 32);
+            result[j++] = (int) bits;
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code long} values.
+     * Equivalent to
+     * {@code (long[]) new MemoryMappedPrimitive(array).asType(long[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 4.
+     * @since 1.1
+     */
+    public static long[] toLongArray(short[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 4);
+        long[] result = new long[array.length / 4];
+        for (int i = 0, j = 0; j < result.length; i += 4, j++) {
+            result[j] = ((long) array[i] << 48)
+                    | ((long) (array[i + 1] & 0xFFFF) << 32)
+                    | ((long) (array[i + 2] & 0xFFFF) << 16)
+                    | (array[i + 3] & 0xFFFF);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code long} values.
+     * Equivalent to
+     * {@code (long[]) new MemoryMappedPrimitive(array).asType(long[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 4.
+     * @since 1.1
+     */
+    public static long[] toLongArray(char[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 4);
+        long[] result = new long[array.length / 4];
+        for (int i = 0, j = 0; j < result.length; i += 4, j++) {
+            result[j] = ((long) array[i] << 48)
+                    | ((long) (array[i + 1] & 0xFFFF) << 32)
+                    | ((long) (array[i + 2] & 0xFFFF) << 16)
+                    | (array[i + 3] & 0xFFFF);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code long} values.
+     * Equivalent to
+     * {@code (long[]) new MemoryMappedPrimitive(array).asType(long[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static long[] toLongArray(int[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        long[] result = new long[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = ((long) array[i] << 32)
+                    | (array[i + 1] & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code long} values.
+     * Equivalent to
+     * {@code (long[]) new MemoryMappedPrimitive(array).asType(long[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static long[] toLongArray(float[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        long[] result = new long[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = ((long) Float.floatToIntBits(array[i]) << 32)
+                    | (Float.floatToIntBits(array[i + 1]) & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code long} values.
+     * Equivalent to
+     * {@code (long[]) new MemoryMappedPrimitive(array).asType(long[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static long[] toLongArray(double[] array) {
+        throwIfNull(array);
+        long[] result = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = Double.doubleToLongBits(array[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code float} values.
+     * Equivalent to
+     * {@code (float[]) new MemoryMappedPrimitive(array).asType(float[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static float[] toFloatArray(short[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        float[] result = new float[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = Float.intBitsToFloat((array[i] << 16)
+                    | (array[i + 1] & 0xFFFF));
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code float} values.
+     * Equivalent to
+     * {@code (float[]) new MemoryMappedPrimitive(array).asType(float[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static float[] toFloatArray(char[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        float[] result = new float[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = Float.intBitsToFloat((array[i] << 16)
+                    | (array[i + 1] & 0xFFFF));
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code float} values.
+     * Equivalent to
+     * {@code (float[]) new MemoryMappedPrimitive(array).asType(float[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static float[] toFloatArray(int[] array) {
+        throwIfNull(array);
+        float[] result = new float[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = Float.intBitsToFloat(array[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code float} values.
+     * Equivalent to
+     * {@code (float[]) new MemoryMappedPrimitive(array).asType(float[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static float[] toFloatArray(long[] array) {
+        throwIfNull(array);
+        float[] result = new float[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = array[i];
+            result[j++] = Float.intBitsToFloat((int) (bits >>> 32));
+            result[j++] = Float.intBitsToFloat((int) bits);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code float} values.
+     * Equivalent to
+     * {@code (float[]) new MemoryMappedPrimitive(array).asType(float[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static float[] toFloatArray(double[] array) {
+        throwIfNull(array);
+        float[] result = new float[array.length * 2];
+        for (int i = 0, j = 0; i < array.length; i++) {
+            long bits = Double.doubleToLongBits(array[i]);
+            result[j++] = Float.intBitsToFloat((int) (bits >>> 32));
+            result[j++] = Float.intBitsToFloat((int) bits);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code double} values.
+     * Equivalent to
+     * {@code (double[]) new MemoryMappedPrimitive(array).asType(double[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 4.
+     * @since 1.1
+     */
+    public static double[] toDoubleArray(short[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 4);
+        double[] result = new double[array.length / 4];
+        for (int i = 0, j = 0; j < result.length; i += 4, j++) {
+            result[j] = Double.longBitsToDouble(((long) array[i] << 48)
+                    | ((long) (array[i + 1] & 0xFFFF) << 32)
+                    | ((long) (array[i + 2] & 0xFFFF) << 16)
+                    | (array[i + 3] & 0xFFFF));
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code double} values.
+     * Equivalent to
+     * {@code (double[]) new MemoryMappedPrimitive(array).asType(double[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 4.
+     * @since 1.1
+     */
+    public static double[] toDoubleArray(char[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 4);
+        double[] result = new double[array.length / 4];
+        for (int i = 0, j = 0; j < result.length; i += 4, j++) {
+            result[j] = Double.longBitsToDouble(((long) array[i] << 48)
+                    | ((long) (array[i + 1] & 0xFFFF) << 32)
+                    | ((long) (array[i + 2] & 0xFFFF) << 16)
+                    | (array[i + 3] & 0xFFFF));
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code double} values.
+     * Equivalent to
+     * {@code (double[]) new MemoryMappedPrimitive(array).asType(double[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static double[] toDoubleArray(int[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        double[] result = new double[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = Double.longBitsToDouble(((long) array[i] << 32)
+                    | (array[i + 1] & 0xFFFFFFFFL));
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code double} values.
+     * Equivalent to
+     * {@code (double[]) new MemoryMappedPrimitive(array).asType(double[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null.
+     * @since 1.1
+     */
+    public static double[] toDoubleArray(long[] array) {
+        throwIfNull(array);
+        double[] result = new double[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = Double.longBitsToDouble(array[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Reinterprets the bytes of {@code array} as {@code double} values.
+     * Equivalent to
+     * {@code (double[]) new MemoryMappedPrimitive(array).asType(double[].class)}.
+     * 
+     * @param array the array to reinterpret.
+     * @return a new array.
+     * @throws IllegalArgumentException if {@code array} is null or its length
+     *             is not a multiple of 2.
+     * @since 1.1
+     */
+    public static double[] toDoubleArray(float[] array) {
+        throwIfNull(array);
+        throwIfBadLength(array.length, 2);
+        double[] result = new double[array.length / 2];
+        for (int i = 0, j = 0; j < result.length; i += 2, j++) {
+            result[j] = Double.longBitsToDouble(((long) Float.floatToIntBits(array[i]) << 32)
+                    | (Float.floatToIntBits(array[i + 1]) & 0xFFFFFFFFL));
+        }
+        return result;
+    }
+
+}
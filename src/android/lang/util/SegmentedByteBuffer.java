@@ -0,0 +1,898 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * {@code SegmentedByteBuffer} is a byte store that is addressed with
+ * {@code long} positions, so it is not limited to the 2 GB that a single
+ * {@code byte[]} or {@link ByteBuffer} can hold. The store is split into
+ * segments of {@code 2^segmentShift} bytes; each segment is either a heap
+ * buffer or a region of a memory mapped file.
+ * <p>
+ * Values are stored big-endian, which is the same format that
+ * {@link PrimitiveUtil} and {@link MemoryMappedPrimitive} use, so a range of
+ * this buffer can be copied into a {@code byte[]} and decoded with
+ * {@link MemoryMappedPrimitive#asType(Class)} (and vice versa).
+ * <p>
+ * Because the segment size is a power of two (and at least eight bytes), a
+ * value that is aligned on its own size never spans two segments. Unaligned
+ * values are supported, but are read and written one byte at a time when
+ * they cross a segment boundary.
+ * <p>
+ * <h3>Examples</h3>
+ * <p>
+ * To store three billion long values:
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * SegmentedByteBuffer buffer = new SegmentedByteBuffer(3000000000L * 8);
+ * buffer.putLong(2999999999L * 8, 42L);
+ * </pre>
+ *
+ * </blockquote>
+ * <p>
+ * To map a file that is larger than 2 GB:
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * FileChannel channel = new RandomAccessFile(file, &quot;rw&quot;).getChannel();
+ * SegmentedByteBuffer buffer = SegmentedByteBuffer.map(channel, MapMode.READ_WRITE, 0,
+ *         channel.size());
+ * </pre>
+ *
+ * </blockquote>
+ *
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class SegmentedByteBuffer {
+
+    /**
+     * The default segment size used by this class, expressed as a power of
+     * two (1 GB).
+     *
+     * @since 1.1
+     */
+    public static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    /**
+     * The smallest segment size allowed, expressed as a power of two. Segments
+     * must be able to hold at least one {@code long}.
+     */
+    private static final int MIN_SEGMENT_SHIFT = 3;
+
+    private final ByteBuffer[] mSegments;
+
+    private final int mSegmentShift;
+
+    private final long mSegmentMask;
+
+    private final long mCapacity;
+
+    /**
+     * Create a new heap backed buffer using the default segment size.
+     *
+     * @param capacity the number of bytes in the buffer.
+     * @throws IllegalArgumentException if {@code capacity < 0}.
+     * @since 1.1
+     */
+    public SegmentedByteBuffer(long capacity) {
+        this(capacity, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Create a new heap backed buffer.
+     *
+     * @param capacity the number of bytes in the buffer.
+     * @param segmentShift the size of each segment expressed as a power of
+     *            two.
+     * @throws IllegalArgumentException if {@code capacity < 0} or if
+     *             {@code segmentShift} is not between 3 and 30.
+     * @since 1.1
+     */
+    public SegmentedByteBuffer(long capacity, int segmentShift) {
+        throwIfBadGeometry(capacity, segmentShift);
+
+        mSegmentShift = segmentShift;
+        mSegmentMask = (1L << segmentShift) - 1;
+        mCapacity = capacity;
+        mSegments = new ByteBuffer[segmentCount(capacity, segmentShift)];
+
+        long remaining = capacity;
+        for (int i = 0; i < mSegments.length; i++) {
+            int sz = (int) Math.min(remaining, 1L << segmentShift);
+            mSegments[i] = ByteBuffer.allocate(sz);
+            remaining -= sz;
+        }
+    }
+
+    private SegmentedByteBuffer(ByteBuffer[] segments, long capacity, int segmentShift) {
+        mSegments = segments;
+        mSegmentShift = segmentShift;
+        mSegmentMask = (1L << segmentShift) - 1;
+        mCapacity = capacity;
+    }
+
+    /**
+     * Maps a region of a file into memory using the default segment size.
+     * Each segment is mapped separately with
+     * {@link FileChannel#map(MapMode, long, long)}, so {@code size} may be
+     * larger than {@link Integer#MAX_VALUE}.
+     *
+     * @param channel the channel to map.
+     * @param mode the mapping mode.
+     * @param position the position in the file at which the mapped region
+     *            starts.
+     * @param size the number of bytes to map.
+     * @return a buffer backed by the mapped region.
+     * @throws IOException if the region cannot be mapped.
+     * @throws IllegalArgumentException if {@code channel} or {@code mode} is
+     *             null, or if {@code position} or {@code size} are negative.
+     * @since 1.1
+     */
+    public static SegmentedByteBuffer map(FileChannel channel, MapMode mode, long position,
+            long size) throws IOException {
+        return map(channel, mode, position, size, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /* default */static SegmentedByteBuffer map(FileChannel channel, MapMode mode,
+            long position, long size, int segmentShift) throws IOException {
+
+        if (channel == null) {
+            throw new IllegalArgumentException("channel cannot be null");
+        }
+
+        if (mode == null) {
+            throw new IllegalArgumentException("mode cannot be null");
+        }
+
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be >= 0");
+        }
+
+        throwIfBadGeometry(size, segmentShift);
+
+        ByteBuffer[] segments = new ByteBuffer[segmentCount(size, segmentShift)];
+        long remaining = size;
+        for (int i = 0; i < segments.length; i++) {
+            long sz = Math.min(remaining, 1L << segmentShift);
+            segments[i] = channel.map(mode, position + ((long) i << segmentShift), sz);
+            remaining -= sz;
+        }
+
+        return new SegmentedByteBuffer(segments, size, segmentShift);
+    }
+
+    private static void throwIfBadGeometry(long capacity, int segmentShift) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+
+        if (segmentShift < MIN_SEGMENT_SHIFT || segmentShift > DEFAULT_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("segmentShift must be between "
+                    + MIN_SEGMENT_SHIFT + " and " + DEFAULT_SEGMENT_SHIFT);
+        }
+
+        if (segmentCount(capacity, segmentShift) < 0) {
+            throw new IllegalArgumentException("too many segments needed for " + capacity
+                    + " bytes");
+        }
+    }
+
+    private static int segmentCount(long capacity, int segmentShift) {
+        long count = capacity >>> segmentShift;
+        if ((capacity & ((1L << segmentShift) - 1)) != 0) {
+            count++;
+        }
+        return count > Integer.MAX_VALUE ? -1 : (int) count;
+    }
+
+    /**
+     * Returns the number of bytes in this buffer.
+     *
+     * @return the capacity of this buffer.
+     * @since 1.1
+     */
+    public long capacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the number of segments that back this buffer.
+     *
+     * @return the number of segments.
+     * @since 1.1
+     */
+    public int segmentCount() {
+        return mSegments.length;
+    }
+
+    /**
+     * Writes the content of any memory mapped segments to the storage device.
+     * Heap segments are ignored.
+     *
+     * @since 1.1
+     */
+    public void force() {
+        for (ByteBuffer segment : mSegments) {
+            if (segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    /**
+     * makes sure that {@code bytesRequired} bytes are available starting at
+     * {@code position}.
+     *
+     * @throws IllegalArgumentException if there aren't enough bytes.
+     */
+    private void throwIfBadPosition(long position, long bytesRequired) {
+        if (position < 0 || position > mCapacity - bytesRequired) {
+            throw new IllegalArgumentException(bytesRequired + " bytes needed starting at "
+                    + position + ". capacity is " + mCapacity);
+        }
+    }
+
+    private ByteBuffer segment(long position) {
+        return mSegments[(int) (position >>> mSegmentShift)];
+    }
+
+    private int offset(long position) {
+        return (int) (position & mSegmentMask);
+    }
+
+    /**
+     * Returns true if a value of {@code width} bytes starting at
+     * {@code position} lies entirely within one segment.
+     */
+    private boolean inOneSegment(long position, int width) {
+        return (position & mSegmentMask) + width <= mSegmentMask + 1;
+    }
+
+    /**
+     * Reads {@code width} bytes one at a time as a big-endian value. Used when
+     * a value spans two segments.
+     */
+    private long readSlow(long position, int width) {
+        long result = 0;
+        for (int i = 0; i < width; i++) {
+            result = (result << 8) | (get(position + i) & 0xFFL);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the low {@code width} bytes of {@code value} one at a time in
+     * big-endian order. Used when a value spans two segments.
+     */
+    private void writeSlow(long position, int width, long value) {
+        for (int i = width - 1; i >= 0; i--) {
+            put(position + i, (byte) value);
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Reads one byte.
+     *
+     * @param position the position of the byte.
+     * @return the byte at {@code position}.
+     * @throws IllegalArgumentException if {@code position} is outside of this
+     *             buffer.
+     * @since 1.1
+     */
+    public byte get(long position) {
+        throwIfBadPosition(position, 1);
+        return segment(position).get(offset(position));
+    }
+
+    /**
+     * Writes one byte.
+     *
+     * @param position the position of the byte.
+     * @param value the byte to write.
+     * @throws IllegalArgumentException if {@code position} is outside of this
+     *             buffer.
+     * @since 1.1
+     */
+    public void put(long position, byte value) {
+        throwIfBadPosition(position, 1);
+        segment(position).put(offset(position), value);
+    }
+
+    /**
+     * Reads a {@code boolean} stored as one byte; any byte other than zero is
+     * true.
+     *
+     * @param position the position of the byte.
+     * @return true if the byte at {@code position} is not zero.
+     * @throws IllegalArgumentException if {@code position} is outside of this
+     *             buffer.
+     * @since 1.1
+     */
+    public boolean getBoolean(long position) {
+        return get(position) != 0;
+    }
+
+    /**
+     * Writes a {@code boolean} as one byte, 1 for true and 0 for false.
+     *
+     * @param position the position of the byte.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if {@code position} is outside of this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putBoolean(long position, boolean value) {
+        put(position, value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Reads a single bit. Bits are numbered the same way as
+     * {@link PrimitiveUtil#toBytes(boolean[])} numbers them: bit 0 is the most
+     * significant bit of byte 0.
+     *
+     * @param bitIndex the index of the bit to read.
+     * @return true if the bit is set.
+     * @since 1.1
+     */
+    public boolean getBit(long bitIndex) {
+        int mask = (1 << (7 - (int) (bitIndex & 7))) & 0xff;
+        return (get(bitIndex >>> 3) & mask) != 0;
+    }
+
+    /**
+     * Sets or clears a single bit.
+     *
+     * @param bitIndex the index of the bit to write.
+     * @param value the new value of the bit.
+     * @see #getBit(long)
+     * @since 1.1
+     */
+    public void putBit(long bitIndex, boolean value) {
+        long position = bitIndex >>> 3;
+        int mask = (1 << (7 - (int) (bitIndex & 7))) & 0xff;
+        byte b = get(position);
+        put(position, (byte) (value ? (b | mask) : (b & ~mask)));
+    }
+
+
+    /**
+     * Reads a big-endian {@code short}.
+     *
+     * @param position the position of the first of the 2 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public short getShort(long position) {
+        throwIfBadPosition(position, 2);
+        if (inOneSegment(position, 2)) {
+            return segment(position).getShort(offset(position));
+        }
+        return (short) readSlow(position, 2);
+    }
+
+    /**
+     * Writes a big-endian {@code short}.
+     *
+     * @param position the position of the first of the 2 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putShort(long position, short value) {
+        throwIfBadPosition(position, 2);
+        if (inOneSegment(position, 2)) {
+            segment(position).putShort(offset(position), value);
+        } else {
+            writeSlow(position, 2, value);
+        }
+    }
+
+    /**
+     * Reads a big-endian {@code char}.
+     *
+     * @param position the position of the first of the 2 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public char getChar(long position) {
+        return (char) getShort(position);
+    }
+
+    /**
+     * Writes a big-endian {@code char}.
+     *
+     * @param position the position of the first of the 2 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putChar(long position, char value) {
+        putShort(position, (short) value);
+    }
+
+    /**
+     * Reads a big-endian {@code int}.
+     *
+     * @param position the position of the first of the 4 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public int getInt(long position) {
+        throwIfBadPosition(position, 4);
+        if (inOneSegment(position, 4)) {
+            return segment(position).getInt(offset(position));
+        }
+        return (int) readSlow(position, 4);
+    }
+
+    /**
+     * Writes a big-endian {@code int}.
+     *
+     * @param position the position of the first of the 4 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putInt(long position, int value) {
+        throwIfBadPosition(position, 4);
+        if (inOneSegment(position, 4)) {
+            segment(position).putInt(offset(position), value);
+        } else {
+            writeSlow(position, 4, value);
+        }
+    }
+
+    /**
+     * Reads a big-endian {@code long}.
+     *
+     * @param position the position of the first of the 8 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public long getLong(long position) {
+        throwIfBadPosition(position, 8);
+        if (inOneSegment(position, 8)) {
+            return segment(position).getLong(offset(position));
+        }
+        return readSlow(position, 8);
+    }
+
+    /**
+     * Writes a big-endian {@code long}.
+     *
+     * @param position the position of the first of the 8 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putLong(long position, long value) {
+        throwIfBadPosition(position, 8);
+        if (inOneSegment(position, 8)) {
+            segment(position).putLong(offset(position), value);
+        } else {
+            writeSlow(position, 8, value);
+        }
+    }
+
+    /**
+     * Reads a big-endian {@code float}, stored as the bits returned by
+     * {@link Float#floatToIntBits(float)}.
+     *
+     * @param position the position of the first of the 4 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public float getFloat(long position) {
+        return Float.intBitsToFloat(getInt(position));
+    }
+
+    /**
+     * Writes a big-endian {@code float}, stored as the bits returned by
+     * {@link Float#floatToIntBits(float)}.
+     *
+     * @param position the position of the first of the 4 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putFloat(long position, float value) {
+        putInt(position, Float.floatToIntBits(value));
+    }
+
+    /**
+     * Reads a big-endian {@code double}, stored as the bits returned by
+     * {@link Double#doubleToLongBits(double)}.
+     *
+     * @param position the position of the first of the 8 bytes of the value.
+     * @return the value at {@code position}.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public double getDouble(long position) {
+        return Double.longBitsToDouble(getLong(position));
+    }
+
+    /**
+     * Writes a big-endian {@code double}, stored as the bits returned by
+     * {@link Double#doubleToLongBits(double)}.
+     *
+     * @param position the position of the first of the 8 bytes of the value.
+     * @param value the value to write.
+     * @throws IllegalArgumentException if the value does not fit inside this
+     *             buffer.
+     * @since 1.1
+     */
+    public void putDouble(long position, double value) {
+        putLong(position, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Makes sure that {@code [start, start + length)} lies within an array of
+     * {@code arrayLength} elements, before any segment is touched.
+     *
+     * @throws IllegalArgumentException if the array is null or the range is
+     *             outside of it.
+     */
+    private static void throwIfBadRange(int arrayLength, int start, int length) {
+        if (arrayLength < 0) {
+            throw new IllegalArgumentException("array cannot be null");
+        }
+        if (start < 0 || length < 0 || start > arrayLength - length) {
+            throw new IllegalArgumentException("range [" + start + ", " + (start + length)
+                    + ") is outside of an array of length " + arrayLength);
+        }
+    }
+
+    /**
+     * Copies bytes out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy bytes into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of bytes to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, byte[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, length);
+        while (length > 0) {
+            ByteBuffer segment = segment(position).duplicate();
+            int off = offset(position);
+            int n = Math.min(length, segment.capacity() - off);
+            segment.position(off);
+            segment.get(dest, start, n);
+            position += n;
+            start += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies bytes into this buffer. Nothing is written if the range is
+     * invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy bytes from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of bytes to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, byte[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, length);
+        while (length > 0) {
+            ByteBuffer segment = segment(position).duplicate();
+            int off = offset(position);
+            int n = Math.min(length, segment.capacity() - off);
+            segment.position(off);
+            segment.put(src, start, n);
+            position += n;
+            start += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies a range of this buffer into a new byte array. The result can be
+     * handed to {@link MemoryMappedPrimitive#MemoryMappedPrimitive(byte[])}.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param length the number of bytes to copy.
+     * @return a new array holding {@code length} bytes.
+     * @throws IllegalArgumentException if {@code length} is negative or the
+     *             range is outside of this buffer.
+     * @since 1.1
+     */
+    public byte[] toBytes(long position, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must be >= 0");
+        }
+        throwIfBadPosition(position, length);
+        byte[] result = new byte[length];
+        get(position, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code short} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, short[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 2L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getShort(position + 2L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code short} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, short[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 2L * length);
+        for (int i = 0; i < length; i++) {
+            putShort(position + 2L * i, src[start + i]);
+        }
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code char} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, char[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 2L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getChar(position + 2L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code char} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, char[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 2L * length);
+        for (int i = 0; i < length; i++) {
+            putChar(position + 2L * i, src[start + i]);
+        }
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code int} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, int[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 4L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getInt(position + 4L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code int} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, int[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 4L * length);
+        for (int i = 0; i < length; i++) {
+            putInt(position + 4L * i, src[start + i]);
+        }
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code long} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, long[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 8L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getLong(position + 8L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code long} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, long[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 8L * length);
+        for (int i = 0; i < length; i++) {
+            putLong(position + 8L * i, src[start + i]);
+        }
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code float} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, float[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 4L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getFloat(position + 4L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code float} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, float[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 4L * length);
+        for (int i = 0; i < length; i++) {
+            putFloat(position + 4L * i, src[start + i]);
+        }
+    }
+
+    /**
+     * Copies {@code length} big-endian {@code double} values out of this buffer.
+     *
+     * @param position the position in this buffer to start reading at.
+     * @param dest the array to copy values into.
+     * @param start the index of {@code dest} to start writing at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code dest} is null, or the range
+     *             is outside of {@code dest} or this buffer.
+     * @since 1.1
+     */
+    public void get(long position, double[] dest, int start, int length) {
+        throwIfBadRange(dest == null ? -1 : dest.length, start, length);
+        throwIfBadPosition(position, 8L * length);
+        for (int i = 0; i < length; i++) {
+            dest[start + i] = getDouble(position + 8L * i);
+        }
+    }
+
+    /**
+     * Copies {@code length} {@code double} values into this buffer in
+     * big-endian order. Nothing is written if the range is invalid.
+     *
+     * @param position the position in this buffer to start writing at.
+     * @param src the array to copy values from.
+     * @param start the index of {@code src} to start reading at.
+     * @param length the number of values to copy.
+     * @throws IllegalArgumentException if {@code src} is null, or the range is
+     *             outside of {@code src} or this buffer.
+     * @since 1.1
+     */
+    public void put(long position, double[] src, int start, int length) {
+        throwIfBadRange(src == null ? -1 : src.length, start, length);
+        throwIfBadPosition(position, 8L * length);
+        for (int i = 0; i < length; i++) {
+            putDouble(position + 8L * i, src[start + i]);
+        }
+    }
+
+}
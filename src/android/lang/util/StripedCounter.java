@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+/**
+ * A counter that many threads can update at the same time with very little
+ * contention. The count is split into stripes, each on its own cache line;
+ * every thread adds to one stripe and {@link #sum()} adds the stripes
+ * together.
+ * <p>
+ * The stripes are stored in a {@link ConcurrentMemoryMappedPrimitive}, so the
+ * counter can be written out as bytes and restored later:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * StripedCounter requests = new StripedCounter();
+ * 
+ * // on any thread
+ * requests.increment();
+ * 
+ * byte[] snapshot = (byte[]) requests.asType(byte[].class);
+ * StripedCounter restored = new StripedCounter(snapshot);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * The stripes live on the Java heap, not in a memory mapped file, so another
+ * process cannot read the counter while it is being updated. Share or persist
+ * it by writing a snapshot out and restoring it with
+ * {@link #StripedCounter(byte[])}.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class StripedCounter {
+
+    /**
+     * The number of {@code long} values in a 64 byte cache line. Each stripe
+     * starts on its own line so that threads updating different stripes do
+     * not share a cache line.
+     * 
+     * @since 1.1
+     */
+    /* default */static final int LINE_LONGS = 8;
+
+    private final ConcurrentMemoryMappedPrimitive mSlots;
+
+    private final int mStripes;
+
+    /**
+     * Creates a counter with one stripe for each available processor.
+     * 
+     * @since 1.1
+     */
+    public StripedCounter() {
+        this(defaultStripes());
+    }
+
+    /**
+     * Creates a counter with at least {@code stripes} stripes. The number of
+     * stripes is rounded up to a power of two.
+     * 
+     * @param stripes the minimum number of stripes.
+     * @throws IllegalArgumentException if {@code stripes} is less than 1.
+     * @since 1.1
+     */
+    public StripedCounter(int stripes) {
+        mStripes = roundStripes(stripes);
+        mSlots = new ConcurrentMemoryMappedPrimitive(new long[mStripes * LINE_LONGS]);
+    }
+
+    /**
+     * Restores a counter from bytes returned by
+     * {@code asType(byte[].class)}.
+     * 
+     * @param snapshot the bytes to restore.
+     * @throws IllegalArgumentException if {@code snapshot} is null or is not a
+     *             snapshot of a counter.
+     * @since 1.1
+     */
+    public StripedCounter(byte[] snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("snapshot cannot be null");
+        }
+
+        int lineBytes = LINE_LONGS * 8;
+        int stripes = snapshot.length / lineBytes;
+        if (snapshot.length % lineBytes != 0 || stripes == 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("snapshot is not a striped counter");
+        }
+
+        mStripes = stripes;
+        mSlots = new ConcurrentMemoryMappedPrimitive(snapshot);
+    }
+
+    /* default */static int defaultStripes() {
+        return roundStripes(Runtime.getRuntime().availableProcessors());
+    }
+
+    /* default */static int roundStripes(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be at least 1");
+        }
+
+        if (stripes > 1 << 16) {
+            throw new IllegalArgumentException("too many stripes: " + stripes);
+        }
+
+        int result = 1;
+        while (result < stripes) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Picks the stripe for the calling thread. Threads keep their stripe for
+     * their whole life, and consecutive thread IDs are spread across the
+     * stripes.
+     * 
+     * @param stripes the number of stripes, a power of two.
+     * @return the calling thread's stripe.
+     * @since 1.1
+     */
+    /* default */static int stripe(int stripes) {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (stripes - 1);
+    }
+
+    /**
+     * Returns the number of stripes.
+     * 
+     * @return the number of stripes.
+     * @since 1.1
+     */
+    public int stripeCount() {
+        return mStripes;
+    }
+
+    /**
+     * Adds {@code delta} to the count.
+     * 
+     * @param delta the value to add.
+     * @since 1.1
+     */
+    public void add(long delta) {
+        mSlots.getAndAddLong(stripe(mStripes) * LINE_LONGS, delta);
+    }
+
+    /**
+     * Adds one to the count.
+     * 
+     * @since 1.1
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Returns the count. Updates made while the stripes are being added up
+     * may or may not be included.
+     * 
+     * @return the sum of all of the stripes.
+     * @since 1.1
+     */
+    public long sum() {
+        long result = 0;
+        for (int i = 0; i < mStripes; i++) {
+            result += mSlots.getLongVolatile(i * LINE_LONGS);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the count to zero. Updates made while the stripes are being reset
+     * may or may not be kept.
+     * 
+     * @since 1.1
+     */
+    public void reset() {
+        for (int i = 0; i < mStripes; i++) {
+            mSlots.setLongRelease(i * LINE_LONGS, 0);
+        }
+    }
+
+    /**
+     * Converts a copy of the stripes into a specified type, exactly as
+     * {@link ConcurrentMemoryMappedPrimitive#asType(Class)} does. Pass
+     * {@code byte[].class} to get bytes that
+     * {@link #StripedCounter(byte[])} can restore.
+     * 
+     * @param type type of value to return
+     * @return the converted value.
+     * @since 1.1
+     */
+    public Object asType(Class<?> type) {
+        return mSlots.asType(type);
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.lang.util;
+
+import java.util.Arrays;
+
+/**
+ * A histogram that many threads can record values into at the same time with
+ * very little contention. Like {@link StripedCounter}, each thread records into
+ * its own stripe of buckets, each stripe starts on its own cache line, and
+ * reading the histogram adds the stripes together.
+ * <p>
+ * The buckets are defined by ascending upper bounds. Bucket {@code i} counts
+ * the values that are greater than {@code bounds[i - 1]} and less than or
+ * equal to {@code bounds[i]}; an extra last bucket counts the values greater
+ * than the largest bound:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * // buckets: &lt;= 1ms, &lt;= 10ms, &lt;= 100ms and &gt; 100ms
+ * StripedHistogram latency = new StripedHistogram(new long[] {1, 10, 100});
+ * latency.record(elapsedMillis);
+ * 
+ * long[] counts = latency.counts();
+ * byte[] snapshot = (byte[]) latency.asType(byte[].class);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * The bucket bounds are chosen entirely by the caller; the histogram does not
+ * pick bucket sizes that keep a fixed relative error the way an HDR histogram
+ * does. Pass powers of two, for example, to get logarithmic buckets. As with
+ * {@link StripedCounter}, the buckets live on the Java heap rather than in a
+ * memory mapped file, and are shared or persisted through snapshots.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class StripedHistogram {
+
+    private final ConcurrentMemoryMappedPrimitive mSlots;
+
+    private final long[] mBounds;
+
+    private final int mStripes;
+
+    /**
+     * The number of longs between the start of one stripe and the next: the
+     * bucket count rounded up to a whole number of cache lines.
+     */
+    private final int mStride;
+
+    /**
+     * Creates a histogram with one stripe for each available processor.
+     * 
+     * @param bounds the upper bound of each bucket, in ascending order.
+     * @throws IllegalArgumentException if {@code bounds} is null or not in
+     *             ascending order.
+     * @since 1.1
+     */
+    public StripedHistogram(long[] bounds) {
+        this(bounds, StripedCounter.defaultStripes());
+    }
+
+    /**
+     * Creates a histogram with at least {@code stripes} stripes. The number of
+     * stripes is rounded up to a power of two.
+     * 
+     * @param bounds the upper bound of each bucket, in ascending order.
+     * @param stripes the minimum number of stripes.
+     * @throws IllegalArgumentException if {@code bounds} is null or not in
+     *             ascending order, or {@code stripes} is less than 1.
+     * @since 1.1
+     */
+    public StripedHistogram(long[] bounds, int stripes) {
+        mBounds = checkBounds(bounds);
+        mStride = stride(bounds);
+        mStripes = StripedCounter.roundStripes(stripes);
+        mSlots = new ConcurrentMemoryMappedPrimitive(new long[mStripes * mStride]);
+    }
+
+    /**
+     * Restores a histogram from bytes returned by
+     * {@code asType(byte[].class)}.
+     * 
+     * @param bounds the bounds of the histogram the snapshot was taken from.
+     * @param snapshot the bytes to restore.
+     * @throws IllegalArgumentException if either argument is null, or the
+     *             snapshot is not a snapshot of a histogram with these bounds.
+     * @since 1.1
+     */
+    public StripedHistogram(long[] bounds, byte[] snapshot) {
+        mBounds = checkBounds(bounds);
+        mStride = stride(bounds);
+
+        if (snapshot == null) {
+            throw new IllegalArgumentException("snapshot cannot be null");
+        }
+
+        int stripeBytes = mStride * 8;
+        int stripes = snapshot.length / stripeBytes;
+        if (snapshot.length % stripeBytes != 0 || stripes == 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("snapshot does not match the bounds");
+        }
+
+        mStripes = stripes;
+        mSlots = new ConcurrentMemoryMappedPrimitive(snapshot);
+    }
+
+    private static long[] checkBounds(long[] bounds) {
+        if (bounds == null) {
+            throw new IllegalArgumentException("bounds cannot be null");
+        }
+
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("bounds must be in ascending order");
+            }
+        }
+        return bounds.clone();
+    }
+
+    private static int stride(long[] bounds) {
+        int lines = StripedCounter.LINE_LONGS;
+        return (bounds.length + 1 + lines - 1) / lines * lines;
+    }
+
+    /**
+     * Returns the number of buckets, which is one more than the number of
+     * bounds.
+     * 
+     * @return the number of buckets.
+     * @since 1.1
+     */
+    public int bucketCount() {
+        return mBounds.length + 1;
+    }
+
+    /**
+     * Returns the number of stripes.
+     * 
+     * @return the number of stripes.
+     * @since 1.1
+     */
+    public int stripeCount() {
+        return mStripes;
+    }
+
+    /**
+     * Returns the bucket that {@code value} is counted in.
+     * 
+     * @param value the value.
+     * @return the bucket index.
+     * @since 1.1
+     */
+    public int bucket(long value) {
+        int index = Arrays.binarySearch(mBounds, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Counts {@code value} in its bucket.
+     * 
+     * @param value the value to record.
+     * @since 1.1
+     */
+    public void record(long value) {
+        mSlots.getAndAddLong(StripedCounter.stripe(mStripes) * mStride + bucket(value), 1);
+    }
+
+    /**
+     * Returns the count of each bucket. Values recorded while the stripes are
+     * being added up may or may not be included.
+     * 
+     * @return the count of each bucket.
+     * @since 1.1
+     */
+    public long[] counts() {
+        long[] result = new long[bucketCount()];
+        for (int s = 0; s < mStripes; s++) {
+            int start = s * mStride;
+            for (int b = 0; b < result.length; b++) {
+                result[b] += mSlots.getLongVolatile(start + b);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total number of values recorded.
+     * 
+     * @return the sum of the bucket counts.
+     * @since 1.1
+     */
+    public long count() {
+        long result = 0;
+        for (long bucketCount : counts()) {
+            result += bucketCount;
+        }
+        return result;
+    }
+
+    /**
+     * Sets every bucket to zero. Values recorded while the buckets are being
+     * reset may or may not be kept.
+     * 
+     * @since 1.1
+     */
+    public void reset() {
+        for (int s = 0; s < mStripes; s++) {
+            int start = s * mStride;
+            for (int b = 0; b <= mBounds.length; b++) {
+                mSlots.setLongRelease(start + b, 0);
+            }
+        }
+    }
+
+    /**
+     * Converts a copy of the stripes into a specified type, exactly as
+     * {@link ConcurrentMemoryMappedPrimitive#asType(Class)} does. Pass
+     * {@code byte[].class} to get bytes that
+     * {@link #StripedHistogram(long[], byte[])} can restore.
+     * 
+     * @param type type of value to return
+     * @return the converted value.
+     * @since 1.1
+     */
+    public Object asType(Class<?> type) {
+        return mSlots.asType(type);
+    }
+
+}
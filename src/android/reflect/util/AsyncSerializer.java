@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.lang.util.MemoryMappedPrimitive;
+import android.lang.util.PrimitiveWriter;
+
+/**
+ * Serializes primitive arrays and object graphs on background threads, so the
+ * thread that asks for the bytes does not wait while they are encoded.
+ * Primitive arrays are encoded the same way as
+ * {@link MemoryMappedPrimitive#asType(Class)} encodes them, and any other
+ * object with {@link ObjectGraphSerializer#serialize(Object)}.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * AsyncSerializer serializer = new AsyncSerializer();
+ * Future&lt;ByteBuffer&gt; bytes = serializer.serialize(longArray);
+ * Future&lt;Long&gt; written = serializer.write(model, channel);
+ * ...
+ * serializer.shutdown();
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * At most {@code maxPending} tasks are accepted at a time. Once that many are
+ * pending, {@link #serialize(Object)} and
+ * {@link #write(Object, WritableByteChannel)} block until one of them
+ * finishes, so callers that produce work faster than it can be encoded are
+ * slowed down instead of filling memory.
+ * <p>
+ * {@link #write(Object, WritableByteChannel)} encodes large arrays one chunk at
+ * a time into two buffers: while one chunk is written to the channel, the next
+ * one is encoded on another thread of the executor. If the executor has no
+ * free thread, the next chunk is encoded after the write instead, so a
+ * single-threaded executor works too.
+ * <p>
+ * By default tasks run on virtual threads when the platform has them (Java 21
+ * and later), and otherwise on a pool of daemon threads. This class is thread
+ * safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class AsyncSerializer {
+
+    /**
+     * The number of pending tasks accepted by {@link #AsyncSerializer()}.
+     * 
+     * @since 1.1
+     */
+    public static final int DEFAULT_MAX_PENDING = 64;
+
+    /**
+     * The number of bytes encoded at a time by {@link #AsyncSerializer()}.
+     * 
+     * @since 1.1
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final AtomicInteger sThreadCount = new AtomicInteger();
+
+    private final ExecutorService mExecutor;
+
+    private final boolean mOwnsExecutor;
+
+    private final int mMaxPending;
+
+    private final Semaphore mPending;
+
+    private final int mChunkSize;
+
+    /**
+     * Creates a serializer that runs its tasks on virtual threads when they
+     * are available, and otherwise on daemon threads.
+     * {@link #shutdown()} stops those threads.
+     * 
+     * @since 1.1
+     */
+    public AsyncSerializer() {
+        this(newDefaultExecutor(), true, DEFAULT_MAX_PENDING, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a serializer that runs its tasks on {@code executor}.
+     * 
+     * @param executor runs the tasks. It is not shut down by
+     *            {@link #shutdown()}.
+     * @param maxPending the number of tasks that can be pending before new
+     *            tasks block.
+     * @param chunkSize the number of bytes encoded at a time by
+     *            {@link #write(Object, WritableByteChannel)}.
+     * @throws IllegalArgumentException if {@code executor} is null or
+     *             {@code maxPending} or {@code chunkSize} is less than 1.
+     * @since 1.1
+     */
+    public AsyncSerializer(ExecutorService executor, int maxPending, int chunkSize) {
+        this(executor, false, maxPending, chunkSize);
+    }
+
+    private AsyncSerializer(ExecutorService executor, boolean ownsExecutor, int maxPending,
+            int chunkSize) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be >= 1");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be >= 1");
+        }
+
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+        mMaxPending = maxPending;
+        mPending = new Semaphore(maxPending);
+        mChunkSize = chunkSize;
+    }
+
+    /*
+     * Executors.newVirtualThreadPerTaskExecutor() is looked up by name
+     * because it does not exist on Android or before Java 21.
+     */
+    /* default */static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            // fall through
+        } catch (IllegalAccessException e) {
+            // fall through
+        } catch (InvocationTargetException e) {
+            // fall through
+        }
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread result = new Thread(r, "AsyncSerializer-"
+                        + sThreadCount.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of tasks that have been accepted and have not
+     * finished yet.
+     * 
+     * @since 1.1
+     */
+    public int getPendingCount() {
+        return mMaxPending - mPending.availablePermits();
+    }
+
+    /**
+     * Serializes {@code value} on another thread. A {@code byte[]} is wrapped
+     * rather than copied.
+     * 
+     * @param value a primitive array, or the root of an object graph.
+     * @return the serialized bytes. {@link Future#get()} throws an
+     *         {@link ExecutionException} holding an
+     *         {@link IllegalArgumentException} if {@code value} cannot be
+     *         serialized.
+     * @throws IllegalStateException if the calling thread is interrupted while
+     *             waiting for a pending task to finish.
+     * @throws RejectedExecutionException if the executor has been shut down.
+     * @since 1.1
+     */
+    public Future<ByteBuffer> serialize(final Object value) {
+        return submit(new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() {
+                return ByteBuffer.wrap(encode(value));
+            }
+        });
+    }
+
+    /**
+     * Serializes {@code value} on another thread and writes the bytes to
+     * {@code channel}. Arrays of {@code short}, {@code char}, {@code int},
+     * {@code long}, {@code float} and {@code double} are encoded and written
+     * one chunk at a time; anything else is encoded in full before it is
+     * written.
+     * <p>
+     * {@code channel} must be in blocking mode, and must not be written to by
+     * anything else until the returned future is done.
+     * 
+     * @param value a primitive array, or the root of an object graph.
+     * @param channel the channel to write to.
+     * @return the number of bytes written.
+     * @throws IllegalArgumentException if {@code channel} is null.
+     * @throws IllegalStateException if the calling thread is interrupted while
+     *             waiting for a pending task to finish.
+     * @throws RejectedExecutionException if the executor has been shut down.
+     * @since 1.1
+     */
+    public Future<Long> write(final Object value, final WritableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel cannot be null");
+        }
+
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                return Long.valueOf(transfer(value, channel));
+            }
+        });
+    }
+
+    /**
+     * Stops accepting tasks. Tasks that are pending still finish. The
+     * executor is only shut down if it was created by this serializer.
+     * 
+     * @since 1.1
+     */
+    public void shutdown() {
+        if (mOwnsExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    private void release(AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            mPending.release();
+        }
+    }
+
+    private <V> Future<V> submit(final Callable<V> task) {
+        try {
+            mPending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a pending task", e);
+        }
+
+        /*
+         * The permit is released before the result is set, so a caller that
+         * has the result never sees the task as pending. done() covers tasks
+         * that are cancelled before they run.
+         */
+        final AtomicBoolean released = new AtomicBoolean();
+        FutureTask<V> result = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                try {
+                    return task.call();
+                } finally {
+                    release(released);
+                }
+            }
+        }) {
+            @Override
+            protected void done() {
+                release(released);
+            }
+        };
+
+        try {
+            mExecutor.execute(result);
+        } catch (RejectedExecutionException e) {
+            mPending.release();
+            throw e;
+        }
+        return result;
+    }
+
+    private static byte[] encode(Object value) {
+        if (value != null && value.getClass().isArray()
+                && value.getClass().getComponentType().isPrimitive()) {
+            if (Array.getLength(value) == 0) {
+                return new byte[0];
+            }
+            return (byte[]) MemoryMappedPrimitive.wrap(value).asType(byte[].class);
+        }
+        return ObjectGraphSerializer.serialize(value);
+    }
+
+    /*
+     * The number of bytes per element of the arrays that are encoded in
+     * chunks, or 0. Byte arrays are written as they are, and boolean arrays
+     * are packed into bits behind a length, so they cannot be split.
+     */
+    private static int elementSize(Object value) {
+        if (value instanceof short[] || value instanceof char[]) {
+            return 2;
+        } else if (value instanceof int[] || value instanceof float[]) {
+            return 4;
+        } else if (value instanceof long[] || value instanceof double[]) {
+            return 8;
+        }
+        return 0;
+    }
+
+    private long transfer(Object value, WritableByteChannel channel) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        int elementSize = elementSize(value);
+        if (elementSize == 0) {
+            byte[] bytes = encode(value);
+            out.write(bytes);
+            return bytes.length;
+        }
+
+        int length = Array.getLength(value);
+        int perChunk = Math.max(1, mChunkSize / elementSize);
+        PrimitiveWriter[] buffers = new PrimitiveWriter[] {
+                new PrimitiveWriter(Math.min(length, perChunk) * elementSize),
+                new PrimitiveWriter(Math.min(length, perChunk) * elementSize)
+        };
+
+        long written = 0;
+        FutureTask<PrimitiveWriter> next = encodeChunk(value, 0, Math.min(length, perChunk),
+                buffers[0]);
+        next.run();
+        try {
+            for (int start = 0; start < length; start += perChunk) {
+                PrimitiveWriter current = get(next);
+
+                int nextStart = start + perChunk;
+                boolean more = nextStart < length;
+                if (more) {
+                    next = encodeChunk(value, nextStart, Math.min(length - nextStart, perChunk),
+                            buffers[(nextStart / perChunk) & 1]);
+                    try {
+                        mExecutor.execute(next);
+                    } catch (RejectedExecutionException e) {
+                        // encoded below instead
+                    }
+                }
+
+                current.writeTo(out);
+                written += current.size();
+
+                if (more) {
+                    // does nothing if another thread has started the chunk
+                    next.run();
+                }
+            }
+        } finally {
+            next.cancel(false);
+        }
+        return written;
+    }
+
+    private static PrimitiveWriter get(FutureTask<PrimitiveWriter> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while encoding", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("unable to encode", e.getCause());
+        }
+    }
+
+    private static FutureTask<PrimitiveWriter> encodeChunk(final Object array, final int start,
+            final int length, final PrimitiveWriter out) {
+        return new FutureTask<PrimitiveWriter>(new Callable<PrimitiveWriter>() {
+            @Override
+            public PrimitiveWriter call() {
+                out.reset();
+                if (array instanceof short[]) {
+                    out.append((short[]) array, start, length);
+                } else if (array instanceof char[]) {
+                    out.append((char[]) array, start, length);
+                } else if (array instanceof int[]) {
+                    out.append((int[]) array, start, length);
+                } else if (array instanceof float[]) {
+                    out.append((float[]) array, start, length);
+                } else if (array instanceof long[]) {
+                    out.append((long[]) array, start, length);
+                } else {
+                    out.append((double[]) array, start, length);
+                }
+                return out;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.lang.util.MemoryMappedPrimitive;
+
+/**
+ * The field values of a list of objects, stored by column: one array per
+ * field, with one element per object. Primitive fields are stored in
+ * primitive arrays ({@code long} fields in a {@code long[]} and so on) and all
+ * other fields in an {@code Object[]}, so extracting the values does not
+ * allocate a map or box a value for each object the way
+ * {@link FieldReflectionUtil#getFieldValues(Class, Object)} does.
+ * <p>
+ * The columns include the fields returned by
+ * {@link FieldReflectionUtil#getAllFields(Class, int)}, excluding
+ * {@code static} and {@code transient} fields, ordered by name and then by
+ * declaring class. Large lists
+ * are split into ranges that are extracted in parallel, each range filling
+ * its own part of every column. {@link ColumnTransposer} builds a batch from
+ * objects that arrive one at a time.
+ * <p>
+ * Primitive columns can be encoded with {@link #toBytes(int)}, and the values
+ * of a row can be copied back into an object with {@link #get(int, Object)}.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * ColumnBatch batch = ColumnBatch.extract(Point.class, points);
+ * long[] ids = (long[]) batch.getColumn(&quot;id&quot;);
+ * float[] xs = (float[]) batch.getColumn(&quot;x&quot;);
+ * 
+ * List&lt;Point&gt; copies = batch.toObjects(Point.class);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ColumnBatch {
+
+    /**
+     * Lists shorter than this are extracted in the calling thread, since
+     * handing them to other threads costs more than it saves.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private static final AtomicInteger sThreadCount = new AtomicInteger();
+
+    /**
+     * The threads used by {@link #extract(Class, List)}, created on first use
+     * and kept for the life of the process. They are daemon threads, so they
+     * do not keep the process alive.
+     */
+    private static ExecutorService sExecutor;
+
+    private final Class<?> mType;
+
+    private final Field[] mFields;
+
+    private final Object[] mColumns;
+
+    private final int mSize;
+
+    /* default */ColumnBatch(Class<?> type, Field[] fields, Object[] columns, int size) {
+        mType = type;
+        mFields = fields;
+        mColumns = columns;
+        mSize = size;
+    }
+
+    private ColumnBatch(Class<?> type, Field[] fields, int size) {
+        this(type, fields, new Object[fields.length], size);
+    }
+
+    private ColumnBatch(Class<?> type, int size) {
+        this(type, getFields(type), size);
+        for (int i = 0; i < mFields.length; i++) {
+            mColumns[i] = newColumn(mFields[i], size);
+        }
+    }
+
+    /**
+     * Returns the fields of {@code c} in column order, made accessible. The
+     * fields of each class are looked up once, by
+     * {@link FieldReflectionUtil#getSortedFields(Class, int)}.
+     */
+    /* default */static Field[] getFields(Class<?> c) {
+        return FieldReflectionUtil.getSortedFields(c, FieldReflectionUtil.INSTANCE_FIELDS);
+    }
+
+    /**
+     * Returns a primitive array for a primitive field, or an {@code Object[]}
+     * for any other field.
+     */
+    /* default */static Object newColumn(Field field, int length) {
+        Class<?> type = field.getType();
+        return Array.newInstance(type.isPrimitive() ? type : Object.class, length);
+    }
+
+    /**
+     * Copies the value of {@code field} in {@code object} to element
+     * {@code row} of {@code column}.
+     */
+    /* default */static void readField(Field field, Object object, Object column, int row)
+            throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            ((int[]) column)[row] = field.getInt(object);
+        } else if (type == long.class) {
+            ((long[]) column)[row] = field.getLong(object);
+        } else if (type == double.class) {
+            ((double[]) column)[row] = field.getDouble(object);
+        } else if (type == float.class) {
+            ((float[]) column)[row] = field.getFloat(object);
+        } else if (type == boolean.class) {
+            ((boolean[]) column)[row] = field.getBoolean(object);
+        } else if (type == byte.class) {
+            ((byte[]) column)[row] = field.getByte(object);
+        } else if (type == short.class) {
+            ((short[]) column)[row] = field.getShort(object);
+        } else if (type == char.class) {
+            ((char[]) column)[row] = field.getChar(object);
+        } else {
+            ((Object[]) column)[row] = field.get(object);
+        }
+    }
+
+    /**
+     * Copies element {@code row} of {@code column} to {@code field} in
+     * {@code object}.
+     */
+    private static void writeField(Field field, Object column, int row, Object object)
+            throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            field.setInt(object, ((int[]) column)[row]);
+        } else if (type == long.class) {
+            field.setLong(object, ((long[]) column)[row]);
+        } else if (type == double.class) {
+            field.setDouble(object, ((double[]) column)[row]);
+        } else if (type == float.class) {
+            field.setFloat(object, ((float[]) column)[row]);
+        } else if (type == boolean.class) {
+            field.setBoolean(object, ((boolean[]) column)[row]);
+        } else if (type == byte.class) {
+            field.setByte(object, ((byte[]) column)[row]);
+        } else if (type == short.class) {
+            field.setShort(object, ((short[]) column)[row]);
+        } else if (type == char.class) {
+            field.setChar(object, ((char[]) column)[row]);
+        } else {
+            field.set(object, ((Object[]) column)[row]);
+        }
+    }
+
+    private static Object[] toRows(Class<?> c, List<?> objects) {
+        if (c == null) {
+            throw new IllegalArgumentException("c cannot be null");
+        }
+        if (objects == null) {
+            throw new IllegalArgumentException("objects cannot be null");
+        }
+
+        // copied once so that linked lists are not walked from the start for
+        // every object
+        Object[] result = objects.toArray();
+        for (int i = 0; i < result.length; i++) {
+            if (!c.isInstance(result[i])) {
+                throw new IllegalArgumentException("object " + i + " is not a " + c.getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Extracts the field values of {@code objects}. Lists with many objects
+     * are split across one thread per available processor. The threads belong
+     * to a pool that is created the first time it is needed and shared by
+     * every later call.
+     * 
+     * @param c the class whose fields are extracted.
+     * @param objects the objects to extract values from.
+     * @return the values of the fields of {@code c}, one column per field.
+     * @throws IllegalArgumentException if {@code c} or {@code objects} is
+     *             null, if an object is null or not an instance of {@code c},
+     *             or if a field could not be read.
+     * @since 1.1
+     */
+    public static <T> ColumnBatch extract(Class<T> c, List<? extends T> objects) {
+        Object[] rows = toRows(c, objects);
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (threads < 2 || rows.length < PARALLEL_THRESHOLD) {
+            ColumnBatch result = new ColumnBatch(c, rows.length);
+            result.fill(rows, 0, rows.length);
+            return result;
+        }
+
+        return extract(c, rows, getExecutor(threads), threads);
+    }
+
+    private static synchronized ExecutorService getExecutor(int threads) {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread result = new Thread(r, "ColumnBatch-"
+                            + sThreadCount.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Extracts the field values of {@code objects} using the threads of
+     * {@code executor}. The list is split into one range per task and
+     * {@code parallelism} tasks are submitted.
+     * 
+     * @param c the class whose fields are extracted.
+     * @param objects the objects to extract values from.
+     * @param executor runs the tasks. It is not shut down.
+     * @param parallelism the number of tasks to split the list into.
+     * @return the values of the fields of {@code c}, one column per field.
+     * @throws IllegalArgumentException if {@code c}, {@code objects} or
+     *             {@code executor} is null, if {@code parallelism < 1}, if an
+     *             object is null or not an instance of {@code c}, or if a
+     *             field could not be read.
+     * @throws IllegalStateException if the calling thread is interrupted.
+     * @since 1.1
+     */
+    public static <T> ColumnBatch extract(Class<T> c, List<? extends T> objects,
+            ExecutorService executor, int parallelism) {
+        return extract(c, toRows(c, objects), executor, parallelism);
+    }
+
+    private static ColumnBatch extract(Class<?> c, final Object[] rows, ExecutorService executor,
+            int parallelism) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+
+        final ColumnBatch result = new ColumnBatch(c, rows.length);
+        int chunk = (rows.length + parallelism - 1) / parallelism;
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(parallelism);
+        for (int start = 0; start < rows.length; start += chunk) {
+            final int from = start;
+            final int to = Math.min(rows.length, start + chunk);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    result.fill(rows, from, to);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while extracting columns", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("unable to extract columns", e.getCause());
+        }
+        return result;
+    }
+
+    /*
+     * Fills rows [from, to) of every column. Ranges filled by different
+     * threads never overlap, and Future.get() publishes the values to the
+     * thread that waits for them.
+     */
+    private void fill(Object[] rows, int from, int to) {
+        try {
+            for (int i = 0; i < mFields.length; i++) {
+                Field field = mFields[i];
+                Class<?> type = field.getType();
+                Object column = mColumns[i];
+
+                if (type == int.class) {
+                    int[] values = (int[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getInt(rows[row]);
+                    }
+                } else if (type == long.class) {
+                    long[] values = (long[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getLong(rows[row]);
+                    }
+                } else if (type == double.class) {
+                    double[] values = (double[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getDouble(rows[row]);
+                    }
+                } else if (type == float.class) {
+                    float[] values = (float[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getFloat(rows[row]);
+                    }
+                } else if (type == boolean.class) {
+                    boolean[] values = (boolean[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getBoolean(rows[row]);
+                    }
+                } else if (type == byte.class) {
+                    byte[] values = (byte[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getByte(rows[row]);
+                    }
+                } else if (type == short.class) {
+                    short[] values = (short[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getShort(rows[row]);
+                    }
+                } else if (type == char.class) {
+                    char[] values = (char[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.getChar(rows[row]);
+                    }
+                } else {
+                    Object[] values = (Object[]) column;
+                    for (int row = from; row < to; row++) {
+                        values[row] = field.get(rows[row]);
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to read a field", e);
+        }
+    }
+
+    /**
+     * Returns the class whose fields were extracted.
+     * 
+     * @return the class whose fields were extracted.
+     * @since 1.1
+     */
+    public Class<?> getType() {
+        return mType;
+    }
+
+    /**
+     * Returns the number of objects values were extracted from, which is the
+     * length of every column.
+     * 
+     * @return the number of rows.
+     * @since 1.1
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of columns.
+     * 
+     * @return the number of columns.
+     * @since 1.1
+     */
+    public int fieldCount() {
+        return mFields.length;
+    }
+
+    /**
+     * Returns the field of column {@code index}.
+     * 
+     * @param index the index of the column, from 0 to {@link #fieldCount()} - 1.
+     * @return the field.
+     * @since 1.1
+     */
+    public Field getField(int index) {
+        return mFields[index];
+    }
+
+    /**
+     * Returns the index of the column of the field called {@code name}, or -1
+     * if there is no such field. If fields in more than one class of the
+     * hierarchy have the name, the first one in column order is returned.
+     * 
+     * @param name the name of the field.
+     * @return the index of the column, or -1.
+     * @since 1.1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < mFields.length; i++) {
+            if (mFields[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns column {@code index}: a primitive array for a primitive field
+     * and an {@code Object[]} for any other field. The array is not copied.
+     * 
+     * @param index the index of the column, from 0 to {@link #fieldCount()} - 1.
+     * @return the column.
+     * @since 1.1
+     */
+    public Object getColumn(int index) {
+        return mColumns[index];
+    }
+
+    /**
+     * Returns the column of the field called {@code name}.
+     * 
+     * @param name the name of the field.
+     * @return the column.
+     * @throws IllegalArgumentException if there is no such field.
+     * @see #getColumn(int)
+     * @since 1.1
+     */
+    public Object getColumn(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException(mType.getName() + " has no field " + name);
+        }
+        return mColumns[index];
+    }
+
+    /**
+     * Encodes primitive column {@code index} in the same format as
+     * {@link android.lang.util.PrimitiveUtil}. The bytes can be decoded with
+     * {@link MemoryMappedPrimitive#asType(Class)}. That format stores the
+     * length of a {@code boolean} column in a {@code short}, so a
+     * {@code boolean} column can only be encoded if the batch has at most
+     * {@link Short#MAX_VALUE} rows.
+     * 
+     * @param index the index of the column, from 0 to {@link #fieldCount()} - 1.
+     * @return the encoded column.
+     * @throws IllegalArgumentException if the field of the column is not a
+     *             primitive, or is a {@code boolean} and the batch has more
+     *             than {@link Short#MAX_VALUE} rows.
+     * @since 1.1
+     */
+    public byte[] toBytes(int index) {
+        if (!mFields[index].getType().isPrimitive()) {
+            throw new IllegalArgumentException(mFields[index].getName()
+                    + " is not a primitive field");
+        }
+        if (mSize == 0) {
+            return new byte[0];
+        }
+        return (byte[]) MemoryMappedPrimitive.wrap(mColumns[index]).asType(byte[].class);
+    }
+
+    /**
+     * Copies the values of row {@code row} into the fields of {@code target}.
+     * 
+     * @param row the row to copy.
+     * @param target an instance of {@link #getType()}.
+     * @return {@code target}.
+     * @throws IllegalArgumentException if {@code target} is not an instance
+     *             of {@link #getType()}, if {@code row} is out of range, or if
+     *             a field could not be set.
+     * @since 1.1
+     */
+    public <T> T get(int row, T target) {
+        if (!mType.isInstance(target)) {
+            throw new IllegalArgumentException("target must be a " + mType.getName());
+        }
+        if (row < 0 || row >= mSize) {
+            throw new IllegalArgumentException("row " + row + " is outside of a batch of "
+                    + mSize + " rows");
+        }
+
+        try {
+            for (int i = 0; i < mFields.length; i++) {
+                writeField(mFields[i], mColumns[i], row, target);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to set a field", e);
+        }
+        return target;
+    }
+
+    /**
+     * Creates one object per row with the no-argument constructor of
+     * {@link #getType()} and copies the values of the row into it.
+     * 
+     * @param c {@link #getType()} or one of its superclasses.
+     * @return the objects, in row order.
+     * @throws IllegalArgumentException if {@code c} is not assignable from
+     *             {@link #getType()} or if the objects could not be created.
+     * @since 1.1
+     */
+    public <T> List<T> toObjects(Class<T> c) {
+        if (c == null || !c.isAssignableFrom(mType)) {
+            throw new IllegalArgumentException("c must be assignable from " + mType.getName());
+        }
+
+        Constructor<?> constructor;
+        try {
+            constructor = mType.getDeclaredConstructor();
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(mType.getName()
+                    + " has no constructor without arguments", e);
+        }
+
+        List<T> result = new ArrayList<T>(mSize);
+        try {
+            for (int row = 0; row < mSize; row++) {
+                result.add(get(row, c.cast(constructor.newInstance())));
+            }
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(),
+                    e.getCause());
+        }
+        return result;
+    }
+
+}
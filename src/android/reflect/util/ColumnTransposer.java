@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Iterator;
+
+/**
+ * Transposes objects that arrive one at a time into column buffers: one
+ * growable array per field, with one element per object. Primitive fields go
+ * into primitive arrays, so the objects themselves do not need to be kept and
+ * a scan over one field reads a single contiguous array. {@link #toBatch()}
+ * returns the columns as a {@link ColumnBatch}, which can encode them or turn
+ * them back into objects.
+ * <p>
+ * The columns are the same as those of
+ * {@link ColumnBatch#extract(Class, java.util.List)}. Like
+ * {@link android.lang.util.PrimitiveWriter}, the buffers double in size when
+ * they run out of room.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * ColumnTransposer&lt;Point&gt; transposer = new ColumnTransposer&lt;Point&gt;(Point.class);
+ * while (cursor.moveToNext()) {
+ *     transposer.add(readPoint(cursor));
+ * }
+ * ColumnBatch batch = transposer.toBatch();
+ * byte[] xs = batch.toBytes(batch.indexOf(&quot;x&quot;));
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @param <T> the type of objects transposed.
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ColumnTransposer<T> {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final Class<T> mType;
+
+    private final Field[] mFields;
+
+    private final Object[] mColumns;
+
+    private int mSize;
+
+    /**
+     * Create a new transposer with the default capacity.
+     * 
+     * @param type the class whose fields become columns.
+     * @since 1.1
+     */
+    public ColumnTransposer(Class<T> type) {
+        this(type, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new transposer.
+     * 
+     * @param type the class whose fields become columns.
+     * @param capacity the number of objects that can be added before the
+     *            buffers have to grow.
+     * @throws IllegalArgumentException if {@code type} is null or
+     *             {@code capacity < 0}.
+     * @since 1.1
+     */
+    public ColumnTransposer(Class<T> type, int capacity) {
+        if (type == null) {
+            throw new IllegalArgumentException("type cannot be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+
+        mType = type;
+        mFields = ColumnBatch.getFields(type);
+        mColumns = new Object[mFields.length];
+        for (int i = 0; i < mFields.length; i++) {
+            mColumns[i] = ColumnBatch.newColumn(mFields[i], capacity);
+        }
+    }
+
+    /**
+     * Returns the number of objects added so far.
+     * 
+     * @since 1.1
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Discards the objects added so far. The buffers are kept so that they can
+     * be reused.
+     * 
+     * @since 1.1
+     */
+    public void reset() {
+        for (Object column : mColumns) {
+            if (column instanceof Object[]) {
+                // do not hold on to the values of the discarded objects
+                Object[] values = (Object[]) column;
+                for (int i = 0; i < mSize; i++) {
+                    values[i] = null;
+                }
+            }
+        }
+        mSize = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = mColumns.length == 0 ? Integer.MAX_VALUE : Array.getLength(mColumns[0]);
+        if (capacity <= length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, length << 1);
+        for (int i = 0; i < mColumns.length; i++) {
+            Object column = ColumnBatch.newColumn(mFields[i], newCapacity);
+            System.arraycopy(mColumns[i], 0, column, 0, mSize);
+            mColumns[i] = column;
+        }
+    }
+
+    /**
+     * Appends the field values of {@code object} to the columns.
+     * 
+     * @param object the object to add.
+     * @throws IllegalArgumentException if {@code object} is null or a field
+     *             could not be read.
+     * @since 1.1
+     */
+    public void add(T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("object cannot be null");
+        }
+
+        ensureCapacity(mSize + 1);
+        try {
+            for (int i = 0; i < mFields.length; i++) {
+                ColumnBatch.readField(mFields[i], object, mColumns[i], mSize);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to read a field", e);
+        }
+        mSize++;
+    }
+
+    /**
+     * Appends the field values of every object returned by {@code objects}.
+     * 
+     * @param objects the objects to add.
+     * @throws IllegalArgumentException if {@code objects} is null or returns
+     *             a null object.
+     * @since 1.1
+     */
+    public void addAll(Iterator<? extends T> objects) {
+        if (objects == null) {
+            throw new IllegalArgumentException("objects cannot be null");
+        }
+
+        while (objects.hasNext()) {
+            add(objects.next());
+        }
+    }
+
+    /**
+     * Returns a copy of the columns built so far. Each column is trimmed to
+     * {@link #size()} elements.
+     * 
+     * @since 1.1
+     */
+    public ColumnBatch toBatch() {
+        Object[] columns = new Object[mColumns.length];
+        for (int i = 0; i < mColumns.length; i++) {
+            columns[i] = ColumnBatch.newColumn(mFields[i], mSize);
+            System.arraycopy(mColumns[i], 0, columns[i], 0, mSize);
+        }
+        return new ColumnBatch(mType, mFields, columns, mSize);
+    }
+
+}
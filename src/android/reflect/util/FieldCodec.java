@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import android.lang.util.PrimitiveReader;
+import android.lang.util.PrimitiveWriter;
+
+/**
+ * Encodes and decodes the fields of objects of one class without reflection.
+ * Implementations are generated at build time for classes annotated with
+ * {@link GenerateFieldCodec}.
+ * <p>
+ * Fields are written in the order of {@link #getFieldNames()}, in the same
+ * big-endian format as {@link android.lang.util.PrimitiveUtil}. Arrays are
+ * written as their length (-1 for null) followed by their elements, one byte
+ * per {@code boolean}.
+ * 
+ * @param <T> the class whose fields are encoded.
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public interface FieldCodec<T> {
+
+    /**
+     * Returns the class whose fields are encoded.
+     * 
+     * @return the class whose fields are encoded.
+     * @since 1.1
+     */
+    Class<T> getType();
+
+    /**
+     * Returns the names of the encoded fields, in the order they are written.
+     * A name appears more than once if a subclass field hides a superclass
+     * field of the same name.
+     * 
+     * @return the field names.
+     * @since 1.1
+     */
+    String[] getFieldNames();
+
+    /**
+     * Returns the types of the encoded fields, in the order they are written.
+     * 
+     * @return the field types.
+     * @since 1.1
+     */
+    Class<?>[] getFieldTypes();
+
+    /**
+     * Creates a new object with the no-argument constructor of
+     * {@link #getType()}.
+     * 
+     * @return a new object.
+     * @throws UnsupportedOperationException if the class cannot be created
+     *             that way.
+     * @since 1.1
+     */
+    T newInstance();
+
+    /**
+     * Appends the fields of {@code object} to {@code out}.
+     * 
+     * @param object the object to encode.
+     * @param out the writer to append to.
+     * @throws IllegalArgumentException if either argument is null.
+     * @since 1.1
+     */
+    void encode(T object, PrimitiveWriter out);
+
+    /**
+     * Reads the fields written by {@link #encode(Object, PrimitiveWriter)}
+     * into {@code target}.
+     * 
+     * @return {@code target}.
+     * @param in the reader to read from.
+     * @param target the object to set the fields of.
+     * @throws IllegalArgumentException if either argument is null or the
+     *             bytes are not encoded fields.
+     * @throws IllegalStateException if {@code in} runs out of bytes.
+     * @since 1.1
+     */
+    T decode(PrimitiveReader in, T target);
+
+}
@@ -19,16 +19,20 @@
 
 package android.reflect.util;
 
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * {@link Field} reflection utility functions.
@@ -42,9 +46,159 @@ public final class FieldReflectionUtil {
         throw new UnsupportedOperationException("this class should not be instantiated");
     }
 
+    /**
+     * Every field declared by a class and its superclasses, static fields
+     * included. A view of {@link #getSortedFields(Class, int)}.
+     */
+    /* default */static final int ALL_FIELDS = 0;
+
+    /**
+     * The fields that are not {@code static} or {@code transient}. A view of
+     * {@link #getSortedFields(Class, int)}.
+     */
+    /* default */static final int INSTANCE_FIELDS = 1;
+
+    /**
+     * The fields that are not {@code static}, {@code final} or
+     * {@code transient}. A view of {@link #getSortedFields(Class, int)}.
+     */
+    /* default */static final int VALUE_FIELDS = 2;
+
+    /**
+     * The {@link #VALUE_FIELDS} whose type is a primitive or a primitive
+     * array. A view of {@link #getSortedFields(Class, int)}.
+     */
+    /* default */static final int PRIMITIVE_VALUE_FIELDS = 3;
+
+    /**
+     * The fields whose type is not a primitive, a boxed primitive or a
+     * primitive array, static fields included. A view of
+     * {@link #getSortedFields(Class, int)}.
+     */
+    /* default */static final int NON_PRIMITIVE_FIELDS = 4;
+
+    /**
+     * The number of views, one more than the largest view.
+     */
+    /* default */static final int VIEW_COUNT = 5;
+
+    /**
+     * Orders fields by name, and then by declaring class, because
+     * {@link Class#getDeclaredFields()} does not return fields in any
+     * particular order.
+     */
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field lhs, Field rhs) {
+            int result = lhs.getName().compareTo(rhs.getName());
+            if (result == 0) {
+                result = lhs.getDeclaringClass().getName()
+                        .compareTo(rhs.getDeclaringClass().getName());
+            }
+            return result;
+        }
+    };
+
+    /*
+     * The views of each class's fields, indexed by view and filled in as they
+     * are asked for. This is the only per-class field cache in the package.
+     * Classes are weakly keyed and the views softly held, because each Field
+     * refers to its class and would otherwise keep the key, and its class
+     * loader, reachable forever.
+     */
+    private static final Map<Class<?>, SoftReference<Field[][]>> SORTED_FIELDS =
+            new WeakHashMap<Class<?>, SoftReference<Field[][]>>();
+
+    /*
+     * Capacity of a HashMap that holds size entries without rehashing.
+     */
+    /* default */static int capacityFor(int size) {
+        return size * 4 / 3 + 1;
+    }
+
+    /**
+     * Returns one view of the fields of {@code c} and its superclasses, sorted
+     * by name and then by declaring class. The fields are looked up and made
+     * accessible once per class, and each view is filtered once; every class
+     * in this package that walks the fields of a class shares them. A field
+     * that cannot be made accessible is left as it is, so callers that read
+     * it get an {@link IllegalAccessException}.
+     * <p>
+     * The returned array is shared and must not be modified.
+     * 
+     * @param c the class to examine.
+     * @param view {@link #ALL_FIELDS}, {@link #INSTANCE_FIELDS},
+     *            {@link #VALUE_FIELDS}, {@link #PRIMITIVE_VALUE_FIELDS} or
+     *            {@link #NON_PRIMITIVE_FIELDS}.
+     * @return the fields of the view.
+     */
+    /* default */static Field[] getSortedFields(Class<?> c, int view) {
+        synchronized (SORTED_FIELDS) {
+            SoftReference<Field[][]> reference = SORTED_FIELDS.get(c);
+            Field[][] views = reference == null ? null : reference.get();
+            if (views == null) {
+                views = new Field[VIEW_COUNT][];
+                views[ALL_FIELDS] = lookUpFields(c);
+                SORTED_FIELDS.put(c, new SoftReference<Field[][]>(views));
+            }
+
+            if (views[view] == null) {
+                List<Field> fields = new ArrayList<Field>();
+                for (Field field : views[ALL_FIELDS]) {
+                    if (isInView(field, view)) {
+                        fields.add(field);
+                    }
+                }
+                views[view] = fields.toArray(new Field[fields.size()]);
+            }
+            return views[view];
+        }
+    }
+
+    private static Field[] lookUpFields(Class<?> c) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> k = c; k != null; k = k.getSuperclass()) {
+            for (Field f : k.getDeclaredFields()) {
+                if (!f.isAccessible()) {
+                    try {
+                        f.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // left inaccessible; reading it reports the error
+                    }
+                }
+                fields.add(f);
+            }
+        }
+        Collections.sort(fields, FIELD_ORDER);
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static boolean isInView(Field field, int view) {
+        int modifiers = field.getModifiers();
+        Class<?> type = field.getType();
+        switch (view) {
+            case INSTANCE_FIELDS:
+                return (modifiers & (Modifier.STATIC | Modifier.TRANSIENT)) == 0;
+            case VALUE_FIELDS:
+                return (modifiers & (Modifier.STATIC | Modifier.FINAL | Modifier.TRANSIENT)) == 0;
+            case PRIMITIVE_VALUE_FIELDS:
+                return isInView(field, VALUE_FIELDS)
+                        && (type.isPrimitive()
+                        || (type.isArray() && type.getComponentType().isPrimitive()));
+            case NON_PRIMITIVE_FIELDS:
+                return !ClassReflectionUtil.isPrimitiveOrArray(type);
+            default:
+                return true;
+        }
+    }
+
     /**
      * Creates a new map that excludes all the entries where {@link Field} is
      * not a primitive type or primitive array. {@code fieldMap} is untouched.
+     * <p>
+     * The result is not synchronized and may contain null values. To read the
+     * non-primitive fields of an object without building the full field map
+     * first, use {@link #getNonPrimitiveFieldValues(Class, Object)}.
      * 
      * @param fieldMap the fieldMap to read
      * @return a new map
@@ -57,7 +211,7 @@ public final class FieldReflectionUtil {
             throw new IllegalArgumentException("fieldMap cannot be null");
         }
 
-        Map<Field, Object> result = new Hashtable<Field, Object>();
+        Map<Field, Object> result = new HashMap<Field, Object>(capacityFor(fieldMap.size()));
 
         for (Entry<Field, Object> e : fieldMap.entrySet()) {
             Field key = e.getKey();
@@ -75,6 +229,10 @@ public final class FieldReflectionUtil {
      * Creates a new map that excludes all {@link Field} entries with classes
      * found in {@code fieldMap}. {@code fieldMap} and {@code types} are
      * untouched.
+     * <p>
+     * {@code types} is copied into a set once, so each field is checked in
+     * constant time. The result is not synchronized and may contain null
+     * values.
      * 
      * @param fieldMap the map to examine.
      * @param types insert into the new map all {@link Field} entries that are
@@ -94,11 +252,12 @@ public final class FieldReflectionUtil {
             throw new IllegalArgumentException("types cannot be null");
         }
 
-        Map<Field, Object> result = new Hashtable<Field, Object>();
+        Set<Class<?>> typeSet = new HashSet<Class<?>>(types);
+        Map<Field, Object> result = new HashMap<Field, Object>(capacityFor(fieldMap.size()));
 
         for (Entry<Field, Object> e : fieldMap.entrySet()) {
-            Field key = e.getKey();
-            if (!types.contains(key.getType())) {
+            Class<?> type = e.getKey().getType();
+            if (!typeSet.contains(type)) {
                 result.put(e.getKey(), e.getValue());
             }
 
@@ -184,6 +343,63 @@ public final class FieldReflectionUtil {
         return result;
     }
 
+    /**
+     * Returns the fields of {@code c} and its superclasses whose types are not
+     * primitives, boxed primitives or primitive arrays. These are the keys that
+     * {@link #removePrimitivesAndArrays(Map)} keeps from the map returned by
+     * {@link #getFieldValues(Class, Object)}. The fields are looked up once
+     * per class, sorted by name and then by declaring class, and made
+     * accessible.
+     * 
+     * @param c the class to examine.
+     * @return an unmodifiable list of fields.
+     * @throws IllegalArgumentException if {@code c} is null.
+     * @since 1.1
+     */
+    public static List<Field> getNonPrimitiveFields(Class<?> c) {
+
+        if (c == null) {
+            throw new IllegalArgumentException("c cannot be null");
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(getSortedFields(c,
+                NON_PRIMITIVE_FIELDS)));
+
+    }
+
+    /**
+     * Returns the same map as
+     * {@code removePrimitivesAndArrays(getFieldValues(c, object))} without
+     * reading the primitive fields or filtering them out again. The fields are
+     * taken from {@link #getNonPrimitiveFields(Class)}.
+     * 
+     * @param c the class of {@code object} whose fields are read.
+     * @param object the object to read.
+     * @return a new map of non-primitive fields and their values.
+     * @throws IllegalArgumentException if {@code c} or {@code object} is null.
+     * @throws IllegalAccessException if a field cannot be read.
+     * @since 1.1
+     */
+    public static <T> Map<Field, Object> getNonPrimitiveFieldValues(Class<?> c, T object)
+            throws IllegalArgumentException, IllegalAccessException {
+
+        if (object == null) {
+            throw new IllegalArgumentException("object cannot be null");
+        }
+
+        if (c == null) {
+            throw new IllegalArgumentException("c cannot be null");
+        }
+
+        Field[] fields = getSortedFields(c, NON_PRIMITIVE_FIELDS);
+        Map<Field, Object> result = new HashMap<Field, Object>(capacityFor(fields.length));
+        for (Field f : fields) {
+            result.put(f, f.get(object));
+        }
+        return result;
+
+    }
+
     /**
      * Returns a list of all fields declared in a class as well as its super
      * classes.
@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+import android.lang.util.PrimitiveReader;
+import android.lang.util.PrimitiveWriter;
+
+/**
+ * The encoded values of the primitive and primitive array fields of an object
+ * at one point in time. Two snapshots of the same class can be compared to
+ * produce a patch that holds only the fields that changed, and the patch can
+ * later be applied to another object of the class to bring those fields up to
+ * date. When most fields of an object do not change between two saves, the
+ * patch is much smaller than the object.
+ * <p>
+ * A snapshot includes the fields returned by
+ * {@link FieldReflectionUtil#getAllFields(Class, int)} whose type is a
+ * primitive or a primitive array, excluding {@code static}, {@code final}
+ * and {@code transient} fields, ordered by name and then by declaring class.
+ * Other fields are ignored. The fields of each class are looked up once and
+ * shared with the other classes of this package.
+ * <p>
+ * A patch is made up of:
+ * <ol>
+ * <li>a header: a magic number, a hash of the names and types of the fields
+ * and the number of fields,
+ * <li>a bit mask with one bit per field, set if the field changed,
+ * <li>the values of the changed fields, in the same big-endian format as
+ * {@link android.lang.util.PrimitiveUtil}. Arrays are written as their length
+ * (-1 for null) followed by their elements, one byte per {@code boolean}.
+ * </ol>
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * FieldSnapshot saved = FieldSnapshot.capture(model);
+ * ...
+ * FieldSnapshot current = FieldSnapshot.capture(model);
+ * byte[] patch = current.diff(saved);
+ * 
+ * // later, on a copy of the object as it was when saved was captured
+ * FieldSnapshot.apply(patch, copy);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class FieldSnapshot {
+
+    private static final short MAGIC = 0x4653;
+
+    private final Class<?> mType;
+
+    private final Field[] mFields;
+
+    /**
+     * The encoded values of all fields, one after another.
+     */
+    private final byte[] mBytes;
+
+    /**
+     * The position of each field's value in {@link #mBytes}, plus the length
+     * of {@link #mBytes} at the end.
+     */
+    private final int[] mOffsets;
+
+    private FieldSnapshot(Class<?> type, Field[] fields, byte[] bytes, int[] offsets) {
+        mType = type;
+        mFields = fields;
+        mBytes = bytes;
+        mOffsets = offsets;
+    }
+
+    /* default */static Field[] getFields(Class<?> c) {
+        return FieldReflectionUtil.getSortedFields(c,
+                FieldReflectionUtil.PRIMITIVE_VALUE_FIELDS);
+    }
+
+    /*
+     * Identifies the fields of a class in a patch, so that a patch is not
+     * applied to a class whose fields are different.
+     */
+    private static int hash(Field[] fields) {
+        int result = 17;
+        for (Field field : fields) {
+            result = 31 * result + field.getName().hashCode();
+            result = 31 * result + field.getType().getName().hashCode();
+        }
+        return result;
+    }
+
+    /**
+     * Captures the values of the primitive and primitive array fields of
+     * {@code object}.
+     * 
+     * @param object the object to capture.
+     * @return the snapshot.
+     * @throws IllegalArgumentException if {@code object} is null or a field
+     *             could not be read.
+     * @since 1.1
+     */
+    public static FieldSnapshot capture(Object object) {
+        if (object == null) {
+            throw new IllegalArgumentException("object cannot be null");
+        }
+
+        Class<?> type = object.getClass();
+        Field[] fields = getFields(type);
+        int[] offsets = new int[fields.length + 1];
+        PrimitiveWriter out = new PrimitiveWriter();
+
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                offsets[i] = out.size();
+                write(out, fields[i], object);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to read a field", e);
+        }
+
+        offsets[fields.length] = out.size();
+        return new FieldSnapshot(type, fields, out.toByteArray(), offsets);
+    }
+
+    /**
+     * Returns the class of the object this snapshot was captured from.
+     * 
+     * @return the class of the captured object.
+     * @since 1.1
+     */
+    public Class<?> getType() {
+        return mType;
+    }
+
+    /**
+     * Returns the number of fields in this snapshot.
+     * 
+     * @return the number of fields.
+     * @since 1.1
+     */
+    public int fieldCount() {
+        return mFields.length;
+    }
+
+    /**
+     * Returns field {@code index} of this snapshot.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the field.
+     * @since 1.1
+     */
+    public Field getField(int index) {
+        return mFields[index];
+    }
+
+    /**
+     * Returns the number of bytes the values of all fields take.
+     * 
+     * @return the size of the encoded values in bytes.
+     * @since 1.1
+     */
+    public int size() {
+        return mBytes.length;
+    }
+
+    /**
+     * Returns true if field {@code index} has the same value in this snapshot
+     * and {@code other}. Values are compared by their encoded bytes, so
+     * arrays are equal if their elements are, and {@code NaN} values are
+     * equal to themselves.
+     * 
+     * @param other a snapshot of the same class.
+     * @param index the field to compare.
+     * @return true if the values are the same.
+     * @throws IllegalArgumentException if {@code other} is null or was
+     *             captured from a different class.
+     * @since 1.1
+     */
+    public boolean isSame(FieldSnapshot other, int index) {
+        throwIfDifferentType(other);
+
+        int start = mOffsets[index];
+        int length = mOffsets[index + 1] - start;
+        int otherStart = other.mOffsets[index];
+        if (length != other.mOffsets[index + 1] - otherStart) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (mBytes[start + i] != other.mBytes[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void throwIfDifferentType(FieldSnapshot other) {
+        if (other == null) {
+            throw new IllegalArgumentException("other cannot be null");
+        }
+        if (other.mType != mType) {
+            throw new IllegalArgumentException("snapshot of " + other.mType.getName()
+                    + " cannot be compared to a snapshot of " + mType.getName());
+        }
+    }
+
+    /**
+     * Returns a patch that turns the fields of an object from their values in
+     * {@code previous} to their values in this snapshot.
+     * 
+     * @param previous an earlier snapshot of the same class, or null to
+     *            include every field in the patch.
+     * @return the patch.
+     * @throws IllegalArgumentException if {@code previous} was captured from
+     *             a different class.
+     * @since 1.1
+     */
+    public byte[] diff(FieldSnapshot previous) {
+        if (previous != null) {
+            throwIfDifferentType(previous);
+        }
+
+        byte[] mask = new byte[(mFields.length + 7) >>> 3];
+        int size = 0;
+        for (int i = 0; i < mFields.length; i++) {
+            if (previous == null || !isSame(previous, i)) {
+                mask[i >>> 3] |= 1 << (i & 7);
+                size += mOffsets[i + 1] - mOffsets[i];
+            }
+        }
+
+        PrimitiveWriter out = new PrimitiveWriter(2 + 4 + 4 + mask.length + size);
+        out.append(MAGIC).append(hash(mFields)).append(mFields.length);
+        out.append(mask, 0, mask.length);
+        for (int i = 0; i < mFields.length; i++) {
+            if ((mask[i >>> 3] & (1 << (i & 7))) != 0) {
+                out.append(mBytes, mOffsets[i], mOffsets[i + 1] - mOffsets[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Sets the fields of {@code target} that are included in {@code patch}.
+     * Fields that did not change are left alone. The whole patch is decoded
+     * before any field is set, so {@code target} is not changed if the patch
+     * is invalid.
+     * 
+     * @param patch a patch returned by {@link #diff(FieldSnapshot)}.
+     * @param target an object of the class the patch was made from.
+     * @return the number of fields that were set.
+     * @throws IllegalArgumentException if either argument is null, if
+     *             {@code patch} is not a patch or if it was made from a class
+     *             with different fields.
+     * @since 1.1
+     */
+    public static int apply(byte[] patch, Object target) {
+        if (patch == null) {
+            throw new IllegalArgumentException("patch cannot be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("target cannot be null");
+        }
+
+        Field[] fields = getFields(target.getClass());
+        PrimitiveReader in = new PrimitiveReader(patch);
+
+        try {
+            if (in.remaining() < 10 || in.readShort() != MAGIC) {
+                throw new IllegalArgumentException("bytes are not a field patch");
+            }
+            if (in.readInt() != hash(fields) || in.readInt() != fields.length) {
+                throw new IllegalArgumentException("patch was not made from a "
+                        + target.getClass().getName());
+            }
+
+            byte[] mask = new byte[(fields.length + 7) >>> 3];
+            in.read(mask, 0, mask.length);
+
+            Object[] values = new Object[fields.length];
+            int result = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if ((mask[i >>> 3] & (1 << (i & 7))) != 0) {
+                    values[i] = read(in, fields[i].getType());
+                    result++;
+                }
+            }
+
+            if (in.remaining() != 0) {
+                throw new IllegalArgumentException("bytes are not a field patch");
+            }
+
+            for (int i = 0; i < fields.length; i++) {
+                if ((mask[i >>> 3] & (1 << (i & 7))) != 0) {
+                    fields[i].set(target, values[i]);
+                }
+            }
+            return result;
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException("patch is truncated", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to set a field", e);
+        }
+    }
+
+    private static void write(PrimitiveWriter out, Field field, Object object)
+            throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            out.append(field.getInt(object));
+        } else if (type == long.class) {
+            out.append(field.getLong(object));
+        } else if (type == double.class) {
+            out.append(field.getDouble(object));
+        } else if (type == float.class) {
+            out.append(field.getFloat(object));
+        } else if (type == boolean.class) {
+            out.append(field.getBoolean(object));
+        } else if (type == byte.class) {
+            out.append(field.getByte(object));
+        } else if (type == short.class) {
+            out.append(field.getShort(object));
+        } else if (type == char.class) {
+            out.append(field.getChar(object));
+        } else {
+            Object array = field.get(object);
+            if (array == null) {
+                out.append(-1);
+                return;
+            }
+
+            int length = Array.getLength(array);
+            out.append(length);
+            if (array instanceof byte[]) {
+                out.append((byte[]) array, 0, length);
+            } else if (array instanceof short[]) {
+                out.append((short[]) array, 0, length);
+            } else if (array instanceof char[]) {
+                out.append((char[]) array, 0, length);
+            } else if (array instanceof int[]) {
+                out.append((int[]) array, 0, length);
+            } else if (array instanceof long[]) {
+                out.append((long[]) array, 0, length);
+            } else if (array instanceof float[]) {
+                out.append((float[]) array, 0, length);
+            } else if (array instanceof double[]) {
+                out.append((double[]) array, 0, length);
+            } else {
+                for (boolean element : (boolean[]) array) {
+                    out.append(element);
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the next value of a field of type, boxed if it is a primitive.
+     */
+    private static Object read(PrimitiveReader in, Class<?> type) {
+        if (type == int.class) {
+            return Integer.valueOf(in.readInt());
+        } else if (type == long.class) {
+            return Long.valueOf(in.readLong());
+        } else if (type == double.class) {
+            return Double.valueOf(in.readDouble());
+        } else if (type == float.class) {
+            return Float.valueOf(in.readFloat());
+        } else if (type == boolean.class) {
+            return Boolean.valueOf(in.readBoolean());
+        } else if (type == byte.class) {
+            return Byte.valueOf(in.readByte());
+        } else if (type == short.class) {
+            return Short.valueOf(in.readShort());
+        } else if (type == char.class) {
+            return Character.valueOf(in.readChar());
+        }
+
+        int length = in.readInt();
+        if (length < -1 || length > in.remaining()) {
+            throw new IllegalArgumentException("bytes are not a field patch");
+        }
+        if (length == -1) {
+            return null;
+        }
+
+        Object array = Array.newInstance(type.getComponentType(), length);
+        if (array instanceof byte[]) {
+            in.read((byte[]) array, 0, length);
+        } else if (array instanceof short[]) {
+            in.read((short[]) array, 0, length);
+        } else if (array instanceof char[]) {
+            in.read((char[]) array, 0, length);
+        } else if (array instanceof int[]) {
+            in.read((int[]) array, 0, length);
+        } else if (array instanceof long[]) {
+            in.read((long[]) array, 0, length);
+        } else if (array instanceof float[]) {
+            in.read((float[]) array, 0, length);
+        } else if (array instanceof double[]) {
+            in.read((double[]) array, 0, length);
+        } else {
+            boolean[] booleans = (boolean[]) array;
+            for (int i = 0; i < length; i++) {
+                booleans[i] = in.readBoolean();
+            }
+        }
+        return array;
+    }
+
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The values of all the fields of an object, indexed by field. This holds the
+ * same values as the map returned by
+ * {@link FieldReflectionUtil#getFieldValues(Class, Object)}, but without a
+ * map entry per field and without boxing primitives: primitive values are kept
+ * in a {@code long[]} and references in an {@code Object[]}, and every value
+ * is read by its field index in constant time.
+ * <p>
+ * The fields of each class are looked up once and shared with the other
+ * classes of this package. They are ordered by name and then by declaring
+ * class, so the index of a field is the same for every {@code FieldValues} of
+ * a class. Use
+ * {@link #indexOf(String)} once and keep the index:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * FieldValues values = FieldValues.capture(Model.class, model);
+ * int id = values.indexOf(&quot;mId&quot;);
+ * for (Model m : models) {
+ *     values.refresh(m);
+ *     long key = values.getLong(id);
+ *     ...
+ * }
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * {@link #toMap()} converts the values to the map form. This class is not
+ * thread safe.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class FieldValues {
+
+    /*
+     * The fields of a class, the primitive type of each one ('L' for
+     * references) and where each value is kept.
+     */
+    private static final class Layout {
+
+        final Field[] mFields;
+
+        final char[] mKinds;
+
+        /*
+         * index into mPrimitives for primitive fields, into mReferences
+         * otherwise.
+         */
+        final int[] mSlots;
+
+        final int mPrimitiveCount;
+
+        final int mReferenceCount;
+
+        Layout(Class<?> c) {
+            mFields = FieldReflectionUtil.getSortedFields(c, FieldReflectionUtil.ALL_FIELDS);
+            mKinds = new char[mFields.length];
+            mSlots = new int[mFields.length];
+
+            int primitives = 0;
+            int references = 0;
+            for (int i = 0; i < mFields.length; i++) {
+                Class<?> type = mFields[i].getType();
+                mKinds[i] = kindOf(type);
+                mSlots[i] = type.isPrimitive() ? primitives++ : references++;
+            }
+            mPrimitiveCount = primitives;
+            mReferenceCount = references;
+        }
+
+    }
+
+    private final Class<?> mType;
+
+    private final Layout mLayout;
+
+    private final long[] mPrimitives;
+
+    private final Object[] mReferences;
+
+    private FieldValues(Class<?> type, Layout layout) {
+        mType = type;
+        mLayout = layout;
+        mPrimitives = new long[layout.mPrimitiveCount];
+        mReferences = new Object[layout.mReferenceCount];
+    }
+
+    private static char kindOf(Class<?> type) {
+        if (type == boolean.class) {
+            return 'Z';
+        } else if (type == byte.class) {
+            return 'B';
+        } else if (type == short.class) {
+            return 'S';
+        } else if (type == char.class) {
+            return 'C';
+        } else if (type == int.class) {
+            return 'I';
+        } else if (type == long.class) {
+            return 'J';
+        } else if (type == float.class) {
+            return 'F';
+        } else if (type == double.class) {
+            return 'D';
+        }
+        return 'L';
+    }
+
+    /**
+     * Reads the values of the fields of {@code c} and its superclasses from
+     * {@code object}.
+     * 
+     * @param c the class whose fields are read.
+     * @param object the object to read.
+     * @return the values.
+     * @throws IllegalArgumentException if {@code c} or {@code object} is null,
+     *             or {@code object} is not an instance of {@code c}.
+     * @throws IllegalAccessException if a field cannot be read.
+     * @since 1.1
+     */
+    public static FieldValues capture(Class<?> c, Object object)
+            throws IllegalArgumentException, IllegalAccessException {
+        if (c == null) {
+            throw new IllegalArgumentException("c cannot be null");
+        }
+
+        FieldValues result = new FieldValues(c, new Layout(c));
+        result.refresh(object);
+        return result;
+    }
+
+    /**
+     * Reads the field values of another object of the same class into this
+     * snapshot, replacing the values held so far. Nothing is allocated.
+     * 
+     * @param object the object to read.
+     * @throws IllegalArgumentException if {@code object} is null or is not an
+     *             instance of {@link #getType()}.
+     * @throws IllegalAccessException if a field cannot be read.
+     * @since 1.1
+     */
+    public void refresh(Object object) throws IllegalArgumentException,
+            IllegalAccessException {
+        if (object == null) {
+            throw new IllegalArgumentException("object cannot be null");
+        }
+        if (!mType.isInstance(object)) {
+            throw new IllegalArgumentException(object.getClass().getName()
+                    + " is not an instance of " + mType.getName());
+        }
+
+        Field[] fields = mLayout.mFields;
+        char[] kinds = mLayout.mKinds;
+        int[] slots = mLayout.mSlots;
+        for (int i = 0; i < fields.length; i++) {
+            Field f = fields[i];
+            switch (kinds[i]) {
+                case 'Z':
+                    mPrimitives[slots[i]] = f.getBoolean(object) ? 1 : 0;
+                    break;
+                case 'F':
+                    mPrimitives[slots[i]] = Float.floatToRawIntBits(f.getFloat(object));
+                    break;
+                case 'D':
+                    mPrimitives[slots[i]] = Double.doubleToRawLongBits(f.getDouble(object));
+                    break;
+                case 'L':
+                    mReferences[slots[i]] = f.get(object);
+                    break;
+                default:
+                    // byte, short, char, int and long all widen to long
+                    mPrimitives[slots[i]] = f.getLong(object);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the class whose fields are held.
+     * 
+     * @return the class whose fields are held.
+     * @since 1.1
+     */
+    public Class<?> getType() {
+        return mType;
+    }
+
+    /**
+     * Returns the number of fields held.
+     * 
+     * @return the number of fields.
+     * @since 1.1
+     */
+    public int fieldCount() {
+        return mLayout.mFields.length;
+    }
+
+    /**
+     * Returns the field at {@code index}.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the field.
+     * @since 1.1
+     */
+    public Field getField(int index) {
+        return mLayout.mFields[index];
+    }
+
+    /**
+     * Returns the index of the field called {@code name}, or -1 if there is no
+     * such field. If a subclass hides a field of a superclass with the same
+     * name, the index of the subclass field is returned.
+     * 
+     * @param name the name of the field.
+     * @return the index of the field, or -1.
+     * @throws IllegalArgumentException if {@code name} is null.
+     * @since 1.1
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+
+        Field[] fields = mLayout.mFields;
+        int result = -1;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getName().equals(name)
+                    && (result == -1 || fields[result].getDeclaringClass().isAssignableFrom(
+                            fields[i].getDeclaringClass()))) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the field at {@code index} is a primitive, in which case
+     * its value is read with one of the typed getters. Otherwise it is read
+     * with {@link #getObject(int)}.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return true if the field is a primitive.
+     * @since 1.1
+     */
+    public boolean isPrimitive(int index) {
+        return mLayout.mKinds[index] != 'L';
+    }
+
+    private long primitive(int index, char kind) {
+        if (mLayout.mKinds[index] != kind) {
+            throw new IllegalArgumentException("field " + mLayout.mFields[index].getName()
+                    + " is of type " + mLayout.mFields[index].getType().getName());
+        }
+        return mPrimitives[mLayout.mSlots[index]];
+    }
+
+    /**
+     * Returns the value of a {@code boolean} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code boolean}.
+     * @since 1.1
+     */
+    public boolean getBoolean(int index) {
+        return primitive(index, 'Z') != 0;
+    }
+
+    /**
+     * Returns the value of a {@code byte} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code byte}.
+     * @since 1.1
+     */
+    public byte getByte(int index) {
+        return (byte) primitive(index, 'B');
+    }
+
+    /**
+     * Returns the value of a {@code short} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code short}.
+     * @since 1.1
+     */
+    public short getShort(int index) {
+        return (short) primitive(index, 'S');
+    }
+
+    /**
+     * Returns the value of a {@code char} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code char}.
+     * @since 1.1
+     */
+    public char getChar(int index) {
+        return (char) primitive(index, 'C');
+    }
+
+    /**
+     * Returns the value of a {@code int} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not an {@code int}.
+     * @since 1.1
+     */
+    public int getInt(int index) {
+        return (int) primitive(index, 'I');
+    }
+
+    /**
+     * Returns the value of a {@code long} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code long}.
+     * @since 1.1
+     */
+    public long getLong(int index) {
+        return primitive(index, 'J');
+    }
+
+    /**
+     * Returns the value of a {@code float} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code float}.
+     * @since 1.1
+     */
+    public float getFloat(int index) {
+        return Float.intBitsToFloat((int) primitive(index, 'F'));
+    }
+
+    /**
+     * Returns the value of a {@code double} field.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the field is not a {@code double}.
+     * @since 1.1
+     */
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(primitive(index, 'D'));
+    }
+
+    /**
+     * Returns the value of a field that is not a primitive.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field, which may be null.
+     * @throws IllegalArgumentException if the field is a primitive.
+     * @since 1.1
+     */
+    public Object getObject(int index) {
+        if (mLayout.mKinds[index] != 'L') {
+            throw new IllegalArgumentException("field " + mLayout.mFields[index].getName()
+                    + " is a primitive");
+        }
+        return mReferences[mLayout.mSlots[index]];
+    }
+
+    /**
+     * Returns the value of any field, boxing primitives.
+     * 
+     * @param index the index of the field, from 0 to {@link #fieldCount()} - 1.
+     * @return the value of the field, boxed if it is a primitive.
+     * @since 1.1
+     */
+    public Object get(int index) {
+        switch (mLayout.mKinds[index]) {
+            case 'Z':
+                return Boolean.valueOf(getBoolean(index));
+            case 'B':
+                return Byte.valueOf(getByte(index));
+            case 'S':
+                return Short.valueOf(getShort(index));
+            case 'C':
+                return Character.valueOf(getChar(index));
+            case 'I':
+                return Integer.valueOf(getInt(index));
+            case 'J':
+                return Long.valueOf(getLong(index));
+            case 'F':
+                return Float.valueOf(getFloat(index));
+            case 'D':
+                return Double.valueOf(getDouble(index));
+            default:
+                return getObject(index);
+        }
+    }
+
+    /**
+     * Returns the values in the form returned by
+     * {@link FieldReflectionUtil#getFieldValues(Class, Object)}. Primitives
+     * are boxed.
+     * 
+     * @return a new map.
+     * @since 1.1
+     */
+    public Map<Field, Object> toMap() {
+        Field[] fields = mLayout.mFields;
+        Map<Field, Object> result = new HashMap<Field, Object>(
+                FieldReflectionUtil.capacityFor(fields.length));
+        for (int i = 0; i < fields.length; i++) {
+            result.put(fields[i], get(i));
+        }
+        return result;
+    }
+
+}
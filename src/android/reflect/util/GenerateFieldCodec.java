@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose field codec is generated at build time. For a class
+ * {@code Point}, the annotation processor in {@code src_processor} writes a
+ * class {@code Point_FieldCodec} in the same package that implements
+ * {@link FieldCodec} with plain field reads and writes, so no reflection is
+ * done at run time and no ProGuard keep rules are needed for the fields.
+ * <p>
+ * The codec includes the same fields as {@link FieldSnapshot}: the primitive
+ * and primitive array fields of the class and its superclasses, excluding
+ * {@code static}, {@code final} and {@code transient} fields, ordered by
+ * name. The generated code reads and writes the fields directly and is not a
+ * subclass, so they must not be {@code private}, and fields inherited from a
+ * class in another package must be {@code public} and declared in a
+ * {@code public} class. A field hidden by a subclass field of the same name is
+ * encoded separately, as it is by {@link FieldSnapshot}.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * &#064;GenerateFieldCodec
+ * public class Point {
+ *     long id;
+ *     float x;
+ *     float y;
+ * }
+ * 
+ * PrimitiveWriter out = new PrimitiveWriter();
+ * Point_FieldCodec.INSTANCE.encode(point, out);
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateFieldCodec {
+}
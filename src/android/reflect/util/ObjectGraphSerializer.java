@@ -0,0 +1,1259 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import android.lang.util.PrimitiveReader;
+import android.lang.util.PrimitiveWriter;
+
+/**
+ * Serializes a graph of objects into a byte array and back. Every object in
+ * the graph is written exactly once, no matter how many fields refer to it, so
+ * shared objects are still shared after the graph is deserialized and cycles
+ * (such as an object that refers to itself) do not cause infinite recursion:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * TestClass object = ...;
+ * object.testtable = object;
+ * 
+ * byte[] bytes = ObjectGraphSerializer.serialize(object);
+ * TestClass copy = ObjectGraphSerializer.deserialize(bytes, TestClass.class);
+ * 
+ * // copy.testtable == copy
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * <h3>What Gets Written</h3>
+ * <p>
+ * Objects are identified with an {@link IdentityHashMap} and numbered in the
+ * order they are found. The graph is walked breadth first with a queue rather
+ * than by recursion, so long chains of objects do not overflow the stack. Each
+ * object is written as a record:
+ * <ul>
+ * <li>{@code String}s, boxed primitives and enum constants are written as
+ * values.
+ * <li>arrays are written as their class and length followed by their elements.
+ * Primitive arrays are encoded with {@link PrimitiveWriter}; other arrays are
+ * written as the numbers of the objects they contain.
+ * <li>{@link Collection}s and {@link Map}s are written as their class, the
+ * fields added by subclasses outside of the {@code java} packages (such as a
+ * list class with an ID field) and their elements (or keys and values),
+ * rather than their internal fields. When every element is the same boxed
+ * primitive type, the elements are unboxed into a primitive array in one pass
+ * and written with {@link PrimitiveWriter}'s bulk methods.
+ * <li>all other objects are written as their class, the values of their
+ * primitive fields and the numbers of the objects their other fields refer to.
+ * The fields are those returned by
+ * {@link FieldReflectionUtil#getAllFields(Class, int)}, excluding
+ * {@code static} and {@code transient} fields, ordered by name and then by
+ * declaring class.
+ * </ul>
+ * <p>
+ * <h3>Limitations</h3>
+ * <p>
+ * Objects other than those listed above are created with their no-argument
+ * constructor, which may be private; the constructor runs before the fields
+ * are restored. Collections and maps whose class cannot be instantiated (such
+ * as unmodifiable views) are restored as an {@link ArrayList},
+ * {@link LinkedHashSet}, {@link TreeSet}, {@link LinkedList},
+ * {@link LinkedHashMap} or {@link TreeMap}, whichever matches the original
+ * best, and sorted collections are restored in their natural order.
+ * <p>
+ * <h3>Untrusted Input</h3>
+ * <p>
+ * The serialized bytes name the classes to create. Deserializing creates
+ * objects of those classes, calls their no-argument constructors (even
+ * private ones), sets their fields and calls {@code hashCode}, {@code equals}
+ * and {@code compareTo} on the elements of sets and the keys of maps, so
+ * {@link #deserialize(byte[])} and {@link #deserialize(byte[], Class)} must
+ * only be given bytes from a trusted source. To read bytes that may have been
+ * tampered with, use {@link #deserialize(byte[], Class, Collection)}, which
+ * only creates objects of the classes it is given. Classes are loaded without
+ * being initialized, so a class that is rejected never runs its static
+ * initializer.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class ObjectGraphSerializer {
+
+    private static final short MAGIC = 0x4F47;
+
+    private static final byte VERSION = 1;
+
+    private static final int NULL_ID = -1;
+
+    private static final byte KIND_OBJECT = 1;
+
+    private static final byte KIND_STRING = 2;
+
+    private static final byte KIND_BOX = 3;
+
+    private static final byte KIND_ENUM = 4;
+
+    private static final byte KIND_ARRAY = 5;
+
+    private static final byte KIND_COLLECTION = 6;
+
+    private static final byte KIND_MAP = 7;
+
+    /**
+     * Classes {@link #deserialize(byte[], Class, Collection)} always creates:
+     * values, and the collections and maps used to replace classes that cannot
+     * be instantiated.
+     */
+    private static final Set<Class<?>> ALWAYS_ALLOWED = new HashSet<Class<?>>(Arrays
+            .<Class<?>> asList(Object.class, String.class, ArrayList.class, LinkedList.class,
+                    HashSet.class, LinkedHashSet.class, TreeSet.class, HashMap.class,
+                    LinkedHashMap.class, TreeMap.class));
+
+    static {
+        ALWAYS_ALLOWED.addAll(Arrays.asList(ClassReflectionUtil.PRIMITIVE_BOX_TYPES));
+    }
+
+    private ObjectGraphSerializer() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    /**
+     * The constructor and fields of a class, split into primitive fields,
+     * which are written as values, and all other fields, which are written as
+     * object numbers. For collections and maps, only the fields added by
+     * classes outside of the {@code java} packages are included. Each
+     * {@link GraphWriter} and {@link GraphReader} builds the information of a
+     * class once from the fields shared by
+     * {@link FieldReflectionUtil#getSortedFields(Class, int)}.
+     */
+    private static final class ClassInfo {
+
+        private final Class<?> mType;
+
+        private final Field[] mPrimitives;
+
+        private final Field[] mReferences;
+
+        private Constructor<?> mConstructor;
+
+        private ClassInfo(Class<?> type) {
+            Field[] fields = FieldReflectionUtil.getSortedFields(type,
+                    FieldReflectionUtil.INSTANCE_FIELDS);
+
+            boolean container = Collection.class.isAssignableFrom(type)
+                    || Map.class.isAssignableFrom(type);
+
+            List<Field> primitives = new ArrayList<Field>();
+            List<Field> references = new ArrayList<Field>();
+            for (Field field : fields) {
+                if (container && isPlatformClass(field.getDeclaringClass())) {
+                    continue;
+                }
+
+                if (!field.isAccessible()) {
+                    throw new IllegalArgumentException("unable to serialize " + type.getName()
+                            + ": " + field.getName() + " is not accessible");
+                }
+                (field.getType().isPrimitive() ? primitives : references).add(field);
+            }
+
+            mType = type;
+            mPrimitives = primitives.toArray(new Field[primitives.size()]);
+            mReferences = references.toArray(new Field[references.size()]);
+        }
+
+        private Object newInstance() throws Exception {
+            if (mConstructor == null) {
+                try {
+                    Constructor<?> constructor = mType.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    mConstructor = constructor;
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalArgumentException(mType.getName()
+                            + " has no no-argument constructor", e);
+                }
+            }
+            return mConstructor.newInstance();
+        }
+    }
+
+    private static boolean isPlatformClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.");
+    }
+
+    /**
+     * Returns the class information of {@code type} from {@code infos},
+     * building it on first use. Each graph keeps its own map, so nothing
+     * outlives the call that reads or writes the graph.
+     */
+    private static ClassInfo getClassInfo(Map<Class<?>, ClassInfo> infos, Class<?> type) {
+        ClassInfo result = infos.get(type);
+        if (result == null) {
+            result = new ClassInfo(type);
+            infos.put(type, result);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the class information of {@code type} and creates an object of
+     * it, for {@link WarmUpUtil}.
+     * 
+     * @return a new object, or null if {@code type} has no usable no-argument
+     *         constructor.
+     */
+    /* default */static Object newInstance(Class<?> type) {
+        try {
+            return new ClassInfo(type).newInstance();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int boxCode(Class<?> type) {
+        Class<?>[] types = ClassReflectionUtil.PRIMITIVE_BOX_TYPES;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Unboxes {@code elements} into a primitive array in a single pass.
+     * Returns null if the collection is empty, or if any element is null or
+     * not of the same boxed type as the first one.
+     */
+    private static Object unbox(Collection<?> elements, int count) {
+        if (count == 0) {
+            return null;
+        }
+
+        Object first = elements.iterator().next();
+        Class<?> type = first == null ? null : first.getClass();
+        int i = 0;
+
+        if (type == Integer.class) {
+            int[] result = new int[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Integer) element).intValue();
+            }
+            return result;
+        } else if (type == Long.class) {
+            long[] result = new long[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Long) element).longValue();
+            }
+            return result;
+        } else if (type == Double.class) {
+            double[] result = new double[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Double) element).doubleValue();
+            }
+            return result;
+        } else if (type == Float.class) {
+            float[] result = new float[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Float) element).floatValue();
+            }
+            return result;
+        } else if (type == Short.class) {
+            short[] result = new short[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Short) element).shortValue();
+            }
+            return result;
+        } else if (type == Byte.class) {
+            byte[] result = new byte[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Byte) element).byteValue();
+            }
+            return result;
+        } else if (type == Character.class) {
+            char[] result = new char[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Character) element).charValue();
+            }
+            return result;
+        } else if (type == Boolean.class) {
+            boolean[] result = new boolean[count];
+            for (Object element : elements) {
+                if (element == null || element.getClass() != type) {
+                    return null;
+                }
+                result[i++] = ((Boolean) element).booleanValue();
+            }
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Serializes {@code root} and every object it refers to.
+     * 
+     * @param root the object to serialize; may be null.
+     * @return the serialized graph.
+     * @throws IllegalArgumentException if an object in the graph cannot be
+     *             serialized.
+     * @since 1.1
+     */
+    public static byte[] serialize(Object root) {
+        PrimitiveWriter out = new PrimitiveWriter();
+        out.append(MAGIC).append(VERSION);
+
+        int countPosition = out.size();
+        out.append(0);
+
+        GraphWriter writer = new GraphWriter(out);
+        out.append(writer.id(root));
+
+        try {
+            writer.writeRecords();
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to read a field", e);
+        }
+
+        out.putInt(countPosition, writer.mObjects.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes a graph written by {@link #serialize(Object)}. The bytes
+     * must come from a trusted source: any class they name is created.
+     * 
+     * @param bytes the serialized graph.
+     * @return the root object of the graph.
+     * @throws IllegalArgumentException if {@code bytes} is not a serialized
+     *             graph or an object in it cannot be created.
+     * @since 1.1
+     */
+    public static Object deserialize(byte[] bytes) {
+        return read(bytes, null);
+    }
+
+    /*
+     * Reads a graph, creating only objects whose classes pass isAllowed, or
+     * objects of any class if allowed is null.
+     */
+    private static Object read(byte[] bytes, Set<Class<?>> allowed) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes cannot be null");
+        }
+
+        PrimitiveReader in = new PrimitiveReader(bytes);
+        try {
+            if (in.readShort() != MAGIC || in.readByte() != VERSION) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+
+            int count = in.readInt();
+            int root = in.readInt();
+            // every record takes at least one byte
+            if (count < 0 || count > in.remaining() || root < NULL_ID || root >= count) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+
+            return new GraphReader(in, count, allowed).read(root);
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException("bytes are truncated", e);
+        }
+    }
+
+    /**
+     * Deserializes a graph written by {@link #serialize(Object)} whose root is
+     * of type {@code type}. The bytes must come from a trusted source: any
+     * class they name is created.
+     * 
+     * @param bytes the serialized graph.
+     * @param type the type of the root object.
+     * @return the root object of the graph.
+     * @throws IllegalArgumentException if {@code bytes} is not a serialized
+     *             graph, an object in it cannot be created, or the root object
+     *             is not a {@code type}.
+     * @since 1.1
+     */
+    public static <T> T deserialize(byte[] bytes, Class<T> type) {
+        return checkRoot(read(bytes, null), type);
+    }
+
+    /**
+     * Deserializes a graph written by {@link #serialize(Object)} whose root is
+     * of type {@code type}, creating only objects of {@code type}, the classes
+     * in {@code allowed}, {@code String}s, boxed primitives, {@code Object},
+     * {@link ArrayList}, {@link LinkedList}, {@link HashSet},
+     * {@link LinkedHashSet}, {@link TreeSet}, {@link HashMap},
+     * {@link LinkedHashMap}, {@link TreeMap}, and arrays of these classes or of
+     * primitives. Subclasses of the allowed classes are not allowed unless they
+     * are listed too. A class that is not allowed is rejected before it is
+     * initialized.
+     * 
+     * @param bytes the serialized graph.
+     * @param type the type of the root object.
+     * @param allowed the other classes that may be created, including enums.
+     * @return the root object of the graph.
+     * @throws IllegalArgumentException if {@code bytes} is not a serialized
+     *             graph, names a class that is not allowed, an object in it
+     *             cannot be created, or the root object is not a {@code type}.
+     * @since 1.1
+     */
+    public static <T> T deserialize(byte[] bytes, Class<T> type,
+            Collection<? extends Class<?>> allowed) {
+        if (type == null) {
+            throw new IllegalArgumentException("type cannot be null");
+        }
+        if (allowed == null) {
+            throw new IllegalArgumentException("allowed cannot be null");
+        }
+
+        Set<Class<?>> classes = new HashSet<Class<?>>(allowed);
+        classes.add(type);
+        return checkRoot(read(bytes, classes), type);
+    }
+
+    private static <T> T checkRoot(Object result, Class<T> type) {
+        if (result != null && !type.isInstance(result)) {
+            throw new IllegalArgumentException("root object is a " + result.getClass().getName()
+                    + ", not a " + type.getName());
+        }
+        return type.cast(result);
+    }
+
+    private static void writeString(PrimitiveWriter out, String value) {
+        char[] chars = value.toCharArray();
+        out.append(chars.length);
+        out.append(chars, 0, chars.length);
+    }
+
+    private static String readString(PrimitiveReader in) {
+        int length = in.readInt();
+        if (length < 0 || length > in.remaining() / 2) {
+            throw new IllegalArgumentException("bytes are not a serialized object graph");
+        }
+        char[] chars = new char[length];
+        in.read(chars, 0, length);
+        return new String(chars);
+    }
+
+    /**
+     * Numbers the objects of a graph and writes one record per object.
+     */
+    private static final class GraphWriter {
+
+        private final PrimitiveWriter mOut;
+
+        private final IdentityHashMap<Object, Integer> mIds =
+                new IdentityHashMap<Object, Integer>();
+
+        /**
+         * Every object found so far, in order of their numbers. The objects
+         * that have not been written yet are the queue of work left to do.
+         */
+        private final List<Object> mObjects = new ArrayList<Object>();
+
+        private final Map<Class<?>, ClassInfo> mInfos = new HashMap<Class<?>, ClassInfo>();
+
+        private GraphWriter(PrimitiveWriter out) {
+            mOut = out;
+        }
+
+        private int id(Object value) {
+            if (value == null) {
+                return NULL_ID;
+            }
+
+            Integer result = mIds.get(value);
+            if (result == null) {
+                result = Integer.valueOf(mObjects.size());
+                mIds.put(value, result);
+                mObjects.add(value);
+            }
+            return result.intValue();
+        }
+
+        private void writeRecords() throws IllegalAccessException {
+            for (int i = 0; i < mObjects.size(); i++) {
+                write(mObjects.get(i));
+            }
+        }
+
+        private void write(Object value) throws IllegalAccessException {
+            Class<?> type = value.getClass();
+
+            if (value instanceof String) {
+                mOut.append(KIND_STRING);
+                writeString(mOut, (String) value);
+            } else if (boxCode(type) >= 0) {
+                mOut.append(KIND_BOX).append((byte) boxCode(type));
+                writeBox(value);
+            } else if (value instanceof Enum) {
+                mOut.append(KIND_ENUM);
+                writeString(mOut, ((Enum<?>) value).getDeclaringClass().getName());
+                writeString(mOut, ((Enum<?>) value).name());
+            } else if (type.isArray()) {
+                mOut.append(KIND_ARRAY);
+                writeString(mOut, type.getName());
+                writeArray(value);
+            } else if (value instanceof Collection) {
+                mOut.append(KIND_COLLECTION);
+                writeString(mOut, type.getName());
+                writeFields(getClassInfo(mInfos, type), value);
+                writeElements((Collection<?>) value);
+            } else if (value instanceof Map) {
+                mOut.append(KIND_MAP);
+                writeString(mOut, type.getName());
+                writeFields(getClassInfo(mInfos, type), value);
+
+                Map<?, ?> map = (Map<?, ?>) value;
+                List<Object> keys = new ArrayList<Object>(map.size());
+                List<Object> values = new ArrayList<Object>(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    keys.add(entry.getKey());
+                    values.add(entry.getValue());
+                }
+                writeElements(keys);
+                writeElements(values);
+            } else {
+                mOut.append(KIND_OBJECT);
+                writeString(mOut, type.getName());
+                writeFields(getClassInfo(mInfos, type), value);
+            }
+        }
+
+        private void writeBox(Object value) {
+            if (value instanceof Byte) {
+                mOut.append(((Byte) value).byteValue());
+            } else if (value instanceof Short) {
+                mOut.append(((Short) value).shortValue());
+            } else if (value instanceof Integer) {
+                mOut.append(((Integer) value).intValue());
+            } else if (value instanceof Long) {
+                mOut.append(((Long) value).longValue());
+            } else if (value instanceof Float) {
+                mOut.append(((Float) value).floatValue());
+            } else if (value instanceof Double) {
+                mOut.append(((Double) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                mOut.append(((Boolean) value).booleanValue());
+            } else {
+                mOut.append(((Character) value).charValue());
+            }
+        }
+
+        private void writeArray(Object array) {
+            int length = Array.getLength(array);
+            mOut.append(length);
+
+            if (array instanceof byte[]) {
+                mOut.append((byte[]) array, 0, length);
+            } else if (array instanceof short[]) {
+                mOut.append((short[]) array, 0, length);
+            } else if (array instanceof char[]) {
+                mOut.append((char[]) array, 0, length);
+            } else if (array instanceof int[]) {
+                mOut.append((int[]) array, 0, length);
+            } else if (array instanceof long[]) {
+                mOut.append((long[]) array, 0, length);
+            } else if (array instanceof float[]) {
+                mOut.append((float[]) array, 0, length);
+            } else if (array instanceof double[]) {
+                mOut.append((double[]) array, 0, length);
+            } else if (array instanceof boolean[]) {
+                for (boolean element : (boolean[]) array) {
+                    mOut.append(element);
+                }
+            } else {
+                for (Object element : (Object[]) array) {
+                    mOut.append(id(element));
+                }
+            }
+        }
+
+        /*
+         * Writes a block of elements: a code, the number of elements and then
+         * either the unboxed values (code 1 + the box code) or the object
+         * numbers of the elements (code 0).
+         */
+        private void writeElements(Collection<?> elements) {
+            int count = elements.size();
+            Object values = unbox(elements, count);
+            if (values == null) {
+                mOut.append((byte) 0).append(count);
+                for (Object element : elements) {
+                    mOut.append(id(element));
+                }
+                return;
+            }
+
+            mOut.append((byte) (boxCode(elements.iterator().next().getClass()) + 1));
+            writeArray(values);
+        }
+
+        private void writeFields(ClassInfo info, Object object) throws IllegalAccessException {
+            for (Field field : info.mPrimitives) {
+                Class<?> type = field.getType();
+                if (type == int.class) {
+                    mOut.append(field.getInt(object));
+                } else if (type == long.class) {
+                    mOut.append(field.getLong(object));
+                } else if (type == double.class) {
+                    mOut.append(field.getDouble(object));
+                } else if (type == float.class) {
+                    mOut.append(field.getFloat(object));
+                } else if (type == boolean.class) {
+                    mOut.append(field.getBoolean(object));
+                } else if (type == byte.class) {
+                    mOut.append(field.getByte(object));
+                } else if (type == short.class) {
+                    mOut.append(field.getShort(object));
+                } else {
+                    mOut.append(field.getChar(object));
+                }
+            }
+
+            for (Field field : info.mReferences) {
+                mOut.append(id(field.get(object)));
+            }
+        }
+    }
+
+    /**
+     * The elements of a collection, or the keys or values of a map: either
+     * object numbers or a primitive array of unboxed values.
+     */
+    private static final class ElementBlock {
+
+        private final int mCount;
+
+        private final int[] mIds;
+
+        private final Object mValues;
+
+        private ElementBlock(int count, int[] ids, Object values) {
+            mCount = count;
+            mIds = ids;
+            mValues = values;
+        }
+
+        private Object get(int index, GraphReader reader) {
+            if (mIds != null) {
+                return reader.get(mIds[index]);
+            } else if (mValues instanceof int[]) {
+                return Integer.valueOf(((int[]) mValues)[index]);
+            } else if (mValues instanceof long[]) {
+                return Long.valueOf(((long[]) mValues)[index]);
+            } else if (mValues instanceof double[]) {
+                return Double.valueOf(((double[]) mValues)[index]);
+            } else if (mValues instanceof float[]) {
+                return Float.valueOf(((float[]) mValues)[index]);
+            } else if (mValues instanceof boolean[]) {
+                return Boolean.valueOf(((boolean[]) mValues)[index]);
+            } else if (mValues instanceof byte[]) {
+                return Byte.valueOf(((byte[]) mValues)[index]);
+            } else if (mValues instanceof short[]) {
+                return Short.valueOf(((short[]) mValues)[index]);
+            }
+            return Character.valueOf(((char[]) mValues)[index]);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addTo(Collection<?> collection, GraphReader reader) {
+            if (collection instanceof ArrayList) {
+                ((ArrayList<?>) collection).ensureCapacity(collection.size() + mCount);
+            }
+
+            Collection<Object> target = (Collection<Object>) collection;
+            if (mIds != null) {
+                for (int i = 0; i < mCount; i++) {
+                    target.add(reader.get(mIds[i]));
+                }
+            } else if (mValues instanceof int[]) {
+                int[] ints = (int[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Integer.valueOf(ints[i]));
+                }
+            } else if (mValues instanceof long[]) {
+                long[] longs = (long[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Long.valueOf(longs[i]));
+                }
+            } else if (mValues instanceof double[]) {
+                double[] doubles = (double[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Double.valueOf(doubles[i]));
+                }
+            } else if (mValues instanceof float[]) {
+                float[] floats = (float[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Float.valueOf(floats[i]));
+                }
+            } else if (mValues instanceof boolean[]) {
+                boolean[] booleans = (boolean[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Boolean.valueOf(booleans[i]));
+                }
+            } else if (mValues instanceof byte[]) {
+                byte[] bytes = (byte[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Byte.valueOf(bytes[i]));
+                }
+            } else if (mValues instanceof short[]) {
+                short[] shorts = (short[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Short.valueOf(shorts[i]));
+                }
+            } else {
+                char[] chars = (char[]) mValues;
+                for (int i = 0; i < mCount; i++) {
+                    target.add(Character.valueOf(chars[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a graph. Every object is created first, with the
+     * numbers of the objects it refers to set aside; the references are
+     * resolved once all of the objects exist.
+     */
+    private static final class GraphReader {
+
+        private final PrimitiveReader mIn;
+
+        private final Object[] mObjects;
+
+        /**
+         * The numbers of the objects each record refers to, or null for
+         * records that do not refer to other objects.
+         */
+        private final int[][] mReferences;
+
+        /**
+         * The class whose reference fields {@link #mReferences} holds, or null
+         * if they are array elements or the fields could not be restored.
+         */
+        private final ClassInfo[] mInfos;
+
+        /**
+         * The elements of each collection, or the keys and values of each map,
+         * that still need to be added to it.
+         */
+        private final ElementBlock[][] mElements;
+
+        /**
+         * The classes that may be created besides {@link #ALWAYS_ALLOWED}, or
+         * null if any class may be created.
+         */
+        private final Set<Class<?>> mAllowed;
+
+        private final Map<Class<?>, ClassInfo> mClassInfos =
+                new HashMap<Class<?>, ClassInfo>();
+
+        private GraphReader(PrimitiveReader in, int count, Set<Class<?>> allowed) {
+            mIn = in;
+            mAllowed = allowed;
+            mObjects = new Object[count];
+            mReferences = new int[count][];
+            mInfos = new ClassInfo[count];
+            mElements = new ElementBlock[count][];
+        }
+
+        private Object read(int root) {
+            try {
+                for (int i = 0; i < mObjects.length; i++) {
+                    readRecord(i);
+                }
+                resolve();
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph", e);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("unable to restore the object graph", e);
+            }
+            return root == NULL_ID ? null : mObjects[root];
+        }
+
+        private Object get(int id) {
+            if (id == NULL_ID) {
+                return null;
+            }
+            if (id < 0 || id >= mObjects.length) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+            return mObjects[id];
+        }
+
+        private int[] readIds(int count) {
+            if (count < 0 || count > mIn.remaining() / 4) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+            int[] result = new int[count];
+            mIn.read(result, 0, count);
+            return result;
+        }
+
+        /*
+         * Loads the class named by the next string without initializing it,
+         * so a class that is not allowed never runs its static initializer.
+         */
+        private Class<?> readClass() throws ClassNotFoundException {
+            String name = readString(mIn);
+            Class<?> result = Class.forName(name, false,
+                    ObjectGraphSerializer.class.getClassLoader());
+            if (mAllowed != null && !isAllowed(result)) {
+                throw new IllegalArgumentException(name + " is not an allowed class");
+            }
+            return result;
+        }
+
+        private boolean isAllowed(Class<?> type) {
+            Class<?> walk = type;
+            while (walk.isArray()) {
+                walk = walk.getComponentType();
+            }
+            return walk.isPrimitive() || ALWAYS_ALLOWED.contains(walk)
+                    || mAllowed.contains(walk);
+        }
+
+        private void readRecord(int id) throws Exception {
+            byte kind = mIn.readByte();
+
+            if (kind == KIND_STRING) {
+                mObjects[id] = readString(mIn);
+            } else if (kind == KIND_BOX) {
+                mObjects[id] = readBox(mIn.readByte());
+            } else if (kind == KIND_ENUM) {
+                Class<?> type = readClass();
+                String name = readString(mIn);
+                if (!type.isEnum()) {
+                    throw new IllegalArgumentException(type.getName() + " is not an enum");
+                }
+                for (Object constant : type.getEnumConstants()) {
+                    if (((Enum<?>) constant).name().equals(name)) {
+                        mObjects[id] = constant;
+                    }
+                }
+                if (mObjects[id] == null) {
+                    throw new IllegalArgumentException(name + " is not an enum of "
+                            + type.getName());
+                }
+            } else if (kind == KIND_ARRAY) {
+                mObjects[id] = readArray(readClass(), id);
+            } else if (kind == KIND_COLLECTION) {
+                ClassInfo info = getClassInfo(mClassInfos, readClass());
+                Collection<?> collection;
+                ElementBlock elements;
+                if (hasFields(info)) {
+                    collection = newCollection(info.mType, 0);
+                    readContainerFields(id, info, collection);
+                    elements = readElements();
+                } else {
+                    // nothing comes before the elements, so the collection
+                    // can be sized for them
+                    elements = readElements();
+                    collection = newCollection(info.mType, elements.mCount);
+                    readContainerFields(id, info, collection);
+                }
+
+                if (elements.mIds == null) {
+                    // boxed primitives do not refer to other objects
+                    elements.addTo(collection, this);
+                } else {
+                    mElements[id] = new ElementBlock[] {
+                        elements
+                    };
+                }
+                mObjects[id] = collection;
+            } else if (kind == KIND_MAP) {
+                ClassInfo info = getClassInfo(mClassInfos, readClass());
+                Map<?, ?> map = null;
+                if (hasFields(info)) {
+                    map = newMap(info.mType, 0);
+                    readContainerFields(id, info, map);
+                }
+
+                mElements[id] = new ElementBlock[] {
+                        readElements(), readElements()
+                };
+                if (map == null) {
+                    map = newMap(info.mType, mElements[id][0].mCount);
+                    readContainerFields(id, info, map);
+                }
+                if (mElements[id][0].mCount != mElements[id][1].mCount) {
+                    throw new IllegalArgumentException("bytes are not a serialized object graph");
+                }
+                mObjects[id] = map;
+            } else if (kind == KIND_OBJECT) {
+                ClassInfo info = getClassInfo(mClassInfos, readClass());
+                Object object = info.newInstance();
+                readFields(info, object);
+                mObjects[id] = object;
+                mInfos[id] = info;
+                mReferences[id] = readIds(info.mReferences.length);
+            } else {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+        }
+
+        private Object readBox(int code) {
+            Class<?>[] types = ClassReflectionUtil.PRIMITIVE_BOX_TYPES;
+            Class<?> type = code >= 0 && code < types.length ? types[code] : null;
+
+            if (type == Byte.class) {
+                return Byte.valueOf(mIn.readByte());
+            } else if (type == Short.class) {
+                return Short.valueOf(mIn.readShort());
+            } else if (type == Integer.class) {
+                return Integer.valueOf(mIn.readInt());
+            } else if (type == Long.class) {
+                return Long.valueOf(mIn.readLong());
+            } else if (type == Float.class) {
+                return Float.valueOf(mIn.readFloat());
+            } else if (type == Double.class) {
+                return Double.valueOf(mIn.readDouble());
+            } else if (type == Boolean.class) {
+                return Boolean.valueOf(mIn.readBoolean());
+            } else if (type == Character.class) {
+                return Character.valueOf(mIn.readChar());
+            }
+            throw new IllegalArgumentException("bytes are not a serialized object graph");
+        }
+
+        private Object readArray(Class<?> type, int id) {
+            Class<?> component = type.getComponentType();
+            int length = mIn.readInt();
+            if (component == null || length < 0 || length > mIn.remaining()) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+
+            Object result = Array.newInstance(component, length);
+            if (result instanceof byte[]) {
+                mIn.read((byte[]) result, 0, length);
+            } else if (result instanceof short[]) {
+                mIn.read((short[]) result, 0, length);
+            } else if (result instanceof char[]) {
+                mIn.read((char[]) result, 0, length);
+            } else if (result instanceof int[]) {
+                mIn.read((int[]) result, 0, length);
+            } else if (result instanceof long[]) {
+                mIn.read((long[]) result, 0, length);
+            } else if (result instanceof float[]) {
+                mIn.read((float[]) result, 0, length);
+            } else if (result instanceof double[]) {
+                mIn.read((double[]) result, 0, length);
+            } else if (result instanceof boolean[]) {
+                boolean[] booleans = (boolean[]) result;
+                for (int i = 0; i < length; i++) {
+                    booleans[i] = mIn.readBoolean();
+                }
+            } else {
+                mReferences[id] = readIds(length);
+            }
+            return result;
+        }
+
+        /*
+         * The fields of a collection or map subclass. They are read but not
+         * restored if the class could not be instantiated and a replacement
+         * collection was created instead.
+         */
+        private void readContainerFields(int id, ClassInfo info, Object container)
+                throws IllegalAccessException {
+            boolean restore = container.getClass() == info.mType;
+            readFields(info, restore ? container : null);
+            mReferences[id] = readIds(info.mReferences.length);
+            mInfos[id] = restore ? info : null;
+        }
+
+        private ElementBlock readElements() {
+            int code = mIn.readByte();
+            if (code == 0) {
+                int[] ids = readIds(mIn.readInt());
+                return new ElementBlock(ids.length, ids, null);
+            }
+
+            Class<?>[] types = ClassReflectionUtil.PRIMITIVE_BOX_TYPES;
+            if (code < 1 || code > types.length) {
+                throw new IllegalArgumentException("bytes are not a serialized object graph");
+            }
+
+            // PRIMITIVE_ARRAYS pairs each primitive array with its boxed array
+            Object values = readArray(ClassReflectionUtil.PRIMITIVE_ARRAYS[(code - 1) * 2], -1);
+            return new ElementBlock(Array.getLength(values), null, values);
+        }
+
+        /*
+         * Reads the primitive fields of object, or skips them if object is
+         * null.
+         */
+        private void readFields(ClassInfo info, Object object) throws IllegalAccessException {
+            for (Field field : info.mPrimitives) {
+                Class<?> type = field.getType();
+                if (object == null) {
+                    mIn.skip(StructLayout.sizeOf(type));
+                    continue;
+                }
+
+                if (type == int.class) {
+                    field.setInt(object, mIn.readInt());
+                } else if (type == long.class) {
+                    field.setLong(object, mIn.readLong());
+                } else if (type == double.class) {
+                    field.setDouble(object, mIn.readDouble());
+                } else if (type == float.class) {
+                    field.setFloat(object, mIn.readFloat());
+                } else if (type == boolean.class) {
+                    field.setBoolean(object, mIn.readBoolean());
+                } else if (type == byte.class) {
+                    field.setByte(object, mIn.readByte());
+                } else if (type == short.class) {
+                    field.setShort(object, mIn.readShort());
+                } else {
+                    field.setChar(object, mIn.readChar());
+                }
+            }
+        }
+
+        /*
+         * Fields and arrays first, so that every object is complete before it
+         * is added to a collection or used as a map key. Collections and maps
+         * are then filled from the highest number to the lowest: objects are
+         * numbered breadth first, so a collection nested inside another is
+         * usually filled first. That does not hold for a collection reached
+         * through a sibling field, so sets and maps whose elements or keys
+         * can change their hash codes while the graph is filled are rebuilt
+         * once everything else is complete.
+         */
+        @SuppressWarnings("unchecked")
+        private void resolve() throws IllegalAccessException {
+            for (int i = 0; i < mObjects.length; i++) {
+                int[] ids = mReferences[i];
+                Object object = mObjects[i];
+                if (ids == null) {
+                    continue;
+                }
+
+                if (mInfos[i] != null) {
+                    Field[] fields = mInfos[i].mReferences;
+                    for (int j = 0; j < ids.length; j++) {
+                        fields[j].set(object, get(ids[j]));
+                    }
+                } else if (object instanceof Object[]) {
+                    Object[] array = (Object[]) object;
+                    for (int j = 0; j < ids.length; j++) {
+                        array[j] = get(ids[j]);
+                    }
+                }
+            }
+
+            boolean[] rebuild = null;
+            for (int i = mObjects.length - 1; i >= 0; i--) {
+                ElementBlock[] elements = mElements[i];
+                if (elements == null) {
+                    continue;
+                }
+
+                if (mObjects[i] instanceof Collection) {
+                    elements[0].addTo((Collection<?>) mObjects[i], this);
+                } else {
+                    Map<Object, Object> map = (Map<Object, Object>) mObjects[i];
+                    for (int j = 0; j < elements[0].mCount; j++) {
+                        map.put(elements[0].get(j, this), elements[1].get(j, this));
+                    }
+                }
+
+                if ((mObjects[i] instanceof Set || mObjects[i] instanceof Map)
+                        && hasMutableElements(elements[0])) {
+                    if (rebuild == null) {
+                        rebuild = new boolean[mObjects.length];
+                    }
+                    rebuild[i] = true;
+                }
+            }
+
+            if (rebuild != null) {
+                for (int i = mObjects.length - 1; i >= 0; i--) {
+                    if (rebuild[i]) {
+                        rebuild(mObjects[i]);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Strings, boxes and enums are complete as soon as they are read, so
+         * their hash codes never change. Any other element may not have been
+         * filled in yet when it was added.
+         */
+        private boolean hasMutableElements(ElementBlock elements) {
+            if (elements.mIds == null) {
+                return false;
+            }
+            for (int j = 0; j < elements.mCount; j++) {
+                Object element = mObjects[elements.mIds[j]];
+                if (!(element instanceof String || element instanceof Number
+                        || element instanceof Boolean || element instanceof Character
+                        || element instanceof Enum)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * Adds everything to a set or map again, in the same order, so that
+         * each element is stored under its final hash code or position.
+         */
+        @SuppressWarnings("unchecked")
+        private static void rebuild(Object container) {
+            if (container instanceof Set) {
+                Set<Object> set = (Set<Object>) container;
+                List<Object> elements = new ArrayList<Object>(set);
+                set.clear();
+                set.addAll(elements);
+            } else {
+                Map<Object, Object> map = (Map<Object, Object>) container;
+                List<Map.Entry<Object, Object>> entries =
+                        new ArrayList<Map.Entry<Object, Object>>(map.size());
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    entries.add(new AbstractMap.SimpleEntry<Object, Object>(entry));
+                }
+                map.clear();
+                for (Map.Entry<Object, Object> entry : entries) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private static Object newInstance(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor.newInstance();
+            } catch (Exception e) {
+                return null;
+            } catch (LinkageError e) {
+                return null;
+            }
+        }
+
+        private static boolean hasFields(ClassInfo info) {
+            return info.mPrimitives.length != 0 || info.mReferences.length != 0;
+        }
+
+        /*
+         * Creates an empty collection of type, or the closest replacement if
+         * type cannot be instantiated. The hash based and array based
+         * collections of the platform are sized to hold count elements.
+         */
+        private static Collection<?> newCollection(Class<?> type, int count) {
+            if (type == ArrayList.class) {
+                return new ArrayList<Object>(count);
+            } else if (type == HashSet.class) {
+                return new HashSet<Object>(FieldReflectionUtil.capacityFor(count));
+            } else if (type == LinkedHashSet.class) {
+                return new LinkedHashSet<Object>(FieldReflectionUtil.capacityFor(count));
+            }
+
+            Object result = newInstance(type);
+            if (result instanceof Collection && ((Collection<?>) result).isEmpty()) {
+                return (Collection<?>) result;
+            }
+
+            if (SortedSet.class.isAssignableFrom(type)) {
+                return new TreeSet<Object>();
+            } else if (Set.class.isAssignableFrom(type)) {
+                return new LinkedHashSet<Object>(FieldReflectionUtil.capacityFor(count));
+            } else if (Queue.class.isAssignableFrom(type) && !List.class.isAssignableFrom(type)) {
+                return new LinkedList<Object>();
+            }
+            return new ArrayList<Object>(count);
+        }
+
+        /*
+         * Creates an empty map of type, or the closest replacement if type
+         * cannot be instantiated. The hash based maps of the platform are
+         * sized to hold count entries.
+         */
+        private static Map<?, ?> newMap(Class<?> type, int count) {
+            if (type == HashMap.class) {
+                return new HashMap<Object, Object>(FieldReflectionUtil.capacityFor(count));
+            } else if (type == LinkedHashMap.class) {
+                return new LinkedHashMap<Object, Object>(FieldReflectionUtil.capacityFor(count));
+            }
+
+            Object result = newInstance(type);
+            if (result instanceof Map && ((Map<?, ?>) result).isEmpty()) {
+                return (Map<?, ?>) result;
+            }
+
+            if (SortedMap.class.isAssignableFrom(type)) {
+                return new TreeMap<Object, Object>();
+            }
+            return new LinkedHashMap<Object, Object>(FieldReflectionUtil.capacityFor(count));
+        }
+    }
+
+}
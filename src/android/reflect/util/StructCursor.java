@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import android.lang.util.SegmentedByteBuffer;
+
+/**
+ * A movable view of one record in a {@link StructStore}. The typed getters and
+ * setters read and write the fields of the current record directly in the
+ * store's buffer, so no record object is created. One cursor can be moved over
+ * every record, which makes a full scan allocation free:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * StructCursor cursor = points.cursor();
+ * int x = cursor.getLayout().indexOf(&quot;x&quot;);
+ * 
+ * float sum = 0;
+ * while (cursor.next()) {
+ *     sum += cursor.getFloat(x);
+ * }
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * Look up field indexes with {@link StructLayout#indexOf(String)} once, before
+ * the scan. A cursor is not thread safe, but any number of cursors can be
+ * created for the same store.
+ * 
+ * @see StructStore#cursor()
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class StructCursor {
+
+    private final StructLayout mLayout;
+
+    private final SegmentedByteBuffer mBuffer;
+
+    private final long mCapacity;
+
+    private final int mRecordSize;
+
+    /**
+     * The field types and offsets, copied out of the layout so that each
+     * access is two array reads.
+     */
+    private final Class<?>[] mTypes;
+
+    private final int[] mOffsets;
+
+    private long mIndex = -1;
+
+    private long mPosition = -1;
+
+    /* default */StructCursor(StructLayout layout, SegmentedByteBuffer buffer, long capacity) {
+        mLayout = layout;
+        mBuffer = buffer;
+        mCapacity = capacity;
+        mRecordSize = layout.recordSize();
+        mTypes = new Class<?>[layout.fieldCount()];
+        mOffsets = new int[layout.fieldCount()];
+        for (int i = 0; i < mTypes.length; i++) {
+            mTypes[i] = layout.getField(i).getType();
+            mOffsets[i] = layout.offset(i);
+        }
+    }
+
+    /**
+     * Returns the layout of the records.
+     * 
+     * @return the layout of the records.
+     * @since 1.1
+     */
+    public StructLayout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * Returns the index of the current record, or -1 if the cursor is before
+     * the first record.
+     * 
+     * @return the index of the current record.
+     * @since 1.1
+     */
+    public long index() {
+        return mIndex;
+    }
+
+    /**
+     * Moves the cursor to record {@code index}.
+     * 
+     * @param index the record to move to.
+     * @return this cursor.
+     * @throws IllegalArgumentException if {@code index} is out of range.
+     * @since 1.1
+     */
+    public StructCursor moveTo(long index) {
+        if (index < 0 || index >= mCapacity) {
+            throw new IllegalArgumentException("record " + index + " is out of range [0, "
+                    + mCapacity + ")");
+        }
+        mIndex = index;
+        mPosition = index * mRecordSize;
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the next record. A new cursor starts before the first
+     * record, so the first call moves it to record 0.
+     * 
+     * @return false if there are no more records; the cursor is not moved.
+     * @since 1.1
+     */
+    public boolean next() {
+        if (mIndex + 1 >= mCapacity) {
+            return false;
+        }
+        mIndex++;
+        mPosition = mIndex * mRecordSize;
+        return true;
+    }
+
+    /**
+     * Moves the cursor back before the first record.
+     * 
+     * @since 1.1
+     */
+    public void reset() {
+        mIndex = -1;
+        mPosition = -1;
+    }
+
+    /**
+     * Copies the current record into {@code object}.
+     * 
+     * @param object the object to read into.
+     * @throws IllegalArgumentException if the cursor is not on a record or
+     *             {@code object} is not an instance of the record class.
+     * @since 1.1
+     */
+    public void read(Object object) {
+        mLayout.read(mBuffer, position(), object);
+    }
+
+    /**
+     * Copies {@code object} into the current record.
+     * 
+     * @param object the object to write.
+     * @throws IllegalArgumentException if the cursor is not on a record or
+     *             {@code object} is not an instance of the record class.
+     * @since 1.1
+     */
+    public void write(Object object) {
+        mLayout.write(object, mBuffer, position());
+    }
+
+    private long position() {
+        if (mPosition < 0) {
+            throw new IllegalArgumentException("cursor is not on a record");
+        }
+        return mPosition;
+    }
+
+    private long position(int field, Class<?> type) {
+        if (mTypes[field] != type) {
+            throw new IllegalArgumentException(mLayout.getField(field).getName()
+                    + " is not a " + type.getName() + " field");
+        }
+        return position() + mOffsets[field];
+    }
+
+    /**
+     * Returns a {@code byte} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code byte} field.
+     * @since 1.1
+     */
+    public byte getByte(int field) {
+        return mBuffer.get(position(field, byte.class));
+    }
+
+    /**
+     * Sets a {@code byte} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code byte} field.
+     * @since 1.1
+     */
+    public void setByte(int field, byte value) {
+        mBuffer.put(position(field, byte.class), value);
+    }
+
+    /**
+     * Returns a {@code boolean} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code boolean} field.
+     * @since 1.1
+     */
+    public boolean getBoolean(int field) {
+        return mBuffer.getBoolean(position(field, boolean.class));
+    }
+
+    /**
+     * Sets a {@code boolean} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code boolean} field.
+     * @since 1.1
+     */
+    public void setBoolean(int field, boolean value) {
+        mBuffer.putBoolean(position(field, boolean.class), value);
+    }
+
+    /**
+     * Returns a {@code short} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code short} field.
+     * @since 1.1
+     */
+    public short getShort(int field) {
+        return mBuffer.getShort(position(field, short.class));
+    }
+
+    /**
+     * Sets a {@code short} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code short} field.
+     * @since 1.1
+     */
+    public void setShort(int field, short value) {
+        mBuffer.putShort(position(field, short.class), value);
+    }
+
+    /**
+     * Returns a {@code char} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code char} field.
+     * @since 1.1
+     */
+    public char getChar(int field) {
+        return mBuffer.getChar(position(field, char.class));
+    }
+
+    /**
+     * Sets a {@code char} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code char} field.
+     * @since 1.1
+     */
+    public void setChar(int field, char value) {
+        mBuffer.putChar(position(field, char.class), value);
+    }
+
+    /**
+     * Returns an {@code int} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not an {@code int} field.
+     * @since 1.1
+     */
+    public int getInt(int field) {
+        return mBuffer.getInt(position(field, int.class));
+    }
+
+    /**
+     * Sets an {@code int} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not an {@code int} field.
+     * @since 1.1
+     */
+    public void setInt(int field, int value) {
+        mBuffer.putInt(position(field, int.class), value);
+    }
+
+    /**
+     * Returns a {@code long} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code long} field.
+     * @since 1.1
+     */
+    public long getLong(int field) {
+        return mBuffer.getLong(position(field, long.class));
+    }
+
+    /**
+     * Sets a {@code long} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code long} field.
+     * @since 1.1
+     */
+    public void setLong(int field, long value) {
+        mBuffer.putLong(position(field, long.class), value);
+    }
+
+    /**
+     * Returns a {@code float} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code float} field.
+     * @since 1.1
+     */
+    public float getFloat(int field) {
+        return mBuffer.getFloat(position(field, float.class));
+    }
+
+    /**
+     * Sets a {@code float} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code float} field.
+     * @since 1.1
+     */
+    public void setFloat(int field, float value) {
+        mBuffer.putFloat(position(field, float.class), value);
+    }
+
+    /**
+     * Returns a {@code double} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code double} field.
+     * @since 1.1
+     */
+    public double getDouble(int field) {
+        return mBuffer.getDouble(position(field, double.class));
+    }
+
+    /**
+     * Sets a {@code double} field of the current record.
+     * 
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if the cursor is not on a record or the
+     *             field is not a {@code double} field.
+     * @since 1.1
+     */
+    public void setDouble(int field, double value) {
+        mBuffer.putDouble(position(field, double.class), value);
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import android.lang.util.SegmentedByteBuffer;
+
+/**
+ * The fixed size binary layout of a class whose fields are all primitives,
+ * like a C {@code struct}. Every object of the class is stored in
+ * {@link #recordSize()} bytes, and every field is stored at the same offset
+ * within those bytes, so a field of any record can be read or updated without
+ * reading the rest of the record.
+ * <p>
+ * The layout includes the fields returned by
+ * {@link FieldReflectionUtil#getAllFields(Class, int)}, excluding
+ * {@code static}, {@code final} and {@code transient} fields. Fields are
+ * ordered from largest to smallest so that every field is aligned to its own
+ * size without padding, and the record size is rounded up to the size of the
+ * largest field so that records stay aligned when they are stored one after
+ * another. Values are big-endian, like {@link android.lang.util.PrimitiveUtil},
+ * and a {@code boolean} takes one byte.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * class Point {
+ *     long id;
+ *     float x;
+ *     float y;
+ * }
+ * 
+ * StructLayout layout = StructLayout.of(Point.class);
+ * 
+ * // layout.recordSize() == 16
+ * // layout.offset(layout.indexOf(&quot;y&quot;)) == 12
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @see StructStore
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class StructLayout {
+
+    /**
+     * Orders fields from largest to smallest. The sort is stable, so fields
+     * of the same size keep the order of
+     * {@link FieldReflectionUtil#getSortedFields(Class, int)}: by name, and
+     * then by declaring class.
+     */
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field lhs, Field rhs) {
+            return sizeOf(rhs.getType()) - sizeOf(lhs.getType());
+        }
+    };
+
+    private final Class<?> mType;
+
+    private final Field[] mFields;
+
+    private final int[] mOffsets;
+
+    private final int mRecordSize;
+
+    private StructLayout(Class<?> type) {
+        Field[] fields = FieldReflectionUtil.getSortedFields(type,
+                FieldReflectionUtil.VALUE_FIELDS);
+
+        for (Field field : fields) {
+            if (!field.getType().isPrimitive()) {
+                throw new IllegalArgumentException(type.getName() + "." + field.getName()
+                        + " is not a primitive field");
+            }
+        }
+
+        fields = fields.clone();
+        Arrays.sort(fields, FIELD_ORDER);
+
+        mType = type;
+        mFields = fields;
+        mOffsets = new int[mFields.length];
+
+        int offset = 0;
+        int alignment = 1;
+        for (int i = 0; i < mFields.length; i++) {
+            int size = sizeOf(mFields[i].getType());
+            alignment = Math.max(alignment, size);
+            mOffsets[i] = offset;
+            offset += size;
+        }
+
+        mRecordSize = (offset + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * Returns the layout of class {@code c}. The fields of each class are
+     * looked up once and shared with the other classes of this package, so
+     * computing a layout only sorts them and adds up their sizes. Callers that
+     * need a layout often should keep it.
+     * 
+     * @param c the class to get the layout of.
+     * @return the layout of {@code c}.
+     * @throws IllegalArgumentException if {@code c} is null or has a field
+     *             that is not a primitive.
+     * @since 1.1
+     */
+    public static StructLayout of(Class<?> c) {
+        if (c == null) {
+            throw new IllegalArgumentException("c cannot be null");
+        }
+
+        return new StructLayout(c);
+    }
+
+    /**
+     * Returns the number of bytes a primitive of type {@code c} takes in a
+     * record.
+     * 
+     * @param c a primitive type.
+     * @return the size of the primitive in bytes.
+     * @throws IllegalArgumentException if {@code c} is not a primitive type.
+     * @since 1.1
+     */
+    public static int sizeOf(Class<?> c) {
+        if (c == long.class || c == double.class) {
+            return 8;
+        }
+
+        if (c == int.class || c == float.class) {
+            return 4;
+        }
+
+        if (c == short.class || c == char.class) {
+            return 2;
+        }
+
+        if (c == byte.class || c == boolean.class) {
+            return 1;
+        }
+
+        throw new IllegalArgumentException((c == null ? null : c.getName())
+                + " is not a primitive type");
+    }
+
+    /**
+     * Returns the class this layout was computed for.
+     * 
+     * @return the class this layout was computed for.
+     * @since 1.1
+     */
+    public Class<?> getType() {
+        return mType;
+    }
+
+    /**
+     * Returns the number of bytes each record takes.
+     * 
+     * @return the size of a record in bytes.
+     * @since 1.1
+     */
+    public int recordSize() {
+        return mRecordSize;
+    }
+
+    /**
+     * Returns the number of fields in a record.
+     * 
+     * @return the number of fields.
+     * @since 1.1
+     */
+    public int fieldCount() {
+        return mFields.length;
+    }
+
+    /**
+     * Returns a field of the layout. The field is accessible.
+     * 
+     * @param index the field index, from 0 to {@code fieldCount() - 1}.
+     * @return the field.
+     * @since 1.1
+     */
+    public Field getField(int index) {
+        return mFields[index];
+    }
+
+    /**
+     * Returns the offset of a field from the start of a record.
+     * 
+     * @param index the field index, from 0 to {@code fieldCount() - 1}.
+     * @return the offset of the field in bytes.
+     * @since 1.1
+     */
+    public int offset(int index) {
+        return mOffsets[index];
+    }
+
+    /**
+     * Returns the index of the field named {@code name}. If a superclass
+     * declares a field with the same name, the first of the two in the layout
+     * is returned.
+     * 
+     * @param name the name of the field.
+     * @return the index of the field.
+     * @throws IllegalArgumentException if there is no field named {@code name}.
+     * @since 1.1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < mFields.length; i++) {
+            if (mFields[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(mType.getName() + " has no field named " + name);
+    }
+
+    /**
+     * Writes every field of {@code object} into the record that starts at
+     * {@code position}.
+     * 
+     * @param object the object to write.
+     * @param buffer the buffer to write to.
+     * @param position the position of the record in {@code buffer}.
+     * @throws IllegalArgumentException if {@code object} is not an instance of
+     *             the layout's class, or the record does not fit in
+     *             {@code buffer}.
+     * @since 1.1
+     */
+    public void write(Object object, SegmentedByteBuffer buffer, long position) {
+        throwIfBadObject(object);
+
+        try {
+            for (int i = 0; i < mFields.length; i++) {
+                Field field = mFields[i];
+                Class<?> type = field.getType();
+                long pos = position + mOffsets[i];
+
+                if (type == long.class) {
+                    buffer.putLong(pos, field.getLong(object));
+                } else if (type == double.class) {
+                    buffer.putDouble(pos, field.getDouble(object));
+                } else if (type == int.class) {
+                    buffer.putInt(pos, field.getInt(object));
+                } else if (type == float.class) {
+                    buffer.putFloat(pos, field.getFloat(object));
+                } else if (type == short.class) {
+                    buffer.putShort(pos, field.getShort(object));
+                } else if (type == char.class) {
+                    buffer.putChar(pos, field.getChar(object));
+                } else if (type == byte.class) {
+                    buffer.put(pos, field.getByte(object));
+                } else {
+                    buffer.putBoolean(pos, field.getBoolean(object));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("field not accessible", e);
+        }
+    }
+
+    /**
+     * Reads every field of the record that starts at {@code position} into
+     * {@code object}.
+     * 
+     * @param buffer the buffer to read from.
+     * @param position the position of the record in {@code buffer}.
+     * @param object the object to read into.
+     * @throws IllegalArgumentException if {@code object} is not an instance of
+     *             the layout's class, or the record is not in {@code buffer}.
+     * @since 1.1
+     */
+    public void read(SegmentedByteBuffer buffer, long position, Object object) {
+        throwIfBadObject(object);
+
+        try {
+            for (int i = 0; i < mFields.length; i++) {
+                Field field = mFields[i];
+                Class<?> type = field.getType();
+                long pos = position + mOffsets[i];
+
+                if (type == long.class) {
+                    field.setLong(object, buffer.getLong(pos));
+                } else if (type == double.class) {
+                    field.setDouble(object, buffer.getDouble(pos));
+                } else if (type == int.class) {
+                    field.setInt(object, buffer.getInt(pos));
+                } else if (type == float.class) {
+                    field.setFloat(object, buffer.getFloat(pos));
+                } else if (type == short.class) {
+                    field.setShort(object, buffer.getShort(pos));
+                } else if (type == char.class) {
+                    field.setChar(object, buffer.getChar(pos));
+                } else if (type == byte.class) {
+                    field.setByte(object, buffer.get(pos));
+                } else {
+                    field.setBoolean(object, buffer.getBoolean(pos));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("field not accessible", e);
+        }
+    }
+
+    private void throwIfBadObject(Object object) {
+        if (!mType.isInstance(object)) {
+            throw new IllegalArgumentException("object must be an instance of "
+                    + mType.getName());
+        }
+    }
+
+}
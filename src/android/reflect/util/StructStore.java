@@ -0,0 +1,465 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import android.lang.util.SegmentedByteBuffer;
+
+/**
+ * An array of fixed size records stored in a {@link SegmentedByteBuffer},
+ * using the {@link StructLayout} of a class. Record {@code n} starts at byte
+ * {@code n * layout.recordSize()}, so any record, or any single field of a
+ * record, can be read and written in place:
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * StructStore&lt;Point&gt; points = new StructStore&lt;Point&gt;(Point.class, 1000000);
+ * points.put(42, point);
+ * 
+ * // update one field of record 42 without reading the record
+ * int x = points.getLayout().indexOf(&quot;x&quot;);
+ * points.setFloat(42, x, points.getFloat(42, x) + 1f);
+ * </pre>
+ * 
+ * </blockquote>
+ * <p>
+ * Because the buffer can be memory mapped with
+ * {@link SegmentedByteBuffer#map}, a store can also be kept in a file.
+ * 
+ * @param <T> the type of object stored.
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class StructStore<T> {
+
+    private final Class<T> mType;
+
+    private final StructLayout mLayout;
+
+    private final SegmentedByteBuffer mBuffer;
+
+    private final long mCapacity;
+
+    /**
+     * The no-argument constructor used by {@link #get(long)}, looked up on
+     * first use.
+     */
+    private Constructor<T> mConstructor;
+
+    /**
+     * Creates a store for {@code capacity} records, all zero.
+     * 
+     * @param type the class of the records.
+     * @param capacity the number of records.
+     * @throws IllegalArgumentException if {@code type} is not a struct type or
+     *             {@code capacity} is negative.
+     * @since 1.1
+     */
+    public StructStore(Class<T> type, long capacity) {
+        this(type, new SegmentedByteBuffer(checkCapacity(type, capacity)));
+    }
+
+    /**
+     * Creates a store that keeps its records in {@code buffer}, for example a
+     * memory mapped file. The store holds as many whole records as fit in the
+     * buffer.
+     * 
+     * @param type the class of the records.
+     * @param buffer the buffer to store the records in.
+     * @throws IllegalArgumentException if {@code type} is not a struct type or
+     *             {@code buffer} is null.
+     * @since 1.1
+     */
+    public StructStore(Class<T> type, SegmentedByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("buffer cannot be null");
+        }
+
+        mType = type;
+        mLayout = StructLayout.of(type);
+        mBuffer = buffer;
+        mCapacity = mLayout.recordSize() == 0 ? 0 : buffer.capacity() / mLayout.recordSize();
+    }
+
+    private static long checkCapacity(Class<?> type, long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+
+        int recordSize = StructLayout.of(type).recordSize();
+        if (recordSize != 0 && capacity > Long.MAX_VALUE / recordSize) {
+            throw new IllegalArgumentException("capacity too large: " + capacity);
+        }
+        return capacity * recordSize;
+    }
+
+    /**
+     * Returns the layout of the records.
+     * 
+     * @return the layout of the records.
+     * @since 1.1
+     */
+    public StructLayout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * Returns the buffer the records are stored in.
+     * 
+     * @return the buffer the records are stored in.
+     * @since 1.1
+     */
+    public SegmentedByteBuffer getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * Returns the number of records in the store.
+     * 
+     * @return the number of records.
+     * @since 1.1
+     */
+    public long capacity() {
+        return mCapacity;
+    }
+
+    private long position(long index) {
+        if (index < 0 || index >= mCapacity) {
+            throw new IllegalArgumentException("record " + index + " is out of range [0, "
+                    + mCapacity + ")");
+        }
+        return index * mLayout.recordSize();
+    }
+
+    private long position(long index, int field, Class<?> type) {
+        if (mLayout.getField(field).getType() != type) {
+            throw new IllegalArgumentException(mLayout.getField(field).getName()
+                    + " is not a " + type.getName() + " field");
+        }
+        return position(index) + mLayout.offset(field);
+    }
+
+    /**
+     * Creates a cursor over the records of this store. The cursor starts
+     * before the first record.
+     * 
+     * @return a new cursor.
+     * @since 1.1
+     */
+    public StructCursor cursor() {
+        return new StructCursor(mLayout, mBuffer, mCapacity);
+    }
+
+    /**
+     * Writes {@code object} into record {@code index}.
+     * 
+     * @param index the record to write.
+     * @param object the object to write.
+     * @throws IllegalArgumentException if {@code index} is out of range or
+     *             {@code object} is null.
+     * @since 1.1
+     */
+    public void put(long index, T object) {
+        mLayout.write(object, mBuffer, position(index));
+    }
+
+    /**
+     * Reads record {@code index} into {@code object}, reusing it.
+     * 
+     * @param index the record to read.
+     * @param object the object to read into.
+     * @return {@code object}.
+     * @throws IllegalArgumentException if {@code index} is out of range or
+     *             {@code object} is null.
+     * @since 1.1
+     */
+    public T get(long index, T object) {
+        mLayout.read(mBuffer, position(index), object);
+        return object;
+    }
+
+    /**
+     * Reads record {@code index} into a new object, created with the
+     * no-argument constructor of the record class, which may be private.
+     * 
+     * @param index the record to read.
+     * @return a new object.
+     * @throws IllegalArgumentException if {@code index} is out of range, or
+     *             the record class has no no-argument constructor or cannot
+     *             be instantiated.
+     * @since 1.1
+     */
+    public T get(long index) {
+        T result;
+        try {
+            result = getConstructor().newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("unable to create a " + mType.getName(),
+                    e.getCause());
+        }
+        return get(index, result);
+    }
+
+    private Constructor<T> getConstructor() {
+        if (mConstructor == null) {
+            try {
+                Constructor<T> constructor = mType.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                mConstructor = constructor;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(mType.getName()
+                        + " has no no-argument constructor", e);
+            }
+        }
+        return mConstructor;
+    }
+
+    /**
+     * Returns a {@code byte} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code byte} field.
+     * @since 1.1
+     */
+    public byte getByte(long index, int field) {
+        return mBuffer.get(position(index, field, byte.class));
+    }
+
+    /**
+     * Sets a {@code byte} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code byte} field.
+     * @since 1.1
+     */
+    public void setByte(long index, int field, byte value) {
+        mBuffer.put(position(index, field, byte.class), value);
+    }
+
+    /**
+     * Returns a {@code boolean} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code boolean} field.
+     * @since 1.1
+     */
+    public boolean getBoolean(long index, int field) {
+        return mBuffer.getBoolean(position(index, field, boolean.class));
+    }
+
+    /**
+     * Sets a {@code boolean} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code boolean} field.
+     * @since 1.1
+     */
+    public void setBoolean(long index, int field, boolean value) {
+        mBuffer.putBoolean(position(index, field, boolean.class), value);
+    }
+
+    /**
+     * Returns a {@code short} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code short} field.
+     * @since 1.1
+     */
+    public short getShort(long index, int field) {
+        return mBuffer.getShort(position(index, field, short.class));
+    }
+
+    /**
+     * Sets a {@code short} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code short} field.
+     * @since 1.1
+     */
+    public void setShort(long index, int field, short value) {
+        mBuffer.putShort(position(index, field, short.class), value);
+    }
+
+    /**
+     * Returns a {@code char} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code char} field.
+     * @since 1.1
+     */
+    public char getChar(long index, int field) {
+        return mBuffer.getChar(position(index, field, char.class));
+    }
+
+    /**
+     * Sets a {@code char} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code char} field.
+     * @since 1.1
+     */
+    public void setChar(long index, int field, char value) {
+        mBuffer.putChar(position(index, field, char.class), value);
+    }
+
+    /**
+     * Returns an {@code int} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not an {@code int} field.
+     * @since 1.1
+     */
+    public int getInt(long index, int field) {
+        return mBuffer.getInt(position(index, field, int.class));
+    }
+
+    /**
+     * Sets an {@code int} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not an {@code int} field.
+     * @since 1.1
+     */
+    public void setInt(long index, int field, int value) {
+        mBuffer.putInt(position(index, field, int.class), value);
+    }
+
+    /**
+     * Returns a {@code long} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code long} field.
+     * @since 1.1
+     */
+    public long getLong(long index, int field) {
+        return mBuffer.getLong(position(index, field, long.class));
+    }
+
+    /**
+     * Sets a {@code long} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code long} field.
+     * @since 1.1
+     */
+    public void setLong(long index, int field, long value) {
+        mBuffer.putLong(position(index, field, long.class), value);
+    }
+
+    /**
+     * Returns a {@code float} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code float} field.
+     * @since 1.1
+     */
+    public float getFloat(long index, int field) {
+        return mBuffer.getFloat(position(index, field, float.class));
+    }
+
+    /**
+     * Sets a {@code float} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code float} field.
+     * @since 1.1
+     */
+    public void setFloat(long index, int field, float value) {
+        mBuffer.putFloat(position(index, field, float.class), value);
+    }
+
+    /**
+     * Returns a {@code double} field of record {@code index}.
+     * 
+     * @param index the record to read.
+     * @param field the field index in the layout.
+     * @return the value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code double} field.
+     * @since 1.1
+     */
+    public double getDouble(long index, int field) {
+        return mBuffer.getDouble(position(index, field, double.class));
+    }
+
+    /**
+     * Sets a {@code double} field of record {@code index}.
+     * 
+     * @param index the record to update.
+     * @param field the field index in the layout.
+     * @param value the new value of the field.
+     * @throws IllegalArgumentException if {@code index} is out of range or the
+     *             field is not a {@code double} field.
+     * @since 1.1
+     */
+    public void setDouble(long index, int field, double value) {
+        mBuffer.putDouble(position(index, field, double.class), value);
+    }
+
+}
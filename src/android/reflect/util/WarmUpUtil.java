@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.lang.util.MemoryMappedPrimitive;
+import android.lang.util.PrimitiveReader;
+import android.lang.util.PrimitiveWriter;
+
+/**
+ * Does the work that is otherwise done the first time a class is serialized,
+ * so that it can be done before an application starts handling requests. For
+ * each class, {@link #warmUp(Class...)}:
+ * <ol>
+ * <li>looks up, sorts and caches the fields of the class, in every view that
+ * {@link ObjectGraphSerializer}, {@link FieldSnapshot}, {@link ColumnBatch},
+ * {@link FieldValues}, {@link StructLayout} and
+ * {@link FieldReflectionUtil#getNonPrimitiveFields(Class)} share,
+ * <li>creates an object of the class, if it has a no-argument constructor,
+ * and runs it through each of those code paths once.
+ * </ol>
+ * The first call also encodes and decodes arrays of every primitive type a
+ * number of times, so that the codec loops are compiled before they are
+ * needed.
+ * <p>
+ * <blockquote>
+ * 
+ * <pre>
+ * Map&lt;Class&lt;?&gt;, Long&gt; times = WarmUpUtil.warmUp(Point.class, Order.class);
+ * for (Map.Entry&lt;Class&lt;?&gt;, Long&gt; entry : times.entrySet()) {
+ *     Log.d(TAG, entry.getKey().getName() + &quot;: &quot; + entry.getValue() + &quot; ns&quot;);
+ * }
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public final class WarmUpUtil {
+
+    /**
+     * The length of the arrays encoded when the codecs are warmed up.
+     */
+    private static final int CODEC_LENGTH = 1024;
+
+    /**
+     * The number of times each array type is encoded and decoded.
+     */
+    private static final int CODEC_ROUNDS = 32;
+
+    private static boolean sCodecsWarm;
+
+    private WarmUpUtil() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    /**
+     * Builds the caches of each class in {@code types} and exercises the code
+     * that serializes it.
+     * 
+     * @param types the classes to warm up.
+     * @return the time spent on each class, in nanoseconds, in the order the
+     *         classes were passed. If the primitive codecs were warmed up by
+     *         this call, the time spent on them is included under
+     *         {@code MemoryMappedPrimitive.class}.
+     * @throws IllegalArgumentException if {@code types} or one of its
+     *             elements is null, or if a class cannot be serialized.
+     * @since 1.1
+     */
+    public static Map<Class<?>, Long> warmUp(Class<?>... types) {
+        if (types == null) {
+            throw new IllegalArgumentException("types cannot be null");
+        }
+        for (Class<?> type : types) {
+            if (type == null) {
+                throw new IllegalArgumentException("types cannot contain null");
+            }
+        }
+
+        Map<Class<?>, Long> result = new LinkedHashMap<Class<?>, Long>();
+        if (warmCodecsOnce()) {
+            long start = System.nanoTime();
+            warmUpCodecs();
+            result.put(MemoryMappedPrimitive.class, Long.valueOf(System.nanoTime() - start));
+        }
+
+        for (Class<?> type : types) {
+            long start = System.nanoTime();
+            warmUpType(type);
+            result.put(type, Long.valueOf(System.nanoTime() - start));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static synchronized boolean warmCodecsOnce() {
+        if (sCodecsWarm) {
+            return false;
+        }
+        sCodecsWarm = true;
+        return true;
+    }
+
+    private static void warmUpType(Class<?> type) {
+        for (int view = 0; view < FieldReflectionUtil.VIEW_COUNT; view++) {
+            FieldReflectionUtil.getSortedFields(type, view);
+        }
+        try {
+            StructLayout.of(type);
+        } catch (IllegalArgumentException e) {
+            // not every class has a struct layout
+        }
+
+        Object object = ObjectGraphSerializer.newInstance(type);
+        if (object == null) {
+            return;
+        }
+
+        ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(object));
+        FieldSnapshot.apply(FieldSnapshot.capture(object).diff(null), object);
+        try {
+            FieldValues.capture(type, object).refresh(object);
+            FieldReflectionUtil.getNonPrimitiveFieldValues(type, object);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("unable to read the fields of "
+                    + type.getName(), e);
+        }
+
+        @SuppressWarnings("unchecked")
+        ColumnTransposer<Object> transposer = new ColumnTransposer<Object>(
+                (Class<Object>) type, 1);
+        transposer.add(object);
+        transposer.toBatch().get(0, object);
+    }
+
+    private static void warmUpCodecs() {
+        short[] shorts = new short[CODEC_LENGTH];
+        char[] chars = new char[CODEC_LENGTH];
+        int[] ints = new int[CODEC_LENGTH];
+        long[] longs = new long[CODEC_LENGTH];
+        float[] floats = new float[CODEC_LENGTH];
+        double[] doubles = new double[CODEC_LENGTH];
+        boolean[] booleans = new boolean[CODEC_LENGTH];
+
+        PrimitiveWriter writer = new PrimitiveWriter(CODEC_LENGTH * 8 * 6);
+        for (int round = 0; round < CODEC_ROUNDS; round++) {
+            new MemoryMappedPrimitive(shorts).asType(short[].class);
+            new MemoryMappedPrimitive(chars).asType(char[].class);
+            new MemoryMappedPrimitive(ints).asType(int[].class);
+            new MemoryMappedPrimitive(longs).asType(long[].class);
+            new MemoryMappedPrimitive(floats).asType(float[].class);
+            new MemoryMappedPrimitive(doubles).asType(double[].class);
+            new MemoryMappedPrimitive(booleans).asType(boolean[].class);
+
+            writer.reset();
+            writer.append(shorts, 0, CODEC_LENGTH).append(chars, 0, CODEC_LENGTH)
+                    .append(ints, 0, CODEC_LENGTH).append(longs, 0, CODEC_LENGTH)
+                    .append(floats, 0, CODEC_LENGTH).append(doubles, 0, CODEC_LENGTH);
+
+            PrimitiveReader reader = new PrimitiveReader(writer.toByteArray());
+            reader.read(shorts, 0, CODEC_LENGTH).read(chars, 0, CODEC_LENGTH)
+                    .read(ints, 0, CODEC_LENGTH).read(longs, 0, CODEC_LENGTH)
+                    .read(floats, 0, CODEC_LENGTH).read(doubles, 0, CODEC_LENGTH);
+        }
+    }
+
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package android.reflect.util.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code FieldCodec} for every class annotated with
+ * {@code android.reflect.util.GenerateFieldCodec}. The codec of class
+ * {@code Point} is written to {@code Point_FieldCodec} in the same package.
+ * Nested classes use the names of their enclosing classes as a prefix, so
+ * {@code Outer.Inner} gets {@code Outer_Inner_FieldCodec}.
+ * <p>
+ * This processor runs in the compiler, not on the device, so it lives in its
+ * own source tree and is not part of the library. It is registered in
+ * {@code META-INF/services}, so putting it on the processor path of the
+ * compiler is enough to enable it.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+@SupportedAnnotationTypes(FieldCodecProcessor.ANNOTATION)
+public final class FieldCodecProcessor extends AbstractProcessor {
+
+    /* default */static final String ANNOTATION = "android.reflect.util.GenerateFieldCodec";
+
+    private static final String SUFFIX = "_FieldCodec";
+
+    /**
+     * Orders fields by name, and then by declaring class, the same way
+     * {@code FieldSnapshot} does.
+     */
+    private static final Comparator<VariableElement> FIELD_ORDER =
+            new Comparator<VariableElement>() {
+                @Override
+                public int compare(VariableElement lhs, VariableElement rhs) {
+                    int result = lhs.getSimpleName().toString()
+                            .compareTo(rhs.getSimpleName().toString());
+                    if (result == 0) {
+                        result = declaringClass(lhs).getQualifiedName().toString()
+                                .compareTo(declaringClass(rhs).getQualifiedName().toString());
+                    }
+                    return result;
+                }
+            };
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "only classes can be annotated with @GenerateFieldCodec");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            if (checkType(type)) {
+                List<VariableElement> fields = getFields(type);
+                if (fields != null) {
+                    write(type, fields);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    }
+
+    private boolean checkType(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, type.getSimpleName() + " cannot be private");
+            return false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, type.getSimpleName() + " cannot have type parameters");
+            return false;
+        }
+        for (Element walk = type; walk.getKind() != ElementKind.PACKAGE; walk = walk
+                .getEnclosingElement()) {
+            if (walk.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                    && !walk.getModifiers().contains(Modifier.STATIC)) {
+                error(type, type.getSimpleName() + " must be a static nested class");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static TypeElement declaringClass(VariableElement field) {
+        return (TypeElement) field.getEnclosingElement();
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element walk = element;
+        while (walk.getKind() != ElementKind.PACKAGE) {
+            walk = walk.getEnclosingElement();
+        }
+        return (PackageElement) walk;
+    }
+
+    private static boolean isEncodable(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        return type.getKind() == TypeKind.ARRAY
+                && ((ArrayType) type).getComponentType().getKind().isPrimitive();
+    }
+
+    /*
+     * The fields of type and its superclasses, or null if one of them cannot
+     * be read by the generated code.
+     */
+    private List<VariableElement> getFields(TypeElement type) {
+        PackageElement pkg = packageOf(type);
+        List<VariableElement> result = new ArrayList<VariableElement>();
+        boolean valid = true;
+
+        for (TypeElement walk = type; walk != null; walk = superclass(walk)) {
+            for (VariableElement field : ElementFilter.fieldsIn(walk.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)
+                        || modifiers.contains(Modifier.TRANSIENT)
+                        || !isEncodable(field.asType())) {
+                    continue;
+                }
+
+                /*
+                 * The codec is not a subclass, so protected access does not
+                 * reach fields declared in another package.
+                 */
+                boolean samePackage = packageOf(walk).equals(pkg);
+                if (modifiers.contains(Modifier.PRIVATE)
+                        || (!samePackage && !modifiers.contains(Modifier.PUBLIC))
+                        || !isAccessible(walk, pkg)) {
+                    error(type, walk.getSimpleName() + "." + field.getSimpleName()
+                            + " cannot be read by " + generatedName(type)
+                            + ". Make it public or use transient to skip it.");
+                    valid = false;
+                    continue;
+                }
+                result.add(field);
+            }
+        }
+
+        Collections.sort(result, FIELD_ORDER);
+        return valid ? result : null;
+    }
+
+    /*
+     * True if code in pkg can name type, which the generated code does to
+     * reach fields declared in a superclass.
+     */
+    private static boolean isAccessible(TypeElement type, PackageElement pkg) {
+        boolean samePackage = packageOf(type).equals(pkg);
+        for (Element walk = type; walk.getKind() != ElementKind.PACKAGE; walk = walk
+                .getEnclosingElement()) {
+            Set<Modifier> modifiers = walk.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * The expression for field on the variable named object. Inherited fields
+     * are read through a cast to their declaring class so that a field hidden
+     * by a subclass field of the same name is still reached.
+     */
+    private static String access(String object, TypeElement type, VariableElement field) {
+        TypeElement declaring = declaringClass(field);
+        if (declaring.equals(type)) {
+            return object + "." + field.getSimpleName();
+        }
+        return "((" + declaring.getQualifiedName() + ") " + object + ")."
+                + field.getSimpleName();
+    }
+
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement result = (TypeElement) ((DeclaredType) superclass).asElement();
+        return result.getQualifiedName().contentEquals("java.lang.Object") ? null : result;
+    }
+
+    private static String generatedName(TypeElement type) {
+        StringBuilder result = new StringBuilder(type.getSimpleName());
+        for (Element walk = type.getEnclosingElement(); walk.getKind() != ElementKind.PACKAGE;
+                walk = walk.getEnclosingElement()) {
+            result.insert(0, '_').insert(0, walk.getSimpleName());
+        }
+        return result.append(SUFFIX).toString();
+    }
+
+    /*
+     * True if the generated code can call the no-argument constructor of type.
+     */
+    private static boolean hasConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type
+                .getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+        }
+        return false;
+    }
+
+    private void write(TypeElement type, List<VariableElement> fields) {
+        String pkg = packageOf(type).getQualifiedName().toString();
+        String name = generatedName(type);
+        String typeName = type.getQualifiedName().toString();
+
+        PrintWriter out;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    pkg.length() == 0 ? name : pkg + "." + name, type);
+            out = new PrintWriter(file.openWriter());
+        } catch (IOException e) {
+            error(type, "unable to write " + name + ": " + e.getMessage());
+            return;
+        }
+
+        try {
+            if (pkg.length() > 0) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by " + FieldCodecProcessor.class.getName()
+                    + ". Do not edit.");
+            out.println(" */");
+            out.println("public final class " + name + " implements "
+                    + "android.reflect.util.FieldCodec<" + typeName + "> {");
+            out.println();
+            out.println("    public static final " + name + " INSTANCE = new " + name + "();");
+            out.println();
+            out.println("    private " + name + "() {");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public Class<" + typeName + "> getType() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public String[] getFieldNames() {");
+            out.println("        return new String[] {");
+            for (VariableElement field : fields) {
+                out.println("                \"" + field.getSimpleName() + "\",");
+            }
+            out.println("        };");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public Class<?>[] getFieldTypes() {");
+            out.println("        return new Class<?>[] {");
+            for (VariableElement field : fields) {
+                out.println("                " + field.asType() + ".class,");
+            }
+            out.println("        };");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public " + typeName + " newInstance() {");
+            if (hasConstructor(type)) {
+                out.println("        return new " + typeName + "();");
+            } else {
+                out.println("        throw new UnsupportedOperationException(\"" + typeName
+                        + " has no constructor without arguments\");");
+            }
+            out.println("    }");
+            out.println();
+
+            writeEncode(out, type, fields);
+            writeDecode(out, type, fields);
+
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeNullChecks(PrintWriter out, String first, String second) {
+        out.println("        if (" + first + " == null) {");
+        out.println("            throw new IllegalArgumentException(\"" + first
+                + " cannot be null\");");
+        out.println("        }");
+        out.println("        if (" + second + " == null) {");
+        out.println("            throw new IllegalArgumentException(\"" + second
+                + " cannot be null\");");
+        out.println("        }");
+    }
+
+    private static void writeEncode(PrintWriter out, TypeElement type,
+            List<VariableElement> fields) {
+        String typeName = type.getQualifiedName().toString();
+        out.println("    @Override");
+        out.println("    public void encode(" + typeName + " object, "
+                + "android.lang.util.PrimitiveWriter out) {");
+        writeNullChecks(out, "object", "out");
+        for (VariableElement field : fields) {
+            String value = access("object", type, field);
+            TypeMirror fieldType = field.asType();
+            if (fieldType.getKind().isPrimitive()) {
+                out.println("        out.append(" + value + ");");
+            } else if (((ArrayType) fieldType).getComponentType().getKind() == TypeKind.BOOLEAN) {
+                out.println("        if (" + value + " == null) {");
+                out.println("            out.append(-1);");
+                out.println("        } else {");
+                out.println("            out.append(" + value + ".length);");
+                out.println("            for (boolean element : " + value + ") {");
+                out.println("                out.append(element);");
+                out.println("            }");
+                out.println("        }");
+            } else {
+                out.println("        if (" + value + " == null) {");
+                out.println("            out.append(-1);");
+                out.println("        } else {");
+                out.println("            out.append(" + value + ".length);");
+                out.println("            out.append(" + value + ", 0, " + value + ".length);");
+                out.println("        }");
+            }
+        }
+        out.println("    }");
+        out.println();
+    }
+
+    private static void writeDecode(PrintWriter out, TypeElement type,
+            List<VariableElement> fields) {
+        String typeName = type.getQualifiedName().toString();
+        boolean arrays = false;
+
+        out.println("    @Override");
+        out.println("    public " + typeName + " decode(android.lang.util.PrimitiveReader in, "
+                + typeName + " target) {");
+        writeNullChecks(out, "in", "target");
+        for (VariableElement field : fields) {
+            String value = access("target", type, field);
+            TypeMirror fieldType = field.asType();
+            if (fieldType.getKind().isPrimitive()) {
+                String kind = fieldType.getKind().name();
+                out.println("        " + value + " = in.read" + kind.charAt(0)
+                        + kind.substring(1).toLowerCase() + "();");
+                continue;
+            }
+
+            arrays = true;
+            TypeMirror component = ((ArrayType) fieldType).getComponentType();
+            out.println("        {");
+            out.println("            int length = readLength(in);");
+            out.println("            " + value + " = length < 0 ? null : new " + component
+                    + "[length];");
+            if (component.getKind() == TypeKind.BOOLEAN) {
+                out.println("            for (int i = 0; i < length; i++) {");
+                out.println("                " + value + "[i] = in.readBoolean();");
+                out.println("            }");
+            } else {
+                out.println("            if (length > 0) {");
+                out.println("                in.read(" + value + ", 0, length);");
+                out.println("            }");
+            }
+            out.println("        }");
+        }
+        out.println("        return target;");
+        out.println("    }");
+
+        if (arrays) {
+            out.println();
+            out.println("    private static int readLength("
+                    + "android.lang.util.PrimitiveReader in) {");
+            out.println("        int length = in.readInt();");
+            out.println("        if (length < -1 || length > in.remaining()) {");
+            out.println("            throw new IllegalArgumentException("
+                    + "\"bytes are not encoded fields\");");
+            out.println("        }");
+            out.println("        return length;");
+            out.println("    }");
+        }
+        out.println();
+    }
+
+}
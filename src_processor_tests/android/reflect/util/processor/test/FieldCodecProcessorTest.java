@@ -0,0 +1,214 @@
+package android.reflect.util.processor.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+import android.lang.util.PrimitiveReader;
+import android.lang.util.PrimitiveWriter;
+import android.reflect.util.FieldCodec;
+import android.reflect.util.FieldSnapshot;
+import android.reflect.util.processor.FieldCodecProcessor;
+
+public class FieldCodecProcessorTest extends TestCase {
+
+    private static final String BASE = "package a;\n"
+            + "public class Base {\n"
+            + "    public int x;\n"
+            + "    public long[] values;\n"
+            + "    public transient int skipped;\n"
+            + "}\n";
+
+    private static final String POINT = "package b;\n"
+            + "@android.reflect.util.GenerateFieldCodec\n"
+            + "public class Point extends a.Base {\n"
+            + "    int x;\n"
+            + "    float y;\n"
+            + "    boolean[] flags;\n"
+            + "    protected double d;\n"
+            + "}\n";
+
+    private File mDirectory;
+    private DiagnosticCollector<JavaFileObject> mDiagnostics;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mDirectory = File.createTempFile("codec", "");
+        assertTrue(mDirectory.delete() && mDirectory.mkdir());
+        mDiagnostics = new DiagnosticCollector<JavaFileObject>();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        delete(mDirectory);
+        super.tearDown();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File write(String name, String source) throws IOException {
+        File file = new File(mDirectory, name);
+        file.getParentFile().mkdirs();
+        FileWriter out = new FileWriter(file);
+        try {
+            out.write(source);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /*
+     * Compiles the sources with the processor and returns a class loader for
+     * the output, or null if compilation failed.
+     */
+    private ClassLoader compile(File... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("no system java compiler", compiler);
+
+        File classes = new File(mDirectory, "classes");
+        assertTrue(classes.mkdir());
+        StandardJavaFileManager files = compiler.getStandardFileManager(mDiagnostics, null,
+                null);
+        try {
+            List<String> options = Arrays.asList("-classpath",
+                    System.getProperty("java.class.path"), "-d", classes.getPath(), "-s",
+                    classes.getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, mDiagnostics,
+                    options, null, files.getJavaFileObjects(sources));
+            task.setProcessors(Collections.singletonList(new FieldCodecProcessor()));
+            if (!task.call()) {
+                return null;
+            }
+        } finally {
+            files.close();
+        }
+        return new URLClassLoader(new URL[] {
+            classes.toURI().toURL()
+        }, getClass().getClassLoader());
+    }
+
+    private String errors() {
+        StringBuilder result = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : mDiagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                result.append(diagnostic.getMessage(null)).append('\n');
+            }
+        }
+        return result.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldCodec<Object> codecOf(ClassLoader loader, String name) throws Exception {
+        return (FieldCodec<Object>) loader.loadClass(name).getField("INSTANCE").get(null);
+    }
+
+    private static void set(Object object, Class<?> declaring, String name, Object value)
+            throws Exception {
+        Field field = declaring.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+
+    private static Object get(Object object, Class<?> declaring, String name)
+            throws Exception {
+        Field field = declaring.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+
+    public void testMatchesFieldSnapshot() throws Exception {
+        ClassLoader loader = compile(write("a/Base.java", BASE), write("b/Point.java", POINT));
+        assertNotNull("compilation failed: " + errors(), loader);
+
+        Class<?> base = loader.loadClass("a.Base");
+        Class<?> point = loader.loadClass("b.Point");
+        FieldCodec<Object> codec = codecOf(loader, "b.Point_FieldCodec");
+
+        Object object = point.newInstance();
+        set(object, base, "x", 7);
+        set(object, base, "values", new long[] {
+                1L, Long.MIN_VALUE
+        });
+        set(object, point, "x", -3);
+        set(object, point, "y", 2.5f);
+        set(object, point, "flags", new boolean[] {
+                true, false, true
+        });
+        set(object, point, "d", Math.PI);
+
+        FieldSnapshot snapshot = FieldSnapshot.capture(object);
+        String[] names = codec.getFieldNames();
+        assertEquals(snapshot.fieldCount(), names.length);
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(snapshot.getField(i).getName(), names[i]);
+            assertEquals(snapshot.getField(i).getType(), codec.getFieldTypes()[i]);
+        }
+
+        PrimitiveWriter out = new PrimitiveWriter();
+        codec.encode(object, out);
+        byte[] encoded = out.toByteArray();
+
+        // a full patch is the header and mask followed by every field
+        byte[] patch = snapshot.diff(null);
+        int header = 2 + 4 + 4 + ((names.length + 7) >>> 3);
+        assertTrue("codec bytes differ from FieldSnapshot", Arrays.equals(encoded,
+                Arrays.copyOfRange(patch, header, patch.length)));
+
+        Object copy = codec.decode(new PrimitiveReader(encoded), codec.newInstance());
+        assertEquals(7, get(copy, base, "x"));
+        assertEquals(-3, get(copy, point, "x"));
+        assertEquals(2.5f, get(copy, point, "y"));
+        assertEquals(Math.PI, get(copy, point, "d"));
+        assertTrue(Arrays.equals((long[]) get(object, base, "values"),
+                (long[]) get(copy, base, "values")));
+        assertTrue(Arrays.equals((boolean[]) get(object, point, "flags"),
+                (boolean[]) get(copy, point, "flags")));
+    }
+
+    public void testProtectedFieldInOtherPackage() throws Exception {
+        ClassLoader loader = compile(write("a/Base.java", "package a;\n"
+                + "public class Base {\n"
+                + "    protected int prot;\n"
+                + "}\n"), write("b/Point.java", POINT));
+
+        assertNull("protected field accepted", loader);
+        assertTrue(errors(), errors().contains("Base.prot cannot be read by Point_FieldCodec"));
+    }
+
+    public void testPackagePrivateSuperclassInOtherPackage() throws Exception {
+        ClassLoader loader = compile(write("a/Base.java", "package a;\n"
+                + "class Base {\n"
+                + "    public int x;\n"
+                + "}\n"), write("a/Middle.java", "package a;\n"
+                + "public class Middle extends Base {\n"
+                + "}\n"), write("b/Point.java", POINT.replace("a.Base", "a.Middle")));
+
+        assertNull("package private superclass accepted", loader);
+        assertTrue(errors(), errors().contains("Base.x cannot be read by Point_FieldCodec"));
+    }
+
+}
@@ -0,0 +1,194 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+import android.util.Log;
+
+/**
+ * Bytes allocated per operation by the codecs. Operations that are meant not
+ * to allocate at all fail the test if they start allocating; the others are
+ * logged, and checked against the size of the array they have to return.
+ */
+public class AllocationBenchmarkTest extends TestCase {
+
+    private static final String LOG_TAG = "ALLOCATIONBENCHMARKTEST";
+
+    /**
+     * Allowance for the header of a returned array and, on the bulk paths, the
+     * view buffers used to fill it.
+     */
+    private static final int ARRAY_OVERHEAD = 256;
+
+    private static final int LENGTH = 1000;
+
+    private final long[] mLongs = new long[LENGTH];
+
+    private final Long[] mBoxedLongs = new Long[LENGTH];
+
+    private final byte[] mBytes = new byte[LENGTH * 8];
+
+    private long mSink;
+
+    @Override
+    public void setUp() {
+        for (int i = 0; i < LENGTH; i++) {
+            mLongs[i] = i * 1000003L;
+            mBoxedLongs[i] = Long.valueOf(mLongs[i]);
+        }
+        PrimitiveUtil.toBytes(mLongs);
+    }
+
+    /*
+     * Every "allocated nothing" check below is meaningless unless the counter
+     * sees allocations.
+     */
+    public void testCounterWorks() {
+
+        AllocationCounter.checkCounting();
+
+    }
+
+    public void testBoxing() {
+
+        AllocationCounter.measure(LOG_TAG, "PrimitiveUtil.box(long[])", new Runnable() {
+            @Override
+            public void run() {
+                mSink += PrimitiveUtil.box(mLongs).length;
+            }
+        });
+
+        long unbox = AllocationCounter.measure(LOG_TAG,
+                "PrimitiveUtil.unbox(Long[])", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += PrimitiveUtil.unbox(mBoxedLongs).length;
+                    }
+                });
+        assertTrue("unbox allocated more than its result: " + unbox,
+                unbox <= LENGTH * 8 + ARRAY_OVERHEAD);
+
+    }
+
+    public void testEncode() {
+
+        long toBytes = AllocationCounter.measure(LOG_TAG,
+                "PrimitiveUtil.toBytes(long[])", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += PrimitiveUtil.toBytes(mLongs).length;
+                    }
+                });
+        assertTrue("toBytes allocated more than its result: " + toBytes,
+                toBytes <= LENGTH * 8 + ARRAY_OVERHEAD);
+
+        final PrimitiveWriter writer = new PrimitiveWriter(LENGTH * 8);
+        long append = AllocationCounter.measure(LOG_TAG,
+                "PrimitiveWriter.append(long[])", new Runnable() {
+                    @Override
+                    public void run() {
+                        writer.reset();
+                        writer.append(mLongs, 0, LENGTH);
+                    }
+                });
+        assertTrue("appending to a sized writer allocated " + append + " bytes", append == 0);
+
+    }
+
+    public void testDecode() {
+
+        final byte[] encoded = PrimitiveUtil.toBytes(mLongs);
+
+        long asType = AllocationCounter.measure(LOG_TAG,
+                "MemoryMappedPrimitive.asType(long[])", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += ((long[]) new MemoryMappedPrimitive(encoded).asType(long[].class))
+                                .length;
+                    }
+                });
+        // the decoded array is cached and a copy of it is returned
+        assertTrue("asType allocated more than its cache and result: " + asType,
+                asType <= 2 * LENGTH * 8 + 4 * ARRAY_OVERHEAD);
+
+        final MemoryMappedPrimitive cached = new MemoryMappedPrimitive(encoded);
+        long cachedAsType = AllocationCounter.measure(LOG_TAG,
+                "cached MemoryMappedPrimitive.asType(long[])",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += ((long[]) cached.asType(long[].class)).length;
+                    }
+                });
+        assertTrue("cached asType allocated more than a copy: " + cachedAsType,
+                cachedAsType <= LENGTH * 8 + ARRAY_OVERHEAD);
+
+        long sharedType = AllocationCounter.measure(LOG_TAG,
+                "cached MemoryMappedPrimitive.asSharedType(long[])",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += ((long[]) cached.asSharedType(long[].class)).length;
+                    }
+                });
+        assertTrue("cached asSharedType allocated " + sharedType + " bytes", sharedType == 0);
+
+        // below the bulk threshold, so no view buffer is created
+        final long[] small = new long[PrimitiveUtil.BULK_THRESHOLD - 1];
+        final byte[] smallBytes = PrimitiveUtil.toBytes(small);
+        long read = AllocationCounter.measure(LOG_TAG,
+                "PrimitiveReader.read(long[])", new Runnable() {
+                    @Override
+                    public void run() {
+                        PrimitiveReader reader = new PrimitiveReader(smallBytes);
+                        reader.read(small, 0, small.length);
+                        mSink += reader.position();
+                    }
+                });
+        Log.d(LOG_TAG, "PrimitiveReader itself is " + read + " bytes.");
+        assertTrue("reading into an array allocated more than the reader: " + read,
+                read <= ARRAY_OVERHEAD);
+
+    }
+
+    public void testZeroAllocationPaths() {
+
+        final SegmentedByteBuffer buffer = new SegmentedByteBuffer(1024, 4);
+        long segmented = AllocationCounter.measure(LOG_TAG,
+                "SegmentedByteBuffer.putLong/getLong", new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int pos = 0; pos < 1016; pos += 13) {
+                            buffer.putLong(pos, pos);
+                            mSink += buffer.getLong(pos);
+                        }
+                    }
+                });
+        assertTrue("SegmentedByteBuffer allocated " + segmented + " bytes", segmented == 0);
+
+        final StripedCounter counter = new StripedCounter();
+        final StripedHistogram histogram = new StripedHistogram(new long[] {
+                10, 100, 1000
+        });
+        long striped = AllocationCounter.measure(LOG_TAG,
+                "StripedCounter.add/StripedHistogram.record", new Runnable() {
+                    @Override
+                    public void run() {
+                        counter.add(3);
+                        histogram.record(50);
+                    }
+                });
+        assertTrue("striped counters allocated " + striped + " bytes", striped == 0);
+
+        final ConcurrentMemoryMappedPrimitive concurrent = new ConcurrentMemoryMappedPrimitive(
+                16);
+        long cas = AllocationCounter.measure(LOG_TAG,
+                "ConcurrentMemoryMappedPrimitive.getAndAddInt", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += concurrent.getAndAddInt(3, 1);
+                    }
+                });
+        assertTrue("ConcurrentMemoryMappedPrimitive allocated " + cas + " bytes", cas == 0);
+
+    }
+
+}
@@ -0,0 +1,104 @@
+package android.lang.util;
+
+import junit.framework.Assert;
+import android.os.Debug;
+import android.util.Log;
+
+/**
+ * Measures the number of bytes the current thread allocates while running an
+ * operation, using the allocation counters of {@link Debug}.
+ */
+public final class AllocationCounter {
+
+    private AllocationCounter() {
+        throw new UnsupportedOperationException("instantiating not allowed.");
+    }
+
+    /**
+     * The number of times each operation is run while counting.
+     */
+    private static final int ITERATIONS = 1000;
+
+    /**
+     * The number of times the iterations are repeated. The lowest count is
+     * kept, so that allocations made while the runtime compiles the
+     * operation are not counted against it.
+     */
+    private static final int ROUNDS = 3;
+
+    /**
+     * The size of the array allocated by the positive control.
+     */
+    private static final int CONTROL_SIZE = 4096;
+
+    /**
+     * Holds the control array so that the allocation cannot be optimized
+     * away.
+     */
+    private static volatile Object sSink;
+
+    private static boolean sCountingChecked;
+
+    /**
+     * Runs {@code operation} once to load classes and fill lazy caches, then
+     * {@code iterations} more times while counting allocations, a few times
+     * over.
+     *
+     * @return the lowest average number of bytes allocated per run, rounded
+     *         down.
+     */
+    public static long bytesPerOperation(Runnable operation, int iterations) {
+        operation.run();
+
+        long result = Long.MAX_VALUE;
+        Debug.startAllocCounting();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Debug.resetThreadAllocSize();
+                for (int i = 0; i < iterations; i++) {
+                    operation.run();
+                }
+                result = Math.min(result, Debug.getThreadAllocSize() / iterations);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        return result;
+    }
+
+    /**
+     * Measures {@code operation} with {@link #bytesPerOperation(Runnable, int)}
+     * and logs the result under {@code tag}. Fails the calling test if the
+     * allocation counters do not work, since a counter that always reports
+     * zero would make every allocation check pass.
+     *
+     * @return the number of bytes allocated per run.
+     */
+    public static long measure(String tag, String name, Runnable operation) {
+        checkCounting();
+        long result = bytesPerOperation(operation, ITERATIONS);
+        Log.d(tag, name + " allocated " + result + " bytes per operation.");
+        return result;
+    }
+
+    /**
+     * Fails unless allocating a {@code byte[CONTROL_SIZE]} is counted as at
+     * least {@code CONTROL_SIZE} bytes.
+     */
+    public static synchronized void checkCounting() {
+        if (sCountingChecked) {
+            return;
+        }
+
+        long control = bytesPerOperation(new Runnable() {
+            @Override
+            public void run() {
+                sSink = new byte[CONTROL_SIZE];
+            }
+        }, ITERATIONS);
+        Assert.assertTrue("allocation counting does not work: a byte[" + CONTROL_SIZE
+                + "] was counted as " + control + " bytes", control >= CONTROL_SIZE);
+        sCountingChecked = true;
+    }
+
+}
@@ -0,0 +1,92 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+
+public class BooleanListTest extends TestCase {
+
+    private boolean[] generateBooleans(int size) {
+        boolean[] result = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (i % 3) == 0 || (i % 7) == 0;
+        }
+        return result;
+    }
+
+    public void testAddGetSet() {
+
+        boolean[] source = generateBooleans(1001);
+        BooleanList objectUnderTest = new BooleanList(0);
+        for (boolean b : source) {
+            objectUnderTest.add(b);
+        }
+
+        assertTrue("size incorrect", objectUnderTest.size() == source.length);
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("value at " + i + " incorrect", objectUnderTest.get(i) == source[i]);
+        }
+
+        boolean previous = objectUnderTest.set(1, true);
+        assertTrue("set returned the wrong previous value", previous == source[1]);
+        assertTrue("set did not change the value", objectUnderTest.get(1));
+
+    }
+
+    public void testMatchesPrimitiveUtil() {
+
+        for (int size = 0; size < 40; size++) {
+            boolean[] source = generateBooleans(size);
+            BooleanList objectUnderTest = new BooleanList(source);
+
+            byte[] control = PrimitiveUtil.toBytes(source);
+            byte[] underTest = objectUnderTest.toBytes();
+
+            assertTrue("byte count incorrect for size " + size, control.length == underTest.length);
+            for (int i = 0; i < control.length; i++) {
+                assertTrue("byte " + i + " incorrect for size " + size,
+                        control[i] == underTest[i]);
+            }
+
+            assertTrue("round trip failed for size " + size,
+                    BooleanList.fromBytes(underTest).equals(objectUnderTest));
+        }
+
+    }
+
+    public void testRemoveLastAndClear() {
+
+        BooleanList objectUnderTest = new BooleanList(new boolean[] {
+                true, true, true
+        });
+        assertTrue("cardinality incorrect", objectUnderTest.cardinality() == 3);
+
+        assertTrue("removeLast returned the wrong value", objectUnderTest.removeLast());
+        assertTrue("size incorrect after removeLast", objectUnderTest.size() == 2);
+
+        // the removed bit must not leak into the encoded form
+        objectUnderTest.add(false);
+        assertTrue("bit was not cleared", !objectUnderTest.get(2));
+
+        objectUnderTest.clear();
+        assertTrue("list not empty after clear", objectUnderTest.isEmpty());
+        assertTrue("cardinality not 0 after clear", objectUnderTest.cardinality() == 0);
+
+    }
+
+    public void testTooLargeToEncode() {
+
+        BooleanList objectUnderTest = new BooleanList();
+        for (int i = 0; i <= Short.MAX_VALUE; i++) {
+            objectUnderTest.add(true);
+        }
+
+        boolean success = false;
+        try {
+            objectUnderTest.toBytes();
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("toBytes accepted a list that is too large for the header", success);
+
+    }
+
+}
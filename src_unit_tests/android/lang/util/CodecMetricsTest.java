@@ -0,0 +1,87 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+import android.lang.util.CodecMetrics.Operation;
+
+public class CodecMetricsTest extends TestCase {
+
+    @Override
+    public void tearDown() throws Exception {
+        CodecMetrics.setEnabled(false);
+        CodecMetrics.reset();
+        super.tearDown();
+    }
+
+    public void testDisabled() {
+
+        CodecMetrics.setEnabled(false);
+        CodecMetrics.reset();
+
+        new MemoryMappedPrimitive(new long[10]).asType(long[].class);
+
+        CodecMetrics.Snapshot snapshot = CodecMetrics.snapshot();
+        assertTrue("conversion recorded while disabled",
+                snapshot.calls(long.class, Operation.ENCODE) == 0
+                        && snapshot.calls(long.class, Operation.DECODE) == 0);
+
+    }
+
+    public void testCounts() {
+
+        assertTrue("metrics not available", CodecMetrics.AVAILABLE);
+
+        CodecMetrics.reset();
+        CodecMetrics.setEnabled(true);
+
+        int large = CodecMetrics.LATENCY_THRESHOLD * 2;
+        MemoryMappedPrimitive mmp = new MemoryMappedPrimitive(new long[large]);
+        mmp.asType(long[].class);
+        mmp.asType(long[].class); // cached, not decoded again
+        mmp.asType(Integer[].class);
+        new MemoryMappedPrimitive(new boolean[9]);
+        MemoryMappedPrimitive.wrap(new short[3]).asType(byte[].class);
+
+        CodecMetrics.Snapshot snapshot = CodecMetrics.snapshot();
+        assertTrue("long encodes incorrect", snapshot.calls(long.class, Operation.ENCODE) == 1);
+        assertTrue("long elements incorrect",
+                snapshot.elements(long.class, Operation.ENCODE) == large);
+        assertTrue("long bytes incorrect",
+                snapshot.bytes(long.class, Operation.ENCODE) == large * 8L);
+        assertTrue("long decodes incorrect", snapshot.calls(long.class, Operation.DECODE) == 1);
+        assertTrue("boxed decode not counted as int",
+                snapshot.elements(int.class, Operation.DECODE) == large * 2);
+        assertTrue("boolean bytes incorrect",
+                snapshot.bytes(boolean.class, Operation.ENCODE) == 4);
+        assertTrue("lazy encode not counted",
+                snapshot.bytes(short.class, Operation.ENCODE) == 6);
+
+        long[] latencies = snapshot.latencies(long.class, Operation.ENCODE);
+        assertTrue("bucket count incorrect",
+                latencies.length == CodecMetrics.getLatencyBounds().length + 1);
+        assertTrue("large conversion latency not recorded", sum(latencies) == 1);
+        assertTrue("small conversion latency recorded", sum(snapshot.latencies(boolean.class,
+                Operation.ENCODE)) == 0);
+
+        CodecMetrics.reset();
+        assertTrue("reset did not clear counts",
+                CodecMetrics.snapshot().calls(long.class, Operation.ENCODE) == 0);
+
+        boolean success = false;
+        try {
+            snapshot.calls(Long.class, Operation.ENCODE);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("box type accepted", success);
+
+    }
+
+    private static long sum(long[] counts) {
+        long result = 0;
+        for (long count : counts) {
+            result += count;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,146 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+
+public class ConcurrentMemoryMappedPrimitiveTest extends TestCase {
+
+    private static final int THREADS = 4;
+
+    private static final int INCREMENTS = 20000;
+
+    public void testMatchesMemoryMappedPrimitive() {
+
+        byte[] bytes = new byte[21];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 29 - 7);
+        }
+
+        ConcurrentMemoryMappedPrimitive objectUnderTest = new ConcurrentMemoryMappedPrimitive(
+                bytes);
+        assertTrue("length incorrect", objectUnderTest.length() == 21);
+
+        byte[] copy = objectUnderTest.toBytes();
+        for (int i = 0; i < bytes.length; i++) {
+            assertTrue("byte " + i + " incorrect", copy[i] == bytes[i]);
+        }
+
+        int[] control = (int[]) new MemoryMappedPrimitive(new byte[] {
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12
+        }).asType(int[].class);
+        objectUnderTest.set(new byte[] {
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12
+        });
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("int slot " + i + " incorrect",
+                    objectUnderTest.getIntVolatile(i) == control[i]);
+        }
+        assertTrue("long slot 0 incorrect",
+                objectUnderTest.getLongVolatile(0) == 0x0102030405060708L);
+
+        int[] ints = (int[]) objectUnderTest.asType(int[].class);
+        assertTrue("asType length incorrect", ints.length == 3);
+        assertTrue("asType value incorrect", ints[2] == control[2]);
+
+    }
+
+    public void testIntSlots() {
+
+        ConcurrentMemoryMappedPrimitive objectUnderTest = new ConcurrentMemoryMappedPrimitive(
+                new int[] {
+                        -1, 5, 7
+                });
+
+        assertTrue(objectUnderTest.getAndAddInt(1, Integer.MAX_VALUE) == 5);
+        assertTrue("int addition did not wrap",
+                objectUnderTest.getIntVolatile(1) == 5 + Integer.MAX_VALUE);
+        assertTrue("carry changed the neighboring slot", objectUnderTest.getIntVolatile(0) == -1);
+
+        assertTrue(objectUnderTest.compareAndSetInt(0, -1, 3));
+        assertTrue(!objectUnderTest.compareAndSetInt(0, -1, 4));
+        assertTrue(objectUnderTest.getIntVolatile(0) == 3);
+
+        objectUnderTest.setIntRelease(2, -9);
+        assertTrue(objectUnderTest.getIntVolatile(2) == -9);
+
+        int[] result = (int[]) objectUnderTest.asType(int[].class);
+        assertTrue(result[0] == 3);
+        assertTrue(result[1] == 5 + Integer.MAX_VALUE);
+        assertTrue(result[2] == -9);
+
+        boolean success = false;
+        try {
+            objectUnderTest.getLongVolatile(1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("partial long slot allowed", success);
+
+    }
+
+    /*
+     * Adjacent int slots share a word, so contention on one must never
+     * lose updates to the other.
+     */
+    public void testConcurrentCounters() throws InterruptedException {
+
+        final ConcurrentMemoryMappedPrimitive objectUnderTest = new ConcurrentMemoryMappedPrimitive(
+                new long[2]);
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            final int intSlot = t % 2;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < INCREMENTS; i++) {
+                        objectUnderTest.getAndAddLong(1, 1);
+                        objectUnderTest.getAndAddInt(intSlot, 1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("long updates lost",
+                objectUnderTest.getLongVolatile(1) == (long) THREADS * INCREMENTS);
+        assertTrue("int slot 0 updates lost",
+                objectUnderTest.getIntVolatile(0) == THREADS / 2 * INCREMENTS);
+        assertTrue("int slot 1 updates lost",
+                objectUnderTest.getIntVolatile(1) == THREADS / 2 * INCREMENTS);
+
+    }
+
+    public void testReplaceArray() throws InterruptedException {
+
+        final ConcurrentMemoryMappedPrimitive objectUnderTest = new ConcurrentMemoryMappedPrimitive(
+                0);
+        final long[] seen = new long[1];
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (objectUnderTest.length() == 0) {
+                    Thread.yield();
+                }
+                seen[0] = objectUnderTest.getLongVolatile(0);
+            }
+        };
+        reader.start();
+
+        objectUnderTest.set(new long[] {
+            42L
+        });
+        reader.join();
+
+        assertTrue("replaced array not published", seen[0] == 42L);
+
+        objectUnderTest.setLongRelease(0, 43L);
+        assertTrue(objectUnderTest.compareAndSetLong(0, 43L, 44L));
+        assertTrue(((Long) objectUnderTest.asType(long.class)).longValue() == 44L);
+
+    }
+
+}
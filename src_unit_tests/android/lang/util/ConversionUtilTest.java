@@ -0,0 +1,174 @@
+package android.lang.util;
+
+import android.lang.util.ConversionUtil.Mode;
+
+import junit.framework.TestCase;
+
+public class ConversionUtilTest extends TestCase {
+
+    private static final double[] DOUBLES = new double[] {
+            0d, -0.5d, 1.9d, -1.9d, 127d, 128d, -129d, 65535.5d, 70000d, -70000d,
+            3e9d, -3e9d, 1e19d, -1e19d, 1e40d, -1e40d, Double.NaN, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Long.MIN_VALUE
+    };
+
+    private static final long[] LONGS = new long[] {
+            0L, -1L, 127L, 128L, -129L, 65535L, 65536L, Integer.MAX_VALUE + 1L,
+            Integer.MIN_VALUE - 1L, Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+    /*
+     * TRUNCATE must give exactly the same result as a cast.
+     */
+    public void testTruncateMatchesCast() {
+
+        byte[] bytes = (byte[]) ConversionUtil.convert(DOUBLES, byte[].class, Mode.TRUNCATE);
+        char[] chars = (char[]) ConversionUtil.convert(DOUBLES, char[].class, Mode.TRUNCATE);
+        int[] ints = (int[]) ConversionUtil.convert(DOUBLES, int[].class, Mode.TRUNCATE);
+        long[] longs = (long[]) ConversionUtil.convert(DOUBLES, long[].class, Mode.TRUNCATE);
+        float[] floats = (float[]) ConversionUtil.convert(DOUBLES, float[].class, Mode.TRUNCATE);
+
+        for (int i = 0; i < DOUBLES.length; i++) {
+            double value = DOUBLES[i];
+            assertTrue("byte " + i + " incorrect", bytes[i] == (byte) value);
+            assertTrue("char " + i + " incorrect", chars[i] == (char) value);
+            assertTrue("int " + i + " incorrect", ints[i] == (int) value);
+            assertTrue("long " + i + " incorrect", longs[i] == (long) value);
+            assertTrue("float " + i + " incorrect", Float.floatToIntBits(floats[i]) == Float
+                    .floatToIntBits((float) value));
+        }
+
+        short[] shorts = (short[]) ConversionUtil.convert(LONGS, short[].class, Mode.TRUNCATE);
+        int[] intsFromLongs = (int[]) ConversionUtil.convert(LONGS, int[].class, Mode.TRUNCATE);
+        double[] doubles = (double[]) ConversionUtil.convert(LONGS, double[].class,
+                Mode.TRUNCATE);
+
+        for (int i = 0; i < LONGS.length; i++) {
+            long value = LONGS[i];
+            assertTrue("short " + i + " incorrect", shorts[i] == (short) value);
+            assertTrue("int " + i + " incorrect", intsFromLongs[i] == (int) value);
+            assertTrue("double " + i + " incorrect", doubles[i] == (double) value);
+        }
+
+    }
+
+    public void testSaturate() {
+
+        int[] ints = (int[]) ConversionUtil.convert(LONGS, int[].class, Mode.SATURATE);
+        assertTrue(ints[7] == Integer.MAX_VALUE);
+        assertTrue(ints[8] == Integer.MIN_VALUE);
+        assertTrue(ints[1] == -1);
+
+        char[] chars = (char[]) ConversionUtil.convert(new int[] {
+                -5, 65536, 42
+        }, char[].class, Mode.SATURATE);
+        assertTrue(chars[0] == 0);
+        assertTrue(chars[1] == Character.MAX_VALUE);
+        assertTrue(chars[2] == 42);
+
+        byte[] bytes = (byte[]) ConversionUtil.convert(DOUBLES, byte[].class, Mode.SATURATE);
+        assertTrue("-1.9 not rounded toward zero", bytes[3] == -1);
+        assertTrue("128 not saturated", bytes[5] == Byte.MAX_VALUE);
+        assertTrue("-129 not saturated", bytes[6] == Byte.MIN_VALUE);
+        assertTrue("NaN not converted to 0", bytes[16] == 0);
+
+        long[] longs = (long[]) ConversionUtil.convert(DOUBLES, long[].class, Mode.SATURATE);
+        assertTrue(longs[12] == Long.MAX_VALUE);
+        assertTrue(longs[19] == Long.MIN_VALUE);
+
+        float[] floats = (float[]) ConversionUtil.convert(DOUBLES, float[].class,
+                Mode.SATURATE);
+        assertTrue(floats[14] == Float.MAX_VALUE);
+        assertTrue(floats[15] == -Float.MAX_VALUE);
+        assertTrue(floats[17] == Float.POSITIVE_INFINITY);
+
+    }
+
+    public void testChecked() {
+
+        long[] longs = (long[]) ConversionUtil.convert(new double[] {
+                -1.5d, Long.MIN_VALUE
+        }, long[].class, Mode.CHECKED);
+        assertTrue(longs[0] == -1L);
+        assertTrue(longs[1] == Long.MIN_VALUE);
+
+        int[] dest = new int[LONGS.length];
+        boolean success = false;
+        try {
+            ConversionUtil.convert(LONGS, 0, dest, 0, LONGS.length, Mode.CHECKED);
+        } catch (IllegalArgumentException ex) {
+            success = ex.getMessage().indexOf("index 7") >= 0;
+        }
+        assertTrue("out of range value accepted", success);
+        assertTrue("values before the bad value not converted", dest[6] == 65536);
+
+        success = false;
+        try {
+            ConversionUtil.convert(new double[] {
+                Double.NaN
+            }, short[].class, Mode.CHECKED);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("NaN accepted", success);
+
+        success = false;
+        try {
+            ConversionUtil.convert(new double[] {
+                1e40d
+            }, float[].class, Mode.CHECKED);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("float overflow accepted", success);
+
+        float[] floats = (float[]) ConversionUtil.convert(new double[] {
+                Double.NaN
+        }, float[].class, Mode.CHECKED);
+        assertTrue("NaN not passed through to float", Float.isNaN(floats[0]));
+
+    }
+
+    public void testSlices() {
+
+        int[] source = new int[] {
+                1, 2, 3, 4, 5
+        };
+        double[] dest = new double[6];
+
+        ConversionUtil.convert(source, 1, dest, 3, 3, Mode.CHECKED);
+        assertTrue(dest[2] == 0d);
+        assertTrue(dest[3] == 2d);
+        assertTrue(dest[5] == 4d);
+
+        // same type is a plain array copy
+        ConversionUtil.convert(source, 0, source, 1, 4, Mode.CHECKED);
+        assertTrue(source[4] == 4);
+
+        boolean success = false;
+        try {
+            ConversionUtil.convert(source, 3, dest, 0, 3, Mode.CHECKED);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("source range past the end accepted", success);
+
+        success = false;
+        try {
+            ConversionUtil.convert(source, 0, new boolean[5], 0, 5, Mode.CHECKED);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("boolean array accepted", success);
+
+        success = false;
+        try {
+            ConversionUtil.convert(source, 0, dest, 0, 1, null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("null mode accepted", success);
+
+    }
+
+}
@@ -1,6 +1,8 @@
 
 package android.lang.util;
 
+import java.util.List;
+
 import android.annotation.SuppressLint;
 import junit.framework.TestCase;
 
@@ -223,6 +225,45 @@ public class MemoryMappedPrimitiveTest extends TestCase {
         return result;
     }
 
+    public void testAsList() {
+
+        long[] input = getLongArray();
+        input[1] = 42L;
+        MemoryMappedPrimitive objectUnderTest = new MemoryMappedPrimitive(input);
+
+        List<Long> longs = objectUnderTest.asList(Long.class);
+        assertTrue("list size incorrect", longs.size() == PrimitiveUtilTest.SIZE);
+        assertTrue("unexpected value at position 1", longs.get(1) == 42L);
+
+        longs.set(0, Long.valueOf(7L));
+        long[] decoded = (long[]) objectUnderTest.asType(long[].class);
+        assertTrue("set did not write through to the byte array", decoded[0] == 7L);
+
+        List<Integer> ints = objectUnderTest.asList(Integer.class);
+        assertTrue("int list size incorrect", ints.size() == PrimitiveUtilTest.SIZE * 2);
+        assertTrue("unexpected int value", ints.get(3) == 42);
+
+        // the view follows later calls to set
+        objectUnderTest.set(new boolean[] {
+                true, false, true
+        });
+        List<Boolean> booleans = objectUnderTest.asList(Boolean.class);
+        assertTrue("boolean list size incorrect", booleans.size() == 3);
+        assertTrue("unexpected boolean value", booleans.get(2));
+        booleans.set(2, Boolean.FALSE);
+        assertTrue("boolean set did not write through",
+                !((boolean[]) objectUnderTest.asType(boolean[].class))[2]);
+
+        boolean success = false;
+        try {
+            objectUnderTest.asList(String.class);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("asList accepted a type that is not a primitive box type", success);
+
+    }
+
     @SuppressLint("DefaultLocale")
     public void testAsTypeByte() {
         int expectedByteCount = PrimitiveUtilTest.SIZE * 8;
@@ -406,4 +447,175 @@ public class MemoryMappedPrimitiveTest extends TestCase {
 
     }
 
+    public void testCachedArrays() {
+
+        MemoryMappedPrimitive objectUnderTest = new MemoryMappedPrimitive(new long[] {
+                1L, 2L
+        });
+
+        int[] first = (int[]) objectUnderTest.asSharedType(int[].class);
+        assertTrue("decoded array not cached",
+                objectUnderTest.asSharedType(int[].class) == first);
+
+        int[] copy = (int[]) objectUnderTest.asType(int[].class);
+        assertTrue("asType returned the shared array", copy != first && copy[1] == 1);
+        copy[1] = 99;
+        assertTrue("modifying a returned array changed the cache",
+                ((int[]) objectUnderTest.asType(int[].class))[1] == 1);
+
+        objectUnderTest.asSharedType(short[].class);
+        assertTrue("more than the most recent array cached",
+                objectUnderTest.asSharedType(int[].class) != first);
+
+        objectUnderTest.set(new long[] {
+                3L, 4L
+        });
+        int[] second = (int[]) objectUnderTest.asType(int[].class);
+        assertTrue("cache not invalidated by set", second != first && second[3] == 4);
+
+        objectUnderTest.asList(Long.class).set(0, Long.valueOf(-1L));
+        assertTrue("cache not invalidated by the list view",
+                ((int[]) objectUnderTest.asType(int[].class))[0] == -1);
+
+        byte[] bytes = (byte[]) objectUnderTest.asType(byte[].class);
+        bytes[15] = 5;
+        objectUnderTest.invalidate();
+        assertTrue("cache not invalidated",
+                ((long[]) objectUnderTest.asType(long[].class))[1] == 5L);
+
+    }
+
+    /*
+     * Several threads read a wrapped array at once, so that the first
+     * encode and the cache are raced.
+     */
+    public void testConcurrentReads() throws InterruptedException {
+
+        final long[] longs = new long[4096];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i;
+        }
+        final byte[] control = PrimitiveUtil.toBytes(longs);
+        final int[] failures = new int[1];
+
+        for (int round = 0; round < 200; round++) {
+            final MemoryMappedPrimitive objectUnderTest = MemoryMappedPrimitive.wrap(longs);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final boolean bytesFirst = t % 2 == 0;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            byte[] bytes;
+                            int[] ints;
+                            if (bytesFirst) {
+                                bytes = (byte[]) objectUnderTest.asType(byte[].class);
+                                ints = (int[]) objectUnderTest.asType(int[].class);
+                            } else {
+                                ints = (int[]) objectUnderTest.asType(int[].class);
+                                bytes = (byte[]) objectUnderTest.asType(byte[].class);
+                            }
+                            if (bytes == null || bytes.length != control.length
+                                    || bytes[bytes.length - 1] != control[control.length - 1]
+                                    || ints == null || ints[ints.length - 1] != 4095) {
+                                throw new IllegalStateException("wrong value");
+                            }
+                        } catch (RuntimeException e) {
+                            synchronized (failures) {
+                                failures[0]++;
+                            }
+                        }
+                    }
+                };
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertTrue(failures[0] + " concurrent reads failed", failures[0] == 0);
+
+    }
+
+    public void testWrap() {
+
+        double[] doubles = new double[] {
+                Math.PI, -1d
+        };
+        MemoryMappedPrimitive objectUnderTest = MemoryMappedPrimitive.wrap(doubles);
+
+        assertTrue("wrapped array not returned",
+                objectUnderTest.asSharedType(double[].class) == doubles);
+        assertTrue("wrapped array not copied", objectUnderTest.asType(double[].class) != doubles);
+
+        short[] control = (short[]) new MemoryMappedPrimitive(doubles).asType(short[].class);
+        short[] underTest = (short[]) objectUnderTest.asType(short[].class);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("short " + i + " incorrect", control[i] == underTest[i]);
+        }
+
+        byte[] bytes = (byte[]) objectUnderTest.asType(byte[].class);
+        assertTrue("bytes not encoded", bytes.length == 16
+                && PrimitiveUtil.toDouble(bytes, 0) == Math.PI);
+
+        objectUnderTest.set(7L);
+        assertTrue(((Long) objectUnderTest.asType(long.class)).longValue() == 7L);
+        assertTrue(((double[]) objectUnderTest.asType(double[].class))[1] == -1d);
+
+        boolean success = false;
+        try {
+            MemoryMappedPrimitive.wrap(new Long[1]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("boxed array accepted", success);
+
+        success = false;
+        try {
+            MemoryMappedPrimitive.wrap(new long[0]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("empty array accepted", success);
+
+    }
+
+    /*
+     * A wrapped NaN decodes the same way before and after invalidate(), and
+     * the same way as the constructor.
+     */
+    public void testWrapNaN() {
+
+        float[] floats = new float[] {
+            Float.intBitsToFloat(0x7fc00001)
+        };
+        MemoryMappedPrimitive objectUnderTest = MemoryMappedPrimitive.wrap(floats);
+        int control = Float.floatToRawIntBits(((float[]) new MemoryMappedPrimitive(floats)
+                .asType(float[].class))[0]);
+
+        int wrapped = Float.floatToRawIntBits(((float[]) objectUnderTest
+                .asType(float[].class))[0]);
+        assertTrue("wrapped NaN not canonical: " + Integer.toHexString(wrapped),
+                wrapped == control);
+
+        objectUnderTest.invalidate();
+        int invalidated = Float.floatToRawIntBits(((float[]) objectUnderTest
+                .asType(float[].class))[0]);
+        assertTrue("NaN changed after invalidate", invalidated == control);
+
+        double[] doubles = new double[] {
+            Double.longBitsToDouble(0x7ff8000000000001L)
+        };
+        long doubleControl = Double.doubleToRawLongBits(((double[]) new MemoryMappedPrimitive(
+                doubles).asType(double[].class))[0]);
+        assertTrue("wrapped double NaN not canonical", Double.doubleToRawLongBits(
+                ((double[]) MemoryMappedPrimitive.wrap(doubles).asSharedType(double[].class))[0])
+                == doubleControl);
+
+    }
+
 }
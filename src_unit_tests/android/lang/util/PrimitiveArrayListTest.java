@@ -0,0 +1,178 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+import android.util.Log;
+
+/**
+ * Test {@link LongArrayList}, {@link IntArrayList} and {@link DoubleArrayList}.
+ */
+public class PrimitiveArrayListTest extends TestCase {
+
+    private static final String LOG_TAG = "PRIMITIVEARRAYLISTTEST";
+
+    public void testAddGetSet() {
+
+        LongArrayList objectUnderTest = new LongArrayList(1);
+        for (int i = 0; i < PrimitiveUtilTest.SIZE; i++) {
+            objectUnderTest.add(i * 3L);
+        }
+
+        assertTrue("size incorrect.  Expected " + PrimitiveUtilTest.SIZE + ", found "
+                + objectUnderTest.size(), objectUnderTest.size() == PrimitiveUtilTest.SIZE);
+
+        for (int i = 0; i < PrimitiveUtilTest.SIZE; i++) {
+            assertTrue("value at index " + i + " incorrect", objectUnderTest.get(i) == i * 3L);
+        }
+
+        long previous = objectUnderTest.set(5, -1L);
+        assertTrue("set returned the wrong previous value", previous == 15L);
+        assertTrue("set did not change the value", objectUnderTest.get(5) == -1L);
+
+        long removed = objectUnderTest.remove(0);
+        assertTrue("remove returned the wrong value", removed == 0L);
+        assertTrue("remove did not shift values", objectUnderTest.get(0) == 3L);
+
+        boolean success = false;
+        try {
+            objectUnderTest.get(objectUnderTest.size());
+        } catch (IndexOutOfBoundsException ex) {
+            success = true;
+        }
+        assertTrue("get accepted an index past the end of the list", success);
+
+    }
+
+    public void testLongBytes() {
+
+        long[] source = new long[PrimitiveUtilTest.SIZE];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = Long.MAX_VALUE - i;
+        }
+
+        LongArrayList objectUnderTest = new LongArrayList();
+        objectUnderTest.add(source, 0, source.length);
+
+        long start = System.currentTimeMillis();
+        byte[] bytes = objectUnderTest.toBytes();
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "LongArrayList encoded " + bytes.length + " bytes in " + elapsed + " ms.");
+
+        byte[] control = PrimitiveUtil.toBytes(source);
+        assertTrue("byte count incorrect", bytes.length == control.length);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("byte " + i + " incorrect", bytes[i] == control[i]);
+        }
+
+        LongArrayList decoded = LongArrayList.fromBytes(bytes);
+        assertTrue("decoded list does not equal the original", decoded.equals(objectUnderTest));
+        assertTrue("hash codes differ", decoded.hashCode() == objectUnderTest.hashCode());
+
+    }
+
+    public void testIntBytes() {
+
+        IntArrayList objectUnderTest = new IntArrayList();
+        for (int i = 0; i < PrimitiveUtilTest.SIZE; i++) {
+            objectUnderTest.add(Integer.MIN_VALUE + i);
+        }
+
+        int[] decoded = (int[]) new MemoryMappedPrimitive(objectUnderTest.toBytes())
+                .asType(int[].class);
+        for (int i = 0; i < decoded.length; i++) {
+            assertTrue("value " + i + " incorrect", decoded[i] == objectUnderTest.get(i));
+        }
+
+        assertTrue("round trip failed",
+                IntArrayList.fromBytes(objectUnderTest.toBytes()).equals(objectUnderTest));
+
+        boolean success = false;
+        try {
+            IntArrayList.fromBytes(new byte[6]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("fromBytes accepted a byte count that is not a multiple of 4", success);
+
+    }
+
+    public void testDoubleBytes() {
+
+        DoubleArrayList objectUnderTest = new DoubleArrayList(new double[] {
+                0d, -0d, Double.NaN, Double.MIN_VALUE, Double.MAX_VALUE
+        });
+
+        DoubleArrayList decoded = DoubleArrayList.fromBytes(objectUnderTest.toBytes());
+        assertTrue("round trip failed", decoded.equals(objectUnderTest));
+        assertTrue("NaN was not preserved", Double.isNaN(decoded.get(2)));
+
+    }
+
+    public void testEmpty() {
+
+        LongArrayList objectUnderTest = new LongArrayList();
+        byte[] bytes = objectUnderTest.toBytes();
+        assertTrue("empty list encoded to " + bytes.length + " bytes", bytes.length == 0);
+        assertTrue("empty list did not decode", LongArrayList.fromBytes(bytes).isEmpty());
+
+    }
+
+    public void testTrimToSize() {
+
+        IntArrayList objectUnderTest = new IntArrayList(100);
+        objectUnderTest.add(1);
+        objectUnderTest.add(2);
+        objectUnderTest.trimToSize();
+        objectUnderTest.add(3);
+
+        int[] values = objectUnderTest.toArray();
+        assertTrue("toArray length incorrect", values.length == 3);
+        assertTrue("values incorrect", values[0] == 1 && values[1] == 2 && values[2] == 3);
+
+    }
+
+    public void testBadRange() {
+
+        int[][] ranges = {
+                { -1, 2 }, { 0, -1 }, { 2, 2 }, { 4, 1 }, { 1, Integer.MAX_VALUE }
+        };
+
+        for (int[] range : ranges) {
+            String name = "[" + range[0] + ", " + range[1] + "]";
+
+            LongArrayList longs = new LongArrayList(1);
+            boolean success = false;
+            try {
+                longs.add(new long[3], range[0], range[1]);
+            } catch (IllegalArgumentException ex) {
+                success = true;
+            }
+            assertTrue("long range " + name + " accepted", success && longs.isEmpty());
+
+            IntArrayList ints = new IntArrayList(1);
+            success = false;
+            try {
+                ints.add(new int[3], range[0], range[1]);
+            } catch (IllegalArgumentException ex) {
+                success = true;
+            }
+            assertTrue("int range " + name + " accepted", success && ints.isEmpty());
+
+            DoubleArrayList doubles = new DoubleArrayList(1);
+            success = false;
+            try {
+                doubles.add(new double[3], range[0], range[1]);
+            } catch (IllegalArgumentException ex) {
+                success = true;
+            }
+            assertTrue("double range " + name + " accepted", success && doubles.isEmpty());
+        }
+
+        LongArrayList objectUnderTest = new LongArrayList();
+        objectUnderTest.add(new long[] {
+                1, 2, 3
+        }, 3, 0);
+        assertTrue("empty range at the end rejected", objectUnderTest.isEmpty());
+
+    }
+
+}
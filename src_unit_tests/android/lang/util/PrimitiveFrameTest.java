@@ -0,0 +1,159 @@
+package android.lang.util;
+
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+import android.util.Log;
+
+public class PrimitiveFrameTest extends TestCase {
+
+    private static final String LOG_TAG = "PRIMITIVEFRAMETEST";
+
+    private long[] generateLongArray() {
+        long[] result = new long[PrimitiveUtilTest.SIZE];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = i * 0x0001000100010001L;
+        }
+        return result;
+    }
+
+    public void testEncodeLong() {
+
+        long[] source = generateLongArray();
+
+        long start = System.currentTimeMillis();
+        byte[] frame = PrimitiveFrame.encode(source);
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "PrimitiveFrame encoded " + frame.length + " bytes in " + elapsed
+                + " ms.");
+
+        assertTrue("frame length incorrect",
+                frame.length == PrimitiveFrame.HEADER_SIZE + source.length * 8);
+
+        // the payload must be identical to PrimitiveUtil's encoding
+        byte[] control = PrimitiveUtil.toBytes(source);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("payload byte " + i + " incorrect",
+                    control[i] == frame[PrimitiveFrame.HEADER_SIZE + i]);
+        }
+
+        // the checksum must match a separate pass over the frame
+        CRC32 crc = new CRC32();
+        crc.update(frame, 0, 16);
+        crc.update(control);
+        assertTrue("checksum incorrect", (int) crc.getValue() == PrimitiveUtil.toInt(frame, 16));
+
+        PrimitiveFrame objectUnderTest = PrimitiveFrame.wrap(frame);
+        assertTrue("type incorrect", objectUnderTest.getType() == long[].class);
+        assertTrue("count incorrect", objectUnderTest.getCount() == source.length);
+        assertTrue("frame did not verify", objectUnderTest.verify());
+
+        long[] decoded = (long[]) objectUnderTest.asType(long[].class);
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("decoded value " + i + " incorrect", decoded[i] == source[i]);
+        }
+
+    }
+
+    public void testEncodeOtherTypes() {
+
+        assertTrue("int frame did not verify",
+                PrimitiveFrame.wrap(PrimitiveFrame.encode(new int[] {
+                        1, 2, 3
+                })).verify());
+
+        double[] doubles = (double[]) PrimitiveFrame.wrap(PrimitiveFrame.encode(new double[] {
+                0.25d
+        })).asType(double[].class);
+        assertTrue("double value incorrect", doubles[0] == 0.25d);
+
+        boolean[] booleans = (boolean[]) PrimitiveFrame.wrap(
+                PrimitiveFrame.encode(new boolean[] {
+                        true, false, true
+                })).asType(boolean[].class);
+        assertTrue("boolean values incorrect", booleans.length == 3 && booleans[0]
+                && !booleans[1] && booleans[2]);
+
+        PrimitiveFrame byteFrame = PrimitiveFrame.wrap(PrimitiveFrame.encode(new byte[] {
+                9, 8
+        }));
+        assertTrue("byte frame type incorrect", byteFrame.getType() == byte[].class);
+        assertTrue("byte payload incorrect", byteFrame.getPayload()[1] == 8);
+
+    }
+
+    public void testCorruption() {
+
+        byte[] frame = PrimitiveFrame.encode(generateLongArray());
+        frame[frame.length - 1] ^= 1;
+
+        // the header is still fine, so wrap succeeds
+        PrimitiveFrame objectUnderTest = PrimitiveFrame.wrap(frame);
+        assertTrue("corrupt frame verified", !objectUnderTest.verify());
+
+        boolean success = false;
+        try {
+            objectUnderTest.asType(long[].class);
+        } catch (IllegalStateException ex) {
+            success = true;
+        }
+        assertTrue("corrupt payload was decoded", success);
+
+    }
+
+    public void testBadHeader() {
+
+        boolean success = false;
+        try {
+            PrimitiveFrame.wrap(new byte[PrimitiveFrame.HEADER_SIZE]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("frame without magic number accepted", success);
+
+        byte[] frame = PrimitiveFrame.encode(new int[] {
+                1, 2
+        });
+        byte[] truncated = new byte[frame.length - 1];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+
+        success = false;
+        try {
+            PrimitiveFrame.wrap(truncated);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("truncated frame accepted", success);
+
+    }
+
+    public void testEmptyArrays() {
+
+        long[] longs = (long[]) PrimitiveFrame.wrap(PrimitiveFrame.encode(new long[0])).asType(
+                long[].class);
+        assertTrue("empty long frame not decoded", longs.length == 0);
+
+        boolean[] booleans = (boolean[]) PrimitiveFrame.wrap(
+                PrimitiveFrame.encode(new boolean[0])).asType(boolean[].class);
+        assertTrue("empty boolean frame not decoded", booleans.length == 0);
+
+    }
+
+    public void testCountMismatch() {
+
+        byte[] frame = PrimitiveFrame.encode(new long[] {
+                1, 2
+        });
+        PrimitiveUtil.toBytes(3, frame, 8);
+
+        boolean success = false;
+        try {
+            PrimitiveFrame.wrap(frame);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("frame with a count that does not match its payload accepted", success);
+
+    }
+
+}
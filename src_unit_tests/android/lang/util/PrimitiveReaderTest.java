@@ -0,0 +1,75 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+
+public class PrimitiveReaderTest extends TestCase {
+
+    public void testReadValues() {
+
+        PrimitiveWriter writer = new PrimitiveWriter();
+        writer.append((byte) -3).append(true).append((short) -300).append('q').append(-70000)
+                .append(Long.MIN_VALUE).append(1.5f).append(Math.E);
+
+        PrimitiveReader objectUnderTest = new PrimitiveReader(writer.toByteArray());
+
+        assertTrue("byte incorrect", objectUnderTest.readByte() == -3);
+        assertTrue("boolean incorrect", objectUnderTest.readBoolean());
+        assertTrue("short incorrect", objectUnderTest.readShort() == -300);
+        assertTrue("char incorrect", objectUnderTest.readChar() == 'q');
+        assertTrue("int incorrect", objectUnderTest.readInt() == -70000);
+        assertTrue("long incorrect", objectUnderTest.readLong() == Long.MIN_VALUE);
+        assertTrue("float incorrect", objectUnderTest.readFloat() == 1.5f);
+        assertTrue("double incorrect", objectUnderTest.readDouble() == Math.E);
+        assertTrue("bytes remaining", objectUnderTest.remaining() == 0);
+
+        boolean success = false;
+        try {
+            objectUnderTest.readByte();
+        } catch (IllegalStateException ex) {
+            success = true;
+        }
+        assertTrue("read past the end allowed", success);
+
+    }
+
+    /*
+     * Both sides of the bulk threshold, at an odd offset into the buffer.
+     */
+    public void testReadArrays() {
+
+        for (int length : new int[] {
+                3, PrimitiveUtil.BULK_THRESHOLD + 5
+        }) {
+            long[] longs = new long[length];
+            double[] doubles = new double[length];
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                longs[i] = 0x0102030405060708L * i;
+                doubles[i] = i / 3d;
+                chars[i] = (char) (i * 257);
+            }
+
+            PrimitiveWriter writer = new PrimitiveWriter();
+            writer.append((byte) 1).append(longs, 0, length).append(doubles, 0, length)
+                    .append(chars, 0, length);
+
+            byte[] bytes = writer.toByteArray();
+            PrimitiveReader objectUnderTest = new PrimitiveReader(bytes, 1, bytes.length - 1);
+
+            long[] longResult = new long[length + 2];
+            double[] doubleResult = new double[length];
+            char[] charResult = new char[length];
+            objectUnderTest.read(longResult, 2, length).read(doubleResult, 0, length)
+                    .read(charResult, 0, length);
+
+            for (int i = 0; i < length; i++) {
+                assertTrue("long " + i + " incorrect", longResult[i + 2] == longs[i]);
+                assertTrue("double " + i + " incorrect", doubleResult[i] == doubles[i]);
+                assertTrue("char " + i + " incorrect", charResult[i] == chars[i]);
+            }
+            assertTrue("position incorrect", objectUnderTest.position() == bytes.length);
+        }
+
+    }
+
+}
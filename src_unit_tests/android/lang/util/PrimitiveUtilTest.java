@@ -4,6 +4,9 @@ package android.lang.util;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 
 import junit.framework.TestCase;
 import android.annotation.SuppressLint;
@@ -312,6 +315,97 @@ public class PrimitiveUtilTest extends TestCase {
 
     }
 
+    public void testAsListLong() {
+
+        long[] source = testClass.longArray.clone();
+        List<Long> result = PrimitiveUtil.asList(source);
+
+        assertTrue("list size incorrect.  Expected " + source.length + ", found "
+                + result.size(), result.size() == source.length);
+
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("index " + i + " of result does not match.  Expected "
+                    + source[i] + ", found " + result.get(i),
+                    source[i] == result.get(i));
+        }
+
+        result.set(3, Long.valueOf(Long.MAX_VALUE));
+        assertTrue("set did not write through to the array", source[3] == Long.MAX_VALUE);
+
+        result.set(4, null);
+        assertTrue("null was not stored as 0", source[4] == 0);
+
+        boolean success = false;
+        try {
+            result.add(Long.valueOf(0));
+        } catch (UnsupportedOperationException ex) {
+            success = true;
+        }
+        assertTrue("list view allowed an element to be added", success);
+
+    }
+
+    public void testAsListBoolean() {
+
+        boolean[] source = testClass.booleanArray.clone();
+        List<Boolean> result = PrimitiveUtil.asList(source);
+
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("index " + i + " of result does not match.  Expected "
+                    + source[i] + ", found " + result.get(i),
+                    source[i] == result.get(i));
+        }
+
+        result.set(0, Boolean.valueOf(!source[0]));
+        assertTrue("set did not write through to the array",
+                source[0] != testClass.booleanArray[0]);
+
+    }
+
+    public void testUnboxCollection() {
+
+        long start = System.currentTimeMillis();
+        long[] longResult = PrimitiveUtil.unboxLongs(testClass.longCollection);
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "testUnboxCollection ms: " + elapsed);
+
+        int[] intResult = PrimitiveUtil.unboxInts(new LinkedList<Integer>(
+                testClass.intCollection));
+        double[] doubleResult = PrimitiveUtil.unboxDoubles(testClass.doubleCollection);
+        boolean[] booleanResult = PrimitiveUtil.unboxBooleans(testClass.booleanCollection);
+        char[] charResult = PrimitiveUtil.unboxChars(testClass.charCollection);
+
+        for (int i = 0; i < TestClass.SIZE; i++) {
+            assertTrue("long index " + i + " does not match",
+                    longResult[i] == testClass.longCollection.get(i));
+            assertTrue("int index " + i + " does not match",
+                    intResult[i] == testClass.intCollection.get(i));
+            assertTrue("double index " + i + " does not match",
+                    doubleResult[i] == testClass.doubleCollection.get(i));
+            assertTrue("boolean index " + i + " does not match",
+                    booleanResult[i] == testClass.booleanCollection.get(i));
+            assertTrue("char index " + i + " does not match",
+                    charResult[i] == testClass.charCollection.get(i));
+        }
+
+        // values of another Number type are converted
+        long[] converted = PrimitiveUtil.unboxLongs(testClass.intCollection);
+        for (int i = 0; i < TestClass.SIZE; i++) {
+            assertTrue("converted index " + i + " does not match",
+                    converted[i] == testClass.intCollection.get(i));
+        }
+
+        // a list view is copied, not shared
+        long[] viewResult = PrimitiveUtil.unboxLongs(PrimitiveUtil.asList(testClass.longArray));
+        assertTrue("unboxing a list view returned the backing array",
+                viewResult != testClass.longArray);
+
+        List<Short> withNull = new ArrayList<Short>();
+        withNull.add(null);
+        assertTrue("null was not unboxed as 0", PrimitiveUtil.unboxShorts(withNull)[0] == 0);
+
+    }
+
     public void testThrowIfBadArray() {
         boolean success = false;
         try {
@@ -352,6 +446,97 @@ public class PrimitiveUtilTest extends TestCase {
                 success);
     }
 
+    /*
+     * Arrays on either side of PrimitiveUtil.BULK_THRESHOLD take different
+     * code paths. Both must produce the same bytes as encoding one value at
+     * a time.
+     */
+    public void testBulkPathMatchesScalarPath() {
+
+        int threshold = PrimitiveUtil.BULK_THRESHOLD;
+        for (int size = threshold - 1; size <= threshold + 1; size++) {
+
+            long[] longs = new long[size];
+            int[] ints = new int[size];
+            short[] shorts = new short[size];
+            char[] chars = new char[size];
+            float[] floats = new float[size];
+            for (int i = 0; i < size; i++) {
+                longs[i] = 0x8070605040302010L + i;
+                ints[i] = 0x80706050 + i;
+                shorts[i] = (short) (0x8070 + i);
+                chars[i] = (char) (0x8070 + i);
+                floats[i] = i % 2 == 0 ? Float.NaN : -i;
+            }
+
+            byte[] control = new byte[size * 8];
+            for (int i = 0; i < size; i++) {
+                PrimitiveUtil.toBytes(longs[i], control, i * 8);
+            }
+            assertEqualArrays(control, PrimitiveUtil.toBytes(longs));
+
+            control = new byte[size * 4];
+            for (int i = 0; i < size; i++) {
+                PrimitiveUtil.toBytes(ints[i], control, i * 4);
+            }
+            assertEqualArrays(control, PrimitiveUtil.toBytes(ints));
+
+            control = new byte[size * 2];
+            for (int i = 0; i < size; i++) {
+                PrimitiveUtil.toBytes(shorts[i], control, i * 2);
+            }
+            assertEqualArrays(control, PrimitiveUtil.toBytes(shorts));
+            assertEqualArrays(control, PrimitiveUtil.toBytes(chars));
+
+            long[] longResult = PrimitiveUtil.toLongArray(PrimitiveUtil.toBytes(longs));
+            int[] intResult = PrimitiveUtil.toIntArray(PrimitiveUtil.toBytes(ints));
+            short[] shortResult = PrimitiveUtil.toShortArray(PrimitiveUtil.toBytes(shorts));
+            char[] charResult = PrimitiveUtil.toCharArray(PrimitiveUtil.toBytes(chars));
+            float[] floatResult = PrimitiveUtil.toFloatArray(PrimitiveUtil.toBytes(floats));
+            for (int i = 0; i < size; i++) {
+                assertTrue("long " + i + " incorrect for size " + size,
+                        longResult[i] == longs[i]);
+                assertTrue("int " + i + " incorrect for size " + size,
+                        intResult[i] == ints[i]);
+                assertTrue("short " + i + " incorrect for size " + size,
+                        shortResult[i] == shorts[i]);
+                assertTrue("char " + i + " incorrect for size " + size,
+                        charResult[i] == chars[i]);
+                assertTrue("float " + i + " incorrect for size " + size,
+                        Float.floatToIntBits(floatResult[i]) == Float.floatToIntBits(floats[i]));
+            }
+        }
+
+    }
+
+    /*
+     * Compare decoding one value at a time with the bulk decoder.
+     */
+    public void testBulkDecodeTiming() {
+
+        byte[] source = PrimitiveUtil.toBytes(generateLongArray());
+
+        long start = System.currentTimeMillis();
+        long[] scalar = new long[source.length / 8];
+        for (int i = 0; i < scalar.length; i++) {
+            scalar[i] = PrimitiveUtil.toLong(source, i * 8);
+        }
+        long scalarElapsed = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        long[] bulk = PrimitiveUtil.toLongArray(source);
+        long bulkElapsed = System.currentTimeMillis() - start;
+
+        Log.d(LOG_TAG, String.format(
+                "decoded %d longs in %d ms one at a time and in %d ms in bulk.",
+                bulk.length, scalarElapsed, bulkElapsed));
+
+        for (int i = 0; i < bulk.length; i++) {
+            assertTrue("value " + i + " incorrect", bulk[i] == scalar[i]);
+        }
+
+    }
+
     private void assertEqualArrays(byte[] control, byte[] underTest) {
         for (int i = 0; i < control.length; i++) {
             assertTrue(String.format("bad byte generation at position %d. Found %d, expecting %d",
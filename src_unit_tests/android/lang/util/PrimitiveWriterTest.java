@@ -0,0 +1,111 @@
+package android.lang.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import android.util.Log;
+
+public class PrimitiveWriterTest extends TestCase {
+
+    private static final String LOG_TAG = "PRIMITIVEWRITERTEST";
+
+    private void assertEqualArrays(byte[] control, byte[] underTest) {
+        assertTrue("byte count incorrect.  Expected " + control.length + ", found "
+                + underTest.length, control.length == underTest.length);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("byte " + i + " incorrect", control[i] == underTest[i]);
+        }
+    }
+
+    public void testAppendLong() {
+
+        long[] source = new long[PrimitiveUtilTest.SIZE];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = 0x0101010101010101L * i;
+        }
+
+        // start with no capacity at all so that the buffer grows many times
+        PrimitiveWriter objectUnderTest = new PrimitiveWriter(0);
+
+        long start = System.currentTimeMillis();
+        for (long value : source) {
+            objectUnderTest.append(value);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "PrimitiveWriter appended " + objectUnderTest.size() + " bytes in "
+                + elapsed + " ms.");
+
+        assertEqualArrays(PrimitiveUtil.toBytes(source), objectUnderTest.toByteArray());
+
+        long[] decoded = (long[]) objectUnderTest.toMemoryMappedPrimitive().asType(long[].class);
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("decoded value " + i + " incorrect", decoded[i] == source[i]);
+        }
+
+    }
+
+    public void testAppendSlices() {
+
+        int[] ints = {
+                1, 2, 3, 4, 5
+        };
+        double[] doubles = {
+                1.5d, -2.5d
+        };
+
+        PrimitiveWriter objectUnderTest = new PrimitiveWriter(4);
+        objectUnderTest.append(ints, 1, 3).append(doubles, 0, 2).append((short) 7)
+                .append('x').append(true);
+
+        byte[] control = new byte[3 * 4 + 2 * 8 + 2 + 2 + 1];
+        PrimitiveUtil.toBytes(2, control, 0);
+        PrimitiveUtil.toBytes(3, control, 4);
+        PrimitiveUtil.toBytes(4, control, 8);
+        PrimitiveUtil.toBytes(1.5d, control, 12);
+        PrimitiveUtil.toBytes(-2.5d, control, 20);
+        PrimitiveUtil.toBytes((short) 7, control, 28);
+        PrimitiveUtil.toBytes('x', control, 30);
+        PrimitiveUtil.toBytes(true, control, 32);
+
+        assertEqualArrays(control, objectUnderTest.toByteArray());
+
+        boolean success = false;
+        try {
+            objectUnderTest.append(ints, 3, 3);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("append accepted a range past the end of the array", success);
+
+    }
+
+    public void testPutIntAndReset() throws IOException {
+
+        PrimitiveWriter objectUnderTest = new PrimitiveWriter();
+        objectUnderTest.append(0);
+        objectUnderTest.append(99L);
+        objectUnderTest.putInt(0, 8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        objectUnderTest.writeTo(out);
+        byte[] written = out.toByteArray();
+
+        assertTrue("putInt did not overwrite the placeholder",
+                PrimitiveUtil.toInt(written, 0) == 8);
+        assertTrue("value after placeholder changed", PrimitiveUtil.toLong(written, 4) == 99L);
+
+        objectUnderTest.reset();
+        assertTrue("reset did not clear the writer", objectUnderTest.size() == 0);
+
+        boolean success = false;
+        try {
+            objectUnderTest.putInt(0, 1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("putInt accepted a position that has not been written", success);
+
+    }
+
+}
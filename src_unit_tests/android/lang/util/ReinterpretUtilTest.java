@@ -0,0 +1,163 @@
+package android.lang.util;
+
+import java.lang.reflect.Array;
+
+import junit.framework.TestCase;
+
+public class ReinterpretUtilTest extends TestCase {
+
+    private static final Class<?>[] TYPES = new Class<?>[] {
+            byte[].class, short[].class, char[].class, int[].class, long[].class, float[].class,
+            double[].class
+    };
+
+    /*
+     * 24 bytes converts evenly into every primitive type.
+     */
+    private static byte[] createBytes() {
+        byte[] result = new byte[24];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) (i * 37 + 0x80);
+        }
+        return result;
+    }
+
+    private static byte[] toBytes(Object array) {
+        if (array instanceof byte[]) {
+            return (byte[]) array;
+        } else if (array instanceof short[]) {
+            return PrimitiveUtil.toBytes((short[]) array);
+        } else if (array instanceof char[]) {
+            return PrimitiveUtil.toBytes((char[]) array);
+        } else if (array instanceof int[]) {
+            return PrimitiveUtil.toBytes((int[]) array);
+        } else if (array instanceof long[]) {
+            return PrimitiveUtil.toBytes((long[]) array);
+        } else if (array instanceof float[]) {
+            return PrimitiveUtil.toBytes((float[]) array);
+        }
+        return PrimitiveUtil.toBytes((double[]) array);
+    }
+
+    public void testMatchesMemoryMappedPrimitive() {
+
+        byte[] bytes = createBytes();
+
+        for (Class<?> sourceType : TYPES) {
+            Object source = new MemoryMappedPrimitive(bytes).asType(sourceType);
+
+            for (Class<?> targetType : TYPES) {
+                Object control = new MemoryMappedPrimitive(toBytes(source)).asType(targetType);
+                Object underTest = ReinterpretUtil.reinterpret(source, targetType);
+
+                String pair = sourceType.getSimpleName() + " to " + targetType.getSimpleName();
+                assertTrue(pair + " returned the wrong type",
+                        underTest.getClass() == targetType);
+                assertTrue(pair + " length incorrect",
+                        Array.getLength(control) == Array.getLength(underTest));
+
+                byte[] controlBytes = toBytes(control);
+                byte[] underTestBytes = toBytes(underTest);
+                for (int i = 0; i < controlBytes.length; i++) {
+                    assertTrue(pair + " byte " + i + " incorrect",
+                            controlBytes[i] == underTestBytes[i]);
+                }
+            }
+        }
+
+    }
+
+    public void testTypedMethods() {
+
+        long[] longs = new long[] {
+                0x0102030405060708L, -1L
+        };
+
+        short[] shorts = ReinterpretUtil.toShortArray(longs);
+        assertTrue("short length incorrect", shorts.length == 8);
+        assertTrue("short 0 incorrect", shorts[0] == 0x0102);
+        assertTrue("short 3 incorrect", shorts[3] == 0x0708);
+        assertTrue("short 7 incorrect", shorts[7] == -1);
+
+        long[] roundTrip = ReinterpretUtil.toLongArray(shorts);
+        assertTrue("long 0 incorrect", roundTrip[0] == longs[0]);
+        assertTrue("long 1 incorrect", roundTrip[1] == longs[1]);
+
+        double[] doubles = new double[] {
+                Math.PI, -0.0d, Double.NaN
+        };
+        double[] doubleResult = ReinterpretUtil.toDoubleArray(ReinterpretUtil
+                .toIntArray(doubles));
+        assertTrue("pi incorrect", doubleResult[0] == Math.PI);
+        assertTrue("-0.0 incorrect", Double.doubleToRawLongBits(doubleResult[1]) == Double
+                .doubleToRawLongBits(-0.0d));
+        assertTrue("NaN incorrect", Double.isNaN(doubleResult[2]));
+
+        assertTrue("empty array not converted",
+                ReinterpretUtil.toLongArray(new char[0]).length == 0);
+
+    }
+
+    public void testBadArguments() {
+
+        boolean success = false;
+        try {
+            ReinterpretUtil.toIntArray(new short[3]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("uneven length accepted", success);
+
+        success = false;
+        try {
+            ReinterpretUtil.toLongArray((int[]) null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("null array accepted", success);
+
+        success = false;
+        try {
+            ReinterpretUtil.reinterpret(new int[2], boolean[].class);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("boolean[] target accepted", success);
+
+        success = false;
+        try {
+            ReinterpretUtil.reinterpret(new Object[2], long[].class);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("Object[] source accepted", success);
+
+    }
+
+    public void testCanonicalNaN() {
+
+        float[] floats = new float[] {
+                Float.intBitsToFloat(0x7fc00001), 1f
+        };
+        float[] floatCopy = (float[]) ReinterpretUtil.reinterpret(floats, float[].class);
+        float[] floatControl = (float[]) new MemoryMappedPrimitive(floats).asType(float[].class);
+        for (int i = 0; i < floats.length; i++) {
+            assertTrue("float " + i + " incorrect", Float.floatToRawIntBits(floatCopy[i])
+                    == Float.floatToRawIntBits(floatControl[i]));
+        }
+        assertTrue("float NaN not canonical", Float.floatToRawIntBits(floatCopy[0]) == 0x7fc00000);
+
+        double[] doubles = new double[] {
+                Double.longBitsToDouble(0x7ff8000000000001L), 1d
+        };
+        double[] doubleCopy = (double[]) ReinterpretUtil.reinterpret(doubles, double[].class);
+        double[] doubleControl = (double[]) new MemoryMappedPrimitive(doubles)
+                .asType(double[].class);
+        for (int i = 0; i < doubles.length; i++) {
+            assertTrue("double " + i + " incorrect", Double.doubleToRawLongBits(doubleCopy[i])
+                    == Double.doubleToRawLongBits(doubleControl[i]));
+        }
+
+    }
+
+}
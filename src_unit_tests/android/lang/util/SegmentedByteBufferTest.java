@@ -0,0 +1,272 @@
+package android.lang.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import junit.framework.TestCase;
+
+public class SegmentedByteBufferTest extends TestCase {
+
+    /*
+     * 16 byte segments, so that most of these tests cross segment boundaries.
+     */
+    private static final int SMALL_SHIFT = 4;
+
+    public void testCapacityAndSegments() {
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(100, SMALL_SHIFT);
+
+        assertTrue("capacity incorrect. Expected 100, found " + objectUnderTest.capacity(),
+                objectUnderTest.capacity() == 100);
+        assertTrue("segment count incorrect. Expected 7, found "
+                + objectUnderTest.segmentCount(), objectUnderTest.segmentCount() == 7);
+
+    }
+
+    public void testBadGeometry() {
+
+        boolean success = false;
+        try {
+            new SegmentedByteBuffer(-1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("negative capacity accepted", success);
+
+        success = false;
+        try {
+            new SegmentedByteBuffer(16, 2);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("segment shift of 2 accepted", success);
+
+    }
+
+    public void testBounds() {
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(20, SMALL_SHIFT);
+
+        boolean success = false;
+        try {
+            objectUnderTest.getLong(13);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("read past the end of the buffer was allowed", success);
+
+        success = false;
+        try {
+            objectUnderTest.put(-1, (byte) 0);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("negative position was allowed", success);
+
+    }
+
+    /*
+     * A range outside of the caller's array is rejected before anything is
+     * written to the buffer.
+     */
+    public void testBadArrayRange() {
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(64, SMALL_SHIFT);
+
+        boolean success = false;
+        try {
+            objectUnderTest.put(0, new long[] {
+                    1L, 2L
+            }, 1, 2);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("range past the end of the array was allowed", success);
+        assertTrue("partial write before the range check", objectUnderTest.getLong(0) == 0L);
+
+        success = false;
+        try {
+            objectUnderTest.put(0, new byte[] {
+                    1, 2
+            }, 1, 2);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("byte range past the end of the array was allowed", success);
+        assertTrue("partial byte write before the range check", objectUnderTest.get(0) == 0);
+
+        success = false;
+        try {
+            objectUnderTest.get(0, new int[4], 0, -1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("negative length was allowed", success);
+
+        success = false;
+        try {
+            objectUnderTest.toBytes(0, -1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("negative toBytes length was allowed", success);
+
+        success = false;
+        try {
+            objectUnderTest.get(0, (double[]) null, 0, 1);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("null array was allowed", success);
+
+    }
+
+    /*
+     * Write a value at every byte position so that values straddle segment
+     * boundaries, and compare the bytes with PrimitiveUtil's format.
+     */
+    public void testLongMatchesPrimitiveUtil() {
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(64, SMALL_SHIFT);
+
+        for (int pos = 0; pos <= 56; pos++) {
+            long value = 0x0102030405060708L * (pos + 1);
+            objectUnderTest.putLong(pos, value);
+
+            assertTrue("value at " + pos + " incorrect",
+                    objectUnderTest.getLong(pos) == value);
+
+            byte[] control = new byte[8];
+            PrimitiveUtil.toBytes(value, control, 0);
+            byte[] underTest = objectUnderTest.toBytes(pos, 8);
+            for (int i = 0; i < 8; i++) {
+                assertTrue("byte " + i + " at position " + pos + " incorrect",
+                        control[i] == underTest[i]);
+            }
+        }
+
+    }
+
+    public void testTypedValues() {
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(64, SMALL_SHIFT);
+
+        for (int pos = 0; pos <= 56; pos++) {
+            objectUnderTest.putShort(pos, (short) -pos);
+            assertTrue(objectUnderTest.getShort(pos) == (short) -pos);
+
+            objectUnderTest.putChar(pos, (char) (0xFF00 + pos));
+            assertTrue(objectUnderTest.getChar(pos) == (char) (0xFF00 + pos));
+
+            objectUnderTest.putInt(pos, -pos * 1000003);
+            assertTrue(objectUnderTest.getInt(pos) == -pos * 1000003);
+
+            objectUnderTest.putFloat(pos, pos / 3f);
+            assertTrue(objectUnderTest.getFloat(pos) == pos / 3f);
+
+            objectUnderTest.putDouble(pos, pos / 7d);
+            assertTrue(objectUnderTest.getDouble(pos) == pos / 7d);
+
+            objectUnderTest.putBoolean(pos, pos % 2 == 0);
+            assertTrue(objectUnderTest.getBoolean(pos) == (pos % 2 == 0));
+        }
+
+    }
+
+    public void testBitsMatchPrimitiveUtil() {
+
+        boolean[] source = new boolean[100];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i % 3 == 0;
+        }
+
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(13, SMALL_SHIFT);
+        for (int i = 0; i < source.length; i++) {
+            objectUnderTest.putBit(i, source[i]);
+        }
+
+        byte[] control = PrimitiveUtil.toBytes(source);
+        byte[] underTest = objectUnderTest.toBytes(0, 13);
+
+        // skip the two byte length header written by PrimitiveUtil
+        for (int i = 0; i < underTest.length; i++) {
+            assertTrue("bit field byte " + i + " incorrect", control[i + 2] == underTest[i]);
+        }
+
+        for (int i = 0; i < source.length; i++) {
+            assertTrue("bit " + i + " incorrect", objectUnderTest.getBit(i) == source[i]);
+        }
+
+    }
+
+    public void testBulkArrays() {
+
+        long[] longs = new long[33];
+        int[] ints = new int[33];
+        double[] doubles = new double[33];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = (long) i << 40 | i;
+            ints[i] = i * 31;
+            doubles[i] = i * 1.5d;
+        }
+
+        // offset by three bytes so that every segment boundary is crossed
+        SegmentedByteBuffer objectUnderTest = new SegmentedByteBuffer(3 + 33 * 8, SMALL_SHIFT);
+
+        objectUnderTest.put(3, longs, 0, longs.length);
+        long[] longResult = new long[longs.length];
+        objectUnderTest.get(3, longResult, 0, longResult.length);
+
+        objectUnderTest.put(3, ints, 0, ints.length);
+        int[] intResult = new int[ints.length];
+        objectUnderTest.get(3, intResult, 0, intResult.length);
+
+        objectUnderTest.put(3, doubles, 0, doubles.length);
+        double[] doubleResult = new double[doubles.length];
+        objectUnderTest.get(3, doubleResult, 0, doubleResult.length);
+
+        for (int i = 0; i < longs.length; i++) {
+            assertTrue("long " + i + " incorrect", longs[i] == longResult[i]);
+            assertTrue("int " + i + " incorrect", ints[i] == intResult[i]);
+            assertTrue("double " + i + " incorrect", doubles[i] == doubleResult[i]);
+        }
+
+        byte[] control = PrimitiveUtil.toBytes(doubles);
+        byte[] underTest = objectUnderTest.toBytes(3, control.length);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("byte " + i + " incorrect", control[i] == underTest[i]);
+        }
+
+    }
+
+    public void testMap() throws IOException {
+
+        File file = File.createTempFile("segmented", ".bin");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            SegmentedByteBuffer objectUnderTest = SegmentedByteBuffer.map(channel,
+                    MapMode.READ_WRITE, 0, 40, SMALL_SHIFT);
+
+            assertTrue("segment count incorrect", objectUnderTest.segmentCount() == 3);
+
+            objectUnderTest.putLong(12, 0x1122334455667788L);
+            objectUnderTest.force();
+
+            byte[] fileBytes = new byte[8];
+            raf.seek(12);
+            raf.readFully(fileBytes);
+
+            assertTrue("mapped value not written to file",
+                    PrimitiveUtil.toLong(fileBytes, 0) == 0x1122334455667788L);
+        } finally {
+            raf.close();
+            file.delete();
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package android.lang.util;
+
+import junit.framework.TestCase;
+
+public class StripedCounterTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+    private static final int INCREMENTS = 20000;
+
+    public void testStripes() {
+
+        assertTrue(new StripedCounter(1).stripeCount() == 1);
+        assertTrue(new StripedCounter(3).stripeCount() == 4);
+        assertTrue(new StripedCounter(8).stripeCount() == 8);
+
+        boolean success = false;
+        try {
+            new StripedCounter(0);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("zero stripes accepted", success);
+
+    }
+
+    public void testConcurrentIncrements() throws InterruptedException {
+
+        final StripedCounter objectUnderTest = new StripedCounter(4);
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < INCREMENTS; i++) {
+                        objectUnderTest.increment();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("increments lost. Expected " + THREADS * INCREMENTS + ", found "
+                + objectUnderTest.sum(), objectUnderTest.sum() == THREADS * INCREMENTS);
+
+        objectUnderTest.reset();
+        assertTrue("counter not reset", objectUnderTest.sum() == 0);
+
+    }
+
+    public void testSnapshot() {
+
+        StripedCounter objectUnderTest = new StripedCounter(2);
+        objectUnderTest.add(41);
+        objectUnderTest.increment();
+
+        byte[] snapshot = (byte[]) objectUnderTest.asType(byte[].class);
+        assertTrue("snapshot length incorrect", snapshot.length == 2 * 64);
+
+        StripedCounter restored = new StripedCounter(snapshot);
+        assertTrue("restored stripe count incorrect", restored.stripeCount() == 2);
+        assertTrue("restored sum incorrect", restored.sum() == 42);
+
+        boolean success = false;
+        try {
+            new StripedCounter(new byte[100]);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("bad snapshot accepted", success);
+
+    }
+
+    public void testHistogram() throws InterruptedException {
+
+        final StripedHistogram objectUnderTest = new StripedHistogram(new long[] {
+                1, 10, 100
+        }, 4);
+
+        assertTrue(objectUnderTest.bucketCount() == 4);
+        assertTrue(objectUnderTest.bucket(1) == 0);
+        assertTrue(objectUnderTest.bucket(2) == 1);
+        assertTrue(objectUnderTest.bucket(100) == 2);
+        assertTrue(objectUnderTest.bucket(101) == 3);
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < INCREMENTS; i++) {
+                        objectUnderTest.record(i % 200);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] counts = objectUnderTest.counts();
+        long perThread = INCREMENTS / 200;
+        assertTrue(counts[0] == THREADS * perThread * 2);
+        assertTrue(counts[1] == THREADS * perThread * 9);
+        assertTrue(counts[2] == THREADS * perThread * 90);
+        assertTrue(counts[3] == THREADS * perThread * 99);
+        assertTrue(objectUnderTest.count() == THREADS * INCREMENTS);
+
+        StripedHistogram restored = new StripedHistogram(new long[] {
+                1, 10, 100
+        }, (byte[]) objectUnderTest.asType(byte[].class));
+        assertTrue("restored histogram incorrect", restored.counts()[3] == counts[3]);
+
+        boolean success = false;
+        try {
+            new StripedHistogram(new long[] {
+                    5, 5
+            });
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("unordered bounds accepted", success);
+
+    }
+
+}
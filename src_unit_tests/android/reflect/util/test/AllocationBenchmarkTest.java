@@ -0,0 +1,148 @@
+package android.reflect.util.test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import android.lang.util.AllocationCounter;
+import android.reflect.util.ColumnBatch;
+import android.reflect.util.FieldReflectionUtil;
+import android.reflect.util.FieldSnapshot;
+import android.reflect.util.FieldValues;
+import android.reflect.util.StructCursor;
+import android.reflect.util.StructStore;
+import android.reflect.util.test.model.StructTestClass;
+import android.reflect.util.test.model.TestClass;
+import android.util.Log;
+
+/**
+ * Bytes allocated per operation by the reflection utilities. The map based
+ * methods are logged next to the column and snapshot classes that replace
+ * them; struct access must not allocate at all.
+ */
+public class AllocationBenchmarkTest extends TestCase {
+
+    private static final String LOG_TAG = "REFLECTALLOCATIONBENCHMARKTEST";
+
+    private final TestClass mObject = new TestClass();
+
+    private long mSink;
+
+    public void testFieldValues() throws Exception {
+
+        final Map<Field, Object> values = FieldReflectionUtil.getFieldValues(TestClass.class,
+                mObject);
+
+        AllocationCounter.measure(LOG_TAG, "FieldReflectionUtil.getFieldValues", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mSink += FieldReflectionUtil.getFieldValues(TestClass.class, mObject)
+                            .size();
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        AllocationCounter.measure(LOG_TAG,
+                "FieldReflectionUtil.removePrimitivesAndArrays", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += FieldReflectionUtil.removePrimitivesAndArrays(values).size();
+                    }
+                });
+
+        AllocationCounter.measure(LOG_TAG,
+                "FieldReflectionUtil.getNonPrimitiveFieldValues", new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            mSink += FieldReflectionUtil.getNonPrimitiveFieldValues(TestClass.class,
+                                    mObject).size();
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+
+        final List<StructTestClass> objects = new ArrayList<StructTestClass>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(new StructTestClass());
+        }
+        long perObject = AllocationCounter.measure(LOG_TAG,
+                "FieldReflectionUtil.getFieldValues of a struct",
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            mSink += FieldReflectionUtil.getFieldValues(StructTestClass.class,
+                                    objects.get(0)).size();
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+        long columns = AllocationCounter.measure(LOG_TAG,
+                "ColumnBatch.extract of 100 structs", new Runnable() {
+                    @Override
+                    public void run() {
+                        mSink += ColumnBatch.extract(StructTestClass.class, objects).size();
+                    }
+                });
+        Log.d(LOG_TAG, "ColumnBatch allocated " + columns / objects.size()
+                + " bytes per struct, getFieldValues " + perObject + ".");
+
+        final FieldValues structValues = FieldValues.capture(StructTestClass.class,
+                objects.get(0));
+        long refresh = AllocationCounter.measure(LOG_TAG,
+                "FieldValues.refresh of a struct", new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            structValues.refresh(objects.get(0));
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+        assertTrue("FieldValues.refresh allocated " + refresh + " bytes", refresh == 0);
+
+        AllocationCounter.measure(LOG_TAG, "FieldSnapshot.capture", new Runnable() {
+            @Override
+            public void run() {
+                mSink += FieldSnapshot.capture(mObject).size();
+            }
+        });
+
+    }
+
+    public void testStructAccess() {
+
+        final StructStore<StructTestClass> store = new StructStore<StructTestClass>(
+                StructTestClass.class, 64);
+        final int id = store.getLayout().indexOf("id");
+        final StructCursor cursor = store.cursor();
+
+        long access = AllocationCounter.measure(LOG_TAG,
+                "StructStore and StructCursor getLong/setLong", new Runnable() {
+                    @Override
+                    public void run() {
+                        for (long i = 0; i < store.capacity(); i++) {
+                            store.setLong(i, id, i);
+                            mSink += store.getLong(i, id);
+                        }
+
+                        cursor.reset();
+                        while (cursor.next()) {
+                            cursor.setLong(id, cursor.getLong(id) + 1);
+                        }
+                    }
+                });
+        assertTrue("struct access allocated " + access + " bytes", access == 0);
+
+    }
+
+}
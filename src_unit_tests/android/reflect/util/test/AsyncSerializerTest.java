@@ -0,0 +1,185 @@
+package android.reflect.util.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import android.lang.util.MemoryMappedPrimitive;
+import android.reflect.util.AsyncSerializer;
+import android.reflect.util.ObjectGraphSerializer;
+import android.reflect.util.test.model.CollectionItem;
+
+public class AsyncSerializerTest extends TestCase {
+
+    private AsyncSerializer objectUnderTest;
+
+    private ExecutorService executor;
+
+    public void setUp() {
+        objectUnderTest = new AsyncSerializer();
+    }
+
+    public void tearDown() {
+        objectUnderTest.shutdown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long[] newLongs(int length) {
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = 0x0101010101010101L * i;
+        }
+        return result;
+    }
+
+    private void assertEqualArrays(byte[] control, byte[] underTest) {
+        assertTrue("byte count incorrect.  Expected " + control.length + ", found "
+                + underTest.length, control.length == underTest.length);
+        for (int i = 0; i < control.length; i++) {
+            assertTrue("byte " + i + " incorrect", control[i] == underTest[i]);
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    public void testSerialize() throws Exception {
+
+        long[] longs = newLongs(1000);
+        boolean[] booleans = new boolean[] {
+                true, false, true
+        };
+        CollectionItem item = new CollectionItem();
+
+        Future<ByteBuffer> longBytes = objectUnderTest.serialize(longs);
+        Future<ByteBuffer> booleanBytes = objectUnderTest.serialize(booleans);
+        Future<ByteBuffer> itemBytes = objectUnderTest.serialize(item);
+
+        assertEqualArrays((byte[]) new MemoryMappedPrimitive(longs).asType(byte[].class),
+                toArray(longBytes.get()));
+        assertEqualArrays((byte[]) new MemoryMappedPrimitive(booleans).asType(byte[].class),
+                toArray(booleanBytes.get()));
+
+        CollectionItem copy = ObjectGraphSerializer.deserialize(toArray(itemBytes.get()),
+                CollectionItem.class);
+        assertTrue("object graph not serialized", copy.id == item.id);
+
+    }
+
+    /*
+     * A single thread and small chunks, so that most chunks are encoded by
+     * the writing thread itself.
+     */
+    public void testWriteInChunks() throws Exception {
+
+        objectUnderTest.shutdown();
+        executor = Executors.newSingleThreadExecutor();
+        objectUnderTest = new AsyncSerializer(executor, 4, 100);
+
+        long[] longs = newLongs(1001);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Future<Long> written = objectUnderTest.write(longs, Channels.newChannel(out));
+
+        assertTrue("byte count incorrect", written.get().longValue() == longs.length * 8);
+        assertEqualArrays((byte[]) new MemoryMappedPrimitive(longs).asType(byte[].class),
+                out.toByteArray());
+
+        out.reset();
+        objectUnderTest.write(new CollectionItem(), Channels.newChannel(out)).get();
+        assertTrue("object graph not written", out.size() > 0);
+
+    }
+
+    public void testWriteError() throws Exception {
+
+        WritableByteChannel closed = Channels.newChannel(new ByteArrayOutputStream());
+        closed.close();
+
+        boolean success = false;
+        try {
+            objectUnderTest.write(newLongs(10), closed).get();
+        } catch (ExecutionException ex) {
+            success = ex.getCause() instanceof IOException;
+        }
+        assertTrue("write to a closed channel did not fail with an IOException", success);
+        assertTrue("failed task still pending", objectUnderTest.getPendingCount() == 0);
+
+        success = false;
+        try {
+            objectUnderTest.write(newLongs(10), null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("write accepted a null channel", success);
+
+    }
+
+    public void testBackpressure() throws Exception {
+
+        objectUnderTest.shutdown();
+        executor = Executors.newCachedThreadPool();
+        objectUnderTest = new AsyncSerializer(executor, 1, 1024);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        WritableByteChannel blocked = new WritableByteChannel() {
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+                int result = src.remaining();
+                src.position(src.limit());
+                return result;
+            }
+        };
+
+        Future<Long> first = objectUnderTest.write(newLongs(10), blocked);
+        assertTrue("pending count incorrect", objectUnderTest.getPendingCount() == 1);
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                objectUnderTest.serialize(newLongs(10));
+                submitted.countDown();
+            }
+        };
+        producer.start();
+
+        assertTrue("second task accepted while the first was pending",
+                !submitted.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue("second task not accepted after the first finished",
+                submitted.await(5, TimeUnit.SECONDS));
+        assertTrue("first task wrote the wrong number of bytes", first.get().longValue() == 80);
+        producer.join();
+
+    }
+
+}
@@ -0,0 +1,177 @@
+package android.reflect.util.test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import android.lang.util.MemoryMappedPrimitive;
+import android.reflect.util.ColumnBatch;
+import android.reflect.util.ColumnTransposer;
+import android.reflect.util.test.model.StructTestClass;
+import android.reflect.util.test.model.TestClass;
+import android.util.Log;
+
+public class ColumnBatchTest extends TestCase {
+
+    private static final String LOG_TAG = "COLUMNBATCHTEST";
+
+    private static List<StructTestClass> createObjects(int count) {
+        List<StructTestClass> result = new ArrayList<StructTestClass>(count);
+        for (int i = 0; i < count; i++) {
+            StructTestClass object = new StructTestClass();
+            object.id = (long) i << 33;
+            object.i = -i;
+            object.d = i / 4d;
+            object.flag = i % 3 == 0;
+            object.c = (char) ('a' + i % 26);
+            result.add(object);
+        }
+        return result;
+    }
+
+    private void assertColumns(ColumnBatch batch, int count) {
+        assertTrue("size incorrect. Expected " + count + ", found " + batch.size(),
+                batch.size() == count);
+        assertTrue("field count incorrect. Expected 8, found " + batch.fieldCount(),
+                batch.fieldCount() == 8);
+        assertTrue("transient field extracted", batch.indexOf("ignored") < 0);
+        assertTrue("static field extracted", batch.indexOf("instances") < 0);
+
+        long[] ids = (long[]) batch.getColumn("id");
+        int[] ints = (int[]) batch.getColumn("i");
+        double[] doubles = (double[]) batch.getColumn("d");
+        boolean[] flags = (boolean[]) batch.getColumn("flag");
+        char[] chars = (char[]) batch.getColumn("c");
+        for (int i = 0; i < count; i++) {
+            assertTrue("id " + i + " incorrect", ids[i] == (long) i << 33);
+            assertTrue("int " + i + " incorrect", ints[i] == -i);
+            assertTrue("double " + i + " incorrect", doubles[i] == i / 4d);
+            assertTrue("flag " + i + " incorrect", flags[i] == (i % 3 == 0));
+            assertTrue("char " + i + " incorrect", chars[i] == (char) ('a' + i % 26));
+        }
+    }
+
+    public void testSmallList() {
+
+        List<StructTestClass> objects = new LinkedList<StructTestClass>(createObjects(100));
+        assertColumns(ColumnBatch.extract(StructTestClass.class, objects), 100);
+
+    }
+
+    public void testLargeList() {
+
+        List<StructTestClass> objects = createObjects(100000);
+
+        long start = System.currentTimeMillis();
+        ColumnBatch batch = ColumnBatch.extract(StructTestClass.class, objects);
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "ColumnBatch extracted " + batch.fieldCount() + " columns of "
+                + batch.size() + " objects in " + elapsed + " ms.");
+
+        assertColumns(batch, 100000);
+
+    }
+
+    public void testExecutor() {
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // more tasks than threads, and an uneven last range
+            ColumnBatch batch = ColumnBatch.extract(StructTestClass.class,
+                    createObjects(1001), executor, 7);
+            assertColumns(batch, 1001);
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+    public void testObjectColumns() {
+
+        List<TestClass> objects = new ArrayList<TestClass>();
+        objects.add(new TestClass());
+        objects.get(0).s = "value";
+
+        ColumnBatch batch = ColumnBatch.extract(TestClass.class, objects);
+        assertTrue("object column incorrect", "value".equals(((Object[]) batch.getColumn("s"))[0]));
+        assertTrue("array column incorrect",
+                ((Object[]) batch.getColumn("longArray"))[0] == objects.get(0).longArray);
+
+    }
+
+    public void testTransposer() {
+
+        List<StructTestClass> objects = createObjects(1000);
+
+        // start with no capacity at all so that the buffers grow many times
+        ColumnTransposer<StructTestClass> objectUnderTest = new ColumnTransposer<StructTestClass>(
+                StructTestClass.class, 0);
+        objectUnderTest.add(objects.get(0));
+        objectUnderTest.addAll(objects.subList(1, objects.size()).iterator());
+
+        assertColumns(objectUnderTest.toBatch(), 1000);
+
+        objectUnderTest.reset();
+        objectUnderTest.addAll(objects.subList(0, 10).iterator());
+        assertColumns(objectUnderTest.toBatch(), 10);
+
+    }
+
+    public void testToBytesAndObjects() {
+
+        List<StructTestClass> objects = createObjects(50);
+        ColumnBatch batch = ColumnBatch.extract(StructTestClass.class, objects);
+
+        byte[] bytes = batch.toBytes(batch.indexOf("id"));
+        assertTrue("encoded column length incorrect", bytes.length == 50 * 8);
+        long[] ids = (long[]) new MemoryMappedPrimitive(bytes).asType(long[].class);
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue("decoded id " + i + " incorrect", ids[i] == objects.get(i).id);
+        }
+
+        List<StructTestClass> copies = batch.toObjects(StructTestClass.class);
+        assertColumns(ColumnBatch.extract(StructTestClass.class, copies), 50);
+        assertTrue("object not copied", copies.get(7) != objects.get(7));
+
+        StructTestClass target = batch.get(9, new StructTestClass());
+        assertTrue("row not copied", target.id == objects.get(9).id
+                && target.d == objects.get(9).d);
+
+        boolean success = false;
+        try {
+            ColumnBatch empty = ColumnBatch.extract(TestClass.class, new ArrayList<TestClass>());
+            empty.toBytes(empty.indexOf("s"));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("object column encoded", success);
+
+    }
+
+    public void testBadInput() {
+
+        List<StructTestClass> objects = createObjects(10);
+        objects.set(4, null);
+
+        boolean success = false;
+        try {
+            ColumnBatch.extract(StructTestClass.class, objects);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("null object accepted", success);
+
+        success = false;
+        try {
+            ColumnBatch.extract(StructTestClass.class, createObjects(1)).getColumn("missing");
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("missing column returned", success);
+
+    }
+
+}
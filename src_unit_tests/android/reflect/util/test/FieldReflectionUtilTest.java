@@ -168,6 +168,65 @@ public class FieldReflectionUtilTest extends TestCase {
 
     }
 
+    /**
+     * Null values are kept by the filters.
+     */
+    public void testNullValues() {
+
+        Map<Field, Object> withNulls = new HashMap<Field, Object>();
+        for (Field f : fields) {
+            withNulls.put(f, null);
+        }
+
+        Map<Field, Object> result = FieldReflectionUtil.removePrimitivesAndArrays(withNulls);
+        assertTrue("expected " + nonPrimitives.size() + " null values, found " + result.size(),
+                result.size() == nonPrimitives.size());
+
+        result = FieldReflectionUtil.removeFieldTypes(withNulls,
+                ClassReflectionUtilTest.primitiveClassList);
+        assertTrue("removeFieldTypes dropped null values", result.containsValue(null));
+
+    }
+
+    /**
+     * Test {@link FieldReflectionUtil#getNonPrimitiveFields(Class)} and
+     * {@link FieldReflectionUtil#getNonPrimitiveFieldValues(Class, Object)}.
+     */
+    public void testGetNonPrimitiveFieldValues() throws IllegalAccessException {
+
+        boolean success = false;
+        try {
+            FieldReflectionUtil.getNonPrimitiveFields(null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("getNonPrimitiveFields accepted a null class", success);
+
+        List<Field> nonPrimitiveFields = FieldReflectionUtil
+                .getNonPrimitiveFields(TestClass.class);
+        List<Field> again = FieldReflectionUtil.getNonPrimitiveFields(TestClass.class);
+        assertTrue("getNonPrimitiveFields changed size", again.size() == nonPrimitiveFields.size());
+        for (int i = 0; i < again.size(); i++) {
+            assertTrue("getNonPrimitiveFields did not cache its fields",
+                    again.get(i) == nonPrimitiveFields.get(i));
+        }
+
+        TestClass object = new TestClass();
+        Map<Field, Object> control = FieldReflectionUtil.removePrimitivesAndArrays(
+                FieldReflectionUtil.getFieldValues(TestClass.class, object));
+        Map<Field, Object> result = FieldReflectionUtil.getNonPrimitiveFieldValues(
+                TestClass.class, object);
+
+        assertTrue("expected " + control.size() + " fields, found " + result.size(),
+                control.size() == result.size());
+        for (Field f : control.keySet()) {
+            assertTrue("field " + f.getName() + " missing", result.containsKey(f));
+            assertTrue("field " + f.getName() + " has the wrong value",
+                    result.get(f) == control.get(f));
+        }
+
+    }
+
     /**
      * Test {@link FieldReflectionUtil#toEnum(Field, String)}.
      */
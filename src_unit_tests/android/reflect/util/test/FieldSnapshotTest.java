@@ -0,0 +1,106 @@
+package android.reflect.util.test;
+
+import junit.framework.TestCase;
+import android.reflect.util.FieldSnapshot;
+import android.reflect.util.test.model.CollectionItem;
+import android.reflect.util.test.model.TestClass;
+
+public class FieldSnapshotTest extends TestCase {
+
+    private int indexOf(FieldSnapshot snapshot, String name) {
+        for (int i = 0; i < snapshot.fieldCount(); i++) {
+            if (snapshot.getField(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void testFields() {
+
+        FieldSnapshot objectUnderTest = FieldSnapshot.capture(new TestClass());
+
+        assertTrue("field count incorrect. Expected 16, found "
+                + objectUnderTest.fieldCount(), objectUnderTest.fieldCount() == 16);
+        assertTrue("object field included", indexOf(objectUnderTest, "s") < 0);
+        assertTrue("boxed array included", indexOf(objectUnderTest, "boxIntArray") < 0);
+        assertTrue("static field included", indexOf(objectUnderTest, "SIZE") < 0);
+        assertTrue("array field missing", indexOf(objectUnderTest, "longArray") >= 0);
+
+    }
+
+    public void testDiffAndApply() {
+
+        TestClass object = new TestClass();
+        FieldSnapshot saved = FieldSnapshot.capture(object);
+
+        object.l = 99L;
+        object.intArray[3] = -7;
+        object.booleanArray = null;
+        FieldSnapshot current = FieldSnapshot.capture(object);
+
+        assertTrue("unchanged field reported as changed",
+                current.isSame(saved, indexOf(current, "d")));
+        assertTrue("changed array reported as unchanged",
+                !current.isSame(saved, indexOf(current, "intArray")));
+
+        byte[] patch = current.diff(saved);
+        byte[] full = current.diff(null);
+        assertTrue("patch not smaller than a full patch. patch is " + patch.length
+                + " bytes, full patch is " + full.length, patch.length * 4 < full.length);
+
+        TestClass copy = new TestClass();
+        copy.d = 12.5d;
+        assertTrue("number of fields set incorrect", FieldSnapshot.apply(patch, copy) == 3);
+        assertTrue("long not patched", copy.l == 99L);
+        assertTrue("array not patched", copy.intArray[3] == -7);
+        assertTrue("null array not patched", copy.booleanArray == null);
+        assertTrue("unchanged field overwritten", copy.d == 12.5d);
+
+        assertTrue("full patch did not set every field",
+                FieldSnapshot.apply(full, new TestClass()) == 16);
+
+        byte[] empty = current.diff(current);
+        assertTrue("empty patch set fields", FieldSnapshot.apply(empty, copy) == 0);
+
+    }
+
+    public void testBadInput() {
+
+        TestClass source = new TestClass();
+        source.l = 99L;
+        byte[] patch = FieldSnapshot.capture(source).diff(null);
+
+        boolean success = false;
+        try {
+            FieldSnapshot.apply(patch, new CollectionItem());
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("patch applied to a different class", success);
+
+        byte[] truncated = new byte[patch.length - 1];
+        System.arraycopy(patch, 0, truncated, 0, truncated.length);
+
+        TestClass target = new TestClass();
+        success = false;
+        try {
+            FieldSnapshot.apply(truncated, target);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("truncated patch accepted", success);
+        assertTrue("truncated patch changed the target", target.l != 99L);
+
+        success = false;
+        try {
+            FieldSnapshot.capture(new TestClass()).diff(
+                    FieldSnapshot.capture(new CollectionItem()));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("snapshots of different classes compared", success);
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package android.reflect.util.test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import android.reflect.util.FieldReflectionUtil;
+import android.reflect.util.FieldValues;
+import android.reflect.util.test.model.StructTestClass;
+import android.reflect.util.test.model.TestClass;
+
+public class FieldValuesTest extends TestCase {
+
+    public static class Hidden {
+        int value = 1;
+    }
+
+    public static class Hiding extends Hidden {
+        long value = 2;
+    }
+
+    private StructTestClass newStruct(int seed) {
+        StructTestClass result = new StructTestClass();
+        result.id = -1234567890123L * seed;
+        result.b = (byte) -seed;
+        result.flag = seed % 2 == 1;
+        result.i = seed * 1000003;
+        result.d = seed / 7d;
+        result.c = (char) (0xFF00 + seed);
+        result.s = (short) -seed;
+        result.f = seed / 3f;
+        result.ignored = "object " + seed;
+        return result;
+    }
+
+    public void testTypedGetters() throws IllegalAccessException {
+
+        StructTestClass object = newStruct(3);
+        FieldValues objectUnderTest = FieldValues.capture(StructTestClass.class, object);
+
+        assertTrue("field count incorrect. Expected 10, found " + objectUnderTest.fieldCount(),
+                objectUnderTest.fieldCount() == 10);
+        assertTrue("unknown field found", objectUnderTest.indexOf("unknown") < 0);
+
+        assertTrue(objectUnderTest.getLong(objectUnderTest.indexOf("id")) == object.id);
+        assertTrue(objectUnderTest.getByte(objectUnderTest.indexOf("b")) == object.b);
+        assertTrue(objectUnderTest.getBoolean(objectUnderTest.indexOf("flag")) == object.flag);
+        assertTrue(objectUnderTest.getInt(objectUnderTest.indexOf("i")) == object.i);
+        assertTrue(objectUnderTest.getDouble(objectUnderTest.indexOf("d")) == object.d);
+        assertTrue(objectUnderTest.getChar(objectUnderTest.indexOf("c")) == object.c);
+        assertTrue(objectUnderTest.getShort(objectUnderTest.indexOf("s")) == object.s);
+        assertTrue(objectUnderTest.getFloat(objectUnderTest.indexOf("f")) == object.f);
+
+        int ignored = objectUnderTest.indexOf("ignored");
+        assertTrue("reference reported as primitive", !objectUnderTest.isPrimitive(ignored));
+        assertTrue("reference value incorrect",
+                object.ignored.equals(objectUnderTest.getObject(ignored)));
+
+        boolean success = false;
+        try {
+            objectUnderTest.getInt(objectUnderTest.indexOf("id"));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("getInt read a long field", success);
+
+        success = false;
+        try {
+            objectUnderTest.getObject(objectUnderTest.indexOf("id"));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("getObject read a primitive field", success);
+
+    }
+
+    public void testRefresh() throws IllegalAccessException {
+
+        FieldValues objectUnderTest = FieldValues.capture(StructTestClass.class, newStruct(1));
+        int i = objectUnderTest.indexOf("i");
+
+        StructTestClass object = newStruct(5);
+        objectUnderTest.refresh(object);
+        assertTrue("refresh did not read the new value",
+                objectUnderTest.getInt(i) == object.i);
+
+        boolean success = false;
+        try {
+            objectUnderTest.refresh(new Object());
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("refresh accepted an object of another class", success);
+
+        success = false;
+        try {
+            FieldValues.capture(StructTestClass.class, null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("capture accepted a null object", success);
+
+    }
+
+    public void testToMap() throws IllegalAccessException {
+
+        TestClass object = new TestClass();
+        Map<Field, Object> control = FieldReflectionUtil.getFieldValues(TestClass.class, object);
+        Map<Field, Object> underTest = FieldValues.capture(TestClass.class, object).toMap();
+
+        assertTrue("expected " + control.size() + " fields, found " + underTest.size(),
+                control.size() == underTest.size());
+        for (Map.Entry<Field, Object> e : control.entrySet()) {
+            Object value = e.getValue();
+            Object found = underTest.get(e.getKey());
+            if (e.getKey().getType().isPrimitive()) {
+                assertTrue("value of " + e.getKey().getName() + " incorrect",
+                        value.equals(found));
+            } else {
+                assertTrue("value of " + e.getKey().getName() + " incorrect", value == found);
+            }
+        }
+
+    }
+
+    public void testHiddenField() throws IllegalAccessException {
+
+        FieldValues objectUnderTest = FieldValues.capture(Hiding.class, new Hiding());
+        int index = objectUnderTest.indexOf("value");
+
+        assertTrue("hidden field found", objectUnderTest.getField(index).getDeclaringClass()
+                == Hiding.class);
+        assertTrue("value incorrect", objectUnderTest.getLong(index) == 2);
+
+    }
+
+}
@@ -0,0 +1,370 @@
+package android.reflect.util.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+import android.lang.util.PrimitiveWriter;
+import android.reflect.util.ObjectGraphSerializer;
+import android.reflect.util.test.model.EnumTestClass;
+import android.reflect.util.test.model.PersistedArrayList;
+import android.reflect.util.test.model.TestClass;
+import android.util.Log;
+
+/**
+ * Test {@link ObjectGraphSerializer}.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public class ObjectGraphSerializerTest extends TestCase {
+
+    private static final String LOG_TAG = "OBJECTGRAPHSERIALIZERTEST";
+
+    public static class Node {
+        private int value;
+        private Node next;
+        private Object payload;
+        private transient int cached = -1;
+
+        private Node() {
+        }
+
+        public Node(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class Holder {
+        private List<String> list;
+        private Set<List<String>> set;
+        private Map<List<String>, String> map;
+    }
+
+    private static boolean sGadgetInitialized;
+
+    public static class GadgetA {
+        private int value;
+    }
+
+    public static class GadgetB {
+        static {
+            sGadgetInitialized = true;
+        }
+
+        private int value;
+    }
+
+    public void testTestClass() {
+
+        TestClass object = new TestClass();
+        object.s = "hello";
+        object.l = Long.MIN_VALUE;
+        object.d = Math.PI;
+        object.c = 'x';
+        object.b = true;
+        object.testtable = object;
+        object.mEnum = EnumTestClass.TWO;
+
+        long start = System.currentTimeMillis();
+        byte[] bytes = ObjectGraphSerializer.serialize(object);
+        long elapsed = System.currentTimeMillis() - start;
+        Log.d(LOG_TAG, "ObjectGraphSerializer generated " + bytes.length + " bytes in "
+                + elapsed + " ms.");
+
+        TestClass copy = ObjectGraphSerializer.deserialize(bytes, TestClass.class);
+
+        assertTrue("self reference not restored", copy.testtable == copy);
+        assertTrue("string incorrect", "hello".equals(copy.s));
+        assertTrue("long incorrect", copy.l == Long.MIN_VALUE);
+        assertTrue("double incorrect", copy.d == Math.PI);
+        assertTrue("char incorrect", copy.c == 'x');
+        assertTrue("boolean incorrect", copy.b);
+        assertTrue("enum incorrect", copy.mEnum == EnumTestClass.TWO);
+
+        for (int i = 0; i < TestClass.SIZE; i++) {
+            assertTrue("long array incorrect", copy.longArray[i] == object.longArray[i]);
+            assertTrue("boolean array incorrect",
+                    copy.booleanArray[i] == object.booleanArray[i]);
+            assertTrue("boxed array incorrect", copy.boxDoubleArray[i].equals(
+                    object.boxDoubleArray[i]));
+        }
+
+        assertTrue("collection incorrect", copy.intCollection.equals(object.intCollection));
+        assertTrue("collection items not restored",
+                copy.itemCollection.get(9).id == object.itemCollection.get(9).id);
+
+    }
+
+    public void testSharedObjects() {
+
+        Node shared = new Node(7);
+        Node first = new Node(1);
+        Node second = new Node(2);
+        first.next = second;
+        first.payload = shared;
+        second.payload = shared;
+        second.next = first;
+        first.cached = 5;
+
+        Node copy = ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(first),
+                Node.class);
+
+        assertTrue("values incorrect", copy.value == 1 && copy.next.value == 2);
+        assertTrue("cycle not restored", copy.next.next == copy);
+        assertTrue("shared object duplicated", copy.payload == copy.next.payload);
+        assertTrue("shared object incorrect", ((Node) copy.payload).value == 7);
+        assertTrue("transient field written", copy.cached == -1);
+
+    }
+
+    public void testCollectionsAndMaps() {
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        list.add(null);
+        list.add(Integer.valueOf(3));
+        list.add(list);
+        map.put("list", list);
+        map.put("set", new TreeSet<String>(Collections.singleton("b")));
+        map.put("view", Collections.unmodifiableList(list));
+        map.put("longs", new long[] {
+                1L, 2L
+        });
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> copy = ObjectGraphSerializer.deserialize(
+                ObjectGraphSerializer.serialize(map), Map.class);
+
+        List<?> listCopy = (List<?>) copy.get("list");
+        assertTrue("list size incorrect", listCopy.size() == 4);
+        assertTrue("list elements incorrect", "a".equals(listCopy.get(0))
+                && listCopy.get(1) == null && Integer.valueOf(3).equals(listCopy.get(2)));
+        assertTrue("list cycle not restored", listCopy.get(3) == listCopy);
+        assertTrue("set incorrect", ((TreeSet<?>) copy.get("set")).first().equals("b"));
+        assertTrue("view not restored", ((List<?>) copy.get("view")).size() == 4);
+        assertTrue("array incorrect", ((long[]) copy.get("longs"))[1] == 2L);
+
+    }
+
+    public void testBoxedElements() {
+
+        PersistedArrayList<Integer> ints = new PersistedArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            ints.add(Integer.valueOf(i * 31));
+        }
+        ints.listId = 42L;
+
+        List<Object> mixed = new ArrayList<Object>();
+        mixed.add(Long.valueOf(1L));
+        mixed.add(Integer.valueOf(2));
+        mixed.add(null);
+
+        Map<Double, Boolean> flags = new HashMap<Double, Boolean>();
+        flags.put(Double.valueOf(1.5d), Boolean.TRUE);
+        flags.put(Double.valueOf(-2.5d), Boolean.FALSE);
+
+        List<Set<?>> sets = new ArrayList<Set<?>>();
+        sets.add(new HashSet<Byte>(Arrays.asList(Byte.valueOf((byte) 1), Byte.valueOf((byte) -1))));
+        sets.add(new LinkedHashSet<Short>(Arrays.asList(Short.valueOf((short) 7))));
+        sets.add(new HashSet<Character>(Arrays.asList(Character.valueOf('a'),
+                Character.valueOf('z'))));
+        sets.add(new HashSet<Float>(Arrays.asList(Float.valueOf(0.5f))));
+        sets.add(new HashSet<Long>(Arrays.asList(Long.valueOf(Long.MIN_VALUE))));
+
+        List<Object> root = new ArrayList<Object>();
+        root.add(ints);
+        root.add(mixed);
+        root.add(flags);
+        root.add(sets);
+
+        List<?> copy = ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(root),
+                List.class);
+
+        @SuppressWarnings("unchecked")
+        PersistedArrayList<Integer> intsCopy = (PersistedArrayList<Integer>) copy.get(0);
+        assertTrue("boxed list incorrect", intsCopy.equals(ints));
+        assertTrue("list field not restored", intsCopy.listId == 42L);
+        assertTrue("mixed list incorrect", copy.get(1).equals(mixed));
+        assertTrue("boxed map incorrect", copy.get(2).equals(flags));
+        assertTrue("boxed sets incorrect", copy.get(3).equals(sets));
+
+    }
+
+    public void testLongChain() {
+
+        Node head = new Node(0);
+        Node tail = head;
+        for (int i = 1; i < 100000; i++) {
+            tail.next = new Node(i);
+            tail = tail.next;
+        }
+
+        Node copy = ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(head),
+                Node.class);
+
+        int count = 0;
+        for (Node node = copy; node != null; node = node.next) {
+            assertTrue("node " + count + " incorrect", node.value == count);
+            count++;
+        }
+        assertTrue("nodes lost", count == 100000);
+
+    }
+
+    public void testBadInput() {
+
+        assertTrue("null root not restored",
+                ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(null)) == null);
+
+        boolean success = false;
+        try {
+            ObjectGraphSerializer.deserialize(new byte[] {
+                    1, 2, 3
+            });
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("bad bytes accepted", success);
+
+        byte[] bytes = ObjectGraphSerializer.serialize(new Node(3));
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        success = false;
+        try {
+            ObjectGraphSerializer.deserialize(truncated);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("truncated bytes accepted", success);
+
+        // an object count far larger than the number of bytes
+        bytes[3] = 0x7f;
+        success = false;
+        try {
+            ObjectGraphSerializer.deserialize(bytes);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("object count larger than the input accepted", success);
+
+    }
+
+    /*
+     * The list is filled after the set and map that hold it, because it is
+     * reached through a sibling field.
+     */
+    public void testSiblingCollectionKeys() {
+
+        Holder holder = new Holder();
+        holder.list = new ArrayList<String>();
+        holder.list.add("k");
+        holder.set = new HashSet<List<String>>();
+        holder.set.add(holder.list);
+        holder.map = new HashMap<List<String>, String>();
+        holder.map.put(holder.list, "v");
+
+        Holder copy = ObjectGraphSerializer.deserialize(ObjectGraphSerializer.serialize(holder),
+                Holder.class);
+
+        assertTrue("set does not contain the list", copy.set.contains(copy.list));
+        assertTrue("set does not contain an equal list",
+                copy.set.contains(Arrays.asList("k")));
+        assertTrue("map does not contain the list", "v".equals(copy.map.get(copy.list)));
+        assertTrue("map does not contain an equal list",
+                "v".equals(copy.map.get(Arrays.asList("k"))));
+
+    }
+
+    /*
+     * Returns bytes with the first occurrence of the class name from replaced
+     * by the class name to, which must have the same length.
+     */
+    private static byte[] replaceClass(byte[] bytes, Class<?> from, Class<?> to) {
+        char[] fromName = from.getName().toCharArray();
+        char[] toName = to.getName().toCharArray();
+        byte[] pattern = new PrimitiveWriter().append(fromName, 0, fromName.length)
+                .toByteArray();
+        byte[] replacement = new PrimitiveWriter().append(toName, 0, toName.length)
+                .toByteArray();
+
+        byte[] result = bytes.clone();
+        for (int i = 0; i + pattern.length <= result.length; i++) {
+            boolean match = true;
+            for (int j = 0; match && j < pattern.length; j++) {
+                match = result[i + j] == pattern[j];
+            }
+            if (match) {
+                System.arraycopy(replacement, 0, result, i, replacement.length);
+                return result;
+            }
+        }
+        throw new IllegalArgumentException(from.getName() + " not found");
+    }
+
+    public void testAllowedClasses() {
+
+        List<Object> list = new ArrayList<Object>();
+        list.add(new Node(1));
+        list.add(EnumTestClass.TWO);
+        list.add(new int[] {
+                1, 2
+        });
+        list.add(new Node[] {
+            new Node(2)
+        });
+        byte[] bytes = ObjectGraphSerializer.serialize(list);
+
+        List<?> copy = ObjectGraphSerializer.deserialize(bytes, List.class,
+                Arrays.<Class<?>> asList(Node.class, EnumTestClass.class));
+        assertTrue("allowed graph not restored", copy.size() == 4
+                && ((Node) copy.get(0)).value == 1 && copy.get(1) == EnumTestClass.TWO
+                && ((Node[]) copy.get(3))[0].value == 2);
+
+        boolean success = false;
+        try {
+            ObjectGraphSerializer.deserialize(bytes, List.class,
+                    Collections.<Class<?>> singletonList(Node.class));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("enum that is not allowed accepted", success);
+
+        success = false;
+        try {
+            ObjectGraphSerializer.deserialize(bytes, List.class,
+                    Collections.<Class<?>> singletonList(EnumTestClass.class));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("class that is not allowed accepted", success);
+
+        // a class named by tampered bytes is rejected before it is initialized
+        GadgetA gadget = new GadgetA();
+        gadget.value = 5;
+        bytes = replaceClass(ObjectGraphSerializer.serialize(gadget), GadgetA.class,
+                GadgetB.class);
+
+        success = false;
+        try {
+            ObjectGraphSerializer.deserialize(bytes, Object.class,
+                    Collections.<Class<?>> singletonList(GadgetA.class));
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("tampered class accepted", success);
+        assertFalse("rejected class was initialized", sGadgetInitialized);
+
+    }
+
+}
@@ -0,0 +1,223 @@
+package android.reflect.util.test;
+
+import junit.framework.TestCase;
+import android.lang.util.SegmentedByteBuffer;
+import android.reflect.util.StructCursor;
+import android.reflect.util.StructLayout;
+import android.reflect.util.StructStore;
+import android.reflect.util.test.model.StructTestClass;
+import android.reflect.util.test.model.TestClass;
+
+/**
+ * Test {@link StructLayout}, {@link StructStore} and {@link StructCursor}.
+ * 
+ * @author Richard Schilling
+ * @since 1.1
+ */
+public class StructStoreTest extends TestCase {
+
+    public static class PrivateRecord {
+        int value;
+
+        private PrivateRecord() {
+        }
+    }
+
+    public static class ArgumentRecord {
+        int value;
+
+        public ArgumentRecord(int value) {
+            this.value = value;
+        }
+    }
+
+    private static StructTestClass createRecord(int seed) {
+        StructTestClass result = new StructTestClass();
+        result.id = seed * 1000000007L;
+        result.b = (byte) seed;
+        result.flag = seed % 2 == 0;
+        result.i = -seed;
+        result.d = seed / 3d;
+        result.c = (char) ('a' + seed % 26);
+        result.s = (short) (seed * 3);
+        result.f = seed / 7f;
+        return result;
+    }
+
+    private static void assertRecord(int seed, StructTestClass record) {
+        StructTestClass control = createRecord(seed);
+        assertTrue("id incorrect", record.id == control.id);
+        assertTrue("b incorrect", record.b == control.b);
+        assertTrue("flag incorrect", record.flag == control.flag);
+        assertTrue("i incorrect", record.i == control.i);
+        assertTrue("d incorrect", record.d == control.d);
+        assertTrue("c incorrect", record.c == control.c);
+        assertTrue("s incorrect", record.s == control.s);
+        assertTrue("f incorrect", record.f == control.f);
+    }
+
+    public void testLayout() {
+
+        StructLayout layout = StructLayout.of(StructTestClass.class);
+
+        StructLayout other = StructLayout.of(StructTestClass.class);
+        assertTrue("layout not stable", other.recordSize() == layout.recordSize()
+                && other.fieldCount() == layout.fieldCount());
+        for (int i = 0; i < layout.fieldCount(); i++) {
+            assertTrue("field order not stable", other.getField(i).equals(layout.getField(i))
+                    && other.offset(i) == layout.offset(i));
+        }
+        assertTrue("static or transient field included. Found " + layout.fieldCount(),
+                layout.fieldCount() == 8);
+
+        // 8 + 8 + 4 + 4 + 2 + 2 + 1 + 1 = 30, rounded up to 32
+        assertTrue("record size incorrect. Found " + layout.recordSize(),
+                layout.recordSize() == 32);
+
+        for (int i = 0; i < layout.fieldCount(); i++) {
+            int size = StructLayout.sizeOf(layout.getField(i).getType());
+            assertTrue(layout.getField(i).getName() + " not aligned",
+                    layout.offset(i) % size == 0);
+        }
+
+        assertTrue(layout.offset(layout.indexOf("b")) >= 28);
+
+        boolean success = false;
+        try {
+            StructLayout.of(TestClass.class);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("class with object fields accepted", success);
+
+    }
+
+    public void testRecords() {
+
+        StructStore<StructTestClass> objectUnderTest = new StructStore<StructTestClass>(
+                StructTestClass.class, 100);
+        assertTrue(objectUnderTest.capacity() == 100);
+
+        for (int i = 0; i < 100; i++) {
+            objectUnderTest.put(i, createRecord(i));
+        }
+
+        StructTestClass reused = new StructTestClass();
+        for (int i = 99; i >= 0; i--) {
+            assertRecord(i, objectUnderTest.get(i, reused));
+        }
+        assertRecord(42, objectUnderTest.get(42));
+
+        boolean success = false;
+        try {
+            objectUnderTest.get(100);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("record past the end allowed", success);
+
+    }
+
+    public void testConstructors() {
+
+        StructStore<PrivateRecord> privateStore = new StructStore<PrivateRecord>(
+                PrivateRecord.class, 1);
+        PrivateRecord record = new PrivateRecord();
+        record.value = 7;
+        privateStore.put(0, record);
+        assertTrue("private constructor not used", privateStore.get(0).value == 7);
+
+        StructStore<ArgumentRecord> argumentStore = new StructStore<ArgumentRecord>(
+                ArgumentRecord.class, 1);
+        argumentStore.put(0, new ArgumentRecord(7));
+        assertTrue(argumentStore.get(0, new ArgumentRecord(0)).value == 7);
+
+        boolean success = false;
+        try {
+            argumentStore.get(0);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("class without a no-argument constructor created", success);
+
+    }
+
+    public void testFieldsInPlace() {
+
+        // small segments so that records cross segment boundaries
+        SegmentedByteBuffer buffer = new SegmentedByteBuffer(32 * 10 + 5, 4);
+        StructStore<StructTestClass> objectUnderTest = new StructStore<StructTestClass>(
+                StructTestClass.class, buffer);
+        assertTrue("partial record counted", objectUnderTest.capacity() == 10);
+
+        StructLayout layout = objectUnderTest.getLayout();
+        int id = layout.indexOf("id");
+        int f = layout.indexOf("f");
+        int flag = layout.indexOf("flag");
+
+        objectUnderTest.put(7, createRecord(7));
+        objectUnderTest.setLong(7, id, 99L);
+        objectUnderTest.setFloat(7, f, objectUnderTest.getFloat(7, f) + 1f);
+        objectUnderTest.setBoolean(7, flag, true);
+
+        StructTestClass record = objectUnderTest.get(7);
+        assertTrue("id not updated", record.id == 99L);
+        assertTrue("f not updated", record.f == 7 / 7f + 1f);
+        assertTrue("flag not updated", record.flag);
+        assertTrue("other field changed", record.i == -7);
+
+        boolean success = false;
+        try {
+            objectUnderTest.getInt(7, id);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("wrong field type allowed", success);
+
+    }
+
+    public void testCursor() {
+
+        StructStore<StructTestClass> store = new StructStore<StructTestClass>(
+                StructTestClass.class, 1000);
+        for (int i = 0; i < 1000; i++) {
+            store.put(i, createRecord(i));
+        }
+
+        StructCursor objectUnderTest = store.cursor();
+        int id = objectUnderTest.getLayout().indexOf("id");
+        int i = objectUnderTest.getLayout().indexOf("i");
+        int c = objectUnderTest.getLayout().indexOf("c");
+
+        StructTestClass record = new StructTestClass();
+        objectUnderTest.moveTo(3).read(record);
+        assertRecord(3, record);
+
+        objectUnderTest.reset();
+        long sum = 0;
+        int count = 0;
+        while (objectUnderTest.next()) {
+            assertTrue("index incorrect", objectUnderTest.index() == count);
+            assertTrue("c incorrect", objectUnderTest.getChar(c) == 'a' + count % 26);
+            sum += objectUnderTest.getInt(i);
+            objectUnderTest.setLong(id, count);
+            count++;
+        }
+        assertTrue("records skipped", count == 1000);
+        assertTrue("sum incorrect", sum == -999L * 1000 / 2);
+        assertTrue("cursor moved past the end", objectUnderTest.index() == 999);
+
+        assertTrue("record not updated in place", store.get(500).id == 500L);
+
+        objectUnderTest.reset();
+        boolean success = false;
+        try {
+            objectUnderTest.getInt(i);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("read before the first record allowed", success);
+
+    }
+
+}
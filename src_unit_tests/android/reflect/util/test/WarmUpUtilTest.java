@@ -0,0 +1,86 @@
+package android.reflect.util.test;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import android.reflect.util.FieldReflectionUtil;
+import android.reflect.util.WarmUpUtil;
+import android.reflect.util.test.model.StructTestClass;
+import android.reflect.util.test.model.TestClass;
+import android.util.Log;
+
+public class WarmUpUtilTest extends TestCase {
+
+    private static final String LOG_TAG = "WARMUPUTILTEST";
+
+    /**
+     * Only used by {@link #testCachesFilled()}, so no other test fills its
+     * caches first.
+     */
+    public static class Warmed {
+        private int count;
+        private long[] values;
+        private String name;
+    }
+
+    /*
+     * Reads the private sorted field cache of FieldReflectionUtil and returns
+     * the views cached for type, or null if there are none.
+     */
+    private static Field[][] getCachedViews(Class<?> type) throws Exception {
+        Field field = FieldReflectionUtil.class.getDeclaredField("SORTED_FIELDS");
+        field.setAccessible(true);
+        Map<?, ?> cache = (Map<?, ?>) field.get(null);
+        synchronized (cache) {
+            SoftReference<?> reference = (SoftReference<?>) cache.get(type);
+            return reference == null ? null : (Field[][]) reference.get();
+        }
+    }
+
+    public void testWarmUp() {
+
+        Map<Class<?>, Long> times = WarmUpUtil.warmUp(TestClass.class, StructTestClass.class,
+                Comparable.class);
+
+        for (Map.Entry<Class<?>, Long> entry : times.entrySet()) {
+            Log.d(LOG_TAG, "warmed up " + entry.getKey().getName() + " in "
+                    + entry.getValue() / 1000 + " us.");
+            assertTrue("negative time", entry.getValue().longValue() >= 0);
+        }
+
+        assertTrue("time missing for TestClass", times.containsKey(TestClass.class));
+        assertTrue("time missing for StructTestClass", times.containsKey(StructTestClass.class));
+        assertTrue("time missing for an interface", times.containsKey(Comparable.class));
+
+        Map<Class<?>, Long> again = WarmUpUtil.warmUp(TestClass.class);
+        assertTrue("codecs warmed up twice", again.size() == 1);
+
+    }
+
+    public void testCachesFilled() throws Exception {
+
+        WarmUpUtil.warmUp(Warmed.class);
+
+        Field[][] views = getCachedViews(Warmed.class);
+        assertTrue("fields not cached", views != null);
+        for (int view = 0; view < views.length; view++) {
+            assertTrue("view " + view + " not cached", views[view] != null);
+        }
+
+    }
+
+    public void testBadInput() {
+
+        boolean success = false;
+        try {
+            WarmUpUtil.warmUp(TestClass.class, null);
+        } catch (IllegalArgumentException ex) {
+            success = true;
+        }
+        assertTrue("null class accepted", success);
+
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013  Richard Schilling. All rights reserved.
+ * contact: coderroadie@gmail.com
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package android.reflect.util.test.model;
+
+/**
+ * A class with only primitive fields, for struct layout tests.
+ */
+public class StructTestClass extends StructTestBase {
+
+    public static int instances;
+
+    public transient Object ignored;
+
+    public byte b;
+    public boolean flag;
+    public int i;
+    public double d;
+    public char c;
+    public short s;
+    public float f;
+
+}